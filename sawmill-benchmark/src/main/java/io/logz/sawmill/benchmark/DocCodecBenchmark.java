@@ -0,0 +1,75 @@
+package io.logz.sawmill.benchmark;
+
+import io.logz.sawmill.Doc;
+import io.logz.sawmill.DocCodec;
+import io.logz.sawmill.utilities.DataFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.stream.IntStream;
+
+/**
+ * JMH based micro-benchmark comparing parse and serialize throughput of docs in json and its binary encodings,
+ * on the doc types of {@link DocumentGenerator}.
+ * The benchmark can be launched from the main() method in this class.
+ *
+ * To enable this micro benchmark, the file must removed from the excludes list in the pom file.
+ */
+@State(Scope.Thread)
+public class DocCodecBenchmark {
+    private static final int NUMBER_OF_DOCS = 100;
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    private DataFormat format;
+
+    @Param({"RANDOM", "APACHE"})
+    private DocumentGenerator.DocType docType;
+
+    private DocCodec codec;
+    private Doc[] docs;
+    private byte[][] encodedDocs;
+    private int next;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(DocCodecBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setup() {
+        codec = DocCodec.of(format);
+        docs = IntStream.range(0, NUMBER_OF_DOCS)
+                .mapToObj(i -> new Doc(DocumentGenerator.generateDoc(docType)))
+                .toArray(Doc[]::new);
+        encodedDocs = new byte[NUMBER_OF_DOCS][];
+        for (int i = 0; i < NUMBER_OF_DOCS; i++) {
+            encodedDocs[i] = codec.toBytes(docs[i]);
+        }
+    }
+
+    @Benchmark
+    public Doc benchmarkParse() {
+        return codec.read(encodedDocs[nextIndex()]);
+    }
+
+    @Benchmark
+    public byte[] benchmarkSerialize() {
+        return codec.toBytes(docs[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        next = next + 1 == NUMBER_OF_DOCS ? 0 : next + 1;
+        return next;
+    }
+}
@@ -36,17 +36,7 @@ public class DocumentGenerator {
                 File file = new File(new File(path), fileName);
                 List<String> lines = new ArrayList<>();
                 for (int j=0; j< docsPerFile; j++) {
-                    Map<String, Object> map = new HashMap<>();
-                    switch (type) {
-                        case RANDOM:
-                            map = generateRandomJsonDoc(random.nextInt(MAX_FIELDS_AMOUNT) + 1, 0);
-                            break;
-                        case APACHE:
-                            map = generateApacheLog();
-                            break;
-                    }
-
-                    lines.add(JsonUtils.toJsonString(map));
+                    lines.add(JsonUtils.toJsonString(generateDoc(type)));
                 }
                 FileUtils.writeLines(file, "UTF-8", lines);
             } catch (IOException e) {
@@ -56,6 +46,17 @@ public class DocumentGenerator {
 
     }
 
+    public static Map<String, Object> generateDoc(DocType type) {
+        switch (type) {
+            case RANDOM:
+                return generateRandomJsonDoc(random.nextInt(MAX_FIELDS_AMOUNT) + 1, 0);
+            case APACHE:
+                return generateApacheLog();
+            default:
+                return new HashMap<>();
+        }
+    }
+
     private static Map<String, Object> generateApacheLog() {
         Map<String,Object> map = new HashMap<>();
         String datetime = ZonedDateTime.now().minusSeconds(random.nextInt(3000)).format(DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z"));
@@ -0,0 +1,95 @@
+package io.logz.sawmill.benchmark;
+
+import io.logz.sawmill.Doc;
+import io.logz.sawmill.ExecutionResult;
+import io.logz.sawmill.Pipeline;
+import io.logz.sawmill.PipelineExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * JMH based micro-benchmark comparing the interpreted execution plan with the bytecode generated executor
+ * of the same pipeline. The pipeline mixes several processor types and nested conditions so the
+ * interpreter's processor call site is megamorphic.
+ * The benchmark can be launched from the main() method in this class.
+ *
+ * To enable this micro benchmark, the file must removed from the excludes list in the pom file.
+ */
+@State(Scope.Thread)
+public class GeneratedPipelineBenchmark {
+    private static final int NUMBER_OF_FIELDS = 20;
+    private static final int NUMBER_OF_BLOCKS = 10;
+
+    private Map<String, Object> documentTemplate;
+    private PipelineExecutor pipelineExecutor;
+    private Pipeline interpretedPipeline;
+    private Pipeline generatedPipeline;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(GeneratedPipelineBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setup() {
+        pipelineExecutor = new PipelineExecutor();
+        Pipeline.Factory factory = new Pipeline.Factory();
+
+        String steps = IntStream.range(0, NUMBER_OF_BLOCKS).boxed()
+                .map(this::createBlock)
+                .collect(Collectors.joining(","));
+
+        interpretedPipeline = factory.create("interpreted", "{ steps: [" + steps + "] }");
+        generatedPipeline = factory.create("generated", "{ steps: [" + steps + "], generateBytecode: true }");
+
+        documentTemplate = IntStream.range(0, NUMBER_OF_FIELDS).boxed().collect(Collectors.toMap(i -> "field" + i, i -> "Value" + i));
+    }
+
+    @TearDown
+    public void tearDown() {
+        pipelineExecutor.close();
+    }
+
+    private String createBlock(int i) {
+        return "{ if: { condition: { exists: { field: \"field" + i + "\" } }, then: [" +
+                "{ lowerCase: { config: { field: \"field" + i + "\" } } }," +
+                "{ upperCase: { config: { fields: [\"field" + i + "\"] } } }," +
+                "{ addField: { config: { path: \"added" + i + "\", value: \"" + i + "\" } } }," +
+                "{ convert: { config: { path: \"added" + i + "\", type: \"long\" } } }," +
+                "{ rename: { config: { from: \"added" + i + "\", to: \"renamed" + i + "\" } } }" +
+                "], else: [" +
+                "{ addTag: { config: { tags: [\"missing" + i + "\"] } } }" +
+                "] } }," +
+                "{ removeField: { config: { path: \"renamed" + i + "\" } } }";
+    }
+
+    @Benchmark
+    public ExecutionResult benchmarkInterpretedPipeline() {
+        return pipelineExecutor.execute(interpretedPipeline, createDocFromTemplate(documentTemplate));
+    }
+
+    @Benchmark
+    public ExecutionResult benchmarkGeneratedPipeline() {
+        return pipelineExecutor.execute(generatedPipeline, createDocFromTemplate(documentTemplate));
+    }
+
+    public Doc createDocFromTemplate(Map<String, Object> original) {
+        return new Doc(new LinkedHashMap<>(original));
+    }
+}
@@ -0,0 +1,304 @@
+package io.logz.sawmill;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Insertion ordered map of field keys, with keys and values in one array and no entry objects.
+ * <p>Small maps are scanned linearly, bigger ones are indexed by an open addressing table of positions in the array.
+ * Keys are interned in a {@link KeyDictionary}, so maps of recurring keys share their key instances and mostly
+ * compare them by identity. Removed entries leave a hole in the array until it is full. Not thread safe.
+ */
+final class CompactMap extends AbstractMap<String, Object> {
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int MAX_SCANNED_CAPACITY = 8;
+    private static final int FREE = 0;
+    private static final int REMOVED = -1;
+
+    private final KeyDictionary keyDictionary;
+
+    /**
+     * Key at {@code 2 * i} and value at {@code 2 * i + 1} of the i-th entry put, {@code null} key for a removed entry
+     */
+    private Object[] entries;
+
+    /**
+     * Position of an entry plus one per slot, {@code null} while the map is scanned
+     */
+    private int[] slots;
+    private int used;
+    private int size;
+    private int modCount;
+
+    CompactMap(KeyDictionary keyDictionary) {
+        this(keyDictionary, INITIAL_CAPACITY);
+    }
+
+    CompactMap(KeyDictionary keyDictionary, int expectedSize) {
+        this.keyDictionary = keyDictionary;
+        allocate(Math.max(expectedSize, INITIAL_CAPACITY));
+    }
+
+    private CompactMap(CompactMap other) {
+        this.keyDictionary = other.keyDictionary;
+        this.entries = other.entries.clone();
+        this.slots = other.slots == null ? null : other.slots.clone();
+        this.used = other.used;
+        this.size = other.size;
+    }
+
+    CompactMap copy() {
+        return new CompactMap(this);
+    }
+
+    KeyDictionary getKeyDictionary() {
+        return keyDictionary;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = indexOf(key);
+        return index >= 0 ? entries[2 * index + 1] : null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        requireNonNull(key, "key cannot be null");
+        int index = indexOf(key);
+        if (index >= 0) {
+            Object previous = entries[2 * index + 1];
+            entries[2 * index + 1] = value;
+            return previous;
+        }
+
+        if (2 * used == entries.length) {
+            allocate(size < used / 2 ? entries.length / 2 : entries.length);
+        }
+        String internedKey = keyDictionary.intern(key);
+        entries[2 * used] = internedKey;
+        entries[2 * used + 1] = value;
+        if (slots != null) {
+            slots[freeSlot(internedKey)] = used + 1;
+        }
+        used++;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        Object previous = entries[2 * index + 1];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(entries, 0, 2 * used, null);
+        if (slots != null) {
+            Arrays.fill(slots, FREE);
+        }
+        used = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new EntrySet();
+    }
+
+    private int indexOf(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        if (slots == null) {
+            for (int i = 0; i < used; i++) {
+                if (entries[2 * i] == key) return i;
+            }
+            for (int i = 0; i < used; i++) {
+                Object entryKey = entries[2 * i];
+                if (entryKey != null && entryKey.equals(key)) return i;
+            }
+            return -1;
+        }
+
+        int mask = slots.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int position = slots[slot];
+            if (position == FREE) return -1;
+            if (position != REMOVED) {
+                Object entryKey = entries[2 * (position - 1)];
+                if (entryKey == key || entryKey.equals(key)) return position - 1;
+            }
+        }
+    }
+
+    private int freeSlot(Object key) {
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] > FREE) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void removeAt(int index) {
+        if (slots != null) {
+            int mask = slots.length - 1;
+            int slot = hash(entries[2 * index]) & mask;
+            while (slots[slot] != index + 1) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = REMOVED;
+        }
+        entries[2 * index] = null;
+        entries[2 * index + 1] = null;
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Moves the entries to arrays of the given capacity, dropping the removed ones
+     */
+    private void allocate(int capacity) {
+        Object[] previousEntries = entries;
+        int previousUsed = used;
+        entries = new Object[2 * capacity];
+        slots = capacity > MAX_SCANNED_CAPACITY ? new int[Integer.highestOneBit(capacity - 1) << 2] : null;
+        used = 0;
+        for (int i = 0; i < previousUsed; i++) {
+            Object key = previousEntries[2 * i];
+            if (key == null) continue;
+            entries[2 * used] = key;
+            entries[2 * used + 1] = previousEntries[2 * i + 1];
+            if (slots != null) {
+                slots[freeSlot(key)] = used + 1;
+            }
+            used++;
+        }
+        modCount++;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private class EntrySet extends AbstractSet<Entry<String, Object>> {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, Object>> {
+        private int next = nextIndex(0);
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next < used;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (next >= used) throw new NoSuchElementException();
+            last = next;
+            next = nextIndex(next + 1);
+            return new CompactEntry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) throw new IllegalStateException();
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            removeAt(last);
+            last = -1;
+            expectedModCount = modCount;
+        }
+
+        private int nextIndex(int from) {
+            int index = from;
+            while (index < used && entries[2 * index] == null) {
+                index++;
+            }
+            return index;
+        }
+    }
+
+    private class CompactEntry implements Map.Entry<String, Object> {
+        private final int index;
+        private final String key;
+
+        private CompactEntry(int index) {
+            this.index = index;
+            this.key = (String) entries[2 * index];
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public Object getValue() {
+            return entries[2 * index + 1];
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object previous = entries[2 * index + 1];
+            entries[2 * index + 1] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) return false;
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return getKey().equals(other.getKey()) && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package io.logz.sawmill;
+
+import com.github.mustachejava.MustacheException;
+import com.github.mustachejava.ObjectHandler;
+import com.github.mustachejava.reflect.MissingWrapper;
+import io.logz.sawmill.utilities.ObjectPool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Template compiled into literal segments, field lookups and date sections, rendered into a pooled buffer
+ * without running Mustache.
+ * <p>Lookups follow the Mustache rules the {@link ObjectHandler} implements: the whole name as a top level field first,
+ * then the dotted path through maps and lists, and values are stringified by the same handler, so both the plain and
+ * the json string variant render exactly as Mustache does. A doc whose path walks through a value that is neither a map
+ * nor a list, which Mustache would resolve by reflection, is rendered by the Mustache fallback.
+ */
+final class CompiledTemplate implements Template {
+    private static final int MAX_POOLED_BUFFER_CAPACITY = 8192;
+    private static final ObjectPool<StringBuilder> buffers = new ObjectPool<>(StringBuilder::new);
+    private static final Object UNSUPPORTED = new Object();
+
+    private final Segment[] segments;
+    private final FieldSegment singleField;
+    private final Template fallback;
+
+    private CompiledTemplate(List<Segment> segments, Template fallback) {
+        this.segments = segments.toArray(new Segment[0]);
+        this.singleField = segments.size() == 1 && segments.get(0) instanceof FieldSegment ? (FieldSegment) segments.get(0) : null;
+        this.fallback = fallback;
+    }
+
+    /**
+     * @param template template text, already validated by compiling it with Mustache
+     * @param scope date handler the Mustache template renders with after the doc, looked up before the doc
+     * @param fallback renders the docs the compiled template cannot
+     * @return the compiled template, or null if the template uses anything but field references and literal sections of the scope
+     */
+    static CompiledTemplate compile(String template, ObjectHandler objectHandler, DateTemplateHandler scope, Template fallback) {
+        if (template.indexOf('\r') != -1) {
+            return null;
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        int position = 0;
+        while (position < template.length()) {
+            int tagStart = template.indexOf("{{", position);
+            if (tagStart == -1) {
+                segments.add(new LiteralSegment(template.substring(position)));
+                break;
+            }
+            if (tagStart > position) {
+                segments.add(new LiteralSegment(template.substring(position, tagStart)));
+            }
+
+            int tagEnd = template.indexOf("}}", tagStart + 2);
+            if (tagEnd == -1) {
+                return null;
+            }
+            String command = template.substring(tagStart + 2, tagEnd);
+            position = tagEnd + 2;
+
+            if (command.startsWith("#")) {
+                // sections are only compiled when Mustache would not strip them as standalone lines
+                if (template.indexOf('\n') != -1) {
+                    return null;
+                }
+                String name = command.substring(1).trim();
+                int bodyEnd = template.indexOf("{{", position);
+                int closeEnd = bodyEnd == -1 ? -1 : template.indexOf("}}", bodyEnd + 2);
+                String closeCommand = closeEnd == -1 ? "" : template.substring(bodyEnd + 2, closeEnd);
+                if (!closeCommand.startsWith("/") || !closeCommand.substring(1).trim().equals(name)) {
+                    return null;
+                }
+                Function<String, String> function = scopeFunction(objectHandler, scope, name);
+                if (function == null) {
+                    return null;
+                }
+                segments.add(dateSegment(scope, function, template.substring(position, bodyEnd)));
+                position = closeEnd + 2;
+                continue;
+            }
+
+            String name = command.trim();
+            if (name.isEmpty() || "#^/<?$>{&%!=".indexOf(name.charAt(0)) != -1) {
+                return null;
+            }
+            String[] elements = name.split("\\.", -1);
+            for (String element : elements) {
+                if (element.isEmpty()) {
+                    return null;
+                }
+            }
+            if (resolvesOnScope(objectHandler, scope, elements[0])) {
+                return null;
+            }
+            segments.add(new FieldSegment(objectHandler, name, elements));
+        }
+
+        return new CompiledTemplate(segments, fallback);
+    }
+
+    /**
+     * Resolves the date format once, or leaves an invalid format to fail on render as it does with Mustache
+     */
+    private static Segment dateSegment(DateTemplateHandler scope, Function<String, String> function, String dateFormat) {
+        try {
+            return new DateSegment(scope.currentDateFormat(dateFormat));
+        } catch (IllegalArgumentException e) {
+            return new FunctionSegment(function, dateFormat);
+        }
+    }
+
+    private static boolean resolvesOnScope(ObjectHandler objectHandler, Object scope, String name) {
+        return !(objectHandler.find(name, Collections.singletonList(scope)) instanceof MissingWrapper);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<String, String> scopeFunction(ObjectHandler objectHandler, Object scope, String name) {
+        if (!resolvesOnScope(objectHandler, scope, name)) {
+            return null;
+        }
+        try {
+            Object value = objectHandler.find(name, Collections.singletonList(scope)).call(Collections.singletonList(scope));
+            return value instanceof Function ? (Function<String, String>) value : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String render(Doc doc) {
+        Map<String, Object> source = doc == null ? Collections.emptyMap() : doc.getSourceView();
+
+        if (singleField != null) {
+            Object value = singleField.lookup(source);
+            if (value == UNSUPPORTED) {
+                return fallback.render(doc);
+            }
+            return value == null ? "" : singleField.stringify(value);
+        }
+
+        StringBuilder buffer = buffers.acquire();
+        try {
+            buffer.setLength(0);
+            for (Segment segment : segments) {
+                if (!segment.append(buffer, source)) {
+                    return fallback.render(doc);
+                }
+            }
+            return buffer.toString();
+        } finally {
+            if (buffer.capacity() <= MAX_POOLED_BUFFER_CAPACITY) {
+                buffers.release(buffer);
+            }
+        }
+    }
+
+    private interface Segment {
+        /**
+         * @return false if the source holds values only Mustache can render
+         */
+        boolean append(StringBuilder buffer, Map<String, Object> source);
+    }
+
+    private static class LiteralSegment implements Segment {
+        private final String text;
+
+        private LiteralSegment(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public boolean append(StringBuilder buffer, Map<String, Object> source) {
+            buffer.append(text);
+            return true;
+        }
+    }
+
+    private static class FieldSegment implements Segment {
+        private final ObjectHandler objectHandler;
+        private final String name;
+        private final String[] elements;
+
+        private FieldSegment(ObjectHandler objectHandler, String name, String[] elements) {
+            this.objectHandler = objectHandler;
+            this.name = name;
+            this.elements = elements;
+        }
+
+        /**
+         * @return the coerced value, null if missing, or {@link #UNSUPPORTED} if the path walks through a value that is not a map
+         */
+        private Object lookup(Map<String, Object> source) {
+            if (source.containsKey(name)) {
+                return objectHandler.coerce(source.get(name));
+            }
+            if (elements.length == 1) {
+                return null;
+            }
+
+            Object scope = source;
+            for (String element : elements) {
+                if (!(scope instanceof Map)) {
+                    return UNSUPPORTED;
+                }
+                Map<?, ?> map = (Map<?, ?>) scope;
+                if (!map.containsKey(element)) {
+                    return null;
+                }
+                scope = objectHandler.coerce(map.get(element));
+                if (scope == null) {
+                    return null;
+                }
+            }
+            return scope;
+        }
+
+        private String stringify(Object value) {
+            return objectHandler.stringify(value);
+        }
+
+        @Override
+        public boolean append(StringBuilder buffer, Map<String, Object> source) {
+            Object value = lookup(source);
+            if (value == UNSUPPORTED) {
+                return false;
+            }
+            if (value != null) {
+                buffer.append(stringify(value));
+            }
+            return true;
+        }
+    }
+
+    private static class DateSegment implements Segment {
+        private final DateTemplateHandler.CurrentDateFormat currentDateFormat;
+
+        private DateSegment(DateTemplateHandler.CurrentDateFormat currentDateFormat) {
+            this.currentDateFormat = currentDateFormat;
+        }
+
+        @Override
+        public boolean append(StringBuilder buffer, Map<String, Object> source) {
+            buffer.append(currentDateFormat.format(System.currentTimeMillis()));
+            return true;
+        }
+    }
+
+    private static class FunctionSegment implements Segment {
+        private final Function<String, String> function;
+        private final String body;
+
+        private FunctionSegment(Function<String, String> function, String body) {
+            this.function = function;
+            this.body = body;
+        }
+
+        @Override
+        public boolean append(StringBuilder buffer, Map<String, Object> source) {
+            String value;
+            try {
+                value = function.apply(body);
+            } catch (Exception e) {
+                throw new MustacheException("Function failure", e);
+            }
+            if (value != null) {
+                buffer.append(value);
+            }
+            return true;
+        }
+    }
+}
@@ -7,6 +7,13 @@ import java.util.Map;
 public interface Condition {
     boolean evaluate(Doc doc);
 
+    /**
+     * @return the fields this condition reads, all of them unless the condition tells otherwise
+     */
+    default FieldAccess getFieldAccess() {
+        return FieldAccess.ALL;
+    }
+
     interface Factory {
         Condition create(Map<String, Object> config, ConditionParser conditionParser);
     }
@@ -25,4 +25,9 @@ public class ConditionalExecutionStep implements ExecutionStep {
     public List<ExecutionStep> getOnFalse() {
         return onFalse;
     }
+
+    @Override
+    public FieldAccess getFieldAccess() {
+        return condition.getFieldAccess();
+    }
 }
@@ -4,9 +4,15 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 public class DateTemplateHandler {
+    private static final int MAX_CACHED_FORMATS = 1000;
+
+    private final ConcurrentMap<String, CurrentDateFormat> currentDateFormats = new ConcurrentHashMap<>();
 
     // keep compatibility until we change configs
     public Function<String, String> date() {
@@ -17,7 +23,103 @@ public class DateTemplateHandler {
         return this::getCurrentDateByFormat;
     }
 
+    /**
+     * @return the current date in the format, cached per format so that templates can resolve it once
+     * @throws IllegalArgumentException if the format is not a valid {@link DateTimeFormatter} pattern
+     */
+    CurrentDateFormat currentDateFormat(String dateFormat) {
+        CurrentDateFormat currentDateFormat = currentDateFormats.get(dateFormat);
+        if (currentDateFormat != null) {
+            return currentDateFormat;
+        }
+
+        currentDateFormat = new CurrentDateFormat(dateFormat);
+        if (currentDateFormats.size() < MAX_CACHED_FORMATS) {
+            CurrentDateFormat cached = currentDateFormats.putIfAbsent(dateFormat, currentDateFormat);
+            return cached != null ? cached : currentDateFormat;
+        }
+        return currentDateFormat;
+    }
+
     private String getCurrentDateByFormat(String dateFormat) {
-        return DateTimeFormatter.ofPattern(dateFormat).format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(System.currentTimeMillis()), ZoneOffset.UTC));
+        return currentDateFormat(dateFormat).format(System.currentTimeMillis());
+    }
+
+    /**
+     * A date format in utc whose output is formatted once per smallest unit of the pattern, e.g. once a day for yyyy.MM.dd,
+     * and shared by concurrent renders without locking
+     */
+    static final class CurrentDateFormat {
+        private final DateTimeFormatter formatter;
+        private final long periodMillis;
+        private volatile FormattedPeriod formattedPeriod;
+
+        private CurrentDateFormat(String dateFormat) {
+            this.formatter = DateTimeFormatter.ofPattern(dateFormat);
+            this.periodMillis = periodMillis(dateFormat);
+        }
+
+        String format(long epochMilli) {
+            FormattedPeriod period = formattedPeriod;
+            if (period != null && epochMilli >= period.start && epochMilli - period.start < periodMillis) {
+                return period.value;
+            }
+
+            String value = formatter.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC));
+            formattedPeriod = new FormattedPeriod(epochMilli - Math.floorMod(epochMilli, periodMillis), value);
+            return value;
+        }
+
+        long getPeriodMillis() {
+            return periodMillis;
+        }
+
+        /**
+         * @return length of the smallest unit the pattern letters print, a millisecond for letters of finer or unknown units
+         */
+        private static long periodMillis(String dateFormat) {
+            long periodMillis = TimeUnit.DAYS.toMillis(1);
+            boolean inQuote = false;
+            for (int i = 0; i < dateFormat.length(); i++) {
+                char c = dateFormat.charAt(i);
+                if (c == '\'') {
+                    inQuote = !inQuote;
+                    continue;
+                }
+                if (inQuote || !Character.isLetter(c)) continue;
+
+                periodMillis = Math.min(periodMillis, letterPeriodMillis(c));
+            }
+            return periodMillis;
+        }
+
+        private static long letterPeriodMillis(char letter) {
+            switch (letter) {
+                case 'G': case 'u': case 'y': case 'Y': case 'Q': case 'q': case 'M': case 'L': case 'w': case 'W':
+                case 'D': case 'd': case 'F': case 'g': case 'E': case 'e': case 'c':
+                    return TimeUnit.DAYS.toMillis(1);
+                case 'a': case 'B': case 'h': case 'K': case 'k': case 'H':
+                    return TimeUnit.HOURS.toMillis(1);
+                case 'm':
+                    return TimeUnit.MINUTES.toMillis(1);
+                case 's':
+                    return TimeUnit.SECONDS.toMillis(1);
+                case 'V': case 'v': case 'z': case 'O': case 'X': case 'x': case 'Z': case 'p':
+                    // the zone is always utc
+                    return Long.MAX_VALUE;
+                default:
+                    return 1;
+            }
+        }
+    }
+
+    private static final class FormattedPeriod {
+        private final long start;
+        private final String value;
+
+        private FormattedPeriod(long start, String value) {
+            this.start = start;
+            this.value = value;
+        }
     }
 }
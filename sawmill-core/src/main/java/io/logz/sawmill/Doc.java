@@ -1,60 +1,367 @@
 package io.logz.sawmill;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.logz.sawmill.utilities.JsonUtils;
 import org.apache.commons.collections4.MapUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
 
 import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
 
 public class Doc {
 
-    private final Map<String, Object> source;
+    private Map<String, Object> source;
+
+    /**
+     * Maps and lists this doc may write in place, once it shares its source with forks.
+     * {@code null} while the doc does not share anything, in which case it writes everything in place.
+     */
+    private Set<Object> owned;
+
+    /**
+     * Dictionary of the keys of the compact maps this doc stores its fields in, {@code null} unless compacted
+     */
+    private KeyDictionary keyDictionary;
+
+    private boolean trackJsonSize;
+
+    /**
+     * Size of the source as json while tracked, negative when it has to be counted again
+     */
+    private long jsonSize = -1;
+
+    /**
+     * List returned by {@link #getOrCreateList(FieldPath)} while the size is tracked, and its size when returned
+     */
+    private List<Object> openList;
+    private long openListSize;
 
     public Doc(Map<String, Object> source) {
         checkState(MapUtils.isNotEmpty(source), "source cannot be empty");
         this.source = source;
     }
 
-    public Map<String, Object> getSource() { return source; }
+    /**
+     * Doc of a utf-8 json object, whose fields are deserialized only once accessed.
+     * <p>Fields that were never accessed are written by {@link #writeJson(OutputStream)} as their original bytes.
+     * The bytes must not change while the doc is in use.
+     */
+    public Doc(byte[] json) {
+        this(json, 0, json.length);
+    }
+
+    public Doc(byte[] json, int offset, int length) {
+        this(new RawJsonMap(json, offset, length));
+    }
+
+    /**
+     * @see #Doc(byte[])
+     */
+    public Doc(ByteBuffer json) {
+        this(rawJsonMap(json));
+    }
+
+    private static RawJsonMap rawJsonMap(ByteBuffer json) {
+        if (json.hasArray()) {
+            return new RawJsonMap(json.array(), json.arrayOffset() + json.position(), json.remaining());
+        }
+        byte[] bytes = new byte[json.remaining()];
+        json.duplicate().get(bytes);
+        return new RawJsonMap(bytes, 0, bytes.length);
+    }
+
+    private Doc(Map<String, Object> source, Set<Object> owned) {
+        this.source = source;
+        this.owned = owned;
+    }
+
+    /**
+     * Source to read and write in place.
+     * <p>On a forked doc every map and list still shared with other forks is copied first, so prefer
+     * the field accessors, or {@link #getSourceView()} to only read it.
+     */
+    public Map<String, Object> getSource() {
+        if (owned != null) {
+            ownAll(writableSource());
+            owned = null;
+        }
+        openList = null;
+        jsonSize = -1;
+        return source;
+    }
+
+    /**
+     * Source to read only, without copying what a forked doc still shares with other forks
+     */
+    public Map<String, Object> getSourceView() {
+        return Collections.unmodifiableMap(source);
+    }
+
+    /**
+     * Copy-on-write copy of this doc, e.g. to run the same doc through several pipelines.
+     * <p>This doc and the fork share their maps and lists, and each of them copies a map or list only on its first
+     * write under it, so a fork costs as much as the fields it changes rather than the size of the doc.
+     * Neither doc may be in use by another thread while forking, and maps or lists taken from
+     * {@link #getSource()} before forking must not be written afterwards.
+     */
+    public Doc fork() {
+        settleOpenList();
+        owned = newOwnedSet();
+        Doc fork = new Doc(source, newOwnedSet());
+        fork.keyDictionary = keyDictionary;
+        fork.trackJsonSize = trackJsonSize;
+        fork.jsonSize = jsonSize;
+        if (source instanceof RawJsonMap) {
+            // reading a raw json map deserializes its fields in place, so each doc takes its own copy
+            source = own(((RawJsonMap) source).copy());
+            fork.source = fork.own(((RawJsonMap) fork.source).copy());
+        }
+        return fork;
+    }
+
+    /**
+     * Writes the source as utf-8 json
+     */
+    public void writeJson(OutputStream stream) throws IOException {
+        try (JsonGenerator generator = JsonUtils.createGenerator(stream)) {
+            writeJson(generator);
+        }
+    }
+
+    /**
+     * Writes the source as the next json value of the generator, e.g. one of a stream of docs
+     */
+    public void writeJson(JsonGenerator generator) throws IOException {
+        if (source instanceof RawJsonMap) {
+            ((RawJsonMap) source).writeJson(generator);
+        } else {
+            JsonUtils.writeJson(generator, source);
+        }
+    }
+
+    public byte[] toJsonBytes() {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            writeJson(stream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return stream.toByteArray();
+    }
+
+    /**
+     * Moves the fields into compact maps whose keys are shared through the dictionary, for docs held in memory in
+     * large numbers. Maps added afterwards, including the ones processors add as field values, are compacted as well.
+     * <p>The top level fields of a doc of raw json stay raw, only the maps added to it are compacted.
+     */
+    public void compact(KeyDictionary keyDictionary) {
+        if (this.keyDictionary == requireNonNull(keyDictionary, "keyDictionary cannot be null")) {
+            return;
+        }
+        this.keyDictionary = keyDictionary;
+        if (!(source instanceof RawJsonMap)) {
+            source = compactMap(source);
+        }
+    }
+
+    public boolean isCompact() {
+        return keyDictionary != null;
+    }
+
+    /**
+     * Keeps a running size of the source as json, updated by the field methods of this doc rather than counted
+     * on every {@link #getJsonSize()}.
+     * <p>Writing the source through {@link #getSource()} makes the next call count it again, while writing
+     * the maps or lists returned by {@link #getField(FieldPath)} in place is not noticed.
+     */
+    public void trackJsonSize() {
+        trackJsonSize = true;
+    }
+
+    /**
+     * @return utf-8 size of the json {@link #writeJson(OutputStream)} writes
+     * @see JsonSize
+     */
+    public long getJsonSize() {
+        settleOpenList();
+        if (jsonSize >= 0) {
+            return jsonSize;
+        }
+        long size = JsonSize.of(source);
+        if (trackJsonSize) {
+            jsonSize = size;
+        }
+        return size;
+    }
 
     public boolean hasField(String path) {
-        Optional<Object> field = getByPath(source, path);
-        return field.isPresent();
+        return hasField(FieldPath.of(path));
+    }
+
+    public boolean hasField(FieldPath path) {
+        return resolve(path) != null;
     }
 
     public boolean hasField(String path, Class clazz) {
-        Optional<Object> field = getByPath(source, path);
-        return field.isPresent() && clazz.isInstance(field.get());
+        return hasField(FieldPath.of(path), clazz);
+    }
+
+    public boolean hasField(FieldPath path, Class clazz) {
+        return clazz.isInstance(resolve(path));
     }
 
     public <T> T getField(String path) {
-        Optional<Object> field = getByPath(source, path);
-        checkState(field.isPresent(), "Couldn't resolve field in path [%s]", path);
-        return (T) field.get();
+        return getField(FieldPath.of(path));
+    }
+
+    public <T> T getField(FieldPath path) {
+        Object field = resolve(path);
+        checkState(field != null, "Couldn't resolve field in path [%s]", path);
+        return (T) field;
+    }
+
+    /**
+     * Single traversal alternative to {@code hasField(path, clazz)} followed by {@code getField(path)}
+     * @param path
+     * @param clazz
+     * @return the field value, or {@code null} if the field is missing or not instance of {@code clazz}
+     */
+    public <T> T getFieldIfPresent(FieldPath path, Class<T> clazz) {
+        Object field = resolve(path);
+        return clazz.isInstance(field) ? (T) field : null;
     }
 
     public void addField(String path, Object value) {
-        Map<String, Object> context = source;
-        List<String> pathElements = tokenizePath(path);
+        addField(FieldPath.of(path), value);
+    }
 
-        String leafKey = pathElements.get(pathElements.size() - 1);
+    public void addField(FieldPath path, Object value) {
+        settleOpenList();
+        Map<String, Object> parent = writableParent(path, true);
+        String leaf = path.getLeaf();
+        long previousEntrySize = jsonSize >= 0 ? JsonSize.ofEntry(leaf, parent.get(leaf)) : 0;
+        putEntry(parent, leaf, stored(value));
+        trackEntry(parent, leaf, previousEntrySize);
+    }
 
-        for (String pathElement : pathElements.subList(0, pathElements.size() - 1)) {
-            Object pathValue = context.get(pathElement);
-            if (pathValue != null && pathValue instanceof Map) {
-                context = (Map) pathValue;
-            } else {
-                Map<String, Object> newMap = new HashMap<>();
-                context.put(pathElement, newMap);
-                context = newMap;
+    public Object putIfAbsent(String path, Object value) {
+        return putIfAbsent(FieldPath.of(path), value);
+    }
+
+    /**
+     * Adds the field unless it exists, walking the path once
+     * @return the existing value, or {@code null} if the value was added
+     */
+    public Object putIfAbsent(FieldPath path, Object value) {
+        settleOpenList();
+        Map<String, Object> parent = writableParent(path, true);
+        String leaf = path.getLeaf();
+        Object current = parent.get(leaf);
+        if (current != null) {
+            return current;
+        }
+        parent.put(leaf, stored(value));
+        trackEntry(parent, leaf, 0);
+        return null;
+    }
+
+    public Object compute(String path, UnaryOperator<Object> remapping) {
+        return compute(FieldPath.of(path), remapping);
+    }
+
+    /**
+     * Replaces the field by the value the function computes from it, walking the path once.
+     * <p>The function gets {@code null} if the field is missing, and the field is removed, or not added, if it
+     * returns {@code null}. It may change the map or list it gets in place and return it, but not the maps and lists nested in it.
+     * @return the new value
+     */
+    public Object compute(FieldPath path, UnaryOperator<Object> remapping) {
+        return compute(path, remapping, false);
+    }
+
+    public Object merge(String path, Object value, BinaryOperator<Object> merger) {
+        return merge(FieldPath.of(path), value, merger);
+    }
+
+    /**
+     * Adds the value if the field is missing, otherwise replaces the field by the value the merger computes
+     * from the current value and the given one, walking the path once
+     * @see #compute(FieldPath, UnaryOperator)
+     */
+    public Object merge(FieldPath path, Object value, BinaryOperator<Object> merger) {
+        requireNonNull(value, "value cannot be null");
+        return compute(path, current -> current == null ? value : merger.apply(current, value), true);
+    }
+
+    public List<Object> getOrCreateList(String path) {
+        return getOrCreateList(FieldPath.of(path));
+    }
+
+    /**
+     * @return the list in the path to add to in place, a new list if the field is missing and a list of the
+     * value if the field is not a list, walking the path once
+     */
+    public List<Object> getOrCreateList(FieldPath path) {
+        List<Object> list = (List<Object>) compute(path, this::toList, true);
+        if (jsonSize >= 0) {
+            // the caller changes the list after it is returned, so its size is counted once the doc is used again
+            openList = list;
+            openListSize = JsonSize.of(list);
+        }
+        return list;
+    }
+
+    private Object compute(FieldPath path, UnaryOperator<Object> remapping, boolean createParents) {
+        settleOpenList();
+        String leaf = path.getLeaf();
+        Map<String, Object> parent = writableParent(path, createParents);
+        Object current = parent != null ? writableValue(parent, leaf, parent.get(leaf)) : null;
+        long previousEntrySize = jsonSize >= 0 ? JsonSize.ofEntry(leaf, current) : 0;
+
+        Object value = remapping.apply(current);
+        if (value == null) {
+            if (current != null) {
+                removeEntry(parent, leaf);
+                trackEntry(parent, leaf, previousEntrySize);
             }
+            return null;
         }
 
-        context.put(leafKey, value);
+        if (parent == null) {
+            parent = writableParent(path, true);
+        }
+        Object stored = stored(value);
+        if (stored != current) {
+            putEntry(parent, leaf, stored);
+        }
+        trackEntry(parent, leaf, previousEntrySize);
+        return stored;
+    }
+
+    private List<Object> toList(Object value) {
+        if (value instanceof List) {
+            return (List<Object>) value;
+        }
+        List<Object> list = own(new ArrayList<>());
+        if (value != null) {
+            list.add(value);
+        }
+        return list;
     }
 
     /**
@@ -64,44 +371,41 @@ public class Doc {
      *         {@code false} if field wasn't exist
      */
     public boolean removeField(String path) {
-        if (!hasField(path)) {
+        return removeField(FieldPath.of(path));
+    }
+
+    public boolean removeField(FieldPath path) {
+        Map<String, Object> parent = resolveParent(path);
+        if (parent == null || !hasValue(parent, path.getLeaf())) {
             return false;
         }
-        Map<String, Object> context = source;
-        List<String> pathElements = tokenizePath(path);
 
-        List<String> pathElementsWithoutLeaf = pathElements.subList(0, pathElements.size() - 1);
-        String leafKey = pathElements.get(pathElements.size() - 1);
-
-        for (String currElement : pathElementsWithoutLeaf) {
-            context = (Map<String, Object>) context.get(currElement);
+        settleOpenList();
+        if (owned != null) {
+            parent = writableParent(path, false);
         }
-
-        context.remove(leafKey);
+        String leaf = path.getLeaf();
+        long previousEntrySize = jsonSize >= 0 ? JsonSize.ofEntry(leaf, parent.get(leaf)) : 0;
+        removeEntry(parent, leaf);
+        trackEntry(parent, leaf, previousEntrySize);
 
         return true;
     }
 
     public void appendList(String path, Object value) {
-        List<Object> list;
-        if (!hasField(path)) {
-            addField(path, new ArrayList<>());
-        }
+        appendList(FieldPath.of(path), value);
+    }
 
-        Object field = getField(path);
-        if (field instanceof List) {
-            list = (List) field;
-        } else {
-            list = new ArrayList<>();
-            list.add(field);
-            removeField(path);
-            addField(path, list);
-        }
-        if (value instanceof List) {
-            list.addAll((List)value);
-        } else {
-            list.add(value);
-        }
+    public void appendList(FieldPath path, Object value) {
+        compute(path, current -> {
+            List<Object> list = toList(current);
+            if (value instanceof List) {
+                list.addAll((List) value);
+            } else {
+                list.add(value);
+            }
+            return list;
+        }, true);
     }
 
     /**
@@ -112,85 +416,295 @@ public class Doc {
      *         {@code false} otherwise
      */
     public boolean removeFromList(String path, Object value) {
-        if (!hasField(path)) {
-            return false;
-        }
-
-        Object field = getField(path);
-        if (field instanceof List) {
-            List<Object> list = (List) field;
+        return removeFromList(FieldPath.of(path), value);
+    }
 
+    public boolean removeFromList(FieldPath path, Object value) {
+        boolean[] isList = new boolean[1];
+        compute(path, current -> {
+            isList[0] = current instanceof List;
+            if (!isList[0]) {
+                return current;
+            }
+            List<Object> list = (List<Object>) current;
             if (value instanceof List) {
                 list.removeAll((List) value);
             } else {
                 list.remove(value);
             }
-
-            return true;
-        }
-
-        return false;
+            return list;
+        });
+        return isList[0];
     }
 
     /**
      * json OGNL (Object Graph Navigation Language) getter.
      * <p>for example:
      * <pre>
-     * JsonUtils.getByPath(json, "x.y.z")
+     * doc.resolve(FieldPath.of("x.y.z"))
      * </pre>
      *
-     * @return Optional of the value in paths
-     * @throws Exception on any error
+     * @return the value in path, or {@code null} if it cannot be resolved
      **/
-    private static <T> Optional<T> getByPath(Map json, String... paths) {
-        Object cursor = json;
-        for (String path : paths) {
-            for (String pathElement : tokenizePath(path)) {
-                if (!(cursor instanceof Map)) return Optional.empty();
-
-                cursor = ((Map) cursor).get(pathElement);
-                if (cursor == null) return Optional.empty();
-            }
+    private Object resolve(FieldPath path) {
+        Object cursor = source;
+        for (String pathElement : path.getElements()) {
+            if (!(cursor instanceof Map)) return null;
+
+            cursor = ((Map) cursor).get(pathElement);
+            if (cursor == null) return null;
         }
-        return Optional.of((T) cursor);
+        return cursor;
     }
 
-    private static List<String> tokenizePath(String s) {
-        List<String> pathTokens = new ArrayList<>();
-        StringBuilder sb = new StringBuilder();
-        boolean inEscape = false;
-
-        for (char c : s.toCharArray()) {
-            if (inEscape) {
-                inEscape = false;
-                sb.append(c);
-            } else if (c == '\\') {
-                inEscape = true;
-            } else if (c == '.') {
-                pathTokens.add(sb.toString());
-                sb.setLength(0);
-            } else {
-                sb.append(c);
-            }
+    private Map<String, Object> resolveParent(FieldPath path) {
+        Object cursor = source;
+        String[] pathElements = path.getElements();
+        for (int i = 0; i < pathElements.length - 1; i++) {
+            cursor = ((Map) cursor).get(pathElements[i]);
+            if (!(cursor instanceof Map)) return null;
         }
-        pathTokens.add(sb.toString());
-
-        return pathTokens;
+        return (Map<String, Object>) cursor;
     }
+
     public boolean replaceFieldValue(String path,Object newValue){
-        if (hasField(path)) {
-            removeField(path);
-            addField(path,newValue);
-            return true;
+        return replaceFieldValue(FieldPath.of(path), newValue);
+    }
+
+    public boolean replaceFieldValue(FieldPath path, Object newValue) {
+        Map<String, Object> parent = resolveParent(path);
+        String leaf = path.getLeaf();
+        if (parent == null || !hasValue(parent, leaf)) {
+            return false;
+        }
+
+        settleOpenList();
+        if (owned != null) {
+            parent = writableParent(path, false);
         }
-        return false;
+        long previousEntrySize = jsonSize >= 0 ? JsonSize.ofEntry(leaf, parent.get(leaf)) : 0;
+        putEntry(parent, leaf, stored(newValue));
+        trackEntry(parent, leaf, previousEntrySize);
+        return true;
     }
 
     public void replace(Map<String,Object> otherMap){
+        openList = null;
+        jsonSize = -1;
+        if (keyDictionary != null && !(source instanceof RawJsonMap)) {
+            source = compactMap(otherMap);
+            return;
+        }
+        if (owned != null && !owned.contains(source)) {
+            source = own(copyOf(otherMap));
+            return;
+        }
         source.clear();
         source.putAll(otherMap);
     }
 
+    private Map<String, Object> writableSource() {
+        if (owned != null && !owned.contains(source)) {
+            source = own(copyOf(source));
+        }
+        return source;
+    }
+
+    /**
+     * @return the map in {@code key} of the writable {@code parent}, copied into it first if shared
+     */
+    private Map<String, Object> writableMap(Map<String, Object> parent, String key, Map<String, Object> map) {
+        if (owned == null || owned.contains(map)) {
+            return map;
+        }
+        Map<String, Object> copy = own(copyOf(map));
+        parent.put(key, copy);
+        return copy;
+    }
+
+    private List<Object> writableList(Map<String, Object> parent, String key, List<Object> list) {
+        if (owned == null || owned.contains(list)) {
+            return list;
+        }
+        List<Object> copy = own(new ArrayList<>(list));
+        parent.put(key, copy);
+        return copy;
+    }
+
+    /**
+     * @return the value in {@code key} of the writable {@code parent}, copied into it first if it is a shared map or list
+     */
+    private Object writableValue(Map<String, Object> parent, String key, Object value) {
+        if (value instanceof Map) {
+            return writableMap(parent, key, (Map) value);
+        }
+        if (value instanceof List) {
+            return writableList(parent, key, (List) value);
+        }
+        return value;
+    }
+
+    /**
+     * @param createParents whether to add maps for the missing path elements, replacing the values that are not maps
+     * @return the writable parent map of the path, {@code null} if it is missing and not created
+     */
+    private Map<String, Object> writableParent(FieldPath path, boolean createParents) {
+        Map<String, Object> context = writableSource();
+        String[] pathElements = path.getElements();
+        for (int i = 0; i < pathElements.length - 1; i++) {
+            String pathElement = pathElements[i];
+            Object pathValue = context.get(pathElement);
+            if (pathValue instanceof Map) {
+                context = writableMap(context, pathElement, (Map) pathValue);
+            } else if (createParents) {
+                Map<String, Object> newMap = own(keyDictionary != null ? new CompactMap(keyDictionary) : new HashMap<>());
+                long previousEntrySize = jsonSize >= 0 ? JsonSize.ofEntry(pathElement, pathValue) : 0;
+                context.put(pathElement, newMap);
+                trackEntry(context, pathElement, previousEntrySize);
+                context = newMap;
+            } else {
+                return null;
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Puts the entry without deserializing the raw value it replaces, which {@link Map#put} would do to return it
+     */
+    private static void putEntry(Map<String, Object> map, String key, Object value) {
+        if (map instanceof RawJsonMap) {
+            ((RawJsonMap) map).set(key, value);
+        } else {
+            map.put(key, value);
+        }
+    }
+
+    private static void removeEntry(Map<String, Object> map, String key) {
+        if (map instanceof RawJsonMap) {
+            ((RawJsonMap) map).delete(key);
+        } else {
+            map.remove(key);
+        }
+    }
+
+    private static boolean hasValue(Map<String, Object> map, String key) {
+        return map instanceof RawJsonMap ? ((RawJsonMap) map).hasValue(key) : map.get(key) != null;
+    }
+
+    /**
+     * @return the value to store in the doc, compacted if the doc is
+     */
+    private Object stored(Object value) {
+        return keyDictionary != null ? compactValue(value) : value;
+    }
+
+    /**
+     * Updates the tracked size by the change of an entry of the map
+     */
+    private void trackEntry(Map<String, Object> map, String key, long previousEntrySize) {
+        if (jsonSize >= 0) {
+            jsonSize += JsonSize.entryDelta(map, key, previousEntrySize);
+        }
+    }
+
+    /**
+     * Counts the changes made to the list last returned by {@link #getOrCreateList(FieldPath)}
+     */
+    private void settleOpenList() {
+        if (openList != null) {
+            if (jsonSize >= 0) {
+                jsonSize += JsonSize.of(openList) - openListSize;
+            }
+            openList = null;
+        }
+    }
+
+    private void ownAll(Map<String, Object> map) {
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Map) {
+                Map<String, Object> writable = owned.contains(value) ? (Map) value : own(copyOf((Map) value));
+                entry.setValue(writable);
+                ownAll(writable);
+            } else if (value instanceof List) {
+                List<Object> writable = owned.contains(value) ? (List) value : own(new ArrayList<>((List) value));
+                entry.setValue(writable);
+                ownAll(writable);
+            }
+        }
+    }
+
+    private void ownAll(List<Object> list) {
+        for (int i = 0; i < list.size(); i++) {
+            Object value = list.get(i);
+            if (value instanceof Map) {
+                Map<String, Object> writable = owned.contains(value) ? (Map) value : own(copyOf((Map) value));
+                list.set(i, writable);
+                ownAll(writable);
+            } else if (value instanceof List) {
+                List<Object> writable = owned.contains(value) ? (List) value : own(new ArrayList<>((List) value));
+                list.set(i, writable);
+                ownAll(writable);
+            }
+        }
+    }
+
+    private <T> T own(T mapOrList) {
+        if (owned != null) {
+            owned.add(mapOrList);
+        }
+        return mapOrList;
+    }
+
+    private static Map<String, Object> copyOf(Map<String, Object> map) {
+        if (map instanceof RawJsonMap) {
+            return ((RawJsonMap) map).copy();
+        }
+        if (map instanceof CompactMap) {
+            return ((CompactMap) map).copy();
+        }
+        return map instanceof LinkedHashMap ? new LinkedHashMap<>(map) : new HashMap<>(map);
+    }
+
+    private Object compactValue(Object value) {
+        if (isCompacted(value)) {
+            return value;
+        }
+        if (value instanceof Map) {
+            return compactMap((Map<?, Object>) value);
+        }
+        List<Object> list = (List<Object>) value;
+        List<Object> compactList = own(new ArrayList<>(list.size()));
+        list.forEach(element -> compactList.add(compactValue(element)));
+        return compactList;
+    }
+
+    /**
+     * @return whether the value has no maps other than compact maps of this doc's dictionary, not looking into compact maps
+     */
+    private boolean isCompacted(Object value) {
+        if (value instanceof Map) {
+            return value instanceof CompactMap && ((CompactMap) value).getKeyDictionary() == keyDictionary;
+        }
+        if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                if (!isCompacted(element)) return false;
+            }
+        }
+        return true;
+    }
+
+    private CompactMap compactMap(Map<?, Object> map) {
+        CompactMap compactMap = own(new CompactMap(keyDictionary, map.size()));
+        map.forEach((key, value) -> compactMap.put(String.valueOf(key), compactValue(value)));
+        return compactMap;
+    }
+
+    private static Set<Object> newOwnedSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
     @Override
     public String toString() {
         return "Doc{" +
@@ -0,0 +1,73 @@
+package io.logz.sawmill;
+
+import io.logz.sawmill.utilities.DataFormat;
+import io.logz.sawmill.utilities.JsonUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads docs from and writes them to json or one of its binary encodings, with the same semantics whichever the format.
+ * <p>Binary formats spare encoding and escaping text when both ends are under control: smile also shares repeated
+ * field names within a doc, and byte arrays are kept binary rather than written as base64 strings.
+ */
+public final class DocCodec {
+    public static final DocCodec JSON = new DocCodec(DataFormat.JSON);
+    public static final DocCodec SMILE = new DocCodec(DataFormat.SMILE);
+    public static final DocCodec CBOR = new DocCodec(DataFormat.CBOR);
+
+    private final DataFormat format;
+
+    private DocCodec(DataFormat format) {
+        this.format = format;
+    }
+
+    public static DocCodec of(DataFormat format) {
+        switch (requireNonNull(format, "format cannot be null")) {
+            case SMILE:
+                return SMILE;
+            case CBOR:
+                return CBOR;
+            default:
+                return JSON;
+        }
+    }
+
+    public DataFormat getFormat() {
+        return format;
+    }
+
+    public Doc read(byte[] bytes) {
+        return read(bytes, 0, bytes.length);
+    }
+
+    public Doc read(byte[] bytes, int offset, int length) {
+        return new Doc(JsonUtils.fromBytes(format, Map.class, bytes, offset, length));
+    }
+
+    /**
+     * Writes the doc to the stream, leaving the stream open
+     */
+    public void write(Doc doc, OutputStream stream) throws IOException {
+        if (format == DataFormat.JSON) {
+            doc.writeJson(stream);
+        } else {
+            JsonUtils.writeValue(format, stream, doc.getSourceView());
+        }
+    }
+
+    public byte[] toBytes(Doc doc) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            write(doc, stream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return stream.toByteArray();
+    }
+}
@@ -0,0 +1,63 @@
+package io.logz.sawmill;
+
+import io.logz.sawmill.utilities.JsonUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parses incoming utf-8 json docs for the pipelines that will process them, deserializing up front only the top level
+ * fields the pipelines read, and leaving the rest as raw bytes that are deserialized only if accessed after all
+ * and are written back as they are otherwise.
+ * <p>The projection never changes what a pipeline sees, only when fields are deserialized, so a field missing from
+ * the analysis costs a deserialization on access rather than a wrong result.
+ */
+public class DocProjection {
+    private final boolean parseAll;
+    private final Set<String> parsedFields;
+
+    public DocProjection(FieldAccess fieldAccess) {
+        this.parseAll = fieldAccess.readsAll();
+        this.parsedFields = parseAll ? Collections.emptySet() : fieldAccess.getReadTopLevelFields();
+    }
+
+    public static DocProjection of(Pipeline pipeline) {
+        return new DocProjection(pipeline.getFieldAccess());
+    }
+
+    /**
+     * @return projection for docs that go through all the pipelines, e.g. one fork per pipeline
+     */
+    public static DocProjection of(Collection<Pipeline> pipelines) {
+        FieldAccess.Builder builder = FieldAccess.builder();
+        pipelines.forEach(pipeline -> builder.add(pipeline.getFieldAccess()));
+        return new DocProjection(builder.build());
+    }
+
+    /**
+     * @return whether the pipelines may read any field, in which case docs are fully deserialized
+     */
+    public boolean isParseAll() {
+        return parseAll;
+    }
+
+    /**
+     * @return top level fields deserialized up front
+     */
+    public Set<String> getParsedFields() {
+        return parsedFields;
+    }
+
+    public Doc parse(byte[] json) {
+        return parse(json, 0, json.length);
+    }
+
+    public Doc parse(byte[] json, int offset, int length) {
+        if (parseAll) {
+            return new Doc(JsonUtils.fromJsonBytes(Map.class, json, offset, length));
+        }
+        return new Doc(new RawJsonMap(json, offset, length, parsedFields));
+    }
+}
@@ -0,0 +1,43 @@
+package io.logz.sawmill;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * How a {@link PipelineExecutor} stores the fields of the docs it executes
+ */
+public final class DocStorage {
+    /**
+     * Docs are kept as they were created, with maps of the caller's choice
+     */
+    public static final DocStorage DEFAULT = new DocStorage(null);
+
+    private final KeyDictionary keyDictionary;
+
+    private DocStorage(KeyDictionary keyDictionary) {
+        this.keyDictionary = keyDictionary;
+    }
+
+    /**
+     * @see #compact(KeyDictionary)
+     */
+    public static DocStorage compact() {
+        return compact(KeyDictionary.shared());
+    }
+
+    /**
+     * Docs are converted to compact maps before execution, see {@link Doc#compact(KeyDictionary)}
+     */
+    public static DocStorage compact(KeyDictionary keyDictionary) {
+        return new DocStorage(requireNonNull(keyDictionary, "keyDictionary cannot be null"));
+    }
+
+    public boolean isCompact() {
+        return keyDictionary != null;
+    }
+
+    void apply(Doc doc) {
+        if (keyDictionary != null) {
+            doc.compact(keyDictionary);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.logz.sawmill;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.logz.sawmill.utilities.JsonUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+/**
+ * Writes docs as newline delimited json, one line per doc, straight into a stream or a buffer.
+ * <p>Docs are serialized by a single generator per call, without building strings in between, and the fields
+ * of raw json docs that were never accessed are copied as their original bytes.
+ * The generator buffers are recycled per thread by Jackson, so writing a batch allocates about as much as writing one doc.
+ */
+public class DocWriter {
+
+    public void write(Doc doc, OutputStream stream) throws IOException {
+        write(Collections.singletonList(doc), stream);
+    }
+
+    public void write(Iterable<Doc> docs, OutputStream stream) throws IOException {
+        try (JsonGenerator generator = JsonUtils.createGenerator(stream)) {
+            generator.setRootValueSeparator(null);
+            for (Doc doc : docs) {
+                doc.writeJson(generator);
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    /**
+     * @return bytes written into the buffer, from its position on
+     * @throws BufferOverflowException if the doc does not fit, in which case the buffer position is left unchanged
+     */
+    public int write(Doc doc, ByteBuffer buffer) {
+        return write(Collections.singletonList(doc), buffer);
+    }
+
+    /**
+     * @see #write(Doc, ByteBuffer)
+     */
+    public int write(Iterable<Doc> docs, ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            write(docs, new ByteBufferOutputStream(buffer));
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            throw e;
+        } catch (IOException e) {
+            buffer.position(start);
+            throw new UncheckedIOException(e);
+        }
+        return buffer.position() - start;
+    }
+
+    private static class ByteBufferOutputStream extends OutputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferOutputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            buffer.put(bytes, offset, length);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package io.logz.sawmill;
+
+/**
+ * Deadline of the execution running on the current thread, checked cooperatively by long running processors.
+ * <p>The watchdog expires the deadline of an execution that ran over its expired threshold. Processors walking
+ * large docs or inputs call {@link #check()} as they go, and processors blocked in a single long call
+ * (e.g. a regex search) register an {@link #onExpired(Runnable) expiration hook} that aborts the call.
+ * Expiring the deadline does not interrupt the thread, unless the watchdog is configured to, so an interrupt
+ * seen by {@link #check()} is treated like an expired deadline but left for the caller to handle.
+ */
+public final class ExecutionDeadline {
+    /**
+     * Deadline of code running outside of a pipeline execution, never expires
+     */
+    public static final ExecutionDeadline NONE = new ExecutionDeadline();
+
+    private static final ThreadLocal<ExecutionDeadline> current = new ThreadLocal<>();
+
+    private volatile boolean expired;
+    private volatile Runnable expirationHook;
+
+    ExecutionDeadline() {}
+
+    /**
+     * @return the deadline of the execution running on the current thread, or {@link #NONE}
+     */
+    public static ExecutionDeadline current() {
+        ExecutionDeadline deadline = current.get();
+        return deadline != null ? deadline : NONE;
+    }
+
+    /**
+     * Makes the deadline current on this thread
+     * @return the previously current deadline, to be restored with {@link #exit(ExecutionDeadline)}
+     */
+    static ExecutionDeadline enter(ExecutionDeadline deadline) {
+        ExecutionDeadline previous = current.get();
+        current.set(deadline);
+        return previous;
+    }
+
+    static void exit(ExecutionDeadline previous) {
+        current.set(previous);
+    }
+
+    public boolean isExpired() {
+        return expired;
+    }
+
+    /**
+     * @throws InterruptedException if the deadline expired or the current thread was interrupted,
+     * the interrupted status of the thread is left set so the interrupt is not swallowed
+     */
+    public void check() throws InterruptedException {
+        if (expired || Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Registers a hook to run once the deadline expires, replacing the previous one.
+     * The hook runs on the watchdog thread, or right away if the deadline already expired, and may run more than once.
+     */
+    public void onExpired(Runnable hook) {
+        if (this == NONE) {
+            return;
+        }
+
+        expirationHook = hook;
+        if (expired) {
+            hook.run();
+        }
+    }
+
+    public void clearOnExpired() {
+        expirationHook = null;
+    }
+
+    /**
+     * Makes an expired deadline usable for the next execution, once the watchdog is done expiring it
+     */
+    void reset() {
+        expirationHook = null;
+        expired = false;
+    }
+
+    void expire() {
+        expired = true;
+        Runnable hook = expirationHook;
+        if (hook != null) {
+            hook.run();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package io.logz.sawmill;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The execution steps tree of a pipeline lowered into a flat array of instructions.
+ * <p>Every branch of the tree (onTrue, onFalse, onSuccess, onFailure) and the continuation after it
+ * are resolved into instruction indexes ahead of time, so executing a doc is a loop over the array
+ * without recursion or per step dispatch on the step type.
+ */
+public final class ExecutionPlan {
+    /**
+     * Jump target of the end of the pipeline
+     */
+    public static final int END = -1;
+    /**
+     * Failure target of a processor without onFailure steps
+     */
+    public static final int NO_FAILURE_HANDLER = -2;
+
+    private final Instruction[] instructions;
+    private final int entryPoint;
+
+    private ExecutionPlan(Instruction[] instructions, int entryPoint) {
+        this.instructions = instructions;
+        this.entryPoint = entryPoint;
+    }
+
+    public static ExecutionPlan compile(List<ExecutionStep> executionSteps) {
+        return new Compiler().compile(executionSteps);
+    }
+
+    public Instruction[] getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * @return index of the first instruction, or {@link #END} if there is nothing to execute
+     */
+    public int getEntryPoint() {
+        return entryPoint;
+    }
+
+    public static final class Instruction {
+        private final Processor processor;
+        private final String processorName;
+        private final Condition condition;
+        private final boolean reportingMetrics;
+        private int onSuccessTarget;
+        private int onFailureTarget;
+        private int nextTarget;
+
+        private Instruction(Processor processor, String processorName, Condition condition) {
+            this.processor = processor;
+            this.processorName = processorName;
+            this.condition = condition;
+            this.reportingMetrics = processor instanceof ReportingProcessor;
+        }
+
+        public boolean isConditional() {
+            return condition != null;
+        }
+
+        public Processor getProcessor() {
+            return processor;
+        }
+
+        public String getProcessorName() {
+            return processorName;
+        }
+
+        public Condition getCondition() {
+            return condition;
+        }
+
+        /**
+         * @return true if the processor is a {@link ReportingProcessor}
+         */
+        public boolean isReportingMetrics() {
+            return reportingMetrics;
+        }
+
+        /**
+         * @return the instruction to continue with when the processor succeeds or the condition evaluates to true
+         */
+        public int getOnSuccessTarget() {
+            return onSuccessTarget;
+        }
+
+        /**
+         * @return the instruction to continue with when the processor fails or the condition evaluates to false,
+         * {@link #NO_FAILURE_HANDLER} for a processor without onFailure steps
+         */
+        public int getOnFailureTarget() {
+            return onFailureTarget;
+        }
+
+        /**
+         * @return the instruction following this step in its own list of steps, or the continuation of that list
+         */
+        public int getNextTarget() {
+            return nextTarget;
+        }
+    }
+
+    private static class Compiler {
+        private final List<Instruction> instructions = new ArrayList<>();
+        private final Map<Instruction, PendingTargets> pendingTargets = new IdentityHashMap<>();
+
+        private ExecutionPlan compile(List<ExecutionStep> executionSteps) {
+            Instruction entry = compileSteps(executionSteps, null);
+
+            // steps are compiled last to first, reverse so steps are laid out in order with the true/success branch first
+            Collections.reverse(instructions);
+            Map<Instruction, Integer> indexes = new IdentityHashMap<>();
+            for (int i = 0; i < instructions.size(); i++) {
+                indexes.put(instructions.get(i), i);
+            }
+
+            for (Instruction instruction : instructions) {
+                PendingTargets targets = pendingTargets.get(instruction);
+                instruction.onSuccessTarget = indexOf(targets.onSuccess, indexes);
+                instruction.onFailureTarget = targets.hasFailureHandler ? indexOf(targets.onFailure, indexes) : NO_FAILURE_HANDLER;
+                instruction.nextTarget = indexOf(targets.next, indexes);
+            }
+
+            return new ExecutionPlan(instructions.toArray(new Instruction[0]), indexOf(entry, indexes));
+        }
+
+        /**
+         * @return the first instruction of the steps, or {@code continuation} if there are no steps
+         */
+        private Instruction compileSteps(List<ExecutionStep> executionSteps, Instruction continuation) {
+            Instruction next = continuation;
+            for (int i = executionSteps.size() - 1; i >= 0; i--) {
+                next = compileStep(executionSteps.get(i), next);
+            }
+            return next;
+        }
+
+        private Instruction compileStep(ExecutionStep executionStep, Instruction next) {
+            if (executionStep instanceof ConditionalExecutionStep) {
+                ConditionalExecutionStep conditionalExecutionStep = (ConditionalExecutionStep) executionStep;
+                Instruction onFalse = compileSteps(conditionalExecutionStep.getOnFalse(), next);
+                Instruction onTrue = compileSteps(conditionalExecutionStep.getOnTrue(), next);
+
+                return add(new Instruction(null, null, conditionalExecutionStep.getCondition()), onTrue, onFalse, true, next);
+            } else if (executionStep instanceof ProcessorExecutionStep) {
+                ProcessorExecutionStep processorExecutionStep = (ProcessorExecutionStep) executionStep;
+                Optional<List<ExecutionStep>> onSuccessExecutionSteps = processorExecutionStep.getOnSuccessExecutionSteps();
+                Optional<List<ExecutionStep>> onFailureExecutionSteps = processorExecutionStep.getOnFailureExecutionSteps();
+                Instruction onFailure = onFailureExecutionSteps.isPresent() ? compileSteps(onFailureExecutionSteps.get(), next) : null;
+                Instruction onSuccess = onSuccessExecutionSteps.isPresent() ? compileSteps(onSuccessExecutionSteps.get(), next) : next;
+
+                Instruction instruction = new Instruction(processorExecutionStep.getProcessor(), processorExecutionStep.getProcessorName(), null);
+                return add(instruction, onSuccess, onFailure, onFailureExecutionSteps.isPresent(), next);
+            }
+
+            throw new RuntimeException("Unsupported execution step " + executionStep.getClass());
+        }
+
+        private Instruction add(Instruction instruction, Instruction onSuccess, Instruction onFailure, boolean hasFailureHandler, Instruction next) {
+            instructions.add(instruction);
+            pendingTargets.put(instruction, new PendingTargets(onSuccess, onFailure, hasFailureHandler, next));
+            return instruction;
+        }
+
+        private int indexOf(Instruction instruction, Map<Instruction, Integer> indexes) {
+            return instruction == null ? END : indexes.get(instruction);
+        }
+    }
+
+    private static class PendingTargets {
+        private final Instruction onSuccess;
+        private final Instruction onFailure;
+        private final boolean hasFailureHandler;
+        private final Instruction next;
+
+        private PendingTargets(Instruction onSuccess, Instruction onFailure, boolean hasFailureHandler, Instruction next) {
+            this.onSuccess = onSuccess;
+            this.onFailure = onFailure;
+            this.hasFailureHandler = hasFailureHandler;
+            this.next = next;
+        }
+    }
+}
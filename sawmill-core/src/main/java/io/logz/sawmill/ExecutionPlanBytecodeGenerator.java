@@ -0,0 +1,308 @@
+package io.logz.sawmill;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.objectweb.asm.Opcodes.AALOAD;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ACC_SYNTHETIC;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ARETURN;
+import static org.objectweb.asm.Opcodes.ASTORE;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
+import static org.objectweb.asm.Opcodes.GETSTATIC;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.IFEQ;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.PUTSTATIC;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+/**
+ * Generates a {@link GeneratedExecutionPlan} subclass for a single {@link ExecutionPlan}.
+ * <p>Every instruction becomes a labeled block of code and every jump target a direct goto. The processors and
+ * conditions are held in static final fields of the generated class, which the JIT treats as constants, so every call
+ * site has a constant receiver of a known class. Each generated class is defined in its own class loader,
+ * so it is unloaded together with its pipeline.
+ * <p>The instructions are split into methods of up to {@link #MAX_INSTRUCTIONS_PER_METHOD} instructions, a jump out of
+ * a method is a tail call to the method holding its target. This keeps every method below the size the JIT refuses
+ * to compile, generation fails if one is not, so the pipeline falls back to the interpreted plan.
+ */
+class ExecutionPlanBytecodeGenerator {
+    private static final String PACKAGE = "io/logz/sawmill/generated/";
+    private static final AtomicLong classCounter = new AtomicLong();
+    private static final int MAX_INSTRUCTIONS_PER_METHOD = 50;
+    /**
+     * Bytecode size above which HotSpot does not compile a method, see -XX:-DontCompileHugeMethods
+     */
+    private static final int HUGE_METHOD_LIMIT = 8000;
+
+    private static final String SUPER_NAME = Type.getInternalName(GeneratedExecutionPlan.class);
+    private static final String STEP_HANDLER = Type.getInternalName(GeneratedExecutionPlan.StepHandler.class);
+    private static final String PROCESSOR = Type.getInternalName(Processor.class);
+    private static final String CONDITION = Type.getInternalName(Condition.class);
+    private static final String EXECUTION_RESULT = Type.getInternalName(ExecutionResult.class);
+    private static final String PROCESSOR_DESCRIPTOR = Type.getDescriptor(Processor.class);
+    private static final String CONDITION_DESCRIPTOR = Type.getDescriptor(Condition.class);
+    private static final String EXECUTE_DESCRIPTOR = Type.getMethodDescriptor(Type.getType(ExecutionResult.class),
+            Type.getType(Doc.class), Type.getType(GeneratedExecutionPlan.StepHandler.class));
+    private static final String PROCESS_DESCRIPTOR = Type.getMethodDescriptor(Type.getType(ProcessResult.class), Type.getType(Doc.class));
+    private static final String EVALUATE_DESCRIPTOR = Type.getMethodDescriptor(Type.BOOLEAN_TYPE, Type.getType(Doc.class));
+    private static final String AFTER_PROCESSOR_DESCRIPTOR = Type.getMethodDescriptor(Type.INT_TYPE, Type.INT_TYPE, Type.getType(ProcessResult.class));
+    private static final String STOPPED_DESCRIPTOR = Type.getMethodDescriptor(Type.getType(ExecutionResult.class), Type.INT_TYPE, Type.getType(ProcessResult.class));
+    private static final String SUCCESS_DESCRIPTOR = Type.getMethodDescriptor(Type.getType(ExecutionResult.class));
+    private static final String STEPS_DESCRIPTOR = Type.getMethodDescriptor(Type.getType(Object[].class), Type.getType(Class.class));
+    private static final String BLOCK_DESCRIPTOR = Type.getMethodDescriptor(Type.getType(ExecutionResult.class),
+            Type.getType(Doc.class), Type.getType(GeneratedExecutionPlan.StepHandler.class), Type.INT_TYPE);
+
+    private static final int STEPS = 0;
+    private static final int THIS = 0;
+    private static final int DOC = 1;
+    private static final int STEP_HANDLER_VAR = 2;
+    private static final int TARGET = 3;
+    private static final int PROCESS_RESULT = 4;
+
+    private ExecutionPlanBytecodeGenerator() {}
+
+    static GeneratedExecutionPlan generate(String pipelineId, ExecutionPlan executionPlan) {
+        String className = PACKAGE + "GeneratedExecutionPlan$" + classCounter.incrementAndGet();
+        ExecutionPlan.Instruction[] instructions = executionPlan.getInstructions();
+
+        Object[] steps = new Object[instructions.length];
+        for (int i = 0; i < instructions.length; i++) {
+            steps[i] = instructions[i].isConditional() ? instructions[i].getCondition() : instructions[i].getProcessor();
+        }
+
+        byte[] bytecode = generateClass(className, pipelineId, executionPlan);
+        Class<?> generatedClass = new GeneratedClassLoader(GeneratedExecutionPlan.class.getClassLoader(), steps)
+                .define(className.replace('/', '.'), bytecode);
+
+        try {
+            return (GeneratedExecutionPlan) generatedClass.getConstructor().newInstance();
+        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+            throw new IllegalStateException("failed to instantiate generated execution plan of pipeline " + pipelineId, e);
+        }
+    }
+
+    private static byte[] generateClass(String className, String pipelineId, ExecutionPlan executionPlan) {
+        ExecutionPlan.Instruction[] instructions = executionPlan.getInstructions();
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return "java/lang/Object";
+            }
+        };
+        classWriter.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, className, null, SUPER_NAME, null);
+        classWriter.visitSource("pipeline " + pipelineId, null);
+
+        for (int i = 0; i < instructions.length; i++) {
+            classWriter.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, fieldName(i), fieldDescriptor(instructions[i]), null, null).visitEnd();
+        }
+
+        generateStaticInitializer(classWriter, className, instructions);
+        generateConstructor(classWriter);
+        generateExecute(classWriter, className, executionPlan);
+        for (int start = 0; start < instructions.length; start += MAX_INSTRUCTIONS_PER_METHOD) {
+            generateBlock(classWriter, className, instructions, start, Math.min(start + MAX_INSTRUCTIONS_PER_METHOD, instructions.length));
+        }
+
+        classWriter.visitEnd();
+        return classWriter.toByteArray();
+    }
+
+    /**
+     * Generates the static initializer, which reads the steps from the class loader of the generated class
+     */
+    private static void generateStaticInitializer(ClassWriter classWriter, String className, ExecutionPlan.Instruction[] instructions) {
+        MethodVisitor initializer = classWriter.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+        initializer.visitCode();
+        initializer.visitLdcInsn(Type.getObjectType(className));
+        initializer.visitMethodInsn(INVOKESTATIC, SUPER_NAME, "steps", STEPS_DESCRIPTOR, false);
+        initializer.visitVarInsn(ASTORE, STEPS);
+
+        for (int i = 0; i < instructions.length; i++) {
+            initializer.visitVarInsn(ALOAD, STEPS);
+            initializer.visitLdcInsn(i);
+            initializer.visitInsn(AALOAD);
+            initializer.visitTypeInsn(CHECKCAST, instructions[i].isConditional() ? CONDITION : PROCESSOR);
+            initializer.visitFieldInsn(PUTSTATIC, className, fieldName(i), fieldDescriptor(instructions[i]));
+        }
+
+        initializer.visitInsn(RETURN);
+        initializer.visitMaxs(0, 0);
+        initializer.visitEnd();
+    }
+
+    private static void generateConstructor(ClassWriter classWriter) {
+        MethodVisitor constructor = classWriter.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(ALOAD, THIS);
+        constructor.visitMethodInsn(INVOKESPECIAL, SUPER_NAME, "<init>", "()V", false);
+        constructor.visitInsn(RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+    }
+
+    private static void generateExecute(ClassWriter classWriter, String className, ExecutionPlan executionPlan) {
+        MethodVisitor execute = classWriter.visitMethod(ACC_PUBLIC, "execute", EXECUTE_DESCRIPTOR, null,
+                new String[] { Type.getInternalName(InterruptedException.class) });
+        execute.visitCode();
+        generateJump(execute, className, executionPlan.getEntryPoint());
+        execute.visitMaxs(0, 0);
+        execute.visitEnd();
+    }
+
+    /**
+     * Generates the method executing the instructions from start to end, starting at the instruction of its target argument
+     */
+    private static void generateBlock(ClassWriter classWriter, String className, ExecutionPlan.Instruction[] instructions, int start, int end) {
+        MethodVisitor block = classWriter.visitMethod(ACC_PRIVATE, blockName(start), BLOCK_DESCRIPTOR, null,
+                new String[] { Type.getInternalName(InterruptedException.class) });
+        block.visitCode();
+
+        Label[] labels = new Label[end - start];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = new Label();
+        }
+        Map<Integer, Label> exits = new HashMap<>();
+
+        block.visitVarInsn(ILOAD, TARGET);
+        block.visitTableSwitchInsn(start, end - 1, labels[0], labels);
+
+        for (int i = start; i < end; i++) {
+            ExecutionPlan.Instruction instruction = instructions[i];
+            block.visitLabel(labels[i - start]);
+
+            if (instruction.isConditional()) {
+                block.visitFieldInsn(GETSTATIC, className, fieldName(i), CONDITION_DESCRIPTOR);
+                block.visitVarInsn(ALOAD, DOC);
+                block.visitMethodInsn(INVOKEINTERFACE, CONDITION, "evaluate", EVALUATE_DESCRIPTOR, true);
+                block.visitJumpInsn(IFEQ, target(instruction.getOnFailureTarget(), start, labels, exits));
+                block.visitJumpInsn(GOTO, target(instruction.getOnSuccessTarget(), start, labels, exits));
+                continue;
+            }
+
+            block.visitVarInsn(ALOAD, STEP_HANDLER_VAR);
+            block.visitMethodInsn(INVOKEINTERFACE, STEP_HANDLER, "beforeProcessor", "()V", true);
+
+            block.visitFieldInsn(GETSTATIC, className, fieldName(i), PROCESSOR_DESCRIPTOR);
+            block.visitVarInsn(ALOAD, DOC);
+            block.visitMethodInsn(INVOKEINTERFACE, PROCESSOR, "process", PROCESS_DESCRIPTOR, true);
+            block.visitVarInsn(ASTORE, PROCESS_RESULT);
+
+            block.visitVarInsn(ALOAD, STEP_HANDLER_VAR);
+            block.visitLdcInsn(i);
+            block.visitVarInsn(ALOAD, PROCESS_RESULT);
+            block.visitMethodInsn(INVOKEINTERFACE, STEP_HANDLER, "afterProcessor", AFTER_PROCESSOR_DESCRIPTOR, true);
+
+            Label stopped = new Label();
+            Label onFailure = instruction.getOnFailureTarget() == ExecutionPlan.NO_FAILURE_HANDLER ?
+                    stopped : target(instruction.getOnFailureTarget(), start, labels, exits);
+            block.visitTableSwitchInsn(GeneratedExecutionPlan.StepHandler.SUCCEEDED, GeneratedExecutionPlan.StepHandler.FAILED, stopped,
+                    target(instruction.getOnSuccessTarget(), start, labels, exits),
+                    onFailure,
+                    target(instruction.getNextTarget(), start, labels, exits));
+
+            block.visitLabel(stopped);
+            block.visitVarInsn(ALOAD, STEP_HANDLER_VAR);
+            block.visitLdcInsn(i);
+            block.visitVarInsn(ALOAD, PROCESS_RESULT);
+            block.visitMethodInsn(INVOKEINTERFACE, STEP_HANDLER, "stopped", STOPPED_DESCRIPTOR, true);
+            block.visitInsn(ARETURN);
+        }
+
+        for (Map.Entry<Integer, Label> exit : exits.entrySet()) {
+            block.visitLabel(exit.getValue());
+            generateJump(block, className, exit.getKey());
+        }
+
+        Label codeEnd = new Label();
+        block.visitLabel(codeEnd);
+        if (codeEnd.getOffset() > HUGE_METHOD_LIMIT) {
+            throw new IllegalStateException("generated method " + blockName(start) + " of " + codeEnd.getOffset() + " bytes is too large to compile");
+        }
+
+        block.visitMaxs(0, 0);
+        block.visitEnd();
+    }
+
+    /**
+     * Generates returning the result of executing the plan from the target instruction, by the method holding it
+     */
+    private static void generateJump(MethodVisitor method, String className, int instructionIndex) {
+        if (instructionIndex == ExecutionPlan.END) {
+            method.visitMethodInsn(INVOKESTATIC, EXECUTION_RESULT, "success", SUCCESS_DESCRIPTOR, false);
+            method.visitInsn(ARETURN);
+            return;
+        }
+
+        method.visitVarInsn(ALOAD, THIS);
+        method.visitVarInsn(ALOAD, DOC);
+        method.visitVarInsn(ALOAD, STEP_HANDLER_VAR);
+        method.visitLdcInsn(instructionIndex);
+        method.visitMethodInsn(INVOKESPECIAL, className, blockName(instructionIndex - instructionIndex % MAX_INSTRUCTIONS_PER_METHOD), BLOCK_DESCRIPTOR, false);
+        method.visitInsn(ARETURN);
+    }
+
+    /**
+     * @return label of the target within the block starting at start, or of a jump to another block
+     */
+    private static Label target(int instructionIndex, int start, Label[] labels, Map<Integer, Label> exits) {
+        if (instructionIndex >= start && instructionIndex < start + labels.length) {
+            return labels[instructionIndex - start];
+        }
+        return exits.computeIfAbsent(instructionIndex, index -> new Label());
+    }
+
+    private static String blockName(int start) {
+        return "block" + start;
+    }
+
+    private static String fieldName(int instructionIndex) {
+        return "step" + instructionIndex;
+    }
+
+    private static String fieldDescriptor(ExecutionPlan.Instruction instruction) {
+        return instruction.isConditional() ? CONDITION_DESCRIPTOR : PROCESSOR_DESCRIPTOR;
+    }
+
+    /**
+     * @return the steps the generated class was defined with
+     */
+    static Object[] stepsOf(Class<?> generatedClass) {
+        if (!(generatedClass.getClassLoader() instanceof GeneratedClassLoader)) {
+            throw new IllegalStateException("class " + generatedClass.getName() + " is not a generated execution plan");
+        }
+        return ((GeneratedClassLoader) generatedClass.getClassLoader()).steps;
+    }
+
+    /**
+     * Defines a single generated class, and holds its steps until the class is initialized
+     */
+    private static class GeneratedClassLoader extends ClassLoader {
+        private final Object[] steps;
+
+        private GeneratedClassLoader(ClassLoader parent, Object[] steps) {
+            super(parent);
+            this.steps = steps;
+        }
+
+        private Class<?> define(String name, byte[] bytecode) {
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+    }
+}
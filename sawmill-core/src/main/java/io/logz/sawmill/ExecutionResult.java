@@ -37,8 +37,12 @@ public class ExecutionResult {
     }
 
     private ExecutionResult(String errorMessage, String failedProcessorName, PipelineExecutionException e) {
+        this(new Error(errorMessage, failedProcessorName, Optional.ofNullable(e)));
+    }
+
+    private ExecutionResult(Error error) {
         this.result = FAILED;
-        this.error = Optional.of(new Error(errorMessage, failedProcessorName, Optional.ofNullable(e)));
+        this.error = Optional.of(error);
         this.overtimeTook = Optional.empty();
     }
 
@@ -54,6 +58,13 @@ public class ExecutionResult {
         return new ExecutionResult(errorMessage, failedProcessorName, e);
     }
 
+    /**
+     * Failure of a processor, keeping its code and leaving its message unformatted until it is read
+     */
+    public static ExecutionResult failure(ProcessResult.Error processorError, String failedProcessorName, PipelineExecutionException e) {
+        return new ExecutionResult(new Error(processorError, failedProcessorName, Optional.ofNullable(e)));
+    }
+
     public static ExecutionResult overtime(ExecutionResult executionResult, long timeTook) {
         if (executionResult.isFailed()) {
             executionResult.setOvertime(timeTook);
@@ -107,17 +118,33 @@ public class ExecutionResult {
 
     public static class Error {
         private final String message;
+        private final ProcessResult.Error processorError;
         private final String failedProcessorName;
         private final Optional<PipelineExecutionException> exception;
 
         public Error(String message, String failedProcessorName, Optional<PipelineExecutionException> exception) {
             this.message = message;
+            this.processorError = null;
+            this.failedProcessorName = failedProcessorName;
+            this.exception = exception;
+        }
+
+        private Error(ProcessResult.Error processorError, String failedProcessorName, Optional<PipelineExecutionException> exception) {
+            this.message = null;
+            this.processorError = processorError;
             this.failedProcessorName = failedProcessorName;
             this.exception = exception;
         }
 
+        public FailureCode getCode() {
+            if (processorError != null) {
+                return processorError.getCode();
+            }
+            return exception.isPresent() ? FailureCode.EXECUTION_ERROR : FailureCode.GENERIC;
+        }
+
         public String getMessage() {
-            return message;
+            return processorError != null ? processorError.getMessage() : message;
         }
 
         public String getFailedProcessorName() {
@@ -1,4 +1,10 @@
 package io.logz.sawmill;
 
 public interface ExecutionStep {
+    /**
+     * @return the fields this step reads and writes, not including the steps nested in it
+     */
+    default FieldAccess getFieldAccess() {
+        return FieldAccess.ALL;
+    }
 }
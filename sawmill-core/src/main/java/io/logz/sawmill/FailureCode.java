@@ -0,0 +1,35 @@
+package io.logz.sawmill;
+
+/**
+ * Why a processor failed, for handling failures without parsing their messages
+ */
+public enum FailureCode {
+    /**
+     * Failure without a specific code
+     */
+    GENERIC,
+    /**
+     * Input field is missing or not of the expected type
+     */
+    FIELD_MISSING,
+    /**
+     * Input field is of a type the processor cannot handle
+     */
+    INVALID_FIELD_TYPE,
+    /**
+     * Input value is of the expected type but not a valid input, e.g. an invalid ip
+     */
+    INVALID_VALUE,
+    /**
+     * Input did not match any expression, dictionary entry or mapping
+     */
+    NO_MATCH,
+    /**
+     * Input could not be parsed
+     */
+    PARSE_FAILURE,
+    /**
+     * Processing failed on an exception
+     */
+    EXECUTION_ERROR
+}
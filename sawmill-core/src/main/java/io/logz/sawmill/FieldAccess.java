@@ -0,0 +1,194 @@
+package io.logz.sawmill;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fields a processor, condition or pipeline reads and writes, as far as it is known before execution.
+ * <p>The analysis is conservative: anything that cannot be told from the configuration, e.g. a field path
+ * rendered from a template or a processor that walks the whole doc, marks all fields as read or written.
+ */
+public final class FieldAccess {
+    public static final FieldAccess NONE = builder().build();
+    public static final FieldAccess ALL = builder().readAll().writeAll().build();
+
+    private final boolean readsAll;
+    private final boolean writesAll;
+    private final Set<String> reads;
+    private final Set<String> writes;
+
+    private FieldAccess(boolean readsAll, boolean writesAll, Set<String> reads, Set<String> writes) {
+        this.readsAll = readsAll;
+        this.writesAll = writesAll;
+        this.reads = readsAll ? Collections.emptySet() : Collections.unmodifiableSet(reads);
+        this.writes = writesAll ? Collections.emptySet() : Collections.unmodifiableSet(writes);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the fields accessed by the steps and all the steps nested in them
+     */
+    public static FieldAccess of(List<ExecutionStep> executionSteps) {
+        Builder builder = builder();
+        addSteps(builder, executionSteps);
+        return builder.build();
+    }
+
+    private static void addSteps(Builder builder, List<ExecutionStep> executionSteps) {
+        for (ExecutionStep executionStep : executionSteps) {
+            builder.add(executionStep.getFieldAccess());
+            if (executionStep instanceof ConditionalExecutionStep) {
+                ConditionalExecutionStep conditionalExecutionStep = (ConditionalExecutionStep) executionStep;
+                addSteps(builder, conditionalExecutionStep.getOnTrue());
+                addSteps(builder, conditionalExecutionStep.getOnFalse());
+            } else if (executionStep instanceof ProcessorExecutionStep) {
+                ProcessorExecutionStep processorExecutionStep = (ProcessorExecutionStep) executionStep;
+                processorExecutionStep.getOnSuccessExecutionSteps().ifPresent(steps -> addSteps(builder, steps));
+                processorExecutionStep.getOnFailureExecutionSteps().ifPresent(steps -> addSteps(builder, steps));
+            }
+        }
+    }
+
+    public boolean readsAll() {
+        return readsAll;
+    }
+
+    public boolean writesAll() {
+        return writesAll;
+    }
+
+    /**
+     * @return paths of the fields read, empty if {@link #readsAll()}
+     */
+    public Set<String> getReads() {
+        return reads;
+    }
+
+    /**
+     * @return paths of the fields written, empty if {@link #writesAll()}
+     */
+    public Set<String> getWrites() {
+        return writes;
+    }
+
+    /**
+     * @return top level fields of the paths read, empty if {@link #readsAll()}
+     */
+    public Set<String> getReadTopLevelFields() {
+        Set<String> topLevelFields = new LinkedHashSet<>();
+        for (String path : reads) {
+            topLevelFields.add(FieldPath.of(path).getElements()[0]);
+        }
+        return topLevelFields;
+    }
+
+    public FieldAccess merge(FieldAccess other) {
+        return builder().add(this).add(other).build();
+    }
+
+    @Override
+    public String toString() {
+        return "FieldAccess{" +
+                "reads=" + (readsAll ? "all" : reads) +
+                ", writes=" + (writesAll ? "all" : writes) +
+                '}';
+    }
+
+    public static final class Builder {
+        private boolean readsAll;
+        private boolean writesAll;
+        private final Set<String> reads = new LinkedHashSet<>();
+        private final Set<String> writes = new LinkedHashSet<>();
+
+        private Builder() {}
+
+        public Builder read(String path) {
+            reads.add(path);
+            return this;
+        }
+
+        public Builder read(FieldPath path) {
+            return read(path.getPath());
+        }
+
+        public Builder read(Collection<String> paths) {
+            reads.addAll(paths);
+            return this;
+        }
+
+        /**
+         * Reads the field in the rendered path, or all fields if the template depends on the doc
+         */
+        public Builder read(Template path) {
+            if (path instanceof TemplateService.StringTemplate) {
+                return read(((TemplateService.StringTemplate) path).getValue());
+            }
+            return readAll();
+        }
+
+        /**
+         * Renders a template whose value, unlike its path, is not a field: reads all fields if the template depends on the doc
+         */
+        public Builder render(Template template) {
+            return template instanceof TemplateService.StringTemplate ? this : readAll();
+        }
+
+        public Builder render(Collection<Template> templates) {
+            templates.forEach(this::render);
+            return this;
+        }
+
+        public Builder readAll() {
+            readsAll = true;
+            return this;
+        }
+
+        public Builder write(String path) {
+            writes.add(path);
+            return this;
+        }
+
+        public Builder write(FieldPath path) {
+            return write(path.getPath());
+        }
+
+        public Builder write(Collection<String> paths) {
+            writes.addAll(paths);
+            return this;
+        }
+
+        /**
+         * Writes the field in the rendered path, or all fields if the template depends on the doc
+         */
+        public Builder write(Template path) {
+            if (path instanceof TemplateService.StringTemplate) {
+                return write(((TemplateService.StringTemplate) path).getValue());
+            }
+            readsAll = true;
+            return writeAll();
+        }
+
+        public Builder writeAll() {
+            writesAll = true;
+            return this;
+        }
+
+        public Builder add(FieldAccess fieldAccess) {
+            readsAll |= fieldAccess.readsAll;
+            writesAll |= fieldAccess.writesAll;
+            reads.addAll(fieldAccess.reads);
+            writes.addAll(fieldAccess.writes);
+            return this;
+        }
+
+        public FieldAccess build() {
+            return new FieldAccess(readsAll, writesAll, new LinkedHashSet<>(reads), new LinkedHashSet<>(writes));
+        }
+    }
+}
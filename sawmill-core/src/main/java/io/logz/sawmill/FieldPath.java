@@ -0,0 +1,89 @@
+package io.logz.sawmill;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A pre-tokenized doc field path.
+ * <p>Paths use '.' as the nesting separator and '\' to escape the following character,
+ * same as the {@link Doc} String accessors. Processors with a static field configuration
+ * should compile the path once and use the {@link Doc} overloads that accept it.
+ */
+public final class FieldPath {
+
+    private final String path;
+    private final String[] elements;
+
+    private FieldPath(String path, String[] elements) {
+        this.path = path;
+        this.elements = elements;
+    }
+
+    public static FieldPath of(String path) {
+        requireNonNull(path, "path cannot be null");
+        return new FieldPath(path, tokenize(path));
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    String[] getElements() {
+        return elements;
+    }
+
+    String getLeaf() {
+        return elements[elements.length - 1];
+    }
+
+    int depth() {
+        return elements.length;
+    }
+
+    private static String[] tokenize(String path) {
+        if (path.indexOf('.') == -1 && path.indexOf('\\') == -1) {
+            return new String[] { path };
+        }
+
+        List<String> pathTokens = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean inEscape = false;
+
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (inEscape) {
+                inEscape = false;
+                sb.append(c);
+            } else if (c == '\\') {
+                inEscape = true;
+            } else if (c == '.') {
+                pathTokens.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        pathTokens.add(sb.toString());
+
+        return pathTokens.toArray(new String[0]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return path.equals(((FieldPath) o).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
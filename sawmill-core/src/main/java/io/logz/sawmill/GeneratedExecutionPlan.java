@@ -0,0 +1,60 @@
+package io.logz.sawmill;
+
+/**
+ * Base class of the executors generated at runtime for pipelines that opted in to bytecode generation.
+ * <p>A generated executor inlines the {@link ExecutionPlan} of a single pipeline into a few methods, each small enough
+ * for the JIT to compile, with a dedicated call site per processor and condition. Each call site only ever sees one receiver class,
+ * so the JIT can inline the processors across steps instead of dispatching through a single megamorphic call site.
+ * Metrics and results are left to the {@link StepHandler}.
+ */
+public abstract class GeneratedExecutionPlan {
+
+    /**
+     * Executes the pipeline on the doc
+     * @return the result of the execution, {@link ExecutionResult#success()} if no step stopped it
+     */
+    public abstract ExecutionResult execute(Doc doc, StepHandler stepHandler) throws InterruptedException;
+
+    /**
+     * Called once by the static initializer of a generated executor, which holds its processors and conditions in constants
+     * @return the processor or condition of every instruction of the plan, by instruction index
+     */
+    protected static Object[] steps(Class<? extends GeneratedExecutionPlan> generatedClass) {
+        return ExecutionPlanBytecodeGenerator.stepsOf(generatedClass);
+    }
+
+    /**
+     * Called by generated executors around each processor
+     */
+    public interface StepHandler {
+        /**
+         * Continue with the success target of the instruction
+         */
+        int SUCCEEDED = 0;
+        /**
+         * Continue with the failure target of the instruction
+         */
+        int FAILURE_HANDLED = 1;
+        /**
+         * Continue with the next target of the instruction
+         */
+        int FAILED = 2;
+        /**
+         * Stop the execution with the result of {@link #stopped(int, ProcessResult)}
+         */
+        int STOPPED = 3;
+
+        /**
+         * @throws InterruptedException to stop the execution as expired
+         */
+        void beforeProcessor() throws InterruptedException;
+
+        /**
+         * @param instructionIndex index of the processor instruction in the {@link ExecutionPlan}
+         * @return how to continue the execution, one of the constants of this interface
+         */
+        int afterProcessor(int instructionIndex, ProcessResult processResult);
+
+        ExecutionResult stopped(int instructionIndex, ProcessResult processResult);
+    }
+}
@@ -0,0 +1,136 @@
+package io.logz.sawmill;
+
+import io.logz.sawmill.utilities.JsonUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Utf-8 size of values serialized by {@link JsonUtils} and {@link DocWriter}, counted by walking them once
+ * without building the json.
+ * <p>Counts the bytes exactly as Jackson writes them: {@code null} map values are omitted, control characters,
+ * quotes and backslashes are escaped and surrogate chars are written as {@code \\uXXXX} escapes.
+ * Types other than maps, collections, strings, booleans and numbers are serialized to be counted.
+ */
+public final class JsonSize {
+    private static final int NULL_SIZE = 4;
+
+    private JsonSize() {}
+
+    public static long of(Object value) {
+        if (value == null) return NULL_SIZE;
+        if (value instanceof String) return ofString((String) value);
+        if (value instanceof RawJsonMap) return ((RawJsonMap) value).jsonSize();
+        if (value instanceof Map) return ofMap((Map<?, ?>) value);
+        if (value instanceof Collection) return ofCollection((Collection<?>) value);
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ofLong(((Number) value).longValue());
+        }
+        if (value instanceof Boolean) return (Boolean) value ? 4 : 5;
+        if (value instanceof Double) return ofDouble((Double) value);
+        if (value instanceof Float) return ofFloat((Float) value);
+        if (value instanceof BigInteger || value instanceof BigDecimal) return value.toString().length();
+        return JsonUtils.toJsonBytes(value).length;
+    }
+
+    /**
+     * @return size of the quoted and escaped string, also the size of a field name
+     */
+    public static long ofString(String value) {
+        long size = 2;
+        for (int i = 0; i < value.length(); i++) {
+            size += ofChar(value.charAt(i));
+        }
+        return size;
+    }
+
+    /**
+     * @return size of {@code "key":value}, 0 for a {@code null} value since it is omitted
+     */
+    static long ofEntry(String key, Object value) {
+        return value == null ? 0 : ofString(key) + 1 + of(value);
+    }
+
+    /**
+     * @param previousEntrySize {@link #ofEntry(String, Object)} of the entry before it changed
+     * @return size difference of the map after its {@code key} entry changed, including the comma separating
+     * the entry from the others
+     */
+    static long entryDelta(Map<String, Object> map, String key, long previousEntrySize) {
+        long entrySize = ofEntry(key, map.get(key));
+        long delta = entrySize - previousEntrySize;
+        if ((entrySize == 0) != (previousEntrySize == 0) && hasOtherEntries(map, key)) {
+            delta += entrySize == 0 ? -1 : 1;
+        }
+        return delta;
+    }
+
+    private static boolean hasOtherEntries(Map<String, Object> map, String key) {
+        if (map instanceof RawJsonMap) {
+            return ((RawJsonMap) map).hasValuesOtherThan(key);
+        }
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (entry.getValue() != null && !entry.getKey().equals(key)) return true;
+        }
+        return false;
+    }
+
+    private static int ofChar(char c) {
+        if (c >= 0x80) {
+            if (c < 0x800) return 2;
+            return Character.isSurrogate(c) ? 6 : 3;
+        }
+        if (c >= 0x20) {
+            return c == '"' || c == '\\' ? 2 : 1;
+        }
+        return c == '\b' || c == '\t' || c == '\n' || c == '\f' || c == '\r' ? 2 : 6;
+    }
+
+    private static long ofMap(Map<?, ?> map) {
+        long size = 2;
+        int entries = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getValue() == null) continue;
+            if (!(entry.getKey() instanceof String)) {
+                return JsonUtils.toJsonBytes(map).length;
+            }
+            size += ofString((String) entry.getKey()) + 1 + of(entry.getValue());
+            entries++;
+        }
+        return entries == 0 ? size : size + entries - 1;
+    }
+
+    private static long ofCollection(Collection<?> collection) {
+        long size = 2;
+        for (Object value : collection) {
+            size += of(value);
+        }
+        return collection.isEmpty() ? size : size + collection.size() - 1;
+    }
+
+    private static long ofLong(long value) {
+        if (value == Long.MIN_VALUE) return 20;
+        int size = 1;
+        if (value < 0) {
+            size++;
+            value = -value;
+        }
+        while (value >= 10) {
+            value /= 10;
+            size++;
+        }
+        return size;
+    }
+
+    private static long ofDouble(double value) {
+        long size = Double.toString(value).length();
+        return Double.isNaN(value) || Double.isInfinite(value) ? size + 2 : size;
+    }
+
+    private static long ofFloat(float value) {
+        long size = Float.toString(value).length();
+        return Float.isNaN(value) || Float.isInfinite(value) ? size + 2 : size;
+    }
+}
@@ -0,0 +1,60 @@
+package io.logz.sawmill;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Bounded dictionary of field keys, so the docs in compact storage share one instance of every recurring key.
+ * <p>Keys are added until the dictionary is full and never evicted, so the keys of the first docs, which are
+ * usually the recurring ones, stay. Keys longer than {@code maxKeyLength} are not added, since they are rarely repeated.
+ * Thread safe.
+ */
+public class KeyDictionary {
+    public static final int DEFAULT_MAX_KEYS = 10000;
+    public static final int DEFAULT_MAX_KEY_LENGTH = 64;
+
+    private static final KeyDictionary SHARED = new KeyDictionary();
+
+    private final int maxKeys;
+    private final int maxKeyLength;
+    private final ConcurrentMap<String, String> keys = new ConcurrentHashMap<>();
+
+    public KeyDictionary() {
+        this(DEFAULT_MAX_KEYS, DEFAULT_MAX_KEY_LENGTH);
+    }
+
+    public KeyDictionary(int maxKeys, int maxKeyLength) {
+        checkState(maxKeys > 0, "maxKeys must be positive");
+        checkState(maxKeyLength > 0, "maxKeyLength must be positive");
+        this.maxKeys = maxKeys;
+        this.maxKeyLength = maxKeyLength;
+    }
+
+    /**
+     * @return dictionary shared by all the executors using {@link DocStorage#compact()}
+     */
+    public static KeyDictionary shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return the instance of the key in the dictionary, or the key itself if it is not in the dictionary and cannot be added
+     */
+    public String intern(String key) {
+        String interned = keys.get(key);
+        if (interned != null) {
+            return interned;
+        }
+        if (key.length() > maxKeyLength || keys.size() >= maxKeys) {
+            return key;
+        }
+        interned = keys.putIfAbsent(key, key);
+        return interned != null ? interned : key;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+}
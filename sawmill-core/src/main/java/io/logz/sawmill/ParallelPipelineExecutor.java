@@ -0,0 +1,287 @@
+package io.logz.sawmill;
+
+import io.logz.sawmill.exceptions.PipelineExecutionException;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Splits batches of docs across a pool of threads, each part is executed by
+ * {@link PipelineExecutor#executeBatch(Pipeline, List)} so the wrapped executor's watchdog and metrics tracker are shared.
+ * Results are handed back on the calling thread.
+ */
+public class ParallelPipelineExecutor implements Closeable {
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final PipelineExecutor pipelineExecutor;
+    private final ExecutorService executorService;
+    private final int parallelism;
+    private final boolean ownsExecutorService;
+
+    /**
+     * Creates a parallel executor backed by a dedicated work-stealing pool, which is shut down on {@link #close()}
+     * @param pipelineExecutor the executor each part of a batch runs on, its lifecycle stays with the caller
+     * @param parallelism number of threads
+     */
+    public ParallelPipelineExecutor(PipelineExecutor pipelineExecutor, int parallelism) {
+        this(pipelineExecutor, new ForkJoinPool(parallelism), parallelism, true);
+    }
+
+    /**
+     * Creates a parallel executor on top of a caller owned pool, which is not shut down on {@link #close()}
+     * @param pipelineExecutor the executor each part of a batch runs on, its lifecycle stays with the caller
+     * @param executorService the pool running the batch parts
+     * @param parallelism the expected number of threads in the pool, used to decide how to split batches
+     */
+    public ParallelPipelineExecutor(PipelineExecutor pipelineExecutor, ExecutorService executorService, int parallelism) {
+        this(pipelineExecutor, executorService, parallelism, false);
+    }
+
+    private ParallelPipelineExecutor(PipelineExecutor pipelineExecutor, ExecutorService executorService, int parallelism, boolean ownsExecutorService) {
+        checkState(parallelism > 0, "parallelism must be positive");
+        this.pipelineExecutor = requireNonNull(pipelineExecutor, "pipelineExecutor cannot be null");
+        this.executorService = requireNonNull(executorService, "executorService cannot be null");
+        this.parallelism = parallelism;
+        this.ownsExecutorService = ownsExecutorService;
+    }
+
+    /**
+     * Executes the pipeline on all docs in parallel, docs may be executed in any order but their results keep the order of {@code docs}
+     * @return execution result per doc, in the same order as {@code docs}
+     * @throws PipelineExecutionException on unexpected error in any of the docs
+     */
+    public List<ExecutionResult> executeBatch(Pipeline pipeline, List<Doc> docs) {
+        List<ExecutionResult> executionResults = new ArrayList<>(docs.size());
+        executeBatch(pipeline, docs, ResultDelivery.ORDERED, (doc, executionResult) -> executionResults.add(executionResult));
+        return executionResults;
+    }
+
+    /**
+     * Executes the pipeline on all docs in parallel, docs may be executed in any order
+     * @param resultDelivery whether results are delivered in the order of {@code docs} or as soon as they are ready
+     * @param resultConsumer called on the calling thread with each doc and its execution result
+     * @throws PipelineExecutionException on unexpected error in any of the docs
+     */
+    public void executeBatch(Pipeline pipeline, List<Doc> docs, ResultDelivery resultDelivery, BiConsumer<Doc, ExecutionResult> resultConsumer) {
+        List<List<Doc>> parts = split(docs);
+        List<Callable<List<ExecutionResult>>> tasks = new ArrayList<>(parts.size());
+        for (List<Doc> part : parts) {
+            tasks.add(() -> pipelineExecutor.executeBatch(pipeline, part));
+        }
+
+        if (resultDelivery == ResultDelivery.ORDERED) {
+            deliverOrdered(pipeline, parts, tasks, resultConsumer);
+        } else {
+            deliverAsCompleted(pipeline, parts, tasks, resultConsumer);
+        }
+    }
+
+    /**
+     * Executes the pipeline on all docs in parallel, docs sharing the same ordering key are executed
+     * one after the other in the order of {@code docs}
+     * @param orderingKey extracts the key of a doc, docs with equal keys share an ordering lane.
+     *                    The keys are hashed into at most {@code parallelism} lanes, so docs of different keys may share one too
+     * @return execution result per doc, in the same order as {@code docs}
+     * @throws PipelineExecutionException on unexpected error in any of the docs
+     */
+    public List<ExecutionResult> executeBatch(Pipeline pipeline, List<Doc> docs, Function<Doc, ?> orderingKey) {
+        int lanesCount = Math.min(parallelism, docs.size());
+        List<List<Doc>> lanes = new ArrayList<>(lanesCount);
+        List<List<Integer>> lanesIndexes = new ArrayList<>(lanesCount);
+        for (int i = 0; i < lanesCount; i++) {
+            lanes.add(new ArrayList<>());
+            lanesIndexes.add(new ArrayList<>());
+        }
+        for (int i = 0; i < docs.size(); i++) {
+            Doc doc = docs.get(i);
+            int lane = Math.floorMod(Objects.hashCode(orderingKey.apply(doc)), lanesCount);
+            lanes.get(lane).add(doc);
+            lanesIndexes.get(lane).add(i);
+        }
+
+        List<Future<List<ExecutionResult>>> futures = new ArrayList<>(lanesCount);
+        ExecutionResult[] executionResults = new ExecutionResult[docs.size()];
+        try {
+            for (List<Doc> lane : lanes) {
+                futures.add(lane.isEmpty() ? null : submit(() -> pipelineExecutor.executeBatch(pipeline, lane)));
+            }
+
+            for (int laneIndex = 0; laneIndex < lanesCount; laneIndex++) {
+                if (futures.get(laneIndex) == null) continue;
+
+                List<ExecutionResult> laneResults = await(pipeline, futures.get(laneIndex));
+                List<Integer> laneIndexes = lanesIndexes.get(laneIndex);
+                for (int i = 0; i < laneResults.size(); i++) {
+                    executionResults[laneIndexes.get(i)] = laneResults.get(i);
+                }
+            }
+        } catch (RuntimeException e) {
+            cancel(futures);
+            throw e;
+        }
+
+        return Arrays.asList(executionResults);
+    }
+
+    public PipelineExecutor getPipelineExecutor() {
+        return pipelineExecutor;
+    }
+
+    private void deliverOrdered(Pipeline pipeline, List<List<Doc>> parts, List<Callable<List<ExecutionResult>>> tasks, BiConsumer<Doc, ExecutionResult> resultConsumer) {
+        List<Future<List<ExecutionResult>>> futures = new ArrayList<>(tasks.size());
+        try {
+            tasks.forEach(task -> futures.add(submit(task)));
+
+            for (int i = 0; i < parts.size(); i++) {
+                deliver(parts.get(i), await(pipeline, futures.get(i)), resultConsumer);
+            }
+        } catch (RuntimeException e) {
+            cancel(futures);
+            throw e;
+        }
+    }
+
+    private void deliverAsCompleted(Pipeline pipeline, List<List<Doc>> parts, List<Callable<List<ExecutionResult>>> tasks, BiConsumer<Doc, ExecutionResult> resultConsumer) {
+        BlockingQueue<Future<List<ExecutionResult>>> completionQueue = new LinkedBlockingQueue<>();
+        Map<Future<List<ExecutionResult>>, List<Doc>> partsByFuture = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                partsByFuture.put(submit(tasks.get(i), completionQueue), parts.get(i));
+            }
+        } catch (RuntimeException e) {
+            cancel(partsByFuture.keySet());
+            throw e;
+        }
+
+        for (int i = 0; i < tasks.size(); i++) {
+            Future<List<ExecutionResult>> completed;
+            try {
+                completed = completionQueue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel(partsByFuture.keySet());
+                throw new PipelineExecutionException(pipeline.getId(), e);
+            }
+
+            try {
+                deliver(partsByFuture.get(completed), await(pipeline, completed), resultConsumer);
+            } catch (RuntimeException e) {
+                cancel(partsByFuture.keySet());
+                throw e;
+            }
+        }
+    }
+
+    private void deliver(List<Doc> docs, List<ExecutionResult> executionResults, BiConsumer<Doc, ExecutionResult> resultConsumer) {
+        for (int i = 0; i < docs.size(); i++) {
+            resultConsumer.accept(docs.get(i), executionResults.get(i));
+        }
+    }
+
+    private List<ExecutionResult> await(Pipeline pipeline, Future<List<ExecutionResult>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new PipelineExecutionException(pipeline.getId(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PipelineExecutionException) {
+                throw (PipelineExecutionException) cause;
+            }
+            throw new PipelineExecutionException(pipeline.getId(), cause instanceof Exception ? (Exception) cause : e);
+        }
+    }
+
+    private Future<List<ExecutionResult>> submit(Callable<List<ExecutionResult>> task) {
+        return submit(task, null);
+    }
+
+    /**
+     * Submits the task as a {@link FutureTask}, whose cancel interrupts the task also on pools that do not, e.g. {@link ForkJoinPool}
+     * @param completionQueue the future is added to it once done, null if not needed
+     */
+    private Future<List<ExecutionResult>> submit(Callable<List<ExecutionResult>> task, BlockingQueue<Future<List<ExecutionResult>>> completionQueue) {
+        FutureTask<List<ExecutionResult>> future = completionQueue == null ? new FutureTask<>(task) : new FutureTask<List<ExecutionResult>>(task) {
+            @Override
+            protected void done() {
+                completionQueue.add(this);
+            }
+        };
+        executorService.execute(future);
+        return future;
+    }
+
+    /**
+     * Cancels the futures not done yet, ignoring lanes without a future
+     */
+    private void cancel(Iterable<Future<List<ExecutionResult>>> futures) {
+        for (Future<List<ExecutionResult>> future : futures) {
+            if (future != null) future.cancel(true);
+        }
+    }
+
+    private List<List<Doc>> split(List<Doc> docs) {
+        int partsCount = Math.min(docs.size(), parallelism * TASKS_PER_THREAD);
+        List<List<Doc>> parts = new ArrayList<>(partsCount);
+        if (partsCount == 0) {
+            return parts;
+        }
+
+        int partSize = docs.size() / partsCount;
+        int remainder = docs.size() % partsCount;
+        int from = 0;
+        for (int i = 0; i < partsCount; i++) {
+            int to = from + partSize + (i < remainder ? 1 : 0);
+            parts.add(docs.subList(from, to));
+            from = to;
+        }
+        return parts;
+    }
+
+    @Override
+    public void close() {
+        if (!ownsExecutorService) {
+            return;
+        }
+
+        try {
+            executorService.shutdown();
+            executorService.awaitTermination(1, TimeUnit.SECONDS);
+            executorService.shutdownNow();
+        } catch (InterruptedException e) {
+            Thread.interrupted();
+        }
+    }
+
+    public enum ResultDelivery {
+        /**
+         * Results are delivered in the order of the docs in the batch
+         */
+        ORDERED,
+        /**
+         * Results are delivered as soon as the part of the batch they belong to completes
+         */
+        AS_COMPLETED
+    }
+}
@@ -4,6 +4,8 @@ import io.logz.sawmill.parser.ExecutionStepsParser;
 import io.logz.sawmill.parser.PipelineDefinition;
 import io.logz.sawmill.parser.PipelineDefinitionJsonParser;
 import org.apache.commons.collections4.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,24 +14,63 @@ import java.util.UUID;
 import static com.google.common.base.Preconditions.checkState;
 
 public class Pipeline {
+    private static final Logger logger = LoggerFactory.getLogger(Pipeline.class);
 
     private final String id;
     private final List<ExecutionStep> executionSteps;
     private final boolean stopOnFailure;
+    private final ExecutionPlan executionPlan;
+    private final Optional<GeneratedExecutionPlan> generatedExecutionPlan;
+    private final FieldAccess fieldAccess;
 
     public Pipeline(String id, List<ExecutionStep> executionSteps, boolean stopOnFailure) {
+        this(id, executionSteps, stopOnFailure, false);
+    }
+
+    /**
+     * @param generateBytecode whether to generate a dedicated executor class for this pipeline,
+     *                         falls back to the interpreted execution plan if generation fails
+     */
+    public Pipeline(String id, List<ExecutionStep> executionSteps, boolean stopOnFailure, boolean generateBytecode) {
         checkState(!id.isEmpty(), "id cannot be empty");
         checkState(CollectionUtils.isNotEmpty(executionSteps), "executionSteps cannot be empty");
 
         this.id = id;
         this.executionSteps = executionSteps;
         this.stopOnFailure = stopOnFailure;
+        this.executionPlan = ExecutionPlan.compile(executionSteps);
+        this.generatedExecutionPlan = generateBytecode ? generateExecutionPlan(id, executionPlan) : Optional.empty();
+        this.fieldAccess = FieldAccess.of(executionSteps);
+    }
+
+    private static Optional<GeneratedExecutionPlan> generateExecutionPlan(String id, ExecutionPlan executionPlan) {
+        try {
+            return Optional.of(ExecutionPlanBytecodeGenerator.generate(id, executionPlan));
+        } catch (RuntimeException | LinkageError e) {
+            logger.warn("failed to generate bytecode for pipeline {}, falling back to interpreted execution", id, e);
+            return Optional.empty();
+        }
     }
 
     public String getId() { return id; }
 
     public List<ExecutionStep> getExecutionSteps() { return executionSteps; }
 
+    /**
+     * @return the execution steps compiled into a flat plan, which is what the {@link PipelineExecutor} runs
+     */
+    public ExecutionPlan getExecutionPlan() { return executionPlan; }
+
+    /**
+     * @return the generated executor of this pipeline, empty if bytecode generation was not requested or failed
+     */
+    public Optional<GeneratedExecutionPlan> getGeneratedExecutionPlan() { return generatedExecutionPlan; }
+
+    /**
+     * @return the fields the execution steps may read and write, e.g. to parse only those of incoming docs with {@link DocProjection}
+     */
+    public FieldAccess getFieldAccess() { return fieldAccess; }
+
     public boolean isStopOnFailure() {
         return stopOnFailure;
     }
@@ -64,8 +105,9 @@ public class Pipeline {
             List<ExecutionStep> executionSteps = executionStepsParser.parse(pipelineDefinition.getExecutionSteps());
             Optional<Boolean> stopOnFailureNullable = pipelineDefinition.isStopOnFailure();
             boolean stopOnFailure = stopOnFailureNullable.orElse(false);
+            boolean generateBytecode = pipelineDefinition.isGenerateBytecode().orElse(false);
 
-            return new Pipeline(id, executionSteps, stopOnFailure);
+            return new Pipeline(id, executionSteps, stopOnFailure, generateBytecode);
         }
     }
 }
@@ -5,6 +5,8 @@ import org.weakref.jmx.Managed;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
 import java.util.concurrent.atomic.LongAdder;
 
 public class PipelineExecutionMetricsMBean implements PipelineExecutionMetricsTracker {
@@ -65,11 +67,51 @@ public class PipelineExecutionMetricsMBean implements PipelineExecutionMetricsTr
     public long getMaxProcessorProcessingTime(String processorName) {
         return processorsMetrics.get(processorName).getMaxTime();
     }
+
+    /**
+     * @return average bytes allocated by a run of the processor, 0 unless the executor tracks allocations
+     */
+    @Managed
+    public float getAvgProcessorAllocatedBytes(String processorName) {
+        return processorsMetrics.get(processorName).getAvgAllocatedBytes();
+    }
+
+    /**
+     * @return bytes allocated per second by the processor since it is tracked, 0 unless the executor tracks allocations
+     */
+    @Managed
+    public double getProcessorAllocationRate(String processorName) {
+        return processorsMetrics.get(processorName).getAllocationRate();
+    }
+
+    @Managed
+    public long getProcessingSucceededCount(String processorName) {
+        return processorsMetrics.get(processorName).getSucceeded();
+    }
+
     @Managed
     public long getProcessingFailedCount(String processorName) {
         return processorsMetrics.get(processorName).getFailed();
     }
 
+    /**
+     * @return times the expression of the processor matched, reported by processors trying several expressions, e.g. grok
+     */
+    @Managed
+    public long getProcessorExpressionHits(String processorName, String expression) {
+        return processorsMetrics.get(processorName).getExpressionMetrics(expression).getHits();
+    }
+
+    @Managed
+    public long getProcessorExpressionMisses(String processorName, String expression) {
+        return processorsMetrics.get(processorName).getExpressionMetrics(expression).getMisses();
+    }
+
+    @Managed
+    public float getAvgProcessorExpressionTime(String processorName, String expression) {
+        return processorsMetrics.get(processorName).getExpressionMetrics(expression).getAvgTime();
+    }
+
     @Override
     public void pipelineFinishedSuccessfully(String pipelineId, Doc doc, long timeTookNs) {
         succeeded.increment();
@@ -102,7 +144,22 @@ public class PipelineExecutionMetricsMBean implements PipelineExecutionMetricsTr
 
     @Override
     public void processorFinishedSuccessfully(String pipelineId, String processorName, long timeTookNs) {
-        processorsMetrics.computeIfAbsent(processorName, k -> new ProcessorMetrics()).addEvent(timeTookNs);
+        processorFinishedSuccessfully(pipelineId, processorName, timeTookNs, 1);
+    }
+
+    @Override
+    public void processorFinishedSuccessfully(String pipelineId, String processorName, long timeTookNs, int sampleWeight) {
+        processorsMetrics.computeIfAbsent(processorName, k -> new ProcessorMetrics()).addEvent(timeTookNs, sampleWeight);
+    }
+
+    @Override
+    public void processorAllocated(String pipelineId, String processorName, long allocatedBytes) {
+        processorsMetrics.computeIfAbsent(processorName, k -> new ProcessorMetrics()).addAllocation(allocatedBytes);
+    }
+
+    @Override
+    public void processorExpressionTried(String pipelineId, String processorName, String expression, long hits, long misses, long timeTookNs) {
+        processorsMetrics.computeIfAbsent(processorName, k -> new ProcessorMetrics()).addExpressionTries(expression, hits, misses, timeTookNs);
     }
 
     @Override
@@ -111,38 +168,73 @@ public class PipelineExecutionMetricsMBean implements PipelineExecutionMetricsTr
     }
 
     private class ProcessorMetrics {
+        LongAdder eventsSucceeded = new LongAdder();
         LongAdder eventsCount = new LongAdder();
         LongAdder eventsDuration = new LongAdder();
         LongAdder eventsFailed = new LongAdder();
-        long maxTime = 0;
-        long minTime = 0;
-
-        public void addEvent(long duration) {
-            eventsCount.increment();
-            eventsDuration.add(duration);
+        LongAdder allocationsCount = new LongAdder();
+        LongAdder allocatedBytes = new LongAdder();
+        LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+        LongAccumulator minTime = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        ConcurrentMap<String, ExpressionMetrics> expressionsMetrics = new ConcurrentHashMap<>();
+        long createdNanos = System.nanoTime();
 
-            if (maxTime == 0 || duration > maxTime) {
-                maxTime = duration;
-            }
-            if (minTime == 0 || duration < minTime) {
-                minTime = duration;
+        /**
+         * Counts a successful run, and its time if it was timed
+         */
+        public void addEvent(long duration, int weight) {
+            eventsSucceeded.increment();
+            if (weight == 0) {
+                return;
             }
+            eventsCount.add(weight);
+            eventsDuration.add(duration * weight);
+            maxTime.accumulate(duration);
+            minTime.accumulate(duration);
+        }
+
+        public void addAllocation(long bytes) {
+            allocationsCount.increment();
+            allocatedBytes.add(bytes);
+        }
+
+        public void addExpressionTries(String expression, long hits, long misses, long timeTookNs) {
+            expressionsMetrics.computeIfAbsent(expression, k -> new ExpressionMetrics()).add(hits, misses, timeTookNs);
+        }
+
+        public ExpressionMetrics getExpressionMetrics(String expression) {
+            return expressionsMetrics.get(expression);
         }
 
         public void incrementFailure() {
             eventsFailed.increment();
         }
 
+        public long getSucceeded() {
+            return eventsSucceeded.longValue();
+        }
+
         public long getFailed() {
             return eventsFailed.longValue();
         }
 
         public long getMaxTime() {
-            return maxTime;
+            return maxTime.get();
         }
 
         public long getMinTime() {
-            return minTime;
+            long min = minTime.get();
+            return min == Long.MAX_VALUE ? 0 : min;
+        }
+
+        public float getAvgAllocatedBytes() {
+            long totalAllocationsCount = allocationsCount.longValue();
+            return totalAllocationsCount == 0 ? 0 : (float) allocatedBytes.longValue() / totalAllocationsCount;
+        }
+
+        public double getAllocationRate() {
+            long elapsedNanos = System.nanoTime() - createdNanos;
+            return elapsedNanos <= 0 ? 0 : allocatedBytes.longValue() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
         }
 
         public float getAvgTime() {
@@ -155,4 +247,29 @@ public class PipelineExecutionMetricsMBean implements PipelineExecutionMetricsTr
             return avgTime;
         }
     }
+
+    private class ExpressionMetrics {
+        LongAdder hits = new LongAdder();
+        LongAdder misses = new LongAdder();
+        LongAdder duration = new LongAdder();
+
+        public void add(long hitsCount, long missesCount, long timeTookNs) {
+            hits.add(hitsCount);
+            misses.add(missesCount);
+            duration.add(timeTookNs);
+        }
+
+        public long getHits() {
+            return hits.longValue();
+        }
+
+        public long getMisses() {
+            return misses.longValue();
+        }
+
+        public float getAvgTime() {
+            long tries = hits.longValue() + misses.longValue();
+            return tries == 0 ? 0 : (float) duration.longValue() / tries;
+        }
+    }
 }
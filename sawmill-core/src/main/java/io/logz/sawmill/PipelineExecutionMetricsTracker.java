@@ -12,8 +12,32 @@ public interface PipelineExecutionMetricsTracker {
 
     void processorFinishedSuccessfully(String pipelineId, String processorName, long timeTookNs);
 
+    /**
+     * Processor finished successfully, reported on every doc while its time is sampled by the {@link ProcessorTimingPolicy}.
+     * Trackers which do not override it get the docs that are not timed with a time of 0
+     * @param sampleWeight number of docs the timing stands for, 1 if every doc is timed, 0 if the doc is not timed
+     */
+    default void processorFinishedSuccessfully(String pipelineId, String processorName, long timeTookNs, int sampleWeight) {
+        processorFinishedSuccessfully(pipelineId, processorName, timeTookNs);
+    }
+
     void processorFailed(String pipelineId, String processorName, Doc doc);
 
+    /**
+     * Bytes allocated by the thread while the processor ran, reported only when the executor tracks allocations
+     */
+    default void processorAllocated(String pipelineId, String processorName, long allocatedBytes) {
+    }
+
+    /**
+     * An expression of a {@link ReportingProcessor} trying several expressions, e.g. grok, was tried since the previous report
+     * @param hits times the expression matched
+     * @param misses times the expression was tried and did not match
+     * @param timeTookNs time spent trying the expression
+     */
+    default void processorExpressionTried(String pipelineId, String processorName, String expression, long hits, long misses, long timeTookNs) {
+    }
+
     void pipelineFailedOnUnexpectedError(String pipelineId, Doc doc, Exception e);
 
     void overtimeProcessingDoc(String pipelineId, Doc doc);
@@ -5,137 +5,350 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
-import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+/**
+ * Warns about and kills executions running over their thresholds, using a hashed timing wheel.
+ * An execution is killed by expiring its {@link ExecutionDeadline}, which processors check cooperatively, so the
+ * thread running it is never interrupted and no interrupt leaks to the caller. Watchdogs created with
+ * {@code interruptOnExpiry} also interrupt the thread, for processors blocked in calls that only respond to interrupts,
+ * and the executor clears that interrupt once the execution returns.
+ * <p>Registering an execution is a single compare-and-set on a pending stack, and the watchdog and the executing thread
+ * hand the execution over with compare-and-sets of its state (see {@link WatchedPipeline}). On every tick the pending
+ * executions are moved into the wheel bucket of their next deadline, removed executions are dropped on the way, and
+ * only the bucket of the current tick is visited. All watchdogs share a single timer thread, and run the overtime
+ * callbacks on a shared pool so a slow callback does not hold up the timer.
+ * <p>A removed execution may stay in its bucket until the bucket's tick, it drops its doc once removed so the
+ * bucket does not hold the doc.
+ */
 public class PipelineExecutionTimeWatchdog implements Closeable {
     public static final int THRESHOLD_CHECK_FACTOR = 10;
 
     private static final Logger logger = LoggerFactory.getLogger(PipelineExecutionTimeWatchdog.class);
 
+    private static ScheduledExecutorService sharedTimer;
+    private static ExecutorService sharedNotifier;
+    private static int sharedTimerUsers;
+
     private final long warningThresholdTimeMs;
     private final long expiredThresholdTimeMs;
-    private final ConcurrentMap<Long, WatchedPipeline> currentlyRunning;
     private final Consumer<WatchedPipeline> overtimeOp;
+    private final boolean interruptOnExpiry;
     private final PipelineExecutionMetricsTracker metricsTracker;
+    private final AtomicReference<WatchedPipeline> pending;
+    private final long tickMs;
+    private final WatchedPipeline[] wheel;
+    private final int wheelMask;
+    private final long startTimeMs;
+    private final ConcurrentMap<Long, WatchedPipeline> executionsById;
     private final AtomicLong executionIdGenerator;
-    private ScheduledExecutorService timer;
+    private final ExecutorService notifier;
+    private long tick;
+    private ScheduledFuture<?> ticker;
 
     public PipelineExecutionTimeWatchdog(long warningThresholdTimeMs, long expiredThresholdTimeMs, PipelineExecutionMetricsTracker metricsTracker, Consumer<WatchedPipeline> overtimeOp) {
+        this(warningThresholdTimeMs, expiredThresholdTimeMs, metricsTracker, overtimeOp, false);
+    }
+
+    /**
+     * @param interruptOnExpiry also interrupt the thread of an expired execution, e.g. for processors blocked in I/O.
+     * Not suited to threads the caller shares with other work, since the interrupt may hit them after the execution returns
+     */
+    public PipelineExecutionTimeWatchdog(long warningThresholdTimeMs, long expiredThresholdTimeMs, PipelineExecutionMetricsTracker metricsTracker,
+                                         Consumer<WatchedPipeline> overtimeOp, boolean interruptOnExpiry) {
+        this.interruptOnExpiry = interruptOnExpiry;
         this.warningThresholdTimeMs = warningThresholdTimeMs;
         this.expiredThresholdTimeMs = expiredThresholdTimeMs;
         this.metricsTracker = metricsTracker;
         this.overtimeOp = overtimeOp;
-        this.currentlyRunning = new ConcurrentHashMap<>();
+        this.pending = new AtomicReference<>();
+        this.tickMs = Math.max(1, warningThresholdTimeMs / THRESHOLD_CHECK_FACTOR);
+        this.wheel = new WatchedPipeline[wheelSize(Math.max(warningThresholdTimeMs, expiredThresholdTimeMs) / tickMs + 1)];
+        this.wheelMask = wheel.length - 1;
+        this.startTimeMs = System.currentTimeMillis();
+        this.executionsById = new ConcurrentHashMap<>();
         this.executionIdGenerator = new AtomicLong();
-        initWatchdog(warningThresholdTimeMs / THRESHOLD_CHECK_FACTOR);
+        this.ticker = schedule(this::alertOvertimeExecutions, tickMs);
+        this.notifier = notifier();
+    }
+
+    private static int wheelSize(long ticksPerRevolution) {
+        int size = 1;
+        while (size < ticksPerRevolution && size < (1 << 20)) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private static synchronized ScheduledFuture<?> schedule(Runnable task, long periodMs) {
+        if (sharedTimer == null) {
+            sharedTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("sawmill-watchdog-%d").setDaemon(true).build());
+            sharedNotifier = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("sawmill-watchdog-notifier-%d").setDaemon(true).build());
+        }
+        sharedTimerUsers++;
+        return sharedTimer.scheduleAtFixedRate(task, periodMs, periodMs, MILLISECONDS);
     }
 
-    private void initWatchdog(long periodMs) {
-        timer = Executors.newScheduledThreadPool(1, new ThreadFactoryBuilder().setNameFormat("sawmill-watchdog-%d").setDaemon(true).build());
-        timer.scheduleAtFixedRate(this::alertOvertimeExecutions, 0, periodMs, MILLISECONDS);
+    /**
+     * @return the notifier pool shared by the watchdogs, which stays up while the calling watchdog is scheduled
+     */
+    private static synchronized ExecutorService notifier() {
+        return sharedNotifier;
+    }
+
+    private static synchronized void cancel(ScheduledFuture<?> scheduledTask) {
+        if (scheduledTask.isCancelled()) {
+            return;
+        }
+
+        scheduledTask.cancel(false);
+        if (--sharedTimerUsers == 0) {
+            sharedTimer.shutdown();
+            sharedTimer = null;
+            sharedNotifier.shutdown();
+            sharedNotifier = null;
+        }
     }
 
     private void alertOvertimeExecutions() {
         try {
-            warnOvertimeExecutions();
-            killExpiredExecutions();
+            long now = System.currentTimeMillis();
+            transferPending(now);
+
+            long currentTick = (now - startTimeMs) / tickMs;
+            // catch up on ticks missed due to a late run, at most one full revolution
+            long firstTick = Math.max(tick, currentTick - wheelMask);
+            for (long t = firstTick; t <= currentTick; t++) {
+                expireBucket((int) (t & wheelMask), now, currentTick);
+            }
+            tick = currentTick + 1;
         } catch (Exception e) {
             logger.error("failed to alert of overtime executions", e);
         }
     }
 
-    private void killExpiredExecutions() {
-        long now = System.currentTimeMillis();
-        List<WatchedPipeline> expiredExecutions = currentlyRunning.values().stream()
-                .filter(watchedPipeline -> now - watchedPipeline.getIngestTimestamp() > expiredThresholdTimeMs)
-                .collect(Collectors.toList());
+    private void transferPending(long now) {
+        WatchedPipeline watchedPipeline = pending.getAndSet(null);
+        while (watchedPipeline != null) {
+            WatchedPipeline next = watchedPipeline.next;
+            long state = watchedPipeline.getState();
+            if (!WatchedPipeline.isRemoved(state)) {
+                place(watchedPipeline, nextDeadline(watchedPipeline, state), now);
+            }
+            watchedPipeline = next;
+        }
+    }
+
+    private void expireBucket(int bucket, long now, long currentTick) {
+        WatchedPipeline watchedPipeline = wheel[bucket];
+        wheel[bucket] = null;
+
+        while (watchedPipeline != null) {
+            WatchedPipeline next = watchedPipeline.next;
+            checkExecution(watchedPipeline, now, currentTick);
+            watchedPipeline = next;
+        }
+    }
+
+    /**
+     * Warns about or expires the current doc of the execution. The state is read before the doc and its timestamp,
+     * which the executing thread writes before the state, so a successful compare-and-set acts on that same doc.
+     * An execution that is not running stays in the wheel until removed, a batch may move on to its next doc.
+     */
+    private void checkExecution(WatchedPipeline watchedPipeline, long now, long currentTick) {
+        long state = watchedPipeline.getState();
+        if (WatchedPipeline.isRemoved(state)) {
+            return;
+        }
 
-        expiredExecutions.forEach(this::interruptIfRunning);
+        if (WatchedPipeline.isRunning(state)) {
+            Doc doc = watchedPipeline.getDoc();
+            long ingestTimestamp = watchedPipeline.getIngestTimestamp();
+            long elapsed = now - ingestTimestamp;
+            if (elapsed > expiredThresholdTimeMs) {
+                expireIfRunning(watchedPipeline, state, doc);
+            } else if (elapsed > warningThresholdTimeMs && !WatchedPipeline.isOvertime(state)) {
+                notifyOvertimeIfRunning(watchedPipeline, state, doc, ingestTimestamp);
+            }
+        }
+
+        placeAfter(watchedPipeline, nextDeadline(watchedPipeline, watchedPipeline.getState()), currentTick);
     }
 
-    private void warnOvertimeExecutions() {
-        long now = System.currentTimeMillis();
-        List<WatchedPipeline> warningExceededExecutions = currentlyRunning.values().stream()
-                .filter(watchedPipeline -> now - watchedPipeline.getIngestTimestamp() > warningThresholdTimeMs)
-                .filter(watchedPipeline -> !watchedPipeline.hasBeenNotifiedAsOvertime())
-                .collect(Collectors.toList());
-        warningExceededExecutions.forEach(this::notifyOvertimeToMetricsTracker);
-        warningExceededExecutions.forEach(overtimeOp);
-        warningExceededExecutions.forEach(WatchedPipeline::setAsNotifiedWithOvertime);
+    /**
+     * @return the time of the next threshold of a running execution, or a time already passed for a stopped one,
+     * so a batch is checked again on the next tick once it moves on to its next doc
+     */
+    private long nextDeadline(WatchedPipeline watchedPipeline, long state) {
+        if (!WatchedPipeline.isRunning(state)) {
+            return 0;
+        }
+        long threshold = WatchedPipeline.isOvertime(state) ? expiredThresholdTimeMs : warningThresholdTimeMs;
+        return watchedPipeline.getIngestTimestamp() + threshold;
+    }
+
+    private void place(WatchedPipeline watchedPipeline, long deadline, long now) {
+        placeAfter(watchedPipeline, deadline, (now - startTimeMs) / tickMs - 1);
     }
 
-    /***
-     * Stop watching pipeline and interrupt if needed
-     * Check whether the execution has been stopped already
-     * @param watchedPipeline
-     * @param shouldInterrupt indicate if interrupt is required
-     * @return {@code true} if already finished.
+    /**
+     * Puts the execution in the bucket of the first tick passing its deadline, but not before the tick after {@code afterTick}
      */
-    private boolean stopWatchedPipeline(WatchedPipeline watchedPipeline, boolean shouldInterrupt) {
-        synchronized (watchedPipeline) {
-            boolean alreadyFinished = !watchedPipeline.compareAndSetFinishedRunning();
+    private void placeAfter(WatchedPipeline watchedPipeline, long deadline, long afterTick) {
+        long deadlineTick = (deadline - startTimeMs) / tickMs + 1;
+        int bucket = (int) (Math.max(deadlineTick, afterTick + 1) & wheelMask);
+        watchedPipeline.next = wheel[bucket];
+        wheel[bucket] = watchedPipeline;
+    }
 
-            if (shouldInterrupt && !alreadyFinished) {
+    /**
+     * Expires the deadline of the execution, and interrupts its thread if configured to, unless it stopped meanwhile
+     */
+    private void expireIfRunning(WatchedPipeline watchedPipeline, long state, Doc doc) {
+        if (!watchedPipeline.markExpired(state)) {
+            return;
+        }
+
+        try {
+            watchedPipeline.expire();
+            if (interruptOnExpiry) {
                 watchedPipeline.interrupt();
-                notifyExpiredToMetricsTracker(watchedPipeline);
             }
+            metricsTracker.pipelineExpired(watchedPipeline.getPipelineId(), doc);
+        } finally {
+            watchedPipeline.expiryDone(interruptOnExpiry);
+        }
+    }
 
-            return alreadyFinished;
+    /**
+     * Runs the overtime callback on the notifier pool, with a copy of the execution holding the overtime doc
+     */
+    private void notifyOvertimeIfRunning(WatchedPipeline watchedPipeline, long state, Doc doc, long ingestTimestamp) {
+        if (!watchedPipeline.markOvertime(state)) {
+            return;
         }
+
+        metricsTracker.overtimeProcessingDoc(watchedPipeline.getPipelineId(), doc);
+        WatchedPipeline overtimeExecution = watchedPipeline.overtimeSnapshot(doc, ingestTimestamp);
+        notifier.execute(() -> {
+            try {
+                overtimeOp.accept(overtimeExecution);
+            } catch (Exception e) {
+                logger.error("overtime callback failed", e);
+            }
+        });
     }
 
-    private void interruptIfRunning(WatchedPipeline watchedPipeline) {
-        stopWatchedPipeline(watchedPipeline, true);
+    public boolean isInterruptingOnExpiry() {
+        return interruptOnExpiry;
     }
 
-    public boolean stopWatchedPipeline(long executionIdentifier) {
-        return stopWatchedPipeline(currentlyRunning.get(executionIdentifier), false);
+    /**
+     * Stop watching the execution, once it returns the watchdog no longer expires the execution
+     * @return {@code true} if the execution has already been stopped by the watchdog, in which case
+     * {@link WatchedPipeline#hasBeenInterrupted()} tells whether the watchdog interrupted its thread
+     */
+    public boolean stopWatchedPipeline(WatchedPipeline watchedPipeline) {
+        boolean alreadyStopped = watchedPipeline.stop();
+        if (!alreadyStopped) {
+            watchedPipeline.releaseDoc();
+        }
+        return alreadyStopped;
     }
 
-    private void notifyOvertimeToMetricsTracker(WatchedPipeline watchedPipeline) {
-        metricsTracker.overtimeProcessingDoc(watchedPipeline.getPipelineId(), watchedPipeline.getDoc());
+    /**
+     * @deprecated use {@link #stopWatchedPipeline(WatchedPipeline)} with the execution returned by {@link #startedExecution(String, Doc)}
+     * @return {@code false} for an unknown identifier
+     */
+    @Deprecated
+    public boolean stopWatchedPipeline(long executionIdentifier) {
+        WatchedPipeline watchedPipeline = executionsById.get(executionIdentifier);
+        return watchedPipeline != null && stopWatchedPipeline(watchedPipeline);
     }
 
-    private void notifyExpiredToMetricsTracker(WatchedPipeline watchedPipeline) {
-        metricsTracker.pipelineExpired(watchedPipeline.getPipelineId(), watchedPipeline.getDoc());
+    /**
+     * Starts watching an execution running on the current thread
+     */
+    public WatchedPipeline startedExecution(String pipelineId, Doc doc) {
+        return watch(pipelineId, doc, Thread.currentThread());
     }
 
-    public long startedExecution(String pipelineId, Doc doc, Thread context) {
+    private WatchedPipeline watch(String pipelineId, Doc doc, Thread context) {
         long ingestTimestamp = System.currentTimeMillis();
         WatchedPipeline watchedPipeline = new WatchedPipeline(doc, pipelineId, ingestTimestamp, context);
-        long id = executionIdGenerator.incrementAndGet();
-        currentlyRunning.put(id, watchedPipeline);
 
+        WatchedPipeline head;
+        do {
+            head = pending.get();
+            watchedPipeline.next = head;
+        } while (!pending.compareAndSet(head, watchedPipeline));
+
+        return watchedPipeline;
+    }
+
+    /**
+     * @deprecated use {@link #startedExecution(String, Doc)}, which returns the execution itself rather than an identifier
+     * @return identifier of the execution for {@link #stopWatchedPipeline(long)}, {@link #isOvertime(long)} and {@link #removeExecution(long)}
+     */
+    @Deprecated
+    public long startedExecution(String pipelineId, Doc doc, Thread context) {
+        long id = executionIdGenerator.incrementAndGet();
+        executionsById.put(id, watch(pipelineId, doc, context));
         return id;
     }
 
+    /**
+     * Watches the next doc of a batch with the registration of the batch, once the previous doc was stopped
+     * with {@link #stopWatchedPipeline(WatchedPipeline)}
+     */
+    void startedNextExecution(WatchedPipeline watchedPipeline, Doc doc) {
+        watchedPipeline.nextDoc(doc, System.currentTimeMillis());
+    }
+
+    /**
+     * Stop watching the execution, and any later doc of its batch, the watchdog drops it on its next visit
+     */
+    public void removeExecution(WatchedPipeline watchedPipeline) {
+        watchedPipeline.remove();
+    }
+
+    /**
+     * @deprecated use {@link #removeExecution(WatchedPipeline)}
+     */
+    @Deprecated
     public void removeExecution(long id) {
-        currentlyRunning.remove(id);
+        WatchedPipeline watchedPipeline = executionsById.remove(id);
+        if (watchedPipeline != null) {
+            removeExecution(watchedPipeline);
+        }
     }
 
     @Override
     public void close() {
-        try {
-            timer.shutdown();
-            timer.awaitTermination(1, TimeUnit.SECONDS);
-            timer.shutdownNow();
+        cancel(ticker);
+    }
 
-        } catch (InterruptedException e) {
-            Thread.interrupted();
-        }
+    public boolean isOvertime(WatchedPipeline watchedPipeline) {
+        return watchedPipeline.hasBeenNotifiedAsOvertime();
     }
 
+    /**
+     * @deprecated use {@link #isOvertime(WatchedPipeline)}
+     * @return {@code false} for an unknown identifier
+     */
+    @Deprecated
     public boolean isOvertime(long executionIdentifier) {
-        return currentlyRunning.get(executionIdentifier).hasBeenNotifiedAsOvertime();
+        WatchedPipeline watchedPipeline = executionsById.get(executionIdentifier);
+        return watchedPipeline != null && isOvertime(watchedPipeline);
     }
 }
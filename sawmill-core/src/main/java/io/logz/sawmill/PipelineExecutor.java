@@ -1,15 +1,22 @@
 package io.logz.sawmill;
 
 import com.google.common.base.Stopwatch;
+import io.logz.sawmill.GeneratedExecutionPlan.StepHandler;
 import io.logz.sawmill.exceptions.PipelineExecutionException;
+import io.logz.sawmill.utilities.ThreadAllocationCounter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 
+import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
@@ -18,6 +25,9 @@ public class PipelineExecutor implements Closeable {
 
     private final PipelineExecutionTimeWatchdog watchdog;
     private final PipelineExecutionMetricsTracker pipelineExecutionMetricsTracker;
+    private final ProcessorTimingPolicy processorTimingPolicy;
+    private final boolean trackingAllocations;
+    private final DocStorage docStorage;
 
     public PipelineExecutor() {
         this(new PipelineExecutionMetricsMBean());
@@ -28,36 +38,182 @@ public class PipelineExecutor implements Closeable {
     }
 
     public PipelineExecutor(PipelineExecutionTimeWatchdog watchdog, PipelineExecutionMetricsTracker pipelineExecutionMetricsTracker) {
+        this(watchdog, pipelineExecutionMetricsTracker, ProcessorTimingPolicy.ALWAYS);
+    }
+
+    public PipelineExecutor(PipelineExecutionTimeWatchdog watchdog, PipelineExecutionMetricsTracker pipelineExecutionMetricsTracker, ProcessorTimingPolicy processorTimingPolicy) {
+        this(watchdog, pipelineExecutionMetricsTracker, processorTimingPolicy, false);
+    }
+
+    /**
+     * @param trackAllocations report the bytes allocated by every processor run to
+     * {@link PipelineExecutionMetricsTracker#processorAllocated(String, String, long)}, costs a read of the
+     * thread allocation counter before and after every processor. Ignored if the JVM does not support it
+     */
+    public PipelineExecutor(PipelineExecutionTimeWatchdog watchdog, PipelineExecutionMetricsTracker pipelineExecutionMetricsTracker,
+                            ProcessorTimingPolicy processorTimingPolicy, boolean trackAllocations) {
+        this(watchdog, pipelineExecutionMetricsTracker, processorTimingPolicy, trackAllocations, DocStorage.DEFAULT);
+    }
+
+    /**
+     * @param docStorage how to store the docs before executing them, e.g. {@link DocStorage#compact()} to share
+     * the keys of docs buffered in large numbers
+     */
+    public PipelineExecutor(PipelineExecutionTimeWatchdog watchdog, PipelineExecutionMetricsTracker pipelineExecutionMetricsTracker,
+                            ProcessorTimingPolicy processorTimingPolicy, boolean trackAllocations, DocStorage docStorage) {
+        this.docStorage = requireNonNull(docStorage, "docStorage cannot be null");
         this.watchdog = watchdog;
         this.pipelineExecutionMetricsTracker = pipelineExecutionMetricsTracker;
+        this.processorTimingPolicy = requireNonNull(processorTimingPolicy, "processorTimingPolicy cannot be null");
+        this.trackingAllocations = trackAllocations && ThreadAllocationCounter.isSupported();
+        if (trackAllocations && !trackingAllocations) {
+            logger.warn("processors allocations tracking is not supported by the JVM, not tracking allocations");
+        }
+    }
+
+    /**
+     * @return which docs the processors are timed on, pipelines are always timed
+     */
+    public ProcessorTimingPolicy getProcessorTimingPolicy() {
+        return processorTimingPolicy;
+    }
+
+    public boolean isTrackingAllocations() {
+        return trackingAllocations;
+    }
+
+    public DocStorage getDocStorage() {
+        return docStorage;
     }
 
     public ExecutionResult execute(Pipeline pipeline, Doc doc) {
-        PipelineStopwatch pipelineStopwatch = new PipelineStopwatch().start();
+        docStorage.apply(doc);
+        PipelineStopwatch pipelineStopwatch = new PipelineStopwatch(processorTimingPolicy, trackingAllocations).start();
+
+        WatchedPipeline watchedPipeline = watchdog.startedExecution(pipeline.getId(), doc);
+        ExecutionDeadline previousDeadline = ExecutionDeadline.enter(watchedPipeline.getDeadline());
+
+        try {
+            return executeWatched(pipeline, doc, watchedPipeline, pipelineStopwatch);
+        } finally {
+            ExecutionDeadline.exit(previousDeadline);
+            watchdog.removeExecution(watchedPipeline);
+        }
+    }
+
+    /**
+     * Executes the pipeline on each of the docs, in order, on the calling thread.
+     * The batch is registered in the watchdog once, and its registration and deadline are moved from doc to doc,
+     * so the overtime and expiration thresholds still apply to each doc separately. The stopwatch is reused across docs.
+     * @param pipeline
+     * @param docs
+     * @return execution result per doc, in the same order as {@code docs}
+     * @throws PipelineExecutionException on unexpected error, docs after the failed one are not processed
+     */
+    public List<ExecutionResult> executeBatch(Pipeline pipeline, List<Doc> docs) {
+        List<ExecutionResult> executionResults = new ArrayList<>(docs.size());
+        if (docs.isEmpty()) {
+            return executionResults;
+        }
 
-        long executionIdentifier = watchdog.startedExecution(pipeline.getId(), doc, Thread.currentThread());
+        PipelineStopwatch pipelineStopwatch = new PipelineStopwatch(processorTimingPolicy, trackingAllocations);
+        WatchedPipeline watchedPipeline = null;
+        ExecutionDeadline previousDeadline = null;
 
+        try {
+            for (Doc doc : docs) {
+                docStorage.apply(doc);
+                pipelineStopwatch.start();
+                if (watchedPipeline == null) {
+                    watchedPipeline = watchdog.startedExecution(pipeline.getId(), doc);
+                    previousDeadline = ExecutionDeadline.enter(watchedPipeline.getDeadline());
+                } else {
+                    watchdog.startedNextExecution(watchedPipeline, doc);
+                }
+                executionResults.add(executeWatched(pipeline, doc, watchedPipeline, pipelineStopwatch));
+            }
+        } finally {
+            if (watchedPipeline != null) {
+                ExecutionDeadline.exit(previousDeadline);
+                watchdog.removeExecution(watchedPipeline);
+            }
+        }
+
+        return executionResults;
+    }
+
+    /**
+     * Executes the pipeline on the common fork join pool
+     * @see #executeAsync(Pipeline, Doc, Executor)
+     */
+    public CompletableFuture<ExecutionResult> executeAsync(Pipeline pipeline, Doc doc) {
+        return executeAsync(pipeline, doc, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Executes the pipeline on the given executor, which may be a virtual thread per task executor.
+     * Cancelling the returned future before the execution starts skips it, a running execution is bound by the watchdog.
+     * @param executor runs the execution, it is not shut down by this executor
+     * @return future completed with the execution result, or exceptionally with {@link PipelineExecutionException} on unexpected error
+     */
+    public CompletableFuture<ExecutionResult> executeAsync(Pipeline pipeline, Doc doc, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> execute(pipeline, doc), executor);
+    }
+
+    /**
+     * Executes the pipeline on each of the docs as a separate task on the given executor
+     * @param executor runs the executions, it is not shut down by this executor
+     * @return future completed with execution result per doc, in the same order as {@code docs},
+     * or exceptionally with {@link PipelineExecutionException} on unexpected error in any of the docs.
+     * Cancelling it cancels the executions which have not started yet
+     */
+    public CompletableFuture<List<ExecutionResult>> executeBatchAsync(Pipeline pipeline, List<Doc> docs, Executor executor) {
+        List<CompletableFuture<ExecutionResult>> futures = new ArrayList<>(docs.size());
+        docs.forEach(doc -> futures.add(executeAsync(pipeline, doc, executor)));
+
+        CompletableFuture<List<ExecutionResult>> batchFuture = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    List<ExecutionResult> executionResults = new ArrayList<>(futures.size());
+                    futures.forEach(future -> executionResults.add(future.join()));
+                    return executionResults;
+                });
+        batchFuture.whenComplete((executionResults, throwable) -> {
+            if (batchFuture.isCancelled()) {
+                futures.forEach(future -> future.cancel(false));
+            }
+        });
+
+        return batchFuture;
+    }
+
+    private ExecutionResult executeWatched(Pipeline pipeline, Doc doc, WatchedPipeline watchedPipeline, PipelineStopwatch pipelineStopwatch) {
         ExecutionResult executionResult;
         try {
-            List<ExecutionStep> executionSteps = pipeline.getExecutionSteps();
-            executionResult = executeSteps(executionSteps, pipeline, doc, pipelineStopwatch);
+            ExecutionDeadline deadline = watchedPipeline.getDeadline();
+            Optional<GeneratedExecutionPlan> generatedExecutionPlan = pipeline.getGeneratedExecutionPlan();
+            executionResult = generatedExecutionPlan.isPresent() ?
+                    executeGeneratedPlan(generatedExecutionPlan.get(), pipeline, doc, deadline, pipelineStopwatch) :
+                    executePlan(pipeline, doc, deadline, pipelineStopwatch);
 
-            // Prevent race condition with watchdog - check whether the execution got interrupted
-            boolean hasBeenInterrupted = watchdog.stopWatchedPipeline(executionIdentifier);
+            // Prevent race condition with watchdog - check whether the execution got expired
+            boolean hasBeenExpired = watchdog.stopWatchedPipeline(watchedPipeline);
 
-            if (hasBeenInterrupted) {
-                Thread.interrupted(); // clear interrupted flag
+            if (hasBeenExpired) {
+                clearWatchdogInterrupt(watchedPipeline);
                 executionResult = ExecutionResult.expired(pipelineStopwatch.pipelineElapsed(MILLISECONDS));
-            } else if (watchdog.isOvertime(executionIdentifier)) {
+            } else if (watchdog.isOvertime(watchedPipeline)) {
                 executionResult = ExecutionResult.overtime(executionResult, pipelineStopwatch.pipelineElapsed(MILLISECONDS));
             }
         } catch (RuntimeException e) {
+            // stop watching before leaving, so the watchdog does not interrupt the thread once the execution is over
+            if (watchdog.stopWatchedPipeline(watchedPipeline)) {
+                clearWatchdogInterrupt(watchedPipeline);
+            }
             pipelineExecutionMetricsTracker.pipelineFailedOnUnexpectedError(pipeline.getId(), doc, e);
             throw new PipelineExecutionException(pipeline.getId(), e);
 
         } finally {
             pipelineStopwatch.stop();
-            watchdog.removeExecution(executionIdentifier);
         }
 
         if (executionResult.isSucceeded()) {
@@ -73,78 +229,107 @@ public class PipelineExecutor implements Closeable {
         return executionResult;
     }
 
-    private ExecutionResult executeSteps(List<ExecutionStep> executionSteps, Pipeline pipeline, Doc doc, PipelineStopwatch pipelineStopwatch) {
-        for (ExecutionStep executionStep : executionSteps) {
-            ExecutionResult executionResult = executeStep(executionStep, pipeline, doc, pipelineStopwatch);
-            boolean shouldStop = !executionResult.isSucceeded() && pipeline.isStopOnFailure();
-            if (shouldStop || executionResult.isExpired() || executionResult.isDropped()) {
-                return executionResult;
-            }
+    /**
+     * Clears the interrupted status only if the watchdog interrupted the thread, an interrupt of the caller is kept
+     */
+    private void clearWatchdogInterrupt(WatchedPipeline watchedPipeline) {
+        if (watchedPipeline.hasBeenInterrupted()) {
+            Thread.interrupted();
         }
-        return ExecutionResult.success();
     }
 
-    private ExecutionResult executeStep(ExecutionStep executionStep, Pipeline pipeline, Doc doc, PipelineStopwatch pipelineStopwatch) {
+    private ExecutionResult executePlan(Pipeline pipeline, Doc doc, ExecutionDeadline deadline, PipelineStopwatch pipelineStopwatch) {
+        ExecutionPlan.Instruction[] instructions = pipeline.getExecutionPlan().getInstructions();
+        int next = pipeline.getExecutionPlan().getEntryPoint();
+
         try {
-            if (executionStep instanceof ConditionalExecutionStep) {
-                return executeConditionalStep((ConditionalExecutionStep) executionStep, pipeline, doc, pipelineStopwatch);
-            } else if (executionStep instanceof ProcessorExecutionStep) {
-                return executeProcessorStep((ProcessorExecutionStep) executionStep, pipeline, doc, pipelineStopwatch);
+            while (next != ExecutionPlan.END) {
+                ExecutionPlan.Instruction instruction = instructions[next];
+
+                if (instruction.isConditional()) {
+                    next = instruction.getCondition().evaluate(doc) ? instruction.getOnSuccessTarget() : instruction.getOnFailureTarget();
+                    continue;
+                }
+
+                if (deadline.isExpired()) {
+                    return ExecutionResult.expired();
+                }
+                pipelineStopwatch.startProcessor();
+                ProcessResult processResult = instruction.getProcessor().process(doc);
+                pipelineStopwatch.endProcessor();
+
+                switch (processorOutcome(instruction, processResult, pipelineStopwatch, pipeline, doc)) {
+                    case StepHandler.SUCCEEDED:
+                        next = instruction.getOnSuccessTarget();
+                        break;
+                    case StepHandler.FAILURE_HANDLED:
+                        next = instruction.getOnFailureTarget();
+                        break;
+                    case StepHandler.FAILED:
+                        next = instruction.getNextTarget();
+                        break;
+                    default:
+                        return stoppedExecutionResult(instruction, processResult, pipeline);
+                }
             }
         } catch (InterruptedException e) {
             return ExecutionResult.expired();
         }
 
-
-        throw new RuntimeException("Unsupported execution step " + executionStep.getClass());
+        return ExecutionResult.success();
     }
 
-    private ExecutionResult executeConditionalStep(ConditionalExecutionStep conditionalExecutionStep, Pipeline pipeline, Doc doc, PipelineStopwatch pipelineStopwatch) throws InterruptedException {
-        Condition condition = conditionalExecutionStep.getCondition();
-
-        if (condition.evaluate(doc)) {
-            return executeSteps(conditionalExecutionStep.getOnTrue(), pipeline, doc, pipelineStopwatch);
-        } else {
-            return executeSteps(conditionalExecutionStep.getOnFalse(), pipeline, doc, pipelineStopwatch);
+    private ExecutionResult executeGeneratedPlan(GeneratedExecutionPlan generatedExecutionPlan, Pipeline pipeline, Doc doc, ExecutionDeadline deadline, PipelineStopwatch pipelineStopwatch) {
+        try {
+            return generatedExecutionPlan.execute(doc, new PipelineStepHandler(pipeline, doc, deadline, pipelineStopwatch));
+        } catch (InterruptedException e) {
+            return ExecutionResult.expired();
         }
     }
 
-    private ExecutionResult executeProcessorStep(ProcessorExecutionStep executionStep, Pipeline pipeline, Doc doc, PipelineStopwatch pipelineStopwatch) throws InterruptedException{
-        Processor processor = executionStep.getProcessor();
-        String pipelineId = pipeline.getId();
-        String processorName = executionStep.getProcessorName();
+    /**
+     * Reports the processor metrics captured by {@link PipelineStopwatch#endProcessor()} and decides how the execution continues
+     * @return one of the {@link StepHandler} outcomes
+     */
+    private int processorOutcome(ExecutionPlan.Instruction instruction, ProcessResult processResult, PipelineStopwatch pipelineStopwatch, Pipeline pipeline, Doc doc) {
+        long allocatedBytes = pipelineStopwatch.getProcessorAllocatedBytes();
+        if (allocatedBytes >= 0) {
+            pipelineExecutionMetricsTracker.processorAllocated(pipeline.getId(), instruction.getProcessorName(), allocatedBytes);
+        }
 
-        pipelineStopwatch.startProcessor();
-        ProcessResult processResult = processor.process(doc);
-        long processorTook = pipelineStopwatch.processorElapsed();
+        // after the processor time is captured, so its own metrics upkeep does not count as processor time
+        if (instruction.isReportingMetrics()) {
+            ((ReportingProcessor) instruction.getProcessor()).reportMetrics(pipeline.getId(), instruction.getProcessorName(), pipelineExecutionMetricsTracker);
+        }
 
         if (processResult.isSucceeded()) {
-            pipelineExecutionMetricsTracker.processorFinishedSuccessfully(pipelineId, processorName, processorTook);
-            Optional<List<ExecutionStep>> onSuccessExecutionSteps = executionStep.getOnSuccessExecutionSteps();
-            if (onSuccessExecutionSteps.isPresent()) {
-                return executeSteps(onSuccessExecutionSteps.get(), pipeline, doc, pipelineStopwatch);
-            }
-            return ExecutionResult.success();
+            long processorElapsed = pipelineStopwatch.isTimingProcessors() ? pipelineStopwatch.getProcessorElapsed() : 0;
+            pipelineExecutionMetricsTracker.processorFinishedSuccessfully(pipeline.getId(), instruction.getProcessorName(),
+                    processorElapsed, pipelineStopwatch.getProcessorSampleWeight());
+            return StepHandler.SUCCEEDED;
         } else if (processResult.isDropped()) {
+            return StepHandler.STOPPED;
+        } else if (instruction.getOnFailureTarget() != ExecutionPlan.NO_FAILURE_HANDLER) {
+            return StepHandler.FAILURE_HANDLED;
+        }
+
+        pipelineExecutionMetricsTracker.processorFailed(pipeline.getId(), instruction.getProcessorName(), doc);
+        return pipeline.isStopOnFailure() ? StepHandler.STOPPED : StepHandler.FAILED;
+    }
+
+    private ExecutionResult stoppedExecutionResult(ExecutionPlan.Instruction instruction, ProcessResult processResult, Pipeline pipeline) {
+        if (processResult.isDropped()) {
             return ExecutionResult.dropped();
-        } else {
-            Optional<List<ExecutionStep>> onFailureExecutionSteps = executionStep.getOnFailureExecutionSteps();
-            if (onFailureExecutionSteps.isPresent()) {
-                return executeSteps(onFailureExecutionSteps.get(), pipeline, doc, pipelineStopwatch);
-            } else {
-                pipelineExecutionMetricsTracker.processorFailed(pipelineId, processorName, doc);
-                return processorErrorExecutionResult(processResult.getError().get(), processorName, pipeline);
-            }
         }
+        return processorErrorExecutionResult(processResult.getError().get(), instruction.getProcessorName(), pipeline);
     }
 
     private ExecutionResult processorErrorExecutionResult(ProcessResult.Error error, String processorName, Pipeline pipeline) {
-        String message = error.getMessage();
         if (error.getException().isPresent()) {
-            return ExecutionResult.failure(message, processorName,
-                    new PipelineExecutionException(pipeline.getId(), error.getException().get()));
+            return ExecutionResult.failure(error, processorName,
+                    PipelineExecutionException.reported(pipeline.getId(), error.getException().get()));
         } else {
-            return ExecutionResult.failure(message, processorName);
+            return ExecutionResult.failure(error, processorName, null);
         }
     }
 
@@ -153,20 +338,79 @@ public class PipelineExecutor implements Closeable {
         this.watchdog.close();
     }
 
+    private class PipelineStepHandler implements StepHandler {
+        private final Pipeline pipeline;
+        private final Doc doc;
+        private final ExecutionDeadline deadline;
+        private final PipelineStopwatch pipelineStopwatch;
+        private final ExecutionPlan.Instruction[] instructions;
+
+        private PipelineStepHandler(Pipeline pipeline, Doc doc, ExecutionDeadline deadline, PipelineStopwatch pipelineStopwatch) {
+            this.pipeline = pipeline;
+            this.doc = doc;
+            this.deadline = deadline;
+            this.pipelineStopwatch = pipelineStopwatch;
+            this.instructions = pipeline.getExecutionPlan().getInstructions();
+        }
+
+        @Override
+        public void beforeProcessor() throws InterruptedException {
+            if (deadline.isExpired()) {
+                throw new InterruptedException();
+            }
+            pipelineStopwatch.startProcessor();
+        }
+
+        @Override
+        public int afterProcessor(int instructionIndex, ProcessResult processResult) {
+            pipelineStopwatch.endProcessor();
+            return processorOutcome(instructions[instructionIndex], processResult, pipelineStopwatch, pipeline, doc);
+        }
+
+        @Override
+        public ExecutionResult stopped(int instructionIndex, ProcessResult processResult) {
+            return stoppedExecutionResult(instructions[instructionIndex], processResult, pipeline);
+        }
+    }
+
     private static class PipelineStopwatch {
+        private final ProcessorTimingPolicy processorTimingPolicy;
+        private final boolean trackingAllocations;
         private Stopwatch stopwatch;
         private long processorStartElapsedTime;
+        private long processorStartAllocatedBytes = -1;
+        private long processorElapsed;
+        private long processorAllocatedBytes = -1;
+        private int processorSampleWeight;
         private TimeUnit timeUnit = NANOSECONDS;
 
-        public PipelineStopwatch() {
+        public PipelineStopwatch(ProcessorTimingPolicy processorTimingPolicy, boolean trackingAllocations) {
+            this.processorTimingPolicy = processorTimingPolicy;
+            this.trackingAllocations = trackingAllocations;
         }
 
+        /**
+         * Starts timing a doc, and draws whether its processors are timed
+         */
         public PipelineStopwatch start() {
-            stopwatch = Stopwatch.createStarted();
+            if (stopwatch == null) {
+                stopwatch = Stopwatch.createStarted();
+            } else {
+                stopwatch.reset().start();
+            }
             processorStartElapsedTime = 0;
+            processorSampleWeight = processorTimingPolicy.nextSampleWeight();
             return this;
         }
 
+        public boolean isTimingProcessors() {
+            return processorSampleWeight > 0;
+        }
+
+        public int getProcessorSampleWeight() {
+            return processorSampleWeight;
+        }
+
         public long pipelineElapsed() {
             return stopwatch.elapsed(timeUnit);
         }
@@ -175,12 +419,40 @@ public class PipelineExecutor implements Closeable {
             return stopwatch.elapsed(timeUnit);
         }
 
-        public long processorElapsed() {
-            return stopwatch.elapsed(timeUnit) - processorStartElapsedTime;
+        /**
+         * The clock is read last on start and first on end, so the processor time excludes reading the allocation counter
+         */
+        public void startProcessor() {
+            if (trackingAllocations) {
+                processorStartAllocatedBytes = ThreadAllocationCounter.currentThreadAllocatedBytes();
+            }
+            if (processorSampleWeight > 0) {
+                processorStartElapsedTime = stopwatch.elapsed(timeUnit);
+            }
         }
 
-        public void startProcessor() {
-            processorStartElapsedTime = stopwatch.elapsed(timeUnit);
+        /**
+         * Captures the processor time and allocated bytes right as the processor returns, before any metrics are reported
+         */
+        public void endProcessor() {
+            if (processorSampleWeight > 0) {
+                processorElapsed = stopwatch.elapsed(timeUnit) - processorStartElapsedTime;
+            }
+            if (processorStartAllocatedBytes >= 0) {
+                long allocatedBytes = ThreadAllocationCounter.currentThreadAllocatedBytes();
+                processorAllocatedBytes = allocatedBytes < 0 ? -1 : allocatedBytes - processorStartAllocatedBytes;
+            }
+        }
+
+        public long getProcessorElapsed() {
+            return processorElapsed;
+        }
+
+        /**
+         * @return bytes allocated by the current thread while the processor ran, or -1 if not tracked
+         */
+        public long getProcessorAllocatedBytes() {
+            return processorAllocatedBytes;
         }
 
         public void stop() {
@@ -0,0 +1,368 @@
+package io.logz.sawmill;
+
+import io.logz.sawmill.utilities.LatencyHistogram;
+import org.weakref.jmx.Managed;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Execution metrics with latency histograms per pipeline and per (pipeline, processor) pair, and allocations per
+ * (pipeline, processor) pair when the executor tracks them, on top of the totals of {@link PipelineExecutionMetricsMBean}.
+ * <p>At most {@code maxHistograms} histograms are held, one per tracked pipeline and one per processor of it.
+ * When a new histogram exceeds the limit, a pipeline that did not record since the previous eviction is dropped
+ * with all its histograms, so pipelines that come and go do not pile up. If no other pipeline can be dropped,
+ * the new histogram is not created and its latencies are not recorded.
+ * <p>Every histogram takes between 8KB and 32KB (see {@link LatencyHistogram}), so the memory held is at most
+ * {@code maxHistograms * 32KB}, and 8KB per histogram when recording is uncontended.
+ */
+public class PipelineLatencyMetricsMBean extends PipelineExecutionMetricsMBean {
+    public static final int DEFAULT_MAX_HISTOGRAMS = 4096;
+
+    private final int maxHistograms;
+    private final AtomicInteger histogramsCount = new AtomicInteger();
+    private final ConcurrentMap<String, PipelineLatency> pipelinesLatency = new ConcurrentHashMap<>();
+
+    public PipelineLatencyMetricsMBean() {
+        this(DEFAULT_MAX_HISTOGRAMS);
+    }
+
+    public PipelineLatencyMetricsMBean(int maxHistograms) {
+        checkState(maxHistograms > 0, "maxHistograms must be positive");
+        this.maxHistograms = maxHistograms;
+    }
+
+    @Override
+    public void pipelineFinishedSuccessfully(String pipelineId, Doc doc, long timeTookNs) {
+        super.pipelineFinishedSuccessfully(pipelineId, doc, timeTookNs);
+        PipelineLatency pipelineLatency = pipelineLatency(pipelineId);
+        if (pipelineLatency != null) {
+            pipelineLatency.histogram.record(timeTookNs);
+        }
+    }
+
+    @Override
+    public void processorFinishedSuccessfully(String pipelineId, String processorName, long timeTookNs, int sampleWeight) {
+        super.processorFinishedSuccessfully(pipelineId, processorName, timeTookNs, sampleWeight);
+        if (sampleWeight == 0) {
+            return;
+        }
+        PipelineLatency pipelineLatency = pipelineLatency(pipelineId);
+        LatencyHistogram processorHistogram = pipelineLatency == null ? null : processorHistogram(pipelineId, pipelineLatency, processorName);
+        if (processorHistogram != null) {
+            processorHistogram.record(timeTookNs, sampleWeight);
+        }
+    }
+
+    @Override
+    public void processorAllocated(String pipelineId, String processorName, long allocatedBytes) {
+        super.processorAllocated(pipelineId, processorName, allocatedBytes);
+        PipelineLatency pipelineLatency = pipelineLatency(pipelineId);
+        if (pipelineLatency != null) {
+            pipelineLatency.processorAllocation(processorName).add(allocatedBytes);
+        }
+    }
+
+    @Managed
+    public long getPipelineLatencyPercentile(String pipelineId, double percentile) {
+        return getPipelineLatency(pipelineId).map(snapshot -> snapshot.getValueAtPercentile(percentile)).orElse(0L);
+    }
+
+    @Managed
+    public long getProcessorLatencyPercentile(String pipelineId, String processorName, double percentile) {
+        return getProcessorLatency(pipelineId, processorName).map(snapshot -> snapshot.getValueAtPercentile(percentile)).orElse(0L);
+    }
+
+    /**
+     * @return average bytes allocated by a run of the processor in the pipeline, 0 unless the executor tracks allocations
+     */
+    @Managed
+    public double getProcessorAllocatedBytesPerRun(String pipelineId, String processorName) {
+        PipelineLatency pipelineLatency = pipelinesLatency.get(pipelineId);
+        ProcessorAllocation processorAllocation = pipelineLatency == null ? null : pipelineLatency.processorsAllocation.get(processorName);
+        return processorAllocation == null ? 0 : processorAllocation.bytesPerRun();
+    }
+
+    @Managed
+    public int getTrackedPipelinesCount() {
+        return pipelinesLatency.size();
+    }
+
+    @Managed
+    public int getTrackedHistogramsCount() {
+        return histogramsCount.get();
+    }
+
+    /**
+     * @return latency of the successful executions of the pipeline since it is tracked
+     */
+    public Optional<LatencyHistogram.Snapshot> getPipelineLatency(String pipelineId) {
+        PipelineLatency pipelineLatency = pipelinesLatency.get(pipelineId);
+        return pipelineLatency == null ? Optional.empty() : Optional.of(pipelineLatency.histogram.snapshot());
+    }
+
+    /**
+     * @return latency of the successful runs of the processor in the pipeline since it is tracked
+     */
+    public Optional<LatencyHistogram.Snapshot> getProcessorLatency(String pipelineId, String processorName) {
+        PipelineLatency pipelineLatency = pipelinesLatency.get(pipelineId);
+        LatencyHistogram histogram = pipelineLatency == null ? null : pipelineLatency.processorsHistogram.get(processorName);
+        return histogram == null ? Optional.empty() : Optional.of(histogram.snapshot());
+    }
+
+    /**
+     * @return latency and allocations recorded by every tracked pipeline since the previous call
+     */
+    public List<PipelineLatencySnapshot> intervalSnapshot() {
+        List<PipelineLatencySnapshot> snapshots = new ArrayList<>(pipelinesLatency.size());
+        pipelinesLatency.forEach((pipelineId, pipelineLatency) -> {
+            Map<String, LatencyHistogram.Snapshot> processorsLatency = new HashMap<>();
+            pipelineLatency.processorsHistogram.forEach((processorName, histogram) ->
+                    processorsLatency.put(processorName, histogram.intervalSnapshot()));
+            Map<String, Long> processorsAllocatedBytes = new HashMap<>();
+            Map<String, Double> processorsAllocationRate = new HashMap<>();
+            pipelineLatency.processorsAllocation.forEach((processorName, processorAllocation) ->
+                    processorAllocation.intervalSnapshot(processorName, processorsAllocatedBytes, processorsAllocationRate));
+            snapshots.add(new PipelineLatencySnapshot(pipelineId, pipelineLatency.histogram.intervalSnapshot(), processorsLatency,
+                    processorsAllocatedBytes, processorsAllocationRate));
+        });
+        return snapshots;
+    }
+
+    /**
+     * Stops tracking the pipeline, e.g. once it is deleted
+     */
+    public void removePipeline(String pipelineId) {
+        PipelineLatency pipelineLatency = pipelinesLatency.remove(pipelineId);
+        if (pipelineLatency != null) {
+            histogramsCount.addAndGet(-pipelineLatency.release());
+        }
+    }
+
+    /**
+     * @return the latency of the pipeline, or null if it is not tracked and there is no room for its histogram
+     */
+    private PipelineLatency pipelineLatency(String pipelineId) {
+        PipelineLatency pipelineLatency = pipelinesLatency.get(pipelineId);
+        if (pipelineLatency != null) {
+            pipelineLatency.touch();
+            return pipelineLatency;
+        }
+
+        if (!reserveHistogram(pipelineId)) {
+            return null;
+        }
+        PipelineLatency created = new PipelineLatency();
+        pipelineLatency = pipelinesLatency.putIfAbsent(pipelineId, created);
+        if (pipelineLatency != null) {
+            histogramsCount.decrementAndGet();
+            return pipelineLatency;
+        }
+        return created;
+    }
+
+    /**
+     * @return the latency of the processor, or null if it is not tracked and there is no room for its histogram
+     */
+    private LatencyHistogram processorHistogram(String pipelineId, PipelineLatency pipelineLatency, String processorName) {
+        LatencyHistogram processorHistogram = pipelineLatency.processorsHistogram.get(processorName);
+        if (processorHistogram != null) {
+            return processorHistogram;
+        }
+
+        if (!reserveHistogram(pipelineId)) {
+            return null;
+        }
+        LatencyHistogram created = new LatencyHistogram();
+        processorHistogram = pipelineLatency.processorsHistogram.putIfAbsent(processorName, created);
+        if (processorHistogram != null || !pipelineLatency.addHistogram()) {
+            // lost the race to another thread, or the pipeline was evicted meanwhile and its histograms are no longer counted
+            histogramsCount.decrementAndGet();
+        }
+        return processorHistogram != null ? processorHistogram : created;
+    }
+
+    /**
+     * Counts a new histogram, evicting other pipelines while the limit is reached
+     * @return false if the limit is reached and no pipeline other than {@code pipelineId} is left to evict
+     */
+    private boolean reserveHistogram(String pipelineId) {
+        while (true) {
+            int count = histogramsCount.get();
+            if (count < maxHistograms) {
+                if (histogramsCount.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            } else if (!evictIdlePipeline(pipelineId)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Second chance eviction: drops the first pipeline that did not record since it was last passed over,
+     * or the first pipeline if all of them recorded. A pipeline is only dropped if it is still the one tracked under its id,
+     * so a pipeline removed and tracked again meanwhile is not dropped by mistake
+     * @return false if there was no pipeline other than {@code exceptPipelineId} to evict
+     */
+    private boolean evictIdlePipeline(String exceptPipelineId) {
+        for (Map.Entry<String, PipelineLatency> entry : pipelinesLatency.entrySet()) {
+            if (entry.getKey().equals(exceptPipelineId)) continue;
+
+            PipelineLatency pipelineLatency = entry.getValue();
+            if (!pipelineLatency.touched) {
+                if (evict(entry.getKey(), pipelineLatency)) {
+                    return true;
+                }
+            } else {
+                pipelineLatency.touched = false;
+            }
+        }
+
+        for (Map.Entry<String, PipelineLatency> entry : pipelinesLatency.entrySet()) {
+            if (!entry.getKey().equals(exceptPipelineId) && evict(entry.getKey(), entry.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean evict(String pipelineId, PipelineLatency pipelineLatency) {
+        if (!pipelinesLatency.remove(pipelineId, pipelineLatency)) {
+            return false;
+        }
+        histogramsCount.addAndGet(-pipelineLatency.release());
+        return true;
+    }
+
+    private static class PipelineLatency {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final ConcurrentMap<String, LatencyHistogram> processorsHistogram = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, ProcessorAllocation> processorsAllocation = new ConcurrentHashMap<>();
+        // histograms counted in the limit, -1 once the pipeline is no longer tracked
+        private final AtomicInteger histogramsCount = new AtomicInteger(1);
+        private volatile boolean touched = true;
+
+        /**
+         * @return false if the pipeline is no longer tracked, so the histogram is not counted
+         */
+        private boolean addHistogram() {
+            int count;
+            do {
+                count = histogramsCount.get();
+                if (count < 0) {
+                    return false;
+                }
+            } while (!histogramsCount.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        /**
+         * @return the number of histograms the pipeline no longer counts in the limit
+         */
+        private int release() {
+            return Math.max(histogramsCount.getAndSet(-1), 0);
+        }
+
+        private ProcessorAllocation processorAllocation(String processorName) {
+            ProcessorAllocation processorAllocation = processorsAllocation.get(processorName);
+            return processorAllocation != null ? processorAllocation :
+                    processorsAllocation.computeIfAbsent(processorName, k -> new ProcessorAllocation());
+        }
+
+        private void touch() {
+            if (!touched) {
+                touched = true;
+            }
+        }
+    }
+
+    private static class ProcessorAllocation {
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private long lastIntervalBytes;
+        private long lastIntervalNanos = System.nanoTime();
+
+        private void add(long allocatedBytes) {
+            runs.increment();
+            bytes.add(allocatedBytes);
+        }
+
+        private double bytesPerRun() {
+            long totalRuns = runs.longValue();
+            return totalRuns == 0 ? 0 : (double) bytes.longValue() / totalRuns;
+        }
+
+        /**
+         * Puts the bytes allocated since the previous interval, and the rate they were allocated at in bytes per second
+         */
+        private synchronized void intervalSnapshot(String processorName, Map<String, Long> intervalsBytes, Map<String, Double> intervalsRate) {
+            long totalBytes = bytes.longValue();
+            long now = System.nanoTime();
+            long intervalBytes = totalBytes - lastIntervalBytes;
+            long intervalNanos = now - lastIntervalNanos;
+            lastIntervalBytes = totalBytes;
+            lastIntervalNanos = now;
+
+            intervalsBytes.put(processorName, intervalBytes);
+            intervalsRate.put(processorName, intervalNanos <= 0 ? 0 : intervalBytes * (double) TimeUnit.SECONDS.toNanos(1) / intervalNanos);
+        }
+    }
+
+    public static class PipelineLatencySnapshot {
+        private final String pipelineId;
+        private final LatencyHistogram.Snapshot pipelineLatency;
+        private final Map<String, LatencyHistogram.Snapshot> processorsLatency;
+        private final Map<String, Long> processorsAllocatedBytes;
+        private final Map<String, Double> processorsAllocationRate;
+
+        private PipelineLatencySnapshot(String pipelineId, LatencyHistogram.Snapshot pipelineLatency, Map<String, LatencyHistogram.Snapshot> processorsLatency,
+                                        Map<String, Long> processorsAllocatedBytes, Map<String, Double> processorsAllocationRate) {
+            this.pipelineId = pipelineId;
+            this.pipelineLatency = pipelineLatency;
+            this.processorsLatency = Collections.unmodifiableMap(processorsLatency);
+            this.processorsAllocatedBytes = Collections.unmodifiableMap(processorsAllocatedBytes);
+            this.processorsAllocationRate = Collections.unmodifiableMap(processorsAllocationRate);
+        }
+
+        public String getPipelineId() {
+            return pipelineId;
+        }
+
+        public LatencyHistogram.Snapshot getPipelineLatency() {
+            return pipelineLatency;
+        }
+
+        /**
+         * @return latency per processor name
+         */
+        public Map<String, LatencyHistogram.Snapshot> getProcessorsLatency() {
+            return processorsLatency;
+        }
+
+        /**
+         * @return bytes allocated in the interval per processor name
+         */
+        public Map<String, Long> getProcessorsAllocatedBytes() {
+            return processorsAllocatedBytes;
+        }
+
+        /**
+         * @return bytes allocated per second in the interval per processor name
+         */
+        public Map<String, Double> getProcessorsAllocationRate() {
+            return processorsAllocationRate;
+        }
+    }
+}
@@ -24,13 +24,9 @@ public class ProcessResult {
         this.error = Optional.empty();
     }
 
-    private ProcessResult(String errorMessage) {
-        this(errorMessage, null);
-    }
-
-    private ProcessResult(String errorMessage, ProcessorExecutionException e) {
+    private ProcessResult(Error error) {
         this.result = FAILED;
-        this.error = Optional.of(new Error(errorMessage, Optional.ofNullable(e)));
+        this.error = Optional.of(error);
     }
 
     public boolean isSucceeded() {
@@ -50,11 +46,26 @@ public class ProcessResult {
     }
 
     public static ProcessResult failure(String errorMessage) {
-        return new ProcessResult(errorMessage);
+        return new ProcessResult(new Error(errorMessage, Optional.empty()));
     }
 
     public static ProcessResult failure(String errorMessage, ProcessorExecutionException e) {
-        return new ProcessResult(errorMessage, e);
+        return new ProcessResult(new Error(errorMessage, Optional.ofNullable(e)));
+    }
+
+    /**
+     * Failure with a message formatted only if it is read, so failing is cheap when the message is never looked at
+     * @param messageFormat {@link String#format(String, Object...)} format of the message
+     */
+    public static ProcessResult failure(FailureCode code, String messageFormat, Object... messageArgs) {
+        return new ProcessResult(new Error(code, messageFormat, messageArgs, null));
+    }
+
+    /**
+     * @see #failure(FailureCode, String, Object...)
+     */
+    public static ProcessResult failure(FailureCode code, ProcessorExecutionException e, String messageFormat, Object... messageArgs) {
+        return new ProcessResult(new Error(code, messageFormat, messageArgs, e));
     }
 
     public static ProcessResult drop() {
@@ -62,15 +73,35 @@ public class ProcessResult {
     }
 
     public static class Error {
-        private final String message;
+        private final FailureCode code;
+        private final String messageFormat;
+        private final Object[] messageArgs;
         private final Optional<ProcessorExecutionException> exception;
+        private String message;
 
         public Error(String message, Optional<ProcessorExecutionException> exception) {
-            this.message = message;
+            this.code = exception.isPresent() ? FailureCode.EXECUTION_ERROR : FailureCode.GENERIC;
+            this.messageFormat = null;
+            this.messageArgs = null;
             this.exception = exception;
+            this.message = message;
+        }
+
+        private Error(FailureCode code, String messageFormat, Object[] messageArgs, ProcessorExecutionException exception) {
+            this.code = code;
+            this.messageFormat = messageFormat;
+            this.messageArgs = messageArgs;
+            this.exception = Optional.ofNullable(exception);
+        }
+
+        public FailureCode getCode() {
+            return code;
         }
 
         public String getMessage() {
+            if (message == null && messageFormat != null) {
+                message = String.format(messageFormat, messageArgs);
+            }
             return message;
         }
 
@@ -5,6 +5,13 @@ import java.util.Map;
 public interface Processor {
     ProcessResult process(Doc doc) throws InterruptedException;
 
+    /**
+     * @return the fields this processor reads and writes, all of them unless the processor tells otherwise
+     */
+    default FieldAccess getFieldAccess() {
+        return FieldAccess.ALL;
+    }
+
     interface Factory {
         Processor create(Map<String,Object> config);
     }
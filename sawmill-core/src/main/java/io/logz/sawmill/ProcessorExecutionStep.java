@@ -40,4 +40,9 @@ public class ProcessorExecutionStep implements ExecutionStep {
     public Optional<List<ExecutionStep>> getOnSuccessExecutionSteps() {
         return onSuccessExecutionSteps;
     }
+
+    @Override
+    public FieldAccess getFieldAccess() {
+        return processor.getFieldAccess();
+    }
 }
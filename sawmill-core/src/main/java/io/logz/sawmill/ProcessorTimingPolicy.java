@@ -0,0 +1,60 @@
+package io.logz.sawmill;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Which docs the {@link PipelineExecutor} times each processor on.
+ * <p>Pipeline timings and processor success and failure counts are always exact. Processor timings cost two clock
+ * reads per processor per doc, which for pipelines of many trivial processors is about as much as the processing itself,
+ * so they can be sampled on 1 in N docs, in which case each timing is reported with a weight of N, or turned off altogether.
+ */
+public final class ProcessorTimingPolicy {
+    public static final ProcessorTimingPolicy ALWAYS = new ProcessorTimingPolicy(1);
+    public static final ProcessorTimingPolicy OFF = new ProcessorTimingPolicy(0);
+
+    private final int sampleRate;
+
+    private ProcessorTimingPolicy(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @param sampleRate time the processors on 1 in {@code sampleRate} docs
+     */
+    public static ProcessorTimingPolicy sampled(int sampleRate) {
+        checkState(sampleRate > 0, "sampleRate must be positive");
+        return sampleRate == 1 ? ALWAYS : new ProcessorTimingPolicy(sampleRate);
+    }
+
+    /**
+     * @return 1 in how many docs are timed, 0 if timing is off
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public boolean isOff() {
+        return sampleRate == 0;
+    }
+
+    /**
+     * Draws whether the processors are timed on the next doc
+     * @return the number of docs the timings of the doc stand for, or 0 if the doc is not timed
+     */
+    int nextSampleWeight() {
+        if (sampleRate <= 1) {
+            return sampleRate;
+        }
+        return ThreadLocalRandom.current().nextInt(sampleRate) == 0 ? sampleRate : 0;
+    }
+
+    @Override
+    public String toString() {
+        if (sampleRate <= 1) {
+            return sampleRate == 1 ? "always" : "off";
+        }
+        return "sampled 1 in " + sampleRate;
+    }
+}
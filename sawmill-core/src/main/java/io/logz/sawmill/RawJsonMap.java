@@ -0,0 +1,417 @@
+package io.logz.sawmill;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.logz.sawmill.utilities.JsonUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Top level fields of a utf-8 json object, indexed in one scan of the bytes and deserialized one at a time on first access.
+ * <p>Fields that were never accessed are written back as their original bytes, so a doc costs about as much to parse
+ * and write as the fields its pipeline touches. Iterating the entries deserializes all the fields.
+ * Values that {@link JsonUtils} would write differently from their bytes, {@code null} map values it drops and
+ * leniently accepted escapes, are deserialized to be written, so the output does not depend on which fields were accessed.
+ * <p>Not thread safe, not even for reading, since reading a field deserializes it in place.
+ */
+final class RawJsonMap extends AbstractMap<String, Object> {
+    private final byte[] json;
+
+    /**
+     * Field values in their original order, {@link RawField} for the fields not deserialized yet.
+     * A raw {@code null} is kept as {@code null}, so a {@link RawField} never holds one
+     */
+    private final LinkedHashMap<String, Object> fields;
+
+    RawJsonMap(byte[] json, int offset, int length) {
+        this(json, offset, length, Collections.emptySet());
+    }
+
+    /**
+     * @param parsedFields fields to deserialize in the same scan, since they are known to be accessed
+     */
+    RawJsonMap(byte[] json, int offset, int length, Set<String> parsedFields) {
+        this.json = json;
+        this.fields = index(json, offset, length, parsedFields);
+    }
+
+    private RawJsonMap(byte[] json, LinkedHashMap<String, Object> fields) {
+        this.json = json;
+        this.fields = fields;
+    }
+
+    /**
+     * @return a map of the same fields sharing the original bytes, and the values deserialized so far
+     */
+    RawJsonMap copy() {
+        return new RawJsonMap(json, new LinkedHashMap<>(fields));
+    }
+
+    private static LinkedHashMap<String, Object> index(byte[] json, int offset, int length, Set<String> parsedFields) {
+        LinkedHashMap<String, Object> fields = new LinkedHashMap<>();
+        try (JsonParser parser = JsonUtils.createParser(json, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new RuntimeException("failed to index json, json is not an object");
+            }
+
+            JsonToken token = parser.nextToken();
+            while (token == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                if (parsedFields.contains(name)) {
+                    fields.put(name, parser.readValueAs(Object.class));
+                    token = parser.nextToken();
+                    continue;
+                }
+                if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                    fields.put(name, null);
+                    token = parser.nextToken();
+                    continue;
+                }
+                int valueStart = offset + (int) parser.getTokenLocation().getByteOffset();
+                boolean canonical = skipValue(parser);
+                token = parser.nextToken();
+                int valueEnd = trimEnd(json, valueStart, offset + (int) parser.getTokenLocation().getByteOffset());
+                fields.put(name, new RawField(valueStart, valueEnd, canonical && !hasLenientEscape(json, valueStart, valueEnd)));
+            }
+
+            if (token != JsonToken.END_OBJECT) {
+                throw new RuntimeException("failed to index json, unexpected token " + token);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("failed to index json", e);
+        }
+        return fields;
+    }
+
+    /**
+     * Skips the current value like {@link JsonParser#skipChildren()}
+     * @return {@code false} if the value has a {@code null} map value, which is dropped when written from a map
+     */
+    private static boolean skipValue(JsonParser parser) throws IOException {
+        if (!parser.currentToken().isStructStart()) {
+            return true;
+        }
+
+        boolean canonical = true;
+        int depth = 1;
+        while (depth > 0) {
+            JsonToken token = parser.nextToken();
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            } else if (token == JsonToken.VALUE_NULL && parser.getParsingContext().inObject()) {
+                canonical = false;
+            }
+        }
+        return canonical;
+    }
+
+    /**
+     * @return whether the value has a backslash escape that is only accepted leniently, e.g. {@code \'}
+     */
+    private static boolean hasLenientEscape(byte[] json, int valueStart, int valueEnd) {
+        for (int i = valueStart; i < valueEnd - 1; i++) {
+            if (json[i] != '\\') continue;
+
+            byte escaped = json[++i];
+            if (escaped != '"' && escaped != '\\' && escaped != '/' && escaped != 'b' && escaped != 'f'
+                    && escaped != 'n' && escaped != 'r' && escaped != 't' && escaped != 'u') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the end of the value that ends before {@code nextTokenStart}, without the separators in between
+     */
+    private static int trimEnd(byte[] json, int valueStart, int nextTokenStart) {
+        int end = nextTokenStart;
+        while (end > valueStart) {
+            byte last = json[end - 1];
+            if (last != ',' && last != ' ' && last != '\t' && last != '\n' && last != '\r') break;
+            end--;
+        }
+        return end;
+    }
+
+    @Override
+    public int size() {
+        return fields.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return fields.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object value = fields.get(key);
+        if (value instanceof RawField) {
+            value = ((RawField) value).readValue(json);
+            fields.put((String) key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Like {@link #put(String, Object)}, without deserializing the replaced value to return it
+     */
+    void set(String key, Object value) {
+        fields.put(key, value);
+    }
+
+    /**
+     * Like {@link #remove(Object)}, without deserializing the removed value to return it
+     */
+    void delete(String key) {
+        fields.remove(key);
+    }
+
+    /**
+     * @return whether the key has a non null value, without deserializing it
+     */
+    boolean hasValue(String key) {
+        return fields.get(key) != null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        return materialize(fields.put(key, value));
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return materialize(fields.remove(key));
+    }
+
+    @Override
+    public void clear() {
+        fields.clear();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return fields.keySet();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            entry.setValue(materialize(entry.getValue()));
+        }
+        return fields.entrySet();
+    }
+
+    private Object materialize(Object value) {
+        return value instanceof RawField ? ((RawField) value).readValue(json) : value;
+    }
+
+    /**
+     * Writes the map as the next json value of the generator, copying the original bytes of the fields that were never accessed
+     */
+    void writeJson(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            Object value = entry.getValue();
+            if (value == null) continue;
+
+            generator.writeFieldName(entry.getKey());
+            if (value instanceof RawField && ((RawField) value).canonical) {
+                generator.writeRawValue(((RawField) value).rawValue(json));
+            } else if (value instanceof RawField) {
+                JsonUtils.writeJson(generator, ((RawField) value).readValue(json));
+            } else {
+                JsonUtils.writeJson(generator, value);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * @return size of the json {@link #writeJson(JsonGenerator)} writes, without deserializing the raw fields
+     */
+    long jsonSize() {
+        long size = 2;
+        int entries = 0;
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            Object value = entry.getValue();
+            if (value == null) continue;
+
+            size += JsonSize.ofString(entry.getKey()) + 1;
+            size += value instanceof RawField ? ((RawField) value).jsonSize(json) : JsonSize.of(value);
+            entries++;
+        }
+        return entries == 0 ? size : size + entries - 1;
+    }
+
+    boolean hasValuesOtherThan(String key) {
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            if (entry.getValue() != null && !entry.getKey().equals(key)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            if (builder.length() > 1) builder.append(", ");
+            Object value = entry.getValue();
+            builder.append(entry.getKey()).append('=').append(value instanceof RawField ? ((RawField) value).rawValue(json).getValue() : value);
+        }
+        return builder.append('}').toString();
+    }
+
+    private static final class RawField {
+        private final int valueStart;
+        private final int valueEnd;
+        private final boolean canonical;
+
+        private RawField(int valueStart, int valueEnd, boolean canonical) {
+            this.valueStart = valueStart;
+            this.valueEnd = valueEnd;
+            this.canonical = canonical;
+        }
+
+        private Object readValue(byte[] json) {
+            return JsonUtils.fromJsonBytes(Object.class, json, valueStart, valueEnd - valueStart);
+        }
+
+        private long jsonSize(byte[] json) {
+            return canonical ? valueEnd - valueStart : JsonSize.of(readValue(json));
+        }
+
+        private RawJsonValue rawValue(byte[] json) {
+            return new RawJsonValue(json, valueStart, valueEnd - valueStart);
+        }
+    }
+
+    /**
+     * Json value as its original utf-8 bytes, for {@link JsonGenerator#writeRawValue(SerializableString)}
+     * to copy them straight into its buffer
+     */
+    private static final class RawJsonValue implements SerializableString {
+        private final byte[] json;
+        private final int offset;
+        private final int length;
+
+        private RawJsonValue(byte[] json, int offset, int length) {
+            this.json = json;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public String getValue() {
+            return new String(json, offset, length, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int charLength() {
+            return getValue().length();
+        }
+
+        @Override
+        public char[] asQuotedChars() {
+            return JsonStringEncoder.getInstance().quoteAsString(getValue());
+        }
+
+        @Override
+        public byte[] asUnquotedUTF8() {
+            return Arrays.copyOfRange(json, offset, offset + length);
+        }
+
+        @Override
+        public byte[] asQuotedUTF8() {
+            return JsonStringEncoder.getInstance().quoteAsUTF8(getValue());
+        }
+
+        @Override
+        public int appendQuotedUTF8(byte[] buffer, int offset) {
+            return append(asQuotedUTF8(), buffer, offset);
+        }
+
+        @Override
+        public int appendQuoted(char[] buffer, int offset) {
+            return append(asQuotedChars(), buffer, offset);
+        }
+
+        @Override
+        public int appendUnquotedUTF8(byte[] buffer, int offset) {
+            if (offset + length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(json, this.offset, buffer, offset, length);
+            return length;
+        }
+
+        @Override
+        public int appendUnquoted(char[] buffer, int offset) {
+            return append(getValue().toCharArray(), buffer, offset);
+        }
+
+        @Override
+        public int writeQuotedUTF8(OutputStream out) throws IOException {
+            byte[] quoted = asQuotedUTF8();
+            out.write(quoted);
+            return quoted.length;
+        }
+
+        @Override
+        public int writeUnquotedUTF8(OutputStream out) throws IOException {
+            out.write(json, offset, length);
+            return length;
+        }
+
+        @Override
+        public int putQuotedUTF8(ByteBuffer buffer) {
+            byte[] quoted = asQuotedUTF8();
+            if (quoted.length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(quoted);
+            return quoted.length;
+        }
+
+        @Override
+        public int putUnquotedUTF8(ByteBuffer buffer) {
+            if (length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(json, offset, length);
+            return length;
+        }
+
+        private static int append(byte[] source, byte[] buffer, int offset) {
+            if (offset + source.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(source, 0, buffer, offset, source.length);
+            return source.length;
+        }
+
+        private static int append(char[] source, char[] buffer, int offset) {
+            if (offset + source.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(source, 0, buffer, offset, source.length);
+            return source.length;
+        }
+    }
+}
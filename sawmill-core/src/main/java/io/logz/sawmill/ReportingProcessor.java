@@ -0,0 +1,10 @@
+package io.logz.sawmill;
+
+/**
+ * A processor keeping metrics of its own, e.g. per expression it tries, and handing them to the metrics tracker of the pipeline.
+ * <p>The executor calls {@link #reportMetrics} after every run of the processor, on the thread that ran it, once the run
+ * is timed, so periodic upkeep done there is not counted as processor time. The processor should only report when it has a report due.
+ */
+public interface ReportingProcessor extends Processor {
+    void reportMetrics(String pipelineId, String processorName, PipelineExecutionMetricsTracker pipelineExecutionMetricsTracker);
+}
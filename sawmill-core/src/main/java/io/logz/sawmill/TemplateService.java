@@ -1,7 +1,7 @@
 package io.logz.sawmill;
 
+import com.github.mustachejava.DefaultMustacheFactory;
 import com.github.mustachejava.Mustache;
-import com.github.mustachejava.MustacheFactory;
 import io.logz.sawmill.exceptions.SawmillException;
 
 import io.logz.sawmill.mustache.factories.UnescapedMustacheFactory;
@@ -15,7 +15,8 @@ import java.util.LinkedHashMap;
 public class TemplateService {
     //TODO: remove backward compatibility mustache and support only json string implementation
     public static final String JSON_STRING_SUFFIX = "_sawmill_json";
-    private final MustacheFactory mustacheFactory;
+    private static final DateTemplateHandler dateTemplateHandler = new DateTemplateHandler();
+    private final UnescapedMustacheFactory mustacheFactory;
     private final UnescapedWithJsonStringMustacheFactory jsonStringMustacheFactory;
 
     public TemplateService() {
@@ -23,6 +24,10 @@ public class TemplateService {
         this.jsonStringMustacheFactory = new UnescapedWithJsonStringMustacheFactory();
     }
 
+    /**
+     * Templates of field references and date sections are compiled to render without running Mustache,
+     * anything else Mustache supports is rendered by Mustache
+     */
     public Template createTemplate(String template) {
         if (template == null) {
             throw new SawmillException("template cannot be with null value");
@@ -33,11 +38,12 @@ public class TemplateService {
             return new StringTemplate(template);
         }
 
-        Mustache mustache = template.contains(JSON_STRING_SUFFIX) ?
-                    jsonStringMustacheFactory.compile(new StringReader(template.replaceAll(JSON_STRING_SUFFIX, "")), "") :
-                    mustacheFactory.compile(new StringReader(template), "");
+        DefaultMustacheFactory factory = template.contains(JSON_STRING_SUFFIX) ? jsonStringMustacheFactory : mustacheFactory;
+        String mustacheTemplate = factory == jsonStringMustacheFactory ? template.replaceAll(JSON_STRING_SUFFIX, "") : template;
+        MustacheTemplate compiledMustache = new MustacheTemplate(factory.compile(new StringReader(mustacheTemplate), ""));
 
-        return new MustacheTemplate(mustache);
+        CompiledTemplate compiledTemplate = CompiledTemplate.compile(mustacheTemplate, factory.getObjectHandler(), dateTemplateHandler, compiledMustache);
+        return compiledTemplate != null ? compiledTemplate : compiledMustache;
     }
 
     public static class StringTemplate implements Template {
@@ -50,11 +56,14 @@ public class TemplateService {
         public String render(Doc doc) {
             return value;
         }
+
+        public String getValue() {
+            return value;
+        }
     }
 
     public static class MustacheTemplate implements Template {
         private final Mustache mustache;
-        private final static DateTemplateHandler dateTemplateHandler = new DateTemplateHandler();
 
         private MustacheTemplate(Mustache value) {
             this.mustache = value;
@@ -65,7 +74,7 @@ public class TemplateService {
             if (doc == null) {
                 docContext = new LinkedHashMap<>();
             } else {
-                docContext = doc.getSource();
+                docContext = doc.getSourceView();
             }
 
             StringWriter writer = new StringWriter();
@@ -1,24 +1,47 @@
 package io.logz.sawmill;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
+/**
+ * An execution registered in the watchdog.
+ * <p>All the state transitions between the executing thread and the watchdog are compare-and-sets of a single state
+ * field, so registering and stopping an execution takes no lock. A batch reuses one registration for all its docs,
+ * the state carries the index of the current doc so the watchdog never acts on a doc that already moved on.
+ */
 public class WatchedPipeline {
-    private final Doc doc;
+    private static final AtomicLongFieldUpdater<WatchedPipeline> STATE = AtomicLongFieldUpdater.newUpdater(WatchedPipeline.class, "state");
+
+    private static final long FINISHED = 1;
+    private static final long EXPIRED = 1 << 1;
+    private static final long EXPIRY_DONE = 1 << 2;
+    private static final long INTERRUPTED = 1 << 3;
+    private static final long OVERTIME = 1 << 4;
+    private static final long REMOVED = 1 << 5;
+    private static final long STOPPED = FINISHED | EXPIRED;
+    private static final long DOC_INDEX_UNIT = 1 << 8;
+
+    private volatile Doc doc;
     private final String pipelineId;
-    private final long ingestTimestamp;
-    private boolean notifiedAsOvertime;
-    private AtomicBoolean running;
+    private volatile long ingestTimestamp;
+    private volatile long state;
     private final Thread thread;
+    private final ExecutionDeadline deadline;
+    /**
+     * Link to the next execution in the watchdog's pending stack or wheel bucket
+     */
+    WatchedPipeline next;
 
     public WatchedPipeline(Doc doc, String pipelineId, long ingestTimestamp, Thread thread) {
         this.doc = doc;
         this.pipelineId = pipelineId;
         this.ingestTimestamp = ingestTimestamp;
-        this.notifiedAsOvertime = false;
-        this.running = new AtomicBoolean(true);
         this.thread = thread;
+        this.deadline = new ExecutionDeadline();
     }
 
+    /**
+     * @return the doc of the execution, null once the execution finished
+     */
     public Doc getDoc() {
         return doc;
     }
@@ -32,18 +55,137 @@ public class WatchedPipeline {
     }
 
     public boolean hasBeenNotifiedAsOvertime() {
-        return notifiedAsOvertime;
+        return (state & OVERTIME) != 0;
     }
 
     public void setAsNotifiedWithOvertime() {
-        this.notifiedAsOvertime = true;
+        STATE.getAndUpdate(this, current -> current | OVERTIME);
     }
 
     public boolean compareAndSetFinishedRunning() {
-        return running.compareAndSet(true, false);
+        long current = state;
+        while (isRunning(current)) {
+            if (STATE.compareAndSet(this, current, current | FINISHED)) {
+                return true;
+            }
+            current = state;
+        }
+        return false;
+    }
+
+    public boolean isRunning() {
+        return isRunning(state);
+    }
+
+    public ExecutionDeadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Expires the deadline of the execution, the execution stops at its next cooperative check
+     */
+    public void expire() {
+        deadline.expire();
     }
 
+    /**
+     * Interrupts the thread running the execution, for processors blocked in calls that do not check the deadline, e.g. I/O
+     */
     public void interrupt() {
         thread.interrupt();
     }
+
+    /**
+     * @return whether the watchdog interrupted the thread of the execution when expiring it
+     */
+    public boolean hasBeenInterrupted() {
+        return (state & INTERRUPTED) != 0;
+    }
+
+    long getState() {
+        return state;
+    }
+
+    static boolean isRunning(long state) {
+        return (state & (STOPPED | REMOVED)) == 0;
+    }
+
+    static boolean isRemoved(long state) {
+        return (state & REMOVED) != 0;
+    }
+
+    static boolean isOvertime(long state) {
+        return (state & OVERTIME) != 0;
+    }
+
+    /**
+     * @return whether the execution was still in {@code expectedState}, and is now marked as overtime
+     */
+    boolean markOvertime(long expectedState) {
+        return STATE.compareAndSet(this, expectedState, expectedState | OVERTIME);
+    }
+
+    /**
+     * Expires the execution if it is still in {@code expectedState}, the executing thread waits for
+     * {@link #expiryDone(boolean)} before it moves on
+     */
+    boolean markExpired(long expectedState) {
+        return STATE.compareAndSet(this, expectedState, expectedState | EXPIRED);
+    }
+
+    void expiryDone(boolean interrupted) {
+        long done = interrupted ? EXPIRY_DONE | INTERRUPTED : EXPIRY_DONE;
+        STATE.getAndUpdate(this, current -> current | done);
+    }
+
+    /**
+     * Stops the current doc, on the executing thread
+     * @return {@code true} if it was already stopped, by the watchdog expiring it or by a previous call
+     */
+    boolean stop() {
+        if (compareAndSetFinishedRunning()) {
+            return false;
+        }
+
+        // the watchdog is done in a few instructions, wait so its interrupt cannot hit the next doc
+        while ((state & (EXPIRED | EXPIRY_DONE)) == EXPIRED) {
+            Thread.yield();
+        }
+        return true;
+    }
+
+    /**
+     * Moves a stopped registration to the next doc of a batch, on the executing thread
+     */
+    void nextDoc(Doc doc, long ingestTimestamp) {
+        long current = state;
+        if (deadline.isExpired()) {
+            deadline.reset();
+        }
+        this.doc = doc;
+        this.ingestTimestamp = ingestTimestamp;
+        // the watchdog only changes a running state, so a stopped one is replaced with a plain write
+        state = (current & -DOC_INDEX_UNIT) + DOC_INDEX_UNIT;
+    }
+
+    void remove() {
+        STATE.getAndUpdate(this, current -> current | REMOVED);
+        doc = null;
+    }
+
+    /**
+     * Drops the doc of a finished execution, which may still be referenced by the watchdog until its next visit
+     */
+    void releaseDoc() {
+        doc = null;
+    }
+
+    /**
+     * @return a copy of the current doc's execution for the overtime callback, which runs after the execution may have moved on
+     */
+    WatchedPipeline overtimeSnapshot(Doc doc, long ingestTimestamp) {
+        WatchedPipeline snapshot = new WatchedPipeline(doc, pipelineId, ingestTimestamp, thread);
+        snapshot.state = state | OVERTIME;
+        return snapshot;
+    }
 }
@@ -2,6 +2,7 @@ package io.logz.sawmill.conditions;
 
 import io.logz.sawmill.Condition;
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.annotations.ConditionProvider;
 import io.logz.sawmill.exceptions.ProcessorConfigurationException;
 import io.logz.sawmill.parser.ConditionDefinition;
@@ -26,6 +27,13 @@ public class AndCondition implements Condition {
         return conditions.stream().allMatch(condition -> condition.evaluate(doc));
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        FieldAccess.Builder builder = FieldAccess.builder();
+        conditions.forEach(condition -> builder.add(condition.getFieldAccess()));
+        return builder.build();
+    }
+
     public static class Factory implements Condition.Factory {
         public Factory() {
         }
@@ -2,6 +2,8 @@ package io.logz.sawmill.conditions;
 
 import io.logz.sawmill.Condition;
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.annotations.ConditionProvider;
 import io.logz.sawmill.parser.ConditionParser;
 import io.logz.sawmill.utilities.JsonUtils;
@@ -10,10 +12,10 @@ import java.util.Map;
 
 @ConditionProvider(type = "exists", factory = FieldExistsCondition.Factory.class)
 public class FieldExistsCondition implements Condition {
-    private String field;
+    private FieldPath field;
 
     public FieldExistsCondition(String field) {
-        this.field = field;
+        this.field = FieldPath.of(field);
     }
 
     @Override
@@ -21,6 +23,11 @@ public class FieldExistsCondition implements Condition {
         return doc.hasField(field);
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(field).build();
+    }
+
     public static class Factory implements Condition.Factory {
         public Factory() {
         }
@@ -2,6 +2,8 @@ package io.logz.sawmill.conditions;
 
 import io.logz.sawmill.Condition;
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.annotations.ConditionProvider;
 import io.logz.sawmill.parser.ConditionParser;
 import io.logz.sawmill.utilities.JsonUtils;
@@ -14,29 +16,29 @@ import static java.util.Objects.requireNonNull;
 @ConditionProvider(type = "in", factory = InCondition.Factory.class)
 public class InCondition implements Condition {
 
-    private String path;
+    private FieldPath path;
     private String value;
 
     public InCondition(String path, String value) {
-        this.path = requireNonNull(path);
+        this.path = FieldPath.of(requireNonNull(path));
         this.value = requireNonNull(value);
     }
 
     @Override
     public boolean evaluate(Doc doc) {
-        if (!doc.hasField(path)) {
+        List<String> valuesList = doc.getFieldIfPresent(path, List.class);
+        if (valuesList == null) {
             return false;
         }
 
-        Object pathValue = doc.getField(path);
-        if (!(pathValue instanceof List)) {
-            return false;
-        }
-
-        List<String> valuesList = (List<String>) pathValue;
         return valuesList.stream().anyMatch(value::equals);
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(path).build();
+    }
+
     public static class Factory implements Condition.Factory {
         public Factory() {
         }
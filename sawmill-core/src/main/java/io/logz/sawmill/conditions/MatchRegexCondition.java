@@ -2,6 +2,8 @@ package io.logz.sawmill.conditions;
 
 import io.logz.sawmill.Condition;
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.annotations.ConditionProvider;
 import io.logz.sawmill.parser.ConditionParser;
 import io.logz.sawmill.utilities.JsonUtils;
@@ -15,29 +17,34 @@ import static java.util.Objects.requireNonNull;
 @ConditionProvider(type = "matchRegex", factory = MatchRegexCondition.Factory.class)
 public class MatchRegexCondition implements Condition {
 
-    private String field;
+    private FieldPath field;
     private Pattern pattern;
     private Function<String, Boolean> matchingFunction;
 
     public MatchRegexCondition(String field, String regex, boolean caseInsensitive, boolean matchPartOfValue) {
         int patternFlags = caseInsensitive ? Pattern.CASE_INSENSITIVE : 0;
-        this.field = requireNonNull(field);
+        this.field = FieldPath.of(requireNonNull(field));
         this.pattern = Pattern.compile(requireNonNull(regex), patternFlags);
         this.matchingFunction = matchPartOfValue ? this::matchPartOfValue : this::matchEntireOfValue;
     }
 
     @Override
     public boolean evaluate(Doc doc) {
-        if (!doc.hasField(field)) return false;
+        Object value = doc.getFieldIfPresent(field, Object.class);
+        if (value == null) return false;
 
         try {
-            String value = doc.getField(field);
-            return matchingFunction.apply(value);
+            return matchingFunction.apply((String) value);
         } catch (Exception e) {
             return false;
         }
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(field).build();
+    }
+
     private boolean matchEntireOfValue(String value) {
         return pattern.matcher(value).matches();
     }
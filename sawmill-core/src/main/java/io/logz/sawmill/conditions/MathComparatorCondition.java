@@ -2,6 +2,8 @@ package io.logz.sawmill.conditions;
 
 import io.logz.sawmill.Condition;
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.annotations.ConditionProvider;
 import io.logz.sawmill.parser.ConditionParser;
 import io.logz.sawmill.utilities.JsonUtils;
@@ -13,14 +15,14 @@ import static java.util.Objects.requireNonNull;
 @ConditionProvider(type = "mathComparator", factory = MathComparatorCondition.Factory.class)
 public class MathComparatorCondition implements Condition {
 
-    private final String field;
+    private final FieldPath field;
     private final Double gte;
     private final Double gt;
     private final Double lte;
     private final Double lt;
 
     public MathComparatorCondition(String field, Double gte, Double gt, Double lte, Double lt) {
-        this.field = requireNonNull(field);
+        this.field = FieldPath.of(requireNonNull(field));
         this.gte = gte;
         this.gt = gt;
         this.lte = lte;
@@ -29,8 +31,9 @@ public class MathComparatorCondition implements Condition {
 
     @Override
     public boolean evaluate(Doc doc) {
-        if (!doc.hasField(field, Number.class)) return false;
-        double value = ((Number)doc.getField(this.field)).doubleValue();
+        Number fieldValue = doc.getFieldIfPresent(field, Number.class);
+        if (fieldValue == null) return false;
+        double value = fieldValue.doubleValue();
 
         boolean greaterThan = (gte == null || value >= gte) && (gt == null || value > gt);
         boolean lessThan = (lte == null || value <= lte) && (lt == null || value < lt);
@@ -38,6 +41,11 @@ public class MathComparatorCondition implements Condition {
         return greaterThan && lessThan;
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(field).build();
+    }
+
     public static class Factory implements Condition.Factory {
 
         public Factory() {}
@@ -1,7 +1,26 @@
 package io.logz.sawmill.exceptions;
 
 public class PipelineExecutionException extends SawmillException {
+    private final String pipelineId;
+
     public PipelineExecutionException(String pipelineId, Exception e) {
-        super(String.format("failed to execute pipeline %s", pipelineId), e);
+        this(pipelineId, e, true);
+    }
+
+    private PipelineExecutionException(String pipelineId, Exception e, boolean writableStackTrace) {
+        super(null, e, writableStackTrace);
+        this.pipelineId = pipelineId;
+    }
+
+    /**
+     * Exception that is reported in an execution result rather than thrown, so it has no stack trace of its own
+     */
+    public static PipelineExecutionException reported(String pipelineId, Exception e) {
+        return new PipelineExecutionException(pipelineId, e, false);
+    }
+
+    @Override
+    public String getMessage() {
+        return String.format("failed to execute pipeline %s", pipelineId);
     }
 }
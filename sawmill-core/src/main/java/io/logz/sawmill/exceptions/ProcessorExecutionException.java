@@ -1,7 +1,18 @@
 package io.logz.sawmill.exceptions;
 
+/**
+ * Reported in a process result rather than thrown, so it has no stack trace of its own, the cause has the one that matters
+ */
 public class ProcessorExecutionException extends SawmillException {
+    private final String processorType;
+
     public ProcessorExecutionException(String processorType, Exception e) {
-        super(String.format("failed to execute processor %s", processorType), e);
+        super(null, e, false);
+        this.processorType = processorType;
+    }
+
+    @Override
+    public String getMessage() {
+        return String.format("failed to execute processor %s", processorType);
     }
 }
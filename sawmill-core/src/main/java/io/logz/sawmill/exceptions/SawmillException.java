@@ -8,4 +8,11 @@ public class SawmillException extends RuntimeException {
         super(errorMsg, e);
     }
 
+    /**
+     * @param writableStackTrace false for exceptions that only wrap their cause to report it, whose own stack trace
+     *                           costs more to fill than the failure it describes
+     */
+    protected SawmillException(String errorMsg, Exception e, boolean writableStackTrace) {
+        super(errorMsg, e, true, writableStackTrace);
+    }
 }
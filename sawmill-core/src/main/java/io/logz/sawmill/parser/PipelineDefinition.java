@@ -6,10 +6,16 @@ import java.util.Optional;
 public class PipelineDefinition {
     private List<ExecutionStepDefinition> executionStepDefinitionList;
     private Optional<Boolean> stopOnFailure;
+    private Optional<Boolean> generateBytecode;
 
     public PipelineDefinition(List<ExecutionStepDefinition> executionStepDefinitionList, Boolean stopOnFailure) {
+        this(executionStepDefinitionList, stopOnFailure, null);
+    }
+
+    public PipelineDefinition(List<ExecutionStepDefinition> executionStepDefinitionList, Boolean stopOnFailure, Boolean generateBytecode) {
         this.executionStepDefinitionList = executionStepDefinitionList;
         this.stopOnFailure = Optional.ofNullable(stopOnFailure);
+        this.generateBytecode = Optional.ofNullable(generateBytecode);
     }
 
     public List<ExecutionStepDefinition> getExecutionSteps() {
@@ -19,4 +25,8 @@ public class PipelineDefinition {
     public Optional<Boolean> isStopOnFailure() {
         return stopOnFailure;
     }
+
+    public Optional<Boolean> isGenerateBytecode() {
+        return generateBytecode;
+    }
 }
@@ -21,8 +21,9 @@ public class PipelineDefinitionJsonParser {
         List<ExecutionStepDefinition> executionStepDefinitionList = ExecutionStepDefinitionParser.parse(executionSteps);
 
         Boolean stopOnFailure = JsonUtils.getBoolean(configMap, "stopOnFailure", false);
+        Boolean generateBytecode = JsonUtils.getBoolean(configMap, "generateBytecode", false);
 
-        return new PipelineDefinition(executionStepDefinitionList, stopOnFailure);
+        return new PipelineDefinition(executionStepDefinitionList, stopOnFailure, generateBytecode);
     }
 
 }
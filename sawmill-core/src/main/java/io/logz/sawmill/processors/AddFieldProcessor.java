@@ -1,6 +1,7 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.Template;
@@ -18,10 +19,16 @@ import static java.util.Objects.requireNonNull;
 public class AddFieldProcessor implements Processor {
     private final Template path;
     private final Function<Doc, Object> getValueFunction;
+    private final boolean valueReadsDoc;
 
     public AddFieldProcessor(Template path, Function<Doc, Object> getValueFunction) {
+        this(path, getValueFunction, true);
+    }
+
+    private AddFieldProcessor(Template path, Function<Doc, Object> getValueFunction, boolean valueReadsDoc) {
         this.path = path;
         this.getValueFunction = getValueFunction;
+        this.valueReadsDoc = valueReadsDoc;
     }
 
     @Override
@@ -30,6 +37,12 @@ public class AddFieldProcessor implements Processor {
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        FieldAccess.Builder builder = FieldAccess.builder().write(path);
+        return valueReadsDoc ? builder.readAll().build() : builder.build();
+    }
+
     public static class Factory implements Processor.Factory {
         private final TemplateService templateService;
 
@@ -45,15 +58,11 @@ public class AddFieldProcessor implements Processor {
             Template path = templateService.createTemplate(requireNonNull(addFieldConfig.getPath(), "path cannot be null"));
             Object value = requireNonNull(addFieldConfig.getValue(), "value cannot be null");
 
-            return new AddFieldProcessor(path, createGetValueFunction(value));
-        }
-
-        private Function<Doc, Object> createGetValueFunction(Object value) {
             if (value instanceof String) {
                 Template valueTemplate = templateService.createTemplate((String) value);
-                return valueTemplate::render;
+                return new AddFieldProcessor(path, valueTemplate::render, !(valueTemplate instanceof TemplateService.StringTemplate));
             } else {
-                return (ignoredDoc) -> value;
+                return new AddFieldProcessor(path, (ignoredDoc) -> value, false);
             }
         }
     }
@@ -1,6 +1,8 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.ExecutionDeadline;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -35,6 +37,8 @@ public class AddSignatureProcessor implements Processor {
         int signature;
         try {
             signature = createSignature(doc);
+        } catch (InterruptedException e) {
+            throw e;
         } catch (Exception e) {
             String errorMessage = "failed to create signature, SignatureMode: " + signatureMode;
             logger.debug(errorMessage, e);
@@ -45,9 +49,9 @@ public class AddSignatureProcessor implements Processor {
         if(signature == 0) {
             logger.debug("signature collection is empty, SignatureMode: " + signatureMode);
             if(signatureMode.equals(SignatureMode.FIELDS_NAMES) || signatureMode.equals(SignatureMode.HYBRID)) {
-                return ProcessResult.failure("failed to extract fields names, SignatureMode: " + signatureMode);
+                return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to extract fields names, SignatureMode: %s", signatureMode);
             }
-            return ProcessResult.failure("failed to add signature field, signature collection is empty");
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to add signature field, signature collection is empty");
         }
 
         addSignatureField(doc, signature);
@@ -84,25 +88,25 @@ public class AddSignatureProcessor implements Processor {
     }
 
     private Set<String> extractFieldsNames(Doc doc) throws InterruptedException {
-        Map<String, Object> source = doc.getSource();
+        Map<String, Object> source = doc.getSourceView();
         Set<String> fields = new HashSet<>();
-        extractFieldsNames(source, null, fields);
+        extractFieldsNames(source, null, fields, ExecutionDeadline.current());
         return fields;
     }
 
-    private void extractFieldsNames(Object object, String parentKey, Set<String> fields) throws InterruptedException {
-        if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+    private void extractFieldsNames(Object object, String parentKey, Set<String> fields, ExecutionDeadline deadline) throws InterruptedException {
+        deadline.check();
         if(object instanceof Map) {
             Map<String, Object> map = (Map) object;
             for(Map.Entry<String, Object> entry : map.entrySet()) {
                 String fieldPath = parentKey != null ?
                         new StringBuilder(parentKey).append('.').append(entry.getKey()).toString() : entry.getKey();
-                extractFieldsNames(entry.getValue(), fieldPath, fields);
+                extractFieldsNames(entry.getValue(), fieldPath, fields, deadline);
             }
         } else if(isListOfMaps(object)) {
             List<Map<String, Object>> listOfMaps = (List<Map<String, Object>>) object;
             for(Map<String, Object> map : listOfMaps) {
-                extractFieldsNames(map, parentKey, fields);
+                extractFieldsNames(map, parentKey, fields, deadline);
             }
         } else {
             fields.add(parentKey);
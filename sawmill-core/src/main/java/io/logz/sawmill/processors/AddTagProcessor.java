@@ -1,6 +1,7 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.Template;
@@ -32,6 +33,11 @@ public class AddTagProcessor implements Processor {
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().render(tags).read("tags").write("tags").build();
+    }
+
     public static class Factory implements Processor.Factory {
         private final TemplateService templateService;
 
@@ -1,6 +1,9 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -20,16 +23,16 @@ import static java.util.Objects.requireNonNull;
 @ProcessorProvider(type = "ahoCorasick", factory = AhoCorasickProcessor.Factory.class)
 public class AhoCorasickProcessor implements Processor {
 
-    private String field;
-    private String targetField;
+    private FieldPath field;
+    private FieldPath targetField;
 
     private AhoCorasickModel ahoCorasickModel;
 
     public AhoCorasickProcessor(String field, String targetField, List<String> inputWords) {
         validateInputWords(inputWords);
 
-        this.field = requireNonNull(field);
-        this.targetField = requireNonNull(targetField);
+        this.field = FieldPath.of(requireNonNull(field));
+        this.targetField = FieldPath.of(requireNonNull(targetField));
 
         ahoCorasickModel = new AhoCorasickModel();
         ahoCorasickModel.build(inputWords);
@@ -37,17 +40,23 @@ public class AhoCorasickProcessor implements Processor {
 
     @Override
     public ProcessResult process(Doc doc) {
-        if (!doc.hasField(field, String.class)) {
-            return ProcessResult.failure(String.format("failed to process date, field in path [%s] is missing", field));
+        String value = doc.getFieldIfPresent(field, String.class);
+        if (value == null) {
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to process date, field in path [%s] is missing", field);
         }
 
-        Collection<Emit> emits = ahoCorasickModel.search(doc.getField(field));
+        Collection<Emit> emits = ahoCorasickModel.search(value);
         List<String> result = emits.stream().map(emit -> emit.getKeyword()).collect(Collectors.toList());
         if (CollectionUtils.isNotEmpty(result)) {
             doc.addField(targetField, result);
             return ProcessResult.success();
         }
-        return ProcessResult.failure("Failed to match input words for target field - " + targetField);
+        return ProcessResult.failure(FailureCode.NO_MATCH, "Failed to match input words for target field - %s", targetField);
+    }
+
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(field).write(targetField).build();
     }
 
     private static void validateInputWords(List<String> input) {
@@ -1,6 +1,7 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.Template;
@@ -37,6 +38,11 @@ public class AppendListProcessor implements Processor {
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().render(values).read(path).write(path).build();
+    }
+
     public static class Factory implements Processor.Factory {
         private final TemplateService templateService;
 
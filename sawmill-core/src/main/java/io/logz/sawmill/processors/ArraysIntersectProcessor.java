@@ -1,6 +1,8 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -30,7 +32,7 @@ public class ArraysIntersectProcessor implements Processor {
     @Override
     public ProcessResult process(Doc doc) {
         if (!doc.hasField(sourceFieldA) || !doc.hasField(sourceFieldB)) {
-            return ProcessResult.failure("One or both input fields are missing");
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "One or both input fields are missing");
         }
 
         Iterable<Object> arrayA = doc.getField(sourceFieldA);
@@ -42,6 +44,11 @@ public class ArraysIntersectProcessor implements Processor {
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(sourceFieldA).read(sourceFieldB).write(targetField).build();
+    }
+
     public static class Factory implements Processor.Factory {
 
         @Inject
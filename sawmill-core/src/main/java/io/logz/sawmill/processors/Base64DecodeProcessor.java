@@ -1,6 +1,9 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -15,25 +18,30 @@ import static java.util.Objects.requireNonNull;
 @ProcessorProvider(type = "base64Decode", factory = Base64DecodeProcessor.Factory.class)
 public class Base64DecodeProcessor implements Processor {
 
-    private final String sourceField;
-    private final String targetField;
+    private final FieldPath sourceField;
+    private final FieldPath targetField;
 
     public Base64DecodeProcessor(String sourceField, String targetField) {
-        this.sourceField = requireNonNull(sourceField);
-        this.targetField = requireNonNull(targetField);
+        this.sourceField = FieldPath.of(requireNonNull(sourceField));
+        this.targetField = FieldPath.of(requireNonNull(targetField));
     }
 
     @Override
     public ProcessResult process(Doc doc) {
-        if(!doc.hasField(sourceField, String.class))
-            return ProcessResult.failure("field is missing from doc");
+        String value = doc.getFieldIfPresent(sourceField, String.class);
+        if(value == null)
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "field is missing from doc");
 
-        String value = doc.getField(sourceField);
         String decodedValue = new String(Base64.getDecoder().decode(value));
         doc.addField(targetField, decodedValue);
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(sourceField).write(targetField).build();
+    }
+
     public static class Factory implements Processor.Factory {
         public Factory() {}
 
@@ -2,6 +2,7 @@ package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
 import io.logz.sawmill.FieldType;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -70,6 +71,11 @@ public class ConvertFieldProcessor implements Processor {
         return ProcessResult.failure(allErrorMessages);
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(paths).write(paths).build();
+    }
+
     public static class Factory implements Processor.Factory {
         public Factory() {
         }
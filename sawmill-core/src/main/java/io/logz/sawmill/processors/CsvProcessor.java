@@ -1,6 +1,8 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.FieldType;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
@@ -23,7 +25,7 @@ import static java.util.Objects.requireNonNull;
 
 @ProcessorProvider(type = "csv", factory = CsvProcessor.Factory.class)
 public class CsvProcessor implements Processor {
-    private final String field;
+    private final FieldPath field;
     private final String targetField;
     private final String separator;
     private final String quoteChar;
@@ -40,7 +42,7 @@ public class CsvProcessor implements Processor {
                         boolean autoGenerateColumnNames,
                         boolean skipEmptyColumns,
                         Map<String, FieldType> convert) {
-        this.field = requireNonNull(field, "field cannot be null");
+        this.field = FieldPath.of(requireNonNull(field, "field cannot be null"));
         this.targetField = targetField;
         this.separator = requireNonNull(separator, "separator cannot be null");
         this.quoteChar = requireNonNull(quoteChar, "quoteChar cannot be null");
@@ -52,13 +54,13 @@ public class CsvProcessor implements Processor {
 
     @Override
     public ProcessResult process(Doc doc) {
-        if (!doc.hasField(field, String.class)) {
-            return ProcessResult.failure(String.format("failed to parse csv, couldn't find field [%s] or not instance of String", field));
+        String csvString = doc.getFieldIfPresent(field, String.class);
+        if (csvString == null) {
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to parse csv, couldn't find field [%s] or not instance of String", field);
         }
 
         Map<String, Object> csv = new HashMap<>();
         List<CSVRecord> records;
-        String csvString = doc.getField(field);
 
         try {
             CSVParser csvParser = CSVParser.parse(csvString,
@@ -68,8 +70,8 @@ public class CsvProcessor implements Processor {
                              .withTrim());
             records = csvParser.getRecords();
         } catch (IOException e) {
-            return ProcessResult.failure(String.format("failed to parse csv for csv [%s]", csvString),
-                    new ProcessorExecutionException("csv", e));
+            return ProcessResult.failure(FailureCode.PARSE_FAILURE, new ProcessorExecutionException("csv", e),
+                    "failed to parse csv for csv [%s]", csvString);
         }
 
         records.forEach(record -> {
@@ -1,6 +1,8 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -153,7 +155,7 @@ public class DateProcessor implements Processor {
     @Override
     public ProcessResult process(Doc doc) {
         if (!doc.hasField(field)) {
-            return ProcessResult.failure(String.format("failed to process date, field in path [%s] is missing", field));
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to process date, field in path [%s] is missing", field);
         }
 
         Object dateTimeDocValue = doc.getField(field);
@@ -172,7 +174,7 @@ public class DateProcessor implements Processor {
         }
 
         if (dateTime == null) {
-            return ProcessResult.failure(String.format("failed to parse date in path [%s], [%s] is not one of the formats [%s]", field, dateTimeDocValue, formats));
+            return ProcessResult.failure(FailureCode.PARSE_FAILURE, "failed to parse date in path [%s], [%s] is not one of the formats [%s]", field, dateTimeDocValue, formats);
         }
 
         doc.addField(targetField, dateTime.format(outputFormatter));
@@ -180,6 +182,11 @@ public class DateProcessor implements Processor {
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(field).write(targetField).build();
+    }
+
     private ZonedDateTime getISODateTime(String value) {
         for (DateTimeFormatter formatter : formatters) {
             try {
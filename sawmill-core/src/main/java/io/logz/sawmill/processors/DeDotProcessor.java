@@ -1,6 +1,7 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.ExecutionDeadline;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -21,36 +22,63 @@ public class DeDotProcessor implements Processor {
 
     @Override
     public ProcessResult process(Doc doc) throws InterruptedException {
-        Map<String,Object> docAsMap = doc.getSource();
-        doc.replace(deDotMap(docAsMap));
+        Map<String,Object> docAsMap = doc.getSourceView();
+        Map<String,Object> deDotedMap = deDotMap(docAsMap, ExecutionDeadline.current());
+        if (deDotedMap != docAsMap) {
+            doc.replace(deDotedMap);
+        }
         return ProcessResult.success();
     }
 
+    /**
+     * @return the map itself if none of its keys and values change, so unchanged parts of the doc are not copied
+     */
+    private Map<String,Object> deDotMap(Map<String, Object> docAsMap, ExecutionDeadline deadline) throws InterruptedException {
 
-    private Map<String,Object> deDotMap(Map<String, Object> docAsMap) throws InterruptedException {
-
-        Map<String,Object> mapClone = new LinkedHashMap<>();
+        Map<String,Object> mapClone = null;
+        int index = 0;
         for (Map.Entry<String, Object> entry : docAsMap.entrySet()) {
-            if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+            deadline.check();
             String dedotedKey = deDotKey(entry.getKey());
             Object value = entry.getValue();
             if (entry.getValue() instanceof Map) {
-                value = deDotMap((Map) entry.getValue());
+                value = deDotMap((Map) entry.getValue(), deadline);
             } else if (isListOfMaps(entry.getValue())) {
-                value = deDotListOfMaps((List<Map<String, Object>>) entry.getValue());
+                value = deDotListOfMaps((List<Map<String, Object>>) entry.getValue(), deadline);
+            }
+            if (mapClone == null && (dedotedKey != entry.getKey() || value != entry.getValue())) {
+                mapClone = copyHead(docAsMap, index);
             }
-            mapClone.put(dedotedKey, value);
+            if (mapClone != null) {
+                mapClone.put(dedotedKey, value);
+            }
+            index++;
         }
-        return mapClone;
+        return mapClone != null ? mapClone : docAsMap;
     }
 
-    private List<Map<String,Object>> deDotListOfMaps(List<Map<String,Object>> listOfMaps) throws InterruptedException {
-        List<Map<String,Object>> newInnerMapList = new ArrayList<>();
-        for(Object singleMapFromArray :listOfMaps){
-            Map<String,Object> deDotedMap = deDotMap((Map<String, Object>) singleMapFromArray);
-            newInnerMapList.add(deDotedMap);
+    private Map<String,Object> copyHead(Map<String, Object> map, int length) {
+        Map<String,Object> head = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (head.size() == length) break;
+            head.put(entry.getKey(), entry.getValue());
+        }
+        return head;
+    }
+
+    private List<Map<String,Object>> deDotListOfMaps(List<Map<String,Object>> listOfMaps, ExecutionDeadline deadline) throws InterruptedException {
+        List<Map<String,Object>> newInnerMapList = null;
+        for (int i = 0; i < listOfMaps.size(); i++) {
+            Object singleMapFromArray = listOfMaps.get(i);
+            Map<String,Object> deDotedMap = deDotMap((Map<String, Object>) singleMapFromArray, deadline);
+            if (newInnerMapList == null && deDotedMap != singleMapFromArray) {
+                newInnerMapList = new ArrayList<>(listOfMaps.subList(0, i));
+            }
+            if (newInnerMapList != null) {
+                newInnerMapList.add(deDotedMap);
+            }
         }
-        return newInnerMapList;
+        return newInnerMapList != null ? newInnerMapList : listOfMaps;
     }
     private boolean isListOfMaps(Object object) {
         return object instanceof List && !((List) object).isEmpty() && ((List) object).get(0) instanceof Map;
@@ -1,7 +1,7 @@
 package io.logz.sawmill.processors;
 
-import com.google.common.base.Utf8;
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -20,11 +20,15 @@ public class DocSizeProcessor implements Processor {
 
     @Override
     public ProcessResult process(Doc doc) {
-        String sourceAsJsonString = JsonUtils.toJsonString(doc.getSource());
-        doc.addField(targetField, Utf8.encodedLength(sourceAsJsonString));
+        doc.addField(targetField, (int) doc.getJsonSize());
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().readAll().write(targetField).build();
+    }
+
     public static class Factory implements Processor.Factory {
 
         public Factory(){}
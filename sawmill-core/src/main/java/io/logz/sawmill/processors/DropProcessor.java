@@ -1,6 +1,7 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -28,6 +29,11 @@ public class DropProcessor implements Processor {
         return ProcessResult.drop();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.NONE;
+    }
+
     public static class Factory implements Processor.Factory {
         public Factory() {
         }
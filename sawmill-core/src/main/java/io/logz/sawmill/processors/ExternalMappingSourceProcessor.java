@@ -4,6 +4,9 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Suppliers;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -32,8 +35,10 @@ public class ExternalMappingSourceProcessor implements Processor {
 
     private final static Logger logger = LoggerFactory.getLogger(ExternalMappingSourceProcessor.class);
 
-    private final String sourceField;
-    private final String targetField;
+    private static final FieldPath TAGS = FieldPath.of("tags");
+
+    private final FieldPath sourceField;
+    private final FieldPath targetField;
     private final ExternalMappingsClient externalMappingsClient;
     private final long mappingRefreshPeriodInMillis;
 
@@ -47,8 +52,8 @@ public class ExternalMappingSourceProcessor implements Processor {
     private volatile boolean refreshErrorOccurred = false;
 
     public ExternalMappingSourceProcessor(Configuration configuration) throws MalformedURLException {
-        this.sourceField = requireNonNull(configuration.getSourceField());
-        this.targetField = requireNonNull(configuration.getTargetField());
+        this.sourceField = FieldPath.of(requireNonNull(configuration.getSourceField()));
+        this.targetField = FieldPath.of(requireNonNull(configuration.getTargetField()));
         this.externalMappingsClient = new ExternalMappingsClient(configuration);
         this.mappingRefreshPeriodInMillis = configuration.getMappingRefreshPeriodInMillis();
 
@@ -113,26 +118,31 @@ public class ExternalMappingSourceProcessor implements Processor {
     public ProcessResult process(Doc doc) throws InterruptedException {
         lazyInitSupplier.get();
 
-        if (!doc.hasField(sourceField)) {
-            return ProcessResult.failure(String.format("field [%s] is missing", sourceField));
+        Object sourceFieldValue = doc.getFieldIfPresent(sourceField, Object.class);
+        if (sourceFieldValue == null) {
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "field [%s] is missing", sourceField);
         }
 
         if (keyValueMappingsCache.isEmpty() || refreshErrorOccurred) {
-            doc.appendList("tags", Constants.PROCESSOR_FAILURE_TAG);
+            doc.getOrCreateList(TAGS).add(Constants.PROCESSOR_FAILURE_TAG);
         }
 
         if (keyValueMappingsCache.isEmpty()) {
-            return ProcessResult.failure(String.format("field [%s] mapping is missing, external mapping source is empty", sourceField));
+            return ProcessResult.failure(FailureCode.NO_MATCH, "field [%s] mapping is missing, external mapping source is empty", sourceField);
         }
 
-        String sourceField = doc.getField(this.sourceField);
-        Iterable<String> values = keyValueMappingsCache.get(StringEscapeUtils.escapeJava(sourceField));
+        Iterable<String> values = keyValueMappingsCache.get(StringEscapeUtils.escapeJava((String) sourceFieldValue));
 
         doc.addField(targetField, values != null ? values : Collections.EMPTY_LIST);
 
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(sourceField).write(targetField).read(TAGS).write(TAGS).build();
+    }
+
     public static class Configuration implements Processor.Configuration {
         private String sourceField;
         private String targetField;
@@ -6,6 +6,9 @@ import com.maxmind.geoip2.exception.AddressNotFoundException;
 import com.maxmind.geoip2.exception.GeoIp2Exception;
 import com.maxmind.geoip2.model.CityResponse;
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.GeoIpConfiguration;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
@@ -35,16 +38,18 @@ import static java.util.Objects.requireNonNull;
 @ProcessorProvider(type = "geoIp", factory = GeoIpProcessor.Factory.class)
 public class GeoIpProcessor implements Processor {
 
+    private static final FieldPath TAGS = FieldPath.of("tags");
+
     private static DatabaseReader databaseReader;
 
-    private final String sourceField;
+    private final FieldPath sourceField;
     private final Template targetField;
     private final List<Property> properties;
     private final List<String> tagsOnSuccess;
 
     public GeoIpProcessor(String sourceField, Template targetField, List<Property> properties, List<String> tagsOnSuccess) {
         checkState(CollectionUtils.isNotEmpty(properties), "properties cannot be empty");
-        this.sourceField = requireNonNull(sourceField, "source field cannot be null");
+        this.sourceField = FieldPath.of(requireNonNull(sourceField, "source field cannot be null"));
         this.targetField = requireNonNull(targetField, "target field cannot be null");
         this.properties = properties;
         this.tagsOnSuccess = tagsOnSuccess != null ? tagsOnSuccess : EMPTY_LIST;
@@ -52,13 +57,13 @@ public class GeoIpProcessor implements Processor {
 
     @Override
     public ProcessResult process(Doc doc) {
-        if (!doc.hasField(sourceField, String.class)) {
-            return ProcessResult.failure(String.format("failed to get ip from [%s], field is missing or not instance of [%s]", sourceField, String.class));
+        String ip = doc.getFieldIfPresent(sourceField, String.class);
+        if (ip == null) {
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to get ip from [%s], field is missing or not instance of [%s]", sourceField, String.class);
         }
 
-        String ip = doc.getField(sourceField);
         if (!InetAddresses.isInetAddress(ip)) {
-            return ProcessResult.failure(String.format("failed to process geoIp, source field [%s] in path [%s] is not a valid IP string", ip, sourceField));
+            return ProcessResult.failure(FailureCode.INVALID_VALUE, "failed to process geoIp, source field [%s] in path [%s] is not a valid IP string", ip, sourceField);
         }
         InetAddress ipAddress = InetAddresses.forString(ip);
 
@@ -69,18 +74,23 @@ public class GeoIpProcessor implements Processor {
         } catch (AddressNotFoundException e) {
             geoIp = null;
         } catch (Exception e) {
-            return ProcessResult.failure(String.format("failed to fetch geoIp for [%s]", ip),
-                    new ProcessorExecutionException("geoIp", e));
+            return ProcessResult.failure(FailureCode.EXECUTION_ERROR, new ProcessorExecutionException("geoIp", e),
+                    "failed to fetch geoIp for [%s]", ip);
         }
 
         if (geoIp != null) {
             doc.addField(targetField.render(doc), geoIp);
-            doc.appendList("tags", tagsOnSuccess);
+            doc.getOrCreateList(TAGS).addAll(tagsOnSuccess);
         }
 
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(sourceField).write(targetField).read(TAGS).write(TAGS).build();
+    }
+
     private Map<String, Object> extractGeoIp(InetAddress ipAddress) throws GeoIp2Exception, IOException {
         CityResponse response = databaseReader.city(ipAddress);
 
@@ -1,6 +1,8 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -53,7 +55,7 @@ public class GrokDebuggerProcessor implements Processor {
         if (!doc.hasField(field, String.class)) {
             if (ignoreMissing) return ProcessResult.success();
 
-            return ProcessResult.failure(String.format("failed to grok field in path [%s], field is missing or not instance of [%s]", field, String.class));
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to grok field in path [%s], field is missing or not instance of [%s]", field, String.class);
         }
 
         String fieldValue = doc.getField(field);
@@ -62,7 +64,7 @@ public class GrokDebuggerProcessor implements Processor {
 
         if (CollectionUtils.isEmpty(matches)) {
             doc.appendList("tags", "_grokparsefailure");
-            return ProcessResult.failure(String.format("failed to grok field [%s] in path [%s], doesn't match any of the expressions [%s]", fieldValue, field, expressions));
+            return ProcessResult.failure(FailureCode.NO_MATCH, "failed to grok field [%s] in path [%s], doesn't match any of the expressions [%s]", fieldValue, field, expressions);
         }
 
         matches.stream()
@@ -81,6 +83,11 @@ public class GrokDebuggerProcessor implements Processor {
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(field).read("tags").writeAll().build();
+    }
+
     private Object getValue(List<Grok.MatchValue> matchValues) {
         List<Map<String, Object>> valueList = matchValues.stream().map(matchValue -> {
             Map<String, Object> value = new HashMap<>();
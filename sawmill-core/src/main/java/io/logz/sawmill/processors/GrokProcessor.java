@@ -1,12 +1,20 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
+import io.logz.sawmill.PipelineExecutionMetricsTracker;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
+import io.logz.sawmill.ReportingProcessor;
 import io.logz.sawmill.annotations.ProcessorProvider;
 import io.logz.sawmill.exceptions.ProcessorConfigurationException;
 import io.logz.sawmill.utilities.Grok;
+import io.logz.sawmill.utilities.GrokPrefilter;
 import io.logz.sawmill.utilities.JsonUtils;
+import io.logz.sawmill.utilities.ObjectPool;
+import io.logz.sawmill.utilities.Utf8Buffer;
 import org.apache.commons.collections4.CollectionUtils;
 
 import java.io.BufferedReader;
@@ -18,26 +26,53 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
 
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Collections.EMPTY_LIST;
 import static java.util.Objects.requireNonNull;
 
 @ProcessorProvider(type = "grok", factory = GrokProcessor.Factory.class)
-public class GrokProcessor implements Processor {
-    private final String field;
+public class GrokProcessor implements ReportingProcessor {
+    private static final FieldPath TAGS = FieldPath.of("tags");
+    private static final int MAX_POOLED_INPUT_CAPACITY = 1 << 16;
+    private static final long REORDER_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+    private static final long REPORT_INTERVAL_NS = TimeUnit.SECONDS.toNanos(10);
+    private static final ObjectPool<Utf8Buffer> inputs = new ObjectPool<>(Utf8Buffer::new);
+
+    private final FieldPath field;
     private final List<String> expressions;
     private final List<Grok> groks;
+    private final GrokPrefilter prefilter;
     private final List<String> overwrite;
     private final boolean ignoreMissing;
     private final List<String> tagsOnFailure;
+    private final ExpressionStats[] expressionStats;
+    private final AtomicLong nextReorderTime;
+    private final AtomicLong nextReportTime;
+    private volatile int[] tryOrder;
 
     public GrokProcessor(String field, List<String> matchExpressions, Map<String, String> patternsBank, List<String> overwrite, boolean ignoreMissing, List<String> tagsOnFailure) {
+        this(field, matchExpressions, patternsBank, overwrite, ignoreMissing, tagsOnFailure, false);
+    }
+
+    /**
+     * @param orderIndependent true if any of the expressions matching a doc may capture it, so that the expressions
+     *                         can be tried in the order they matched most often lately rather than in the order given,
+     *                         with hits, misses and time per expression reported to the metrics tracker.
+     *                         The expressions are reordered periodically as docs are processed, and reported by the
+     *                         pipeline executor, see {@link #reportMetrics}
+     */
+    public GrokProcessor(String field, List<String> matchExpressions, Map<String, String> patternsBank, List<String> overwrite, boolean ignoreMissing, List<String> tagsOnFailure, boolean orderIndependent) {
         checkState(CollectionUtils.isNotEmpty(matchExpressions), "patterns cannot be empty");
-        this.field = requireNonNull(field, "field cannot be null");
+        this.field = FieldPath.of(requireNonNull(field, "field cannot be null"));
         this.expressions = matchExpressions;
         this.overwrite = overwrite != null ? overwrite : EMPTY_LIST;
         this.ignoreMissing = ignoreMissing;
@@ -46,6 +81,22 @@ public class GrokProcessor implements Processor {
         this.groks = new ArrayList<>();
 
         compileExpressions(matchExpressions, patternsBank);
+        this.prefilter = new GrokPrefilter(groks);
+        this.tryOrder = IntStream.range(0, groks.size()).toArray();
+
+        if (orderIndependent && groks.size() > 1) {
+            this.expressionStats = new ExpressionStats[groks.size()];
+            for (int i = 0; i < expressionStats.length; i++) {
+                expressionStats[i] = new ExpressionStats();
+            }
+            long now = System.nanoTime();
+            this.nextReorderTime = new AtomicLong(now + REORDER_INTERVAL_NS);
+            this.nextReportTime = new AtomicLong(now);
+        } else {
+            this.expressionStats = null;
+            this.nextReorderTime = null;
+            this.nextReportTime = null;
+        }
     }
 
     private void compileExpressions(List<String> matchExpressions, Map<String, String> patternsBank) {
@@ -62,49 +113,151 @@ public class GrokProcessor implements Processor {
 
     @Override
     public ProcessResult process(Doc doc) throws InterruptedException {
-        if (!doc.hasField(field, String.class)) {
+        if (expressionStats != null && isDue(nextReorderTime, System.nanoTime(), REORDER_INTERVAL_NS)) {
+            reorder();
+        }
+
+        String fieldValue = doc.getFieldIfPresent(field, String.class);
+        if (fieldValue == null) {
             if (ignoreMissing) return ProcessResult.success();
 
-            return ProcessResult.failure(String.format("failed to grok field in path [%s], field is missing or not instance of [%s]", field, String.class));
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to grok field in path [%s], field is missing or not instance of [%s]", field, String.class);
         }
 
-        String fieldValue = doc.getField(field);
+        if (matchAny(fieldValue, (name, value) -> addCapture(doc, name, value))) {
+            return ProcessResult.success();
+        }
 
-        List<Grok.Match> matches = getMatches(fieldValue);
+        doc.getOrCreateList(TAGS).addAll(tagsOnFailure);
+        return ProcessResult.failure(FailureCode.NO_MATCH, "failed to grok field [%s] in path [%s], doesn't match any of the expressions [%s]", fieldValue, field, expressions);
+    }
 
-        if (CollectionUtils.isEmpty(matches)) {
-            doc.appendList("tags", tagsOnFailure);
-            return ProcessResult.failure(String.format("failed to grok field [%s] in path [%s], doesn't match any of the expressions [%s]", fieldValue, field, expressions));
+    /**
+     * Tries the expressions on the value encoded once, until one with captures matches.
+     * An expression without captures is still searched, but never counts as a match
+     */
+    private boolean matchAny(String value, Grok.CaptureConsumer consumer) throws InterruptedException {
+        Utf8Buffer input = inputs.acquire();
+        try {
+            input.encode(value);
+            boolean[] mayMatch = prefilter.mayMatch(value);
+            for (int index : tryOrder) {
+                if ((mayMatch == null || mayMatch[index]) && match(index, input, consumer)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            if (input.capacity() <= MAX_POOLED_INPUT_CAPACITY) {
+                inputs.release(input);
+            }
         }
+    }
 
-        matches.stream()
-                .filter(match -> !CollectionUtils.isEmpty(match.getValues()))
-                .forEach(match -> {
-                    String field = match.getName();
-                    List<Object> matchValues = match.getValues();
-                    Object value = getValue(matchValues);
-                    if (overwrite.contains(field) || !doc.hasField(field)) {
-                        doc.addField(field, value);
-                    } else {
-                        doc.appendList(field, value);
-                    }
-                });
+    private boolean match(int index, Utf8Buffer input, Grok.CaptureConsumer consumer) throws InterruptedException {
+        Grok grok = groks.get(index);
+        if (expressionStats == null) {
+            return grok.match(input.array(), input.length(), consumer) && grok.hasCaptures();
+        }
+
+        long start = System.nanoTime();
+        boolean matched = grok.match(input.array(), input.length(), consumer) && grok.hasCaptures();
+        expressionStats[index].record(matched, System.nanoTime() - start);
+        return matched;
+    }
+
+    /**
+     * Claims the periodic task whose next run time is held by the given time, so only one of the threads runs it
+     */
+    private static boolean isDue(AtomicLong nextTime, long now, long intervalNs) {
+        long next = nextTime.get();
+        return now - next >= 0 && nextTime.compareAndSet(next, now + intervalNs);
+    }
 
-        return ProcessResult.success();
+    /**
+     * Orders the expressions by their hits, halving the weight of older hits on every reorder so the order follows the traffic
+     */
+    synchronized void reorder() {
+        for (ExpressionStats stats : expressionStats) {
+            long hits = stats.hits.sum();
+            stats.score = stats.score / 2 + (hits - stats.orderedHits);
+            stats.orderedHits = hits;
+        }
+
+        tryOrder = IntStream.range(0, expressionStats.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer index) -> expressionStats[index].score).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
     }
 
-    private Object getValue(List<Object> matchValues) {
-        return matchValues.size() == 1 ? matchValues.get(0) : matchValues;
+    List<String> getTryOrder() {
+        List<String> orderedExpressions = new ArrayList<>();
+        for (int index : tryOrder) {
+            orderedExpressions.add(expressions.get(index));
+        }
+        return orderedExpressions;
     }
 
-    private List<Grok.Match> getMatches(String value) throws InterruptedException {
-        for (Grok grok : groks) {
-            List<Grok.Match> captures = grok.matches(value);
-            if (CollectionUtils.isNotEmpty(captures)) {
-                return captures;
+    /**
+     * Reports the metrics of the expressions when due, called by the executor once the processor run is timed
+     */
+    @Override
+    public void reportMetrics(String pipelineId, String processorName, PipelineExecutionMetricsTracker pipelineExecutionMetricsTracker) {
+        if (expressionStats == null) {
+            return;
+        }
+
+        if (!isDue(nextReportTime, System.nanoTime(), REPORT_INTERVAL_NS)) {
+            return;
+        }
+
+        synchronized (this) {
+            for (int i = 0; i < expressionStats.length; i++) {
+                ExpressionStats stats = expressionStats[i];
+                long hits = stats.hits.sum();
+                long misses = stats.misses.sum();
+                long timeTookNs = stats.timeTookNs.sum();
+                if (hits == stats.reportedHits && misses == stats.reportedMisses) continue;
+
+                pipelineExecutionMetricsTracker.processorExpressionTried(pipelineId, processorName, expressions.get(i),
+                        hits - stats.reportedHits, misses - stats.reportedMisses, timeTookNs - stats.reportedTimeTookNs);
+                stats.reportedHits = hits;
+                stats.reportedMisses = misses;
+                stats.reportedTimeTookNs = timeTookNs;
             }
         }
-        return Collections.emptyList();
+    }
+
+    private void addCapture(Doc doc, String field, Object value) {
+        if (overwrite.contains(field)) {
+            doc.addField(field, value);
+        } else if (doc.putIfAbsent(field, value) != null) {
+            doc.appendList(field, value);
+        }
+    }
+
+    @Override
+    public FieldAccess getFieldAccess() {
+        // the captured fields are named by the expressions, so they are not known here
+        return FieldAccess.builder().read(field).read(TAGS).writeAll().build();
+    }
+
+    private static final class ExpressionStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder timeTookNs = new LongAdder();
+
+        // guarded by the processor, updated only by reorder and report
+        private double score;
+        private long orderedHits;
+        private long reportedHits;
+        private long reportedMisses;
+        private long reportedTimeTookNs;
+
+        private void record(boolean matched, long elapsedNs) {
+            (matched ? hits : misses).increment();
+            timeTookNs.add(elapsedNs);
+        }
     }
 
     public static class Factory implements Processor.Factory {
@@ -182,7 +335,8 @@ public class GrokProcessor implements Processor {
                     patternsBank,
                     grokConfig.getOverwrite(),
                     grokConfig.getIgnoreMissing(),
-                    grokConfig.getTagsOnFailure());
+                    grokConfig.getTagsOnFailure(),
+                    grokConfig.getOrderIndependent());
         }
     }
 
@@ -192,6 +346,7 @@ public class GrokProcessor implements Processor {
         private List<String> overwrite = EMPTY_LIST;
         private boolean ignoreMissing = true;
         private List<String> tagsOnFailure = Collections.singletonList("_grokparsefailure");
+        private boolean orderIndependent = false;
 
         public Configuration() { }
 
@@ -214,5 +369,9 @@ public class GrokProcessor implements Processor {
         public List<String> getTagsOnFailure() {
             return tagsOnFailure;
         }
+
+        public boolean getOrderIndependent() {
+            return orderIndependent;
+        }
     }
 }
@@ -1,11 +1,16 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.ExecutionDeadline;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.Template;
 import io.logz.sawmill.TemplateService;
 import io.logz.sawmill.annotations.ProcessorProvider;
+import io.logz.sawmill.utilities.DataFormat;
 import io.logz.sawmill.utilities.JsonUtils;
 import org.apache.commons.lang3.StringUtils;
 
@@ -16,28 +21,55 @@ import static java.util.Objects.requireNonNull;
 
 @ProcessorProvider(type = "json", factory = JsonProcessor.Factory.class)
 public class JsonProcessor implements Processor {
-    private final String field;
+    private static final FieldPath TAGS = FieldPath.of("tags");
+
+    private final FieldPath field;
     private final Template targetField;
+    private final DataFormat binaryFormat;
 
     public JsonProcessor(String field, Template targetField) {
-        this.field = requireNonNull(field, "field cannot be null");
+        this(field, targetField, null);
+    }
+
+    /**
+     * @param binaryFormat format of byte array fields, {@code null} to detect it by the leading bytes of every value
+     */
+    public JsonProcessor(String field, Template targetField, DataFormat binaryFormat) {
+        this.field = FieldPath.of(requireNonNull(field, "field cannot be null"));
         this.targetField = targetField;
+        this.binaryFormat = binaryFormat;
     }
 
     @Override
-    public ProcessResult process(Doc doc) {
-        if (!doc.hasField(field, String.class)) {
-            return ProcessResult.failure(String.format("failed to parse json, couldn't find field [%s] or not instance of [%s]", field, String.class));
+    public ProcessResult process(Doc doc) throws InterruptedException {
+        Object value = doc.getFieldIfPresent(field, Object.class);
+        if (!(value instanceof String) && !(value instanceof byte[])) {
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to parse json, couldn't find field [%s] or not instance of [%s] or [%s]",
+                    field, String.class, byte[].class);
         }
 
         Map<String, Object> jsonMap;
-        String jsonString = doc.getField(field);
-
-        try {
-            jsonMap = JsonUtils.fromJsonString(Map.class, jsonString);
-        } catch (RuntimeException e) {
-            doc.appendList("tags", "_jsonparsefailure");
-            return ProcessResult.failure(String.format("failed to parse json, couldn't deserialize from json [%s]", jsonString));
+        ExecutionDeadline deadline = ExecutionDeadline.current();
+
+        if (value instanceof String) {
+            String jsonString = (String) value;
+            try {
+                jsonMap = JsonUtils.fromJsonString(Map.class, jsonString, deadline);
+            } catch (RuntimeException e) {
+                deadline.check();
+                doc.getOrCreateList(TAGS).add("_jsonparsefailure");
+                return ProcessResult.failure(FailureCode.PARSE_FAILURE, "failed to parse json, couldn't deserialize from json [%s]", jsonString);
+            }
+        } else {
+            byte[] bytes = (byte[]) value;
+            DataFormat format = binaryFormat != null ? binaryFormat : DataFormat.detect(bytes, 0, bytes.length);
+            try {
+                jsonMap = JsonUtils.fromBytes(format, Map.class, bytes, deadline);
+            } catch (RuntimeException e) {
+                deadline.check();
+                doc.getOrCreateList(TAGS).add("_jsonparsefailure");
+                return ProcessResult.failure(FailureCode.PARSE_FAILURE, "failed to parse json, couldn't deserialize from %s of %s bytes", format, bytes.length);
+            }
         }
 
         if (targetField != null) {
@@ -48,6 +80,12 @@ public class JsonProcessor implements Processor {
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        FieldAccess.Builder builder = FieldAccess.builder().read(field).read(TAGS).write(TAGS);
+        return targetField != null ? builder.write(targetField).build() : builder.writeAll().build();
+    }
+
     public static class Factory implements Processor.Factory {
         private final TemplateService templateService;
 
@@ -61,13 +99,14 @@ public class JsonProcessor implements Processor {
             JsonProcessor.Configuration jsonConfig = JsonUtils.fromJsonMap(JsonProcessor.Configuration.class, config);
 
             Template targetField = StringUtils.isEmpty(jsonConfig.getTargetField()) ? null : templateService.createTemplate(jsonConfig.getTargetField());
-            return new JsonProcessor(jsonConfig.getField(), targetField);
+            return new JsonProcessor(jsonConfig.getField(), targetField, jsonConfig.getBinaryFormat());
         }
     }
 
     public static class Configuration implements Processor.Configuration {
         private String field;
         private String targetField;
+        private DataFormat binaryFormat;
 
         public Configuration() { }
 
@@ -79,5 +118,7 @@ public class JsonProcessor implements Processor {
         public String getField() { return field; }
 
         public String getTargetField() { return targetField; }
+
+        public DataFormat getBinaryFormat() { return binaryFormat; }
     }
 }
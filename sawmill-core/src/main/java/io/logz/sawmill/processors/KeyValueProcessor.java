@@ -1,6 +1,10 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.ExecutionDeadline;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.Template;
@@ -39,7 +43,7 @@ public class KeyValueProcessor implements Processor {
     public static final String ANGLE_BRACKETS = "angle-brackets";
     public static final String NORMAL = "normal";
     public static final int MAX_MATCHES = 1000;
-    private final String field;
+    private final FieldPath field;
     private final Template targetField;
     private final Regex pattern;
     private final List<String> includeKeys;
@@ -64,7 +68,7 @@ public class KeyValueProcessor implements Processor {
                              String trim,
                              String trimKey,
                              int maxKeyLength) {
-        this.field = requireNonNull(field, "field cannot be null");
+        this.field = FieldPath.of(requireNonNull(field, "field cannot be null"));
         this.targetField = targetField;
         this.pattern = buildPattern(fieldSplit, valueSplit, includeBrackets);
         this.includeKeys = includeKeys;
@@ -105,14 +109,13 @@ public class KeyValueProcessor implements Processor {
 
     @Override
     public ProcessResult process(Doc doc) throws InterruptedException {
-        if (!doc.hasField(field)) {
-            return ProcessResult.failure(String.format("failed to process kv, couldn't find field [%s]", field));
+        Object kvField = doc.getFieldIfPresent(field, Object.class);
+        if (kvField == null) {
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to process kv, couldn't find field [%s]", field);
         }
 
         Map<String, Object> kvMap = new HashMap<>();
 
-        Object kvField = doc.getField(this.field);
-
         if (kvField instanceof List) {
             for (Object subField : (List) kvField) {
                 if (subField instanceof String) {
@@ -123,7 +126,7 @@ public class KeyValueProcessor implements Processor {
         } else if (kvField instanceof String) {
             kvMap = parse((String) kvField);
         } else {
-            return ProcessResult.failure(String.format("failed to process kv, cannot parse type [%s] of field [%s]", kvField.getClass(), field));
+            return ProcessResult.failure(FailureCode.INVALID_FIELD_TYPE, "failed to process kv, cannot parse type [%s] of field [%s]", kvField.getClass(), field);
         }
 
         if (includeKeys != null) {
@@ -142,6 +145,12 @@ public class KeyValueProcessor implements Processor {
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        FieldAccess.Builder builder = FieldAccess.builder().read(field);
+        return targetField != null ? builder.write(targetField).build() : builder.writeAll().build();
+    }
+
     private String getKey(byte[] message, Region region) {
         int matchNumber = pattern.nameToBackrefNumber(KEY.getBytes(), 0, KEY.getBytes().length, region);
         String key = prefix + trim(extractString(message, region.beg[matchNumber], region.end[matchNumber]), trimKey);
@@ -169,10 +178,14 @@ public class KeyValueProcessor implements Processor {
         Map<String,Object> kvMap = new HashMap<>();
         int matchesCounter = 0;
 
+        ExecutionDeadline deadline = ExecutionDeadline.current();
+        deadline.check();
+
         byte[] messageAsBytes = message.getBytes();
         Matcher matcher = pattern.matcher(messageAsBytes);
+        Runnable interruptMatcher = matcher::interrupt;
 
-        int result = matcher.searchInterruptible(0, messageAsBytes.length, Option.MULTILINE);
+        int result = search(matcher, 0, messageAsBytes.length, deadline, interruptMatcher);
 
         while (result != -1 && matchesCounter < MAX_MATCHES) {
             Region region = matcher.getEagerRegion();
@@ -199,7 +212,7 @@ public class KeyValueProcessor implements Processor {
                 }
             }
             int endOfFullMatch = region.end[0];
-            result = matcher.searchInterruptible(endOfFullMatch, messageAsBytes.length, Option.MULTILINE);
+            result = search(matcher, endOfFullMatch, messageAsBytes.length, deadline, interruptMatcher);
 
             matchesCounter++;
 
@@ -211,6 +224,19 @@ public class KeyValueProcessor implements Processor {
         return kvMap;
     }
 
+    /**
+     * Searches with the matcher interrupted on expiration of the deadline. The hook is registered per search
+     * since values are parsed recursively with their own matchers between searches.
+     */
+    private int search(Matcher matcher, int start, int end, ExecutionDeadline deadline, Runnable interruptMatcher) throws InterruptedException {
+        deadline.onExpired(interruptMatcher);
+        try {
+            return matcher.searchInterruptible(start, end, Option.MULTILINE);
+        } finally {
+            deadline.clearOnExpired();
+        }
+    }
+
     private String getMatchedValue(byte[] message, Region region) {
         Iterator<NameEntry> iterator = pattern.namedBackrefIterator();
 
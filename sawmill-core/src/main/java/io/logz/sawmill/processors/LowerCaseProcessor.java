@@ -1,6 +1,9 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -12,24 +15,29 @@ import static java.util.Objects.requireNonNull;
 
 @ProcessorProvider(type = "lowerCase", factory = LowerCaseProcessor.Factory.class)
 public class LowerCaseProcessor implements Processor {
-    private final String field;
+    private final FieldPath field;
 
     public LowerCaseProcessor(String path) {
-        this.field = requireNonNull(path, "field cannot be null");
+        this.field = FieldPath.of(requireNonNull(path, "field cannot be null"));
     }
 
     @Override
     public ProcessResult process(Doc doc) {
-        if (!doc.hasField(field, String.class)) {
-            return ProcessResult.failure(String.format("failed to lowercase field in path [%s], field is missing or not instance of [%s]", field, String.class));
+        String value = doc.getFieldIfPresent(field, String.class);
+        if (value == null) {
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to lowercase field in path [%s], field is missing or not instance of [%s]", field, String.class);
         }
 
-        String value = doc.getField(field);
         doc.addField(field, value.toLowerCase());
 
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(field).write(field).build();
+    }
+
     public static class Factory implements Processor.Factory {
         public Factory() {
         }
@@ -1,12 +1,15 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
 import io.logz.sawmill.exceptions.ProcessorConfigurationException;
 import io.logz.sawmill.utilities.JsonUtils;
 import io.logz.sawmill.utilities.MathExpressionProvider;
+import net.objecthunter.exp4j.Expression;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -36,29 +39,36 @@ public class MathProcessor implements Processor {
 
         for (String variable : variables) {
             if (!doc.hasField(variable)) {
-                return ProcessResult.failure("field [%s] is missing");
+                return ProcessResult.failure(FailureCode.FIELD_MISSING, "field [%s] is missing", variable);
             }
 
             Double value = resolveVariable(doc, variable);
 
             if (value == null) {
-                return ProcessResult.failure("field [%s] is not a number");
+                return ProcessResult.failure(FailureCode.INVALID_FIELD_TYPE, "field [%s] is not a number", variable);
             }
 
             variablesMap.put(variable, value);
         }
 
-        mathExpressionProvider.provide().setVariables(variablesMap);
-
+        Expression expression = mathExpressionProvider.acquire();
         try {
-            doc.addField(targetField,  mathExpressionProvider.provide().evaluate());
+            expression.setVariables(variablesMap);
+            doc.addField(targetField, expression.evaluate());
         } catch (ArithmeticException e) {
-            return ProcessResult.failure("Division by zero!");
+            return ProcessResult.failure(FailureCode.INVALID_VALUE, "Division by zero!");
+        } finally {
+            mathExpressionProvider.release(expression);
         }
 
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(variables).write(targetField).build();
+    }
+
     private Double resolveVariable(Doc doc, String variable) {
         Object fieldValue = doc.getField(variable);
         return (Double) DOUBLE.convertFrom(fieldValue);
@@ -76,7 +86,11 @@ public class MathProcessor implements Processor {
 
             MathExpressionProvider mathExpressionProvider = new MathExpressionProvider(trimMustache(expression), variables);
 
-            if (!mathExpressionProvider.provide().validate(false).isValid()) {
+            Expression mathExpression = mathExpressionProvider.acquire();
+            boolean valid = mathExpression.validate(false).isValid();
+            mathExpressionProvider.release(mathExpression);
+
+            if (!valid) {
                 throw new ProcessorConfigurationException(String.format("invalid expression [%s]", expression));
             }
 
@@ -1,6 +1,7 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.Template;
@@ -33,6 +34,13 @@ public class RemoveFieldProcessor implements Processor {
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        FieldAccess.Builder builder = FieldAccess.builder();
+        fields.forEach(field -> builder.read(field).write(field));
+        return builder.build();
+    }
+
     public static class Factory implements Processor.Factory {
         private final TemplateService templateService;
 
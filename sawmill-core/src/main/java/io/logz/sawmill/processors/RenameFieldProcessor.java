@@ -1,6 +1,8 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.Template;
@@ -43,12 +45,19 @@ public class RenameFieldProcessor implements Processor {
         }
 
         if (!missingFields.isEmpty()) {
-            return ProcessResult.failure(String.format("failed to rename fields [%s], fields are missing", missingFields));
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to rename fields [%s], fields are missing", missingFields);
         }
 
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        FieldAccess.Builder builder = FieldAccess.builder();
+        renames.forEach((from, to) -> builder.read(from).write(from).write(to));
+        return builder.build();
+    }
+
     public static class Factory implements Processor.Factory {
 
         private final TemplateService templateService;
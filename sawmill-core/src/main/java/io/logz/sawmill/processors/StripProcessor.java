@@ -1,6 +1,8 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -37,12 +39,17 @@ public class StripProcessor implements Processor {
         }
 
         if (CollectionUtils.isNotEmpty(failedFields)) {
-            return ProcessResult.failure(String.format("failed to strip the following fields [%s], fields are missing or not instance of String", failedFields));
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to strip the following fields [%s], fields are missing or not instance of String", failedFields);
         }
 
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(fields).write(fields).build();
+    }
+
     public static class Factory implements Processor.Factory {
         public Factory() {
         }
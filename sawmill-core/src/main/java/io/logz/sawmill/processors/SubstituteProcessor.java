@@ -1,6 +1,9 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -17,22 +20,22 @@ import static java.util.Objects.requireNonNull;
 @ProcessorProvider(type = "gsub", factory = SubstituteProcessor.Factory.class)
 public class SubstituteProcessor implements Processor {
 
-    private final String field;
+    private final FieldPath field;
     private final Pattern pattern;
     private final String replacement;
 
     public SubstituteProcessor(String field, Pattern pattern, String replacement) {
-        this.field = requireNonNull(field, "field cannot be null");
+        this.field = FieldPath.of(requireNonNull(field, "field cannot be null"));
         this.pattern = requireNonNull(pattern, "pattern cannot be null");
         this.replacement = requireNonNull(replacement, "replacement cannot be null");
     }
 
     @Override
     public ProcessResult process(Doc doc) {
-        if (!doc.hasField(field, String.class)) {
-            return ProcessResult.failure(String.format("failed to convert field in path [%s], field is missing or not instance of [%s]", field, String.class));
+        String beforeSubstitute = doc.getFieldIfPresent(field, String.class);
+        if (beforeSubstitute == null) {
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to convert field in path [%s], field is missing or not instance of [%s]", field, String.class);
         }
-        String beforeSubstitute = doc.getField(field);
         Matcher matcher = pattern.matcher(beforeSubstitute);
         String afterSubstitute = matcher.replaceAll(replacement);
 
@@ -40,6 +43,11 @@ public class SubstituteProcessor implements Processor {
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(field).write(field).build();
+    }
+
     public static class Factory implements Processor.Factory {
         public Factory() {
         }
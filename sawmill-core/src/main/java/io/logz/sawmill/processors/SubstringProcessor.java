@@ -1,6 +1,9 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -12,26 +15,25 @@ import static java.util.Objects.requireNonNull;
 
 @ProcessorProvider(type = "substring", factory = SubstringProcessor.Factory.class)
 public class SubstringProcessor implements Processor {
-    private final String field;
+    private final FieldPath field;
     private final Integer begin;
     private final Integer end;
 
     public SubstringProcessor(String field, Integer begin, Integer end) {
-        this.field = requireNonNull(field);
+        this.field = FieldPath.of(requireNonNull(field));
         this.begin = requireNonNull(begin);
         this.end = end;
     }
 
     @Override
     public ProcessResult process(Doc doc) {
-        if (!doc.hasField(field, String.class)) {
-            return ProcessResult.failure(String.format("failed to substring field [%s], field is missing or not instance of String", field));
+        String value = doc.getFieldIfPresent(field, String.class);
+        if (value == null) {
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to substring field [%s], field is missing or not instance of String", field);
         }
 
-        String value = doc.getField(field);
-
         if (value.length() <= begin) {
-            return ProcessResult.failure(String.format("failed to substring field [%s], value [%s] is shorter than beginIndex [%s]", field, value, begin));
+            return ProcessResult.failure(FailureCode.INVALID_VALUE, "failed to substring field [%s], value [%s] is shorter than beginIndex [%s]", field, value, begin);
         }
 
         String substring;
@@ -46,6 +48,11 @@ public class SubstringProcessor implements Processor {
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(field).write(field).build();
+    }
+
     public static class Factory implements Processor.Factory {
         public Factory() {
         }
@@ -1,6 +1,9 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.Template;
@@ -16,31 +19,30 @@ import static java.util.Objects.requireNonNull;
 
 @ProcessorProvider(type = "translate", factory = TranslateProcessor.Factory.class)
 public class TranslateProcessor implements Processor {
-    private final String field;
-    private final String targetField;
+    private final FieldPath field;
+    private final FieldPath targetField;
     private final Map<String, String> dictionary;
     private final Template fallback;
 
     public TranslateProcessor(String field, String targetField, Map<String, String> dictionary, Template fallback) {
-        this.field = requireNonNull(field, "field cannot be null");
-        this.targetField = requireNonNull(targetField, "targetField cannot be null");
+        this.field = FieldPath.of(requireNonNull(field, "field cannot be null"));
+        this.targetField = FieldPath.of(requireNonNull(targetField, "targetField cannot be null"));
         this.dictionary = requireNonNull(dictionary, "dictionary cannot be null");
         this.fallback = fallback;
     }
 
     @Override
     public ProcessResult process(Doc doc) {
-        if (!doc.hasField(field, String.class)) {
-            return ProcessResult.failure(String.format("failed to translate field in path [%s], field is missing or not instance of String", field));
+        String value = doc.getFieldIfPresent(field, String.class);
+        if (value == null) {
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to translate field in path [%s], field is missing or not instance of String", field);
         }
 
-        String value = doc.getField(this.field);
-
         String translation = dictionary.get(value);
 
         if (translation == null) {
             if (fallback == null) {
-                return ProcessResult.failure(String.format("failed to translate field in path [%s], value=[%s] is not in dictionary", field, value));
+                return ProcessResult.failure(FailureCode.NO_MATCH, "failed to translate field in path [%s], value=[%s] is not in dictionary", field, value);
             }
 
             doc.addField(targetField, fallback.render(doc));
@@ -51,6 +53,11 @@ public class TranslateProcessor implements Processor {
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(field).render(fallback).write(targetField).build();
+    }
+
     public static class Factory implements Processor.Factory {
         private final TemplateService templateService;
 
@@ -1,6 +1,8 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -36,12 +38,17 @@ public class UpperCaseProcessor implements Processor {
         }
 
         if (!missingFields.isEmpty()) {
-            return ProcessResult.failure(String.format("failed to lowercase fields in path [%s], fields are missing or not instance of [%s]", missingFields, String.class));
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to lowercase fields in path [%s], fields are missing or not instance of [%s]", missingFields, String.class);
         }
 
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        return FieldAccess.builder().read(fields).write(fields).build();
+    }
+
     public static class Factory implements Processor.Factory {
         public Factory() {
         }
@@ -1,6 +1,9 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.ExecutionDeadline;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
@@ -9,6 +12,8 @@ import io.logz.sawmill.utilities.JsonUtils;
 
 import java.net.URLDecoder;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -27,34 +32,76 @@ public class UrlDecodeProcessor implements Processor {
 
     @Override
     public ProcessResult process(Doc doc) throws InterruptedException {
-        Map<String,Object> map = doc.getSource();
         if(allFields) {
-            urlDecodeMap(map);
+            Map<String,Object> sourceView = doc.getSourceView();
+            Map<String,Object> decodedMap = urlDecodeMap(sourceView, ExecutionDeadline.current());
+            if (decodedMap != sourceView) {
+                doc.replace(decodedMap);
+            }
         }else if(doc.hasField(field)){
             doc.replaceFieldValue(field,decodeUrl(doc.getField(field)));
         }else{
-            return ProcessResult.failure(String.format("failed to decode field [%s], field is missing", field));
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to decode field [%s], field is missing", field);
         }
         return ProcessResult.success();
     }
 
-    private Map<String,Object> urlDecodeMap(Map<String, Object> map) throws InterruptedException {
+    @Override
+    public FieldAccess getFieldAccess() {
+        return allFields ? FieldAccess.ALL : FieldAccess.builder().read(field).write(field).build();
+    }
+
+    /**
+     * @return the map itself if none of its values change, so unchanged parts of the doc are not copied
+     */
+    private Map<String,Object> urlDecodeMap(Map<String, Object> map, ExecutionDeadline deadline) throws InterruptedException {
 
+        Map<String,Object> mapClone = null;
+        int index = 0;
         for(Map.Entry<String, Object> entry: map.entrySet()){
-            entry.setValue(urlDecodeObject(entry.getValue()));
+            Object value = urlDecodeObject(entry.getValue(), deadline);
+            if (mapClone == null && value != entry.getValue()) {
+                mapClone = copyHead(map, index);
+            }
+            if (mapClone != null) {
+                mapClone.put(entry.getKey(), value);
+            }
+            index++;
+        }
+        return mapClone != null ? mapClone : map;
+    }
+
+    private Map<String,Object> copyHead(Map<String, Object> map, int length) {
+        Map<String,Object> head = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (head.size() == length) break;
+            head.put(entry.getKey(), entry.getValue());
+        }
+        return head;
+    }
+
+    private List<Object> urlDecodeList(List<Object> list, ExecutionDeadline deadline) throws InterruptedException {
+        List<Object> listClone = null;
+        for (int i = 0; i < list.size(); i++) {
+            Object value = urlDecodeObject(list.get(i), deadline);
+            if (listClone == null && value != list.get(i)) {
+                listClone = new ArrayList<>(list.subList(0, i));
+            }
+            if (listClone != null) {
+                listClone.add(value);
+            }
         }
-        return map;
+        return listClone != null ? listClone : list;
     }
 
-    private Object urlDecodeObject(Object value) throws InterruptedException {
-        if(Thread.currentThread().isInterrupted()) throw new InterruptedException();
-        if(value instanceof String) value = decodeUrl((String) value);
-        else if(value instanceof Map)  urlDecodeMap((Map<String, Object>) value);
-        else if(value instanceof List) {
-          for(int i=0;i<((List) value).size();i++){
-              ((List) value).set(i, urlDecodeObject(((List) value).get(i)));
-          }
+    private Object urlDecodeObject(Object value, ExecutionDeadline deadline) throws InterruptedException {
+        deadline.check();
+        if(value instanceof String) {
+            String decoded = decodeUrl((String) value);
+            return decoded.equals(value) ? value : decoded;
         }
+        if(value instanceof Map) return urlDecodeMap((Map<String, Object>) value, deadline);
+        if(value instanceof List) return urlDecodeList((List<Object>) value, deadline);
         return value;
     }
 
@@ -1,6 +1,9 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.Template;
@@ -11,6 +14,7 @@ import io.logz.sawmill.utilities.UserAgentParserProvider;
 import org.apache.commons.lang3.StringUtils;
 import ua_parser.Client;
 import ua_parser.OS;
+import ua_parser.Parser;
 import ua_parser.UserAgent;
 
 import javax.inject.Inject;
@@ -23,7 +27,9 @@ import static java.util.Objects.requireNonNull;
 
 @ProcessorProvider(type = "userAgent", factory = UserAgentProcessor.Factory.class)
 public class UserAgentProcessor implements Processor {
-    private final String field;
+    private static final FieldPath TAGS = FieldPath.of("tags");
+
+    private final FieldPath field;
     private final Template targetField;
     private final String prefix;
     private final int truncatedInputLength;
@@ -31,7 +37,7 @@ public class UserAgentProcessor implements Processor {
     private final UserAgentParserProvider uaParserProvider;
 
     public UserAgentProcessor(String field, Template targetField, String prefix, int truncatedInputLength, List<String> tagOnTruncated, UserAgentParserProvider userAgentParserProvider) {
-        this.field = requireNonNull(field, "field cannot be null");
+        this.field = FieldPath.of(requireNonNull(field, "field cannot be null"));
         this.targetField = targetField;
         this.prefix = prefix != null ? prefix : "";
         this.uaParserProvider = requireNonNull(userAgentParserProvider);
@@ -40,19 +46,24 @@ public class UserAgentProcessor implements Processor {
     }
 
     @Override
-    public ProcessResult process(Doc doc) {
-        if (!doc.hasField(field, String.class)) {
-            return ProcessResult.failure(String.format("failed to parse user agent, couldn't find field [%s] or not instance of [%s]", field, String.class));
+    public ProcessResult process(Doc doc) throws InterruptedException {
+        String uaString = doc.getFieldIfPresent(field, String.class);
+        if (uaString == null) {
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to parse user agent, couldn't find field [%s] or not instance of [%s]", field, String.class);
         }
 
-        String uaString = doc.getField(field);
-
         if (uaString.length() > truncatedInputLength) {
             uaString = uaString.substring(0, truncatedInputLength);
-            doc.appendList("tags", tagOnTruncated);
+            doc.appendList(TAGS, tagOnTruncated);
         }
 
-        Client client = uaParserProvider.provide().parse(uaString);
+        Parser parser = uaParserProvider.acquire();
+        Client client;
+        try {
+            client = parser.parse(uaString);
+        } finally {
+            uaParserProvider.release(parser);
+        }
 
         Map<String, String> userAgent = new HashMap<>();
         if (client.userAgent != null) {
@@ -85,6 +96,12 @@ public class UserAgentProcessor implements Processor {
         return ProcessResult.success();
     }
 
+    @Override
+    public FieldAccess getFieldAccess() {
+        FieldAccess.Builder builder = FieldAccess.builder().read(field).read(TAGS).write(TAGS);
+        return targetField != null ? builder.write(targetField).build() : builder.writeAll().build();
+    }
+
     private void setOsProperties(OS os, Map<String, String> userAgent) {
         StringBuilder fullOSName = new StringBuilder(os.family);
 
@@ -1,9 +1,14 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
+import io.logz.sawmill.ExecutionDeadline;
+import io.logz.sawmill.FieldAccess;
+import io.logz.sawmill.FieldPath;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.Processor;
 import io.logz.sawmill.annotations.ProcessorProvider;
+import io.logz.sawmill.utilities.DeadlineStreams;
 import io.logz.sawmill.utilities.DocumentBuilderProvider;
 import io.logz.sawmill.utilities.JsonUtils;
 import io.logz.sawmill.utilities.XPathExpressionProvider;
@@ -16,7 +21,9 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -24,6 +31,7 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,40 +44,47 @@ public class XmlProcessor implements Processor {
     private static final Logger logger = LoggerFactory.getLogger(XmlProcessor.class);
 
     private final DocumentBuilderProvider documentBuilderProvider;
-    private final String field;
+    private final FieldPath field;
     private final String targetField;
     private final Map<XPathExpressionProvider, String> xpath;
     private final boolean storeXml;
 
     public XmlProcessor(DocumentBuilderProvider documentBuilderProvider, String field, String targetField, Map<XPathExpressionProvider, String> xpath, boolean storeXml) {
         this.documentBuilderProvider = requireNonNull(documentBuilderProvider);
-        this.field = requireNonNull(field);
+        this.field = FieldPath.of(requireNonNull(field));
         this.targetField = targetField;
-        this.xpath = xpath;
+        this.xpath = xpath != null ? xpath : Collections.emptyMap();
         this.storeXml = storeXml;
     }
 
     @Override
-    public ProcessResult process(Doc doc) {
-        if (!doc.hasField(field, String.class)) {
-            return ProcessResult.failure("failed to parse xml in path [" + field + "], field is missing or not instance of String");
+    public ProcessResult process(Doc doc) throws InterruptedException {
+        String value = doc.getFieldIfPresent(field, String.class);
+        if (value == null) {
+            return ProcessResult.failure(FailureCode.FIELD_MISSING, "failed to parse xml in path [%s], field is missing or not instance of String", field);
         }
 
-        String value = doc.getField(this.field);
         Document parsed;
+        ExecutionDeadline deadline = ExecutionDeadline.current();
 
+        DocumentBuilder documentBuilder = documentBuilderProvider.acquire();
         try {
             InputStream inputStream = new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
-            parsed = documentBuilderProvider.provide().parse(inputStream);
+            parsed = documentBuilder.parse(DeadlineStreams.inputStream(inputStream, deadline));
         } catch (SAXException | IOException e) {
-            return ProcessResult.failure("failed to parse xml in path [" + field + "] with value [" + value + "], errorMsg=[" + e.getMessage() + "]");
+            deadline.check();
+            return ProcessResult.failure(FailureCode.PARSE_FAILURE, "failed to parse xml in path [%s] with value [%s], errorMsg=[%s]", field, value, e.getMessage());
+        } finally {
+            documentBuilderProvider.release(documentBuilder);
         }
 
         if (MapUtils.isNotEmpty(xpath)) {
             for (Map.Entry<XPathExpressionProvider, String> item : xpath.entrySet()) {
+                XPathExpressionProvider xPathExpressionProvider = item.getKey();
+                XPathExpression xPathExpression = xPathExpressionProvider.acquire();
                 try {
                     Object evaluate;
-                    NodeList nodeList = (NodeList) item.getKey().provide().evaluate(parsed, XPathConstants.NODESET);
+                    NodeList nodeList = (NodeList) xPathExpression.evaluate(parsed, XPathConstants.NODESET);
                     if (nodeList.getLength() == 0) continue;
                     if (nodeList.getLength() == 1) {
                         evaluate = nodeList.item(0).getTextContent();
@@ -92,12 +107,14 @@ public class XmlProcessor implements Processor {
                     }
                 } catch (XPathExpressionException e) {
                     logger.trace("xpath evaluation failed", e);
+                } finally {
+                    xPathExpressionProvider.release(xPathExpression);
                 }
             }
         }
 
         if (storeXml) {
-            Map<String, Object> xmlNodes = extractNodes(parsed);
+            Map<String, Object> xmlNodes = extractNodes(parsed, deadline);
             if (StringUtils.isNotEmpty(targetField)) {
                 doc.addField(targetField, xmlNodes);
             } else {
@@ -108,11 +125,23 @@ public class XmlProcessor implements Processor {
         return ProcessResult.success();
     }
 
-    private Map<String, Object> extractNodes(Node parent) {
+    @Override
+    public FieldAccess getFieldAccess() {
+        FieldAccess.Builder builder = FieldAccess.builder().read(field).read(xpath.values()).write(xpath.values());
+        if (!storeXml) {
+            return builder.build();
+        }
+
+        // without a target field the top level xml nodes become fields, their names are only known per doc
+        return StringUtils.isNotEmpty(targetField) ? builder.write(targetField).build() : builder.writeAll().build();
+    }
+
+    private Map<String, Object> extractNodes(Node parent, ExecutionDeadline deadline) throws InterruptedException {
         Map<String, Object> xmlNodes = new HashMap<>();
         NodeList nodes = parent.getChildNodes();
 
         for (int i = 0; i < nodes.getLength(); i++) {
+            deadline.check();
             Node node = nodes.item(i);
 
             String key = node.getNodeName();
@@ -123,7 +152,7 @@ public class XmlProcessor implements Processor {
                     && node.getChildNodes().item(0).getNodeValue() != null ) {
                 value = node.getChildNodes().item(0).getNodeValue();
             } else {
-                value = extractNodes(node);
+                value = extractNodes(node, deadline);
             }
 
             xmlNodes.compute(key, (k, oldVal) -> {
@@ -161,7 +190,7 @@ public class XmlProcessor implements Processor {
                                 Map.Entry::getValue));
 
                 // Initiate to prevent invalid expression
-                xpath.keySet().forEach(XPathExpressionProvider::provide);
+                xpath.keySet().forEach(provider -> provider.release(provider.acquire()));
             }
 
             return new XmlProcessor(documentBuilderProvider,
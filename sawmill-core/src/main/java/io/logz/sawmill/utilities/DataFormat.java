@@ -0,0 +1,43 @@
+package io.logz.sawmill.utilities;
+
+/**
+ * Encodings of json values {@link JsonUtils} reads and writes
+ */
+public enum DataFormat {
+    JSON,
+    /**
+     * Binary json of Jackson, https://github.com/FasterXML/smile-format-specification
+     */
+    SMILE,
+    /**
+     * Concise binary object representation, RFC 8949
+     */
+    CBOR;
+
+    private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+    private static final byte[] CBOR_SELF_DESCRIBE_TAG = {(byte) 0xD9, (byte) 0xD9, (byte) 0xF7};
+
+    /**
+     * Tells the format of an encoded object by its first bytes: smile by its header, cbor by its self describe tag
+     * or by starting with a map, which json cannot start with, and json otherwise
+     */
+    public static DataFormat detect(byte[] bytes, int offset, int length) {
+        if (startsWith(bytes, offset, length, SMILE_HEADER)) {
+            return SMILE;
+        }
+        if (startsWith(bytes, offset, length, CBOR_SELF_DESCRIBE_TAG) || (length > 0 && (bytes[offset] & 0xE0) == 0xA0)) {
+            return CBOR;
+        }
+        return JSON;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[offset + i] != prefix[i]) return false;
+        }
+        return true;
+    }
+}
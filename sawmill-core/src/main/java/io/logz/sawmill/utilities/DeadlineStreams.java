@@ -0,0 +1,70 @@
+package io.logz.sawmill.utilities;
+
+import io.logz.sawmill.ExecutionDeadline;
+
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+
+/**
+ * Streams checking an {@link ExecutionDeadline} on every read, so parsers reading them in chunks stop midway once it expires
+ */
+public class DeadlineStreams {
+
+    private DeadlineStreams() {}
+
+    /**
+     * @return input stream failing with {@link InterruptedIOException} once the deadline expires
+     */
+    public static InputStream inputStream(InputStream inputStream, ExecutionDeadline deadline) {
+        if (deadline == ExecutionDeadline.NONE) {
+            return inputStream;
+        }
+
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                check(deadline);
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                check(deadline);
+                return super.read(b, off, len);
+            }
+        };
+    }
+
+    /**
+     * @return reader failing with {@link InterruptedIOException} once the deadline expires
+     */
+    public static Reader reader(Reader reader, ExecutionDeadline deadline) {
+        if (deadline == ExecutionDeadline.NONE) {
+            return reader;
+        }
+
+        return new FilterReader(reader) {
+            @Override
+            public int read() throws IOException {
+                check(deadline);
+                return super.read();
+            }
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                check(deadline);
+                return super.read(cbuf, off, len);
+            }
+        };
+    }
+
+    private static void check(ExecutionDeadline deadline) throws InterruptedIOException {
+        if (deadline.isExpired()) {
+            throw new InterruptedIOException("execution deadline expired");
+        }
+    }
+}
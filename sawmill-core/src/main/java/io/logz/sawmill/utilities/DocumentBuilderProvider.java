@@ -1,10 +1,12 @@
 package io.logz.sawmill.utilities;
 
+import com.google.common.base.Suppliers;
 import io.logz.sawmill.exceptions.ProcessorConfigurationException;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import java.util.function.Supplier;
 
 public class DocumentBuilderProvider {
 
@@ -13,26 +15,47 @@ public class DocumentBuilderProvider {
     private static final String EXTERNAL_PARAMETER_ENTITIES = "http://xml.org/sax/features/external-parameter-entities";
     private static final String LOAD_EXTERNAL_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
 
-    private final ThreadLocal<DocumentBuilder> localDocumentBuilder;
+    private final ObjectPool<DocumentBuilder> documentBuilderPool;
+    private final Supplier<ThreadLocal<DocumentBuilder>> localDocumentBuilder;
 
     public DocumentBuilderProvider() {
-        localDocumentBuilder = ThreadLocal.withInitial(() -> {
-            try {
-                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-                factory.setFeature(DISALLOW_DOCTYPE, true);
-                factory.setFeature(EXTERNAL_GENERAL_ENTITIES, false);
-                factory.setFeature(EXTERNAL_PARAMETER_ENTITIES, false);
-                factory.setFeature(LOAD_EXTERNAL_DTD, false);
-                factory.setXIncludeAware(false);
-                factory.setExpandEntityReferences(false);
-                return factory.newDocumentBuilder();
-            } catch (ParserConfigurationException e) {
-                throw new ProcessorConfigurationException("failed to create document builder", e);
-            }
-        });
+        documentBuilderPool = new ObjectPool<>(DocumentBuilderProvider::createDocumentBuilder);
+        localDocumentBuilder = Suppliers.memoize(() -> ThreadLocal.withInitial(DocumentBuilderProvider::createDocumentBuilder));
     }
 
+    /**
+     * @return a document builder confined to the calling thread
+     * @deprecated keeps a document builder per thread, use {@link #acquire()} and {@link #release(DocumentBuilder)} instead
+     */
+    @Deprecated
     public DocumentBuilder provide() {
-        return localDocumentBuilder.get();
+        return localDocumentBuilder.get().get();
+    }
+
+    /**
+     * @return a document builder for exclusive use, must be handed back with {@link #release(DocumentBuilder)}
+     */
+    public DocumentBuilder acquire() {
+        return documentBuilderPool.acquire();
+    }
+
+    public void release(DocumentBuilder documentBuilder) {
+        documentBuilder.reset();
+        documentBuilderPool.release(documentBuilder);
+    }
+
+    private static DocumentBuilder createDocumentBuilder() {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(DISALLOW_DOCTYPE, true);
+            factory.setFeature(EXTERNAL_GENERAL_ENTITIES, false);
+            factory.setFeature(EXTERNAL_PARAMETER_ENTITIES, false);
+            factory.setFeature(LOAD_EXTERNAL_DTD, false);
+            factory.setXIncludeAware(false);
+            factory.setExpandEntityReferences(false);
+            return factory.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new ProcessorConfigurationException("failed to create document builder", e);
+        }
     }
 }
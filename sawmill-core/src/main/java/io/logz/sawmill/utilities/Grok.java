@@ -1,5 +1,6 @@
 package io.logz.sawmill.utilities;
 
+import io.logz.sawmill.ExecutionDeadline;
 import io.logz.sawmill.FieldType;
 import org.apache.commons.lang3.StringUtils;
 import org.joni.Matcher;
@@ -33,6 +34,8 @@ public final class Grok {
     private final Map<String, String> patternBank;
     private final boolean namedOnly;
     private final Regex compiledExpression;
+    private final List<String> requiredLiterals;
+    private final Capture[] captures;
 
     public Grok(Map<String, String> patternBank, String grokPattern) {
         this(patternBank, grokPattern, true);
@@ -41,14 +44,33 @@ public final class Grok {
     public Grok(Map<String, String> patternBank, String grokPattern, boolean namedOnly) {
         this.patternBank = patternBank;
         this.namedOnly = namedOnly;
-        this.compiledExpression = compilePattern(grokPattern);
+        String expandedPattern = parsePattern(grokPattern);
+        this.compiledExpression = compilePattern(expandedPattern);
+        this.requiredLiterals = RegexLiterals.required(expandedPattern);
+        this.captures = resolveCaptures();
     }
 
-    private Regex compilePattern(String grokPattern) {
-        byte[] bytes = parsePattern(grokPattern).getBytes();
+    private Capture[] resolveCaptures() {
+        List<Capture> captures = new ArrayList<>();
+        for (Iterator<NameEntry> iterator = compiledExpression.namedBackrefIterator(); iterator.hasNext();) {
+            NameEntry entry = iterator.next();
+            captures.add(new Capture(extractString(entry.name, entry.nameP, entry.nameEnd), entry.getBackRefs()));
+        }
+        return captures.toArray(new Capture[0]);
+    }
+
+    private Regex compilePattern(String expandedPattern) {
+        byte[] bytes = expandedPattern.getBytes();
         return new Regex(bytes, 0, bytes.length, Option.MULTILINE);
     }
 
+    /**
+     * @return substrings every text the grok matches contains, empty if none is known
+     */
+    List<String> getRequiredLiterals() {
+        return requiredLiterals;
+    }
+
     private String parsePattern(String grokPattern) {
         byte[] grokPatternBytes = grokPattern.getBytes(StandardCharsets.UTF_8);
         Matcher matcher = GROK_PATTERN_REGEX.matcher(grokPatternBytes);
@@ -92,38 +114,83 @@ public final class Grok {
         patternBank.put(patternName, definition);
     }
 
-    public List<Match> matches(String text) throws InterruptedException {
-        if (Thread.interrupted()) {
-            throw new InterruptedException();
-        }
+    /**
+     * @return true if the expression has named captures, a match of an expression without them captures nothing
+     */
+    public boolean hasCaptures() {
+        return captures.length > 0;
+    }
 
-        List<Match> matches = new ArrayList<>();
+    public List<Match> matches(String text) throws InterruptedException {
         byte[] textAsBytes = text.getBytes(StandardCharsets.UTF_8);
-        Matcher matcher = compiledExpression.matcher(textAsBytes);
-        int result = matcher.searchInterruptible(0, textAsBytes.length, Option.MULTILINE);
-        boolean matchNotFound = result == -1;
-        if (matchNotFound) {
+        Matcher matcher = search(textAsBytes, textAsBytes.length);
+        if (matcher == null) {
             return null;
         }
-        if (result == INTERRUPTED) {
-            throw new InterruptedException();
-        }
-        if (compiledExpression.numberOfNames() == 0) {
+
+        List<Match> matches = new ArrayList<>(captures.length);
+        if (captures.length == 0) {
             return matches;
         }
 
         Region region = matcher.getEagerRegion();
-        for (Iterator<NameEntry> iterator = compiledExpression.namedBackrefIterator(); iterator.hasNext();) {
-            NameEntry entry = iterator.next();
-            String groupName = extractString(entry.name, entry.nameP, entry.nameEnd);
-            int[] matchNumbers = entry.getBackRefs();
-
-            matches.add(match(groupName, region, textAsBytes, matchNumbers));
+        for (Capture capture : captures) {
+            matches.add(match(capture.groupName, region, textAsBytes, capture.backRefs));
         }
 
         return matches;
     }
 
+    /**
+     * Matches utf-8 text, e.g. encoded once with {@link Utf8Buffer} for all the groks tried on it, and hands the
+     * non empty captures to the consumer without building {@link Match} objects
+     * @return true if the text matched, once all the captures were handed to the consumer
+     */
+    public boolean match(byte[] text, int length, CaptureConsumer consumer) throws InterruptedException {
+        Matcher matcher = search(text, length);
+        if (matcher == null) {
+            return false;
+        }
+        if (captures.length == 0) {
+            return true;
+        }
+
+        Region region = matcher.getEagerRegion();
+        for (Capture capture : captures) {
+            Object value = capture.value(region, text);
+            if (value != null) {
+                consumer.accept(capture.name, value);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the matcher positioned on the first match, or null if the text does not match
+     */
+    private Matcher search(byte[] text, int length) throws InterruptedException {
+        ExecutionDeadline deadline = ExecutionDeadline.current();
+        deadline.check();
+
+        Matcher matcher = compiledExpression.matcher(text, 0, length);
+        int result;
+        // joni checks the interrupt flag of the matcher at most every 32768 steps, which bounds the work after expiration
+        deadline.onExpired(matcher::interrupt);
+        try {
+            result = matcher.searchInterruptible(0, length, Option.MULTILINE);
+        } finally {
+            deadline.clearOnExpired();
+        }
+        boolean matchNotFound = result == -1;
+        if (matchNotFound) {
+            return null;
+        }
+        if (result == INTERRUPTED) {
+            throw new InterruptedException();
+        }
+        return matcher;
+    }
+
     private String matchPatternValue(String groupName, Region region, String pattern) {
         try {
             int matchNumber = GROK_PATTERN_REGEX.nameToBackrefNumber(groupName.getBytes(StandardCharsets.UTF_8), 0,
@@ -169,7 +236,7 @@ public final class Grok {
         return matchValues;
     }
 
-    private Object convertValue(String value, FieldType type) {
+    private static Object convertValue(String value, FieldType type) {
         Object valueAfterConvert = type.convertFrom(value, 0L);
         if (valueAfterConvert == null) {
             return value;
@@ -178,7 +245,7 @@ public final class Grok {
         return valueAfterConvert;
     }
 
-    private String extractString(byte[] original, int start, int end) {
+    private static String extractString(byte[] original, int start, int end) {
         try {
             return new String(original, start, end - start, StandardCharsets.UTF_8);
         } catch (StringIndexOutOfBoundsException e) {
@@ -186,6 +253,59 @@ public final class Grok {
         }
     }
 
+    /**
+     * Receives the captures of {@link #match(byte[], int, CaptureConsumer)}
+     */
+    public interface CaptureConsumer {
+        /**
+         * @param value the converted value, or a list of them if several groups of the expression share the name
+         */
+        void accept(String name, Object value);
+    }
+
+    /**
+     * A name of the expression, resolved once with its type and the groups it captures
+     */
+    private static final class Capture {
+        private final String groupName;
+        private final String name;
+        private final FieldType type;
+        private final int[] backRefs;
+
+        private Capture(String groupName, int[] backRefs) {
+            String[] parts = groupName.split(":");
+            this.groupName = groupName;
+            this.name = parts[0];
+            this.type = parts.length == 2 ? FieldType.tryParseOrDefault(parts[1]) : STRING;
+            this.backRefs = backRefs;
+        }
+
+        /**
+         * @return the non empty value of the group, a list of them if there are several, or null if none
+         */
+        private Object value(Region region, byte[] text) {
+            Object value = null;
+            List<Object> values = null;
+            for (int backRef : backRefs) {
+                int start = region.beg[backRef];
+                int end = region.end[backRef];
+                if (start < 0 || start == end) continue;
+
+                Object convertedValue = convertValue(extractString(text, start, end), type);
+                if (value == null) {
+                    value = convertedValue;
+                } else {
+                    if (values == null) {
+                        values = new ArrayList<>(backRefs.length);
+                        values.add(value);
+                    }
+                    values.add(convertedValue);
+                }
+            }
+            return values != null ? values : value;
+        }
+    }
+
     public final class Match {
         private final String name;
         private final List<MatchValue> values;
@@ -0,0 +1,89 @@
+package io.logz.sawmill.utilities;
+
+import org.ahocorasick.trie.Trie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rules out the groks that cannot match a text since it lacks one of their required literals, with a single
+ * Aho-Corasick scan of the text over the literals of all the groks.
+ * <p>Groks without known literals are always candidates. A single grok, or groks without any known literal,
+ * are returned as is without scanning.
+ */
+public class GrokPrefilter {
+    private final List<Grok> groks;
+    private final Trie trie;
+    private final Map<String, Integer> literalIds;
+    private final int[][] grokLiteralIds;
+
+    public GrokPrefilter(List<Grok> groks) {
+        this.groks = Collections.unmodifiableList(new ArrayList<>(groks));
+        this.literalIds = new HashMap<>();
+        this.grokLiteralIds = new int[groks.size()][];
+
+        for (int i = 0; i < groks.size(); i++) {
+            List<String> literals = groks.get(i).getRequiredLiterals();
+            grokLiteralIds[i] = new int[literals.size()];
+            for (int j = 0; j < literals.size(); j++) {
+                Integer literalId = literalIds.get(literals.get(j));
+                if (literalId == null) {
+                    literalId = literalIds.size();
+                    literalIds.put(literals.get(j), literalId);
+                }
+                grokLiteralIds[i][j] = literalId;
+            }
+        }
+
+        this.trie = groks.size() < 2 || literalIds.isEmpty() ? null : Trie.builder().addKeywords(literalIds.keySet()).build();
+    }
+
+    /**
+     * @return the groks that may match the text, in their original order
+     */
+    public List<Grok> candidates(String text) {
+        boolean[] mayMatch = mayMatch(text);
+        if (mayMatch == null) {
+            return groks;
+        }
+
+        List<Grok> candidates = new ArrayList<>(groks.size());
+        for (int i = 0; i < groks.size(); i++) {
+            if (mayMatch[i]) {
+                candidates.add(groks.get(i));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * @return per index of the groks whether it may match the text, or null if all of them may
+     */
+    public boolean[] mayMatch(String text) {
+        if (trie == null) {
+            return null;
+        }
+
+        boolean[] foundLiterals = new boolean[literalIds.size()];
+        trie.parseText(text, emit -> {
+            foundLiterals[literalIds.get(emit.getKeyword())] = true;
+            return true;
+        });
+
+        boolean[] mayMatch = new boolean[groks.size()];
+        for (int i = 0; i < groks.size(); i++) {
+            mayMatch[i] = containsAll(foundLiterals, grokLiteralIds[i]);
+        }
+        return mayMatch;
+    }
+
+    private static boolean containsAll(boolean[] foundLiterals, int[] literalIds) {
+        for (int literalId : literalIds) {
+            if (!foundLiterals[literalId]) return false;
+        }
+        return true;
+    }
+}
@@ -1,13 +1,23 @@
 package io.logz.sawmill.utilities;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import io.logz.sawmill.ExecutionDeadline;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -17,18 +27,40 @@ import java.util.Set;
 public class JsonUtils {
 
     private static final ObjectMapper mapper;
+    private static final ObjectMapper smileMapper;
+    private static final ObjectMapper cborMapper;
+    private static final ObjectWriter streamWriter;
+    private static final ObjectWriter generatorWriter;
+    private static final ObjectWriter smileStreamWriter;
+    private static final ObjectWriter cborStreamWriter;
 
     static {
-        mapper = new ObjectMapper();
+        mapper = configure(new ObjectMapper());
+        mapper.configure(JsonParser.Feature.ALLOW_BACKSLASH_ESCAPING_ANY_CHARACTER, true);
+        smileMapper = configure(new ObjectMapper(new SmileFactory()));
+        cborMapper = configure(new ObjectMapper(new CBORFactory()));
+
+        streamWriter = mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generatorWriter = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        smileStreamWriter = smileMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        cborStreamWriter = cborMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
 
+    private static ObjectMapper configure(ObjectMapper mapper) {
         mapper.configure(SerializationFeature.WRITE_NULL_MAP_VALUES, false);
         mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
         mapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
         mapper.enable(DeserializationFeature.READ_ENUMS_USING_TO_STRING);
         mapper.enable(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL);
-        mapper.configure(JsonParser.Feature.ALLOW_BACKSLASH_ESCAPING_ANY_CHARACTER, true);
         mapper.registerModule(new AfterburnerModule());
+        return mapper;
+    }
 
+    /**
+     * Streaming parser over utf-8 json, with the same features as the deserialization methods
+     */
+    public static JsonParser createParser(byte[] json, int offset, int length) throws IOException {
+        return mapper.getFactory().createParser(json, offset, length);
     }
 
     public static <T> T fromJsonString(Class<T> type, String json) {
@@ -44,6 +76,68 @@ public class JsonUtils {
         }
     }
 
+    /**
+     * Deserializes the json while checking the deadline, so a huge json is abandoned midway once the deadline expires
+     */
+    public static <T> T fromJsonString(Class<T> type, String json, ExecutionDeadline deadline) {
+        if (deadline == ExecutionDeadline.NONE) {
+            return fromJsonString(type, json);
+        }
+        if (json == null || json.isEmpty()) {
+            throw new RuntimeException("json is either null or empty (json = "+json+")");
+        }
+
+        try {
+            return mapper.readValue(DeadlineStreams.reader(new StringReader(json), deadline), type);
+        }
+        catch (Exception e) {
+            throw new RuntimeException("failed to deserialize object type="+type+" from json="+json, e);
+        }
+    }
+
+    public static <T> T fromJsonBytes(Class<T> type, byte[] json, int offset, int length) {
+        try {
+            return mapper.readValue(json, offset, length, type);
+        }
+        catch (Exception e) {
+            throw new RuntimeException("failed to deserialize object type="+type+" from json="+
+                    org.apache.commons.lang3.StringUtils.abbreviate(new String(json, offset, length, StandardCharsets.UTF_8), 100), e);
+        }
+    }
+
+    /**
+     * Deserializes json, smile or cbor with the same semantics as json
+     */
+    public static <T> T fromBytes(DataFormat format, Class<T> type, byte[] bytes, int offset, int length) {
+        if (format == DataFormat.JSON) {
+            return fromJsonBytes(type, bytes, offset, length);
+        }
+
+        try {
+            return mapperOf(format).readValue(bytes, offset, length, type);
+        }
+        catch (Exception e) {
+            throw new RuntimeException("failed to deserialize object type="+type+" from "+format+" of "+length+" bytes", e);
+        }
+    }
+
+    /**
+     * Deserializes while checking the deadline, so a huge object is abandoned midway once the deadline expires
+     * @see #fromBytes(DataFormat, Class, byte[], int, int)
+     */
+    public static <T> T fromBytes(DataFormat format, Class<T> type, byte[] bytes, ExecutionDeadline deadline) {
+        if (deadline == ExecutionDeadline.NONE) {
+            return fromBytes(format, type, bytes, 0, bytes.length);
+        }
+
+        try {
+            return mapperOf(format).readValue(DeadlineStreams.inputStream(new ByteArrayInputStream(bytes), deadline), type);
+        }
+        catch (Exception e) {
+            throw new RuntimeException("failed to deserialize object type="+type+" from "+format+" of "+bytes.length+" bytes", e);
+        }
+    }
+
     public static <T> T fromJsonString(TypeReference<T> typeReference, String json) {
         if (json == null || json.isEmpty()) {
             throw new RuntimeException("json is either null or empty (json = "+json+")");
@@ -76,7 +170,21 @@ public class JsonUtils {
         ByteArrayOutputStream stream = new ByteArrayOutputStream();
         try {
             mapper.writeValue(stream, jsonObject);
-            return stream.toString();
+            return new String(stream.toByteArray(), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new RuntimeException("failed to serialize object ="+
+                    org.apache.commons.lang3.StringUtils.abbreviate(jsonObject.toString(), 100)
+                    +" to json. Error = "+e.getMessage(), e);
+        }
+    }
+
+    public static byte[] toJsonBytes(Object jsonObject) {
+        if (jsonObject == null) { return null; }
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            writeJson(stream, jsonObject);
+            return stream.toByteArray();
         } catch (Exception e) {
             throw new RuntimeException("failed to serialize object ="+
                     org.apache.commons.lang3.StringUtils.abbreviate(jsonObject.toString(), 100)
@@ -84,6 +192,70 @@ public class JsonUtils {
         }
     }
 
+    /**
+     * Writes the object as utf-8 json to the stream, leaving the stream open
+     */
+    public static void writeJson(OutputStream stream, Object jsonObject) throws IOException {
+        streamWriter.writeValue(stream, jsonObject);
+    }
+
+    /**
+     * Writes the object as json, smile or cbor to the stream, leaving the stream open
+     */
+    public static void writeValue(DataFormat format, OutputStream stream, Object jsonObject) throws IOException {
+        switch (format) {
+            case SMILE:
+                smileStreamWriter.writeValue(stream, jsonObject);
+                break;
+            case CBOR:
+                cborStreamWriter.writeValue(stream, jsonObject);
+                break;
+            default:
+                streamWriter.writeValue(stream, jsonObject);
+        }
+    }
+
+    public static byte[] toBytes(DataFormat format, Object jsonObject) {
+        if (jsonObject == null) { return null; }
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            writeValue(format, stream, jsonObject);
+            return stream.toByteArray();
+        } catch (Exception e) {
+            throw new RuntimeException("failed to serialize object ="+
+                    org.apache.commons.lang3.StringUtils.abbreviate(jsonObject.toString(), 100)
+                    +" to "+format+". Error = "+e.getMessage(), e);
+        }
+    }
+
+    private static ObjectMapper mapperOf(DataFormat format) {
+        switch (format) {
+            case SMILE:
+                return smileMapper;
+            case CBOR:
+                return cborMapper;
+            default:
+                return mapper;
+        }
+    }
+
+    /**
+     * Writes the object as the next value of the generator, without flushing it
+     */
+    public static void writeJson(JsonGenerator generator, Object jsonObject) throws IOException {
+        generatorWriter.writeValue(generator, jsonObject);
+    }
+
+    /**
+     * Utf-8 json generator with the same features as the serialization methods, which leaves the stream open when closed
+     */
+    public static JsonGenerator createGenerator(OutputStream stream) throws IOException {
+        JsonGenerator generator = mapper.getFactory().createGenerator(stream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
     public static String createJson(Map<String, Object> map) {
         return toJsonString(map);
     }
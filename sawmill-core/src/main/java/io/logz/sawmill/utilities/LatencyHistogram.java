@@ -0,0 +1,198 @@
+package io.logz.sawmill.utilities;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free histogram of nanosecond latencies, laid out like HdrHistogram.
+ * <p>Values are counted in log-linear buckets, 32 sub-buckets per power of 2, so the relative error of a reported
+ * value is below 1/32 and the memory of a stripe is fixed at 8KB regardless of the values recorded.
+ * Values above {@link #MAX_VALUE} (~68 seconds) are counted as {@link #MAX_VALUE}.
+ * <p>Recording is a single compare-and-set. Counts start on a single stripe, and stripes are added whenever recording
+ * threads collide, up to {@link #MAX_STRIPES}, so a histogram takes 8KB when uncontended and at most 32KB.
+ * The cap is fixed rather than following the number of cores, since an executor keeps a histogram per processor.
+ */
+public class LatencyHistogram {
+    public static final long MAX_VALUE = (1L << 36) - 1;
+    public static final int MAX_STRIPES = 4;
+
+    private static final int SUB_BUCKET_COUNT_MAGNITUDE = 6;
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = SUB_BUCKET_COUNT_MAGNITUDE - 1;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+    private static final long SUB_BUCKET_MASK = (1 << SUB_BUCKET_COUNT_MAGNITUDE) - 1;
+    private static final int LEADING_ZERO_COUNT_BASE = 64 - SUB_BUCKET_COUNT_MAGNITUDE;
+    private static final int COUNTS_LENGTH = countsIndex(MAX_VALUE) + 1;
+    private static final int SUM_INDEX = COUNTS_LENGTH;
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes;
+    private final AtomicInteger stripeMask;
+    private long[] lastInterval;
+
+    public LatencyHistogram() {
+        this.stripes = new AtomicReferenceArray<>(MAX_STRIPES);
+        this.stripes.set(0, newStripe());
+        this.stripeMask = new AtomicInteger();
+    }
+
+    private static AtomicLongArray newStripe() {
+        return new AtomicLongArray(COUNTS_LENGTH + 1);
+    }
+
+    public void record(long valueNs) {
+        record(valueNs, 1);
+    }
+
+    /**
+     * Records the value {@code count} times, e.g. for a value sampled 1 in {@code count}
+     */
+    public void record(long valueNs, long count) {
+        long value = Math.min(Math.max(valueNs, 0), MAX_VALUE);
+        int index = countsIndex(value);
+
+        int mask = stripeMask.get();
+        AtomicLongArray stripe = stripes.get((int) Thread.currentThread().getId() & mask);
+        long current = stripe.get(index);
+        if (!stripe.compareAndSet(index, current, current + count)) {
+            stripe.addAndGet(index, count);
+            addStripe(mask);
+        }
+        stripe.addAndGet(SUM_INDEX, value * count);
+    }
+
+    private void addStripe(int mask) {
+        if (mask + 1 >= MAX_STRIPES) {
+            return;
+        }
+
+        int grownMask = (mask << 1) | 1;
+        for (int i = mask + 1; i <= grownMask; i++) {
+            stripes.compareAndSet(i, null, newStripe());
+        }
+        stripeMask.compareAndSet(mask, grownMask);
+    }
+
+    int getStripeCount() {
+        return stripeMask.get() + 1;
+    }
+
+    /**
+     * @return all the values recorded so far
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(sumStripes());
+    }
+
+    /**
+     * @return the values recorded since the previous interval snapshot, or since creation for the first one
+     */
+    public synchronized Snapshot intervalSnapshot() {
+        long[] counts = sumStripes();
+        long[] interval = counts.clone();
+        if (lastInterval != null) {
+            for (int i = 0; i < interval.length; i++) {
+                interval[i] -= lastInterval[i];
+            }
+        }
+        lastInterval = counts;
+        return new Snapshot(interval);
+    }
+
+    private long[] sumStripes() {
+        long[] counts = new long[COUNTS_LENGTH + 1];
+        for (int s = 0; s < MAX_STRIPES; s++) {
+            AtomicLongArray stripe = stripes.get(s);
+            if (stripe == null) {
+                continue;
+            }
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return counts;
+    }
+
+    private static int countsIndex(long value) {
+        int bucketIndex = LEADING_ZERO_COUNT_BASE - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + (subBucketIndex - SUB_BUCKET_HALF_COUNT);
+    }
+
+    private static long lowestEquivalentValue(int index) {
+        int bucketIndex = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+        int subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+        if (bucketIndex < 0) {
+            subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+            bucketIndex = 0;
+        }
+        return (long) subBucketIndex << bucketIndex;
+    }
+
+    private static long highestEquivalentValue(int index) {
+        int bucketIndex = Math.max((index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1, 0);
+        return lowestEquivalentValue(index) + (1L << bucketIndex) - 1;
+    }
+
+    /**
+     * Immutable copy of the histogram counts
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long totalCount;
+
+        private Snapshot(long[] counts) {
+            this.counts = counts;
+            long totalCount = 0;
+            for (int i = 0; i < COUNTS_LENGTH; i++) {
+                totalCount += counts[i];
+            }
+            this.totalCount = totalCount;
+        }
+
+        public long getCount() {
+            return totalCount;
+        }
+
+        public double getMean() {
+            return totalCount == 0 ? 0 : (double) counts[SUM_INDEX] / totalCount;
+        }
+
+        public long getMin() {
+            for (int i = 0; i < COUNTS_LENGTH; i++) {
+                if (counts[i] > 0) {
+                    return lowestEquivalentValue(i);
+                }
+            }
+            return 0;
+        }
+
+        public long getMax() {
+            for (int i = COUNTS_LENGTH - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return highestEquivalentValue(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the highest value that the given percentile of the recorded values are lower than or equal to
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (totalCount == 0) {
+                return 0;
+            }
+
+            long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * totalCount));
+            long count = 0;
+            for (int i = 0; i < COUNTS_LENGTH; i++) {
+                count += counts[i];
+                if (count >= countAtPercentile) {
+                    return highestEquivalentValue(i);
+                }
+            }
+            return getMax();
+        }
+    }
+}
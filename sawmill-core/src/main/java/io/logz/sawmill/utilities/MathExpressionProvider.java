@@ -1,27 +1,49 @@
 package io.logz.sawmill.utilities;
 
+import com.google.common.base.Suppliers;
 import io.logz.sawmill.exceptions.ProcessorConfigurationException;
 import net.objecthunter.exp4j.Expression;
 import net.objecthunter.exp4j.ExpressionBuilder;
 
 import java.util.Set;
+import java.util.function.Supplier;
 
 public class MathExpressionProvider {
-    private final ThreadLocal<Expression> localExpression;
+    private final ObjectPool<Expression> expressionPool;
+    private final Supplier<ThreadLocal<Expression>> localExpression;
 
     public MathExpressionProvider(String expression, Set<String> variables) {
-        localExpression = ThreadLocal.withInitial(() -> {
-            try {
-                return new ExpressionBuilder(expression)
-                        .variables(variables)
-                        .build();
-            } catch (IllegalArgumentException e) {
-                throw new ProcessorConfigurationException(String.format("invalid expression [%s]", expression));
-            }
-        });
+        expressionPool = new ObjectPool<>(() -> createExpression(expression, variables));
+        localExpression = Suppliers.memoize(() -> ThreadLocal.withInitial(() -> createExpression(expression, variables)));
     }
 
+    /**
+     * @return an expression confined to the calling thread
+     * @deprecated keeps an expression per thread, use {@link #acquire()} and {@link #release(Expression)} instead
+     */
+    @Deprecated
     public Expression provide() {
-        return localExpression.get();
+        return localExpression.get().get();
+    }
+
+    /**
+     * @return an expression for exclusive use, must be handed back with {@link #release(Expression)}
+     */
+    public Expression acquire() {
+        return expressionPool.acquire();
+    }
+
+    public void release(Expression expression) {
+        expressionPool.release(expression);
+    }
+
+    private static Expression createExpression(String expression, Set<String> variables) {
+        try {
+            return new ExpressionBuilder(expression)
+                    .variables(variables)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            throw new ProcessorConfigurationException(String.format("invalid expression [%s]", expression));
+        }
     }
 }
@@ -0,0 +1,141 @@
+package io.logz.sawmill.utilities;
+
+import io.logz.sawmill.ExecutionDeadline;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A pool of reusable objects which are not thread safe, with a bounded number of idle objects.
+ * <p>Unlike a {@link ThreadLocal} the number of pooled objects is bound by the concurrency actually in use
+ * and not by the number of threads that ever touched it, so it stays small with virtual threads.
+ * Objects are created on demand when the pool is empty, and dropped on release when the pool is full.
+ * Idle objects are kept in a fixed array of slots, so acquiring and releasing allocate nothing.
+ * <p>For objects which are expensive to create, a bound on the objects in use can be set as well. Such a pool is
+ * blocking, acquiring waits for a release once that many objects are in use instead of creating another one, and
+ * should be acquired with {@link #acquire(ExecutionDeadline)} so the wait ends when the execution expires.
+ */
+public class ObjectPool<T> {
+    public static final int DEFAULT_MAX_IDLE = Runtime.getRuntime().availableProcessors() * 2;
+    private static final long DEADLINE_CHECK_INTERVAL_MS = 10;
+
+    private final Supplier<T> factory;
+    private final AtomicReferenceArray<T> idle;
+    private final Semaphore permits;
+
+    public ObjectPool(Supplier<T> factory) {
+        this(factory, DEFAULT_MAX_IDLE);
+    }
+
+    public ObjectPool(Supplier<T> factory, int maxIdle) {
+        this(factory, maxIdle, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxInUse max objects handed out at the same time, {@link Integer#MAX_VALUE} for no bound
+     */
+    public ObjectPool(Supplier<T> factory, int maxIdle, int maxInUse) {
+        checkState(maxIdle > 0, "maxIdle must be positive");
+        checkState(maxInUse >= maxIdle, "maxInUse must not be lower than maxIdle");
+        this.factory = requireNonNull(factory, "factory cannot be null");
+        this.idle = new AtomicReferenceArray<>(maxIdle);
+        this.permits = maxInUse == Integer.MAX_VALUE ? null : new Semaphore(maxInUse);
+    }
+
+    /**
+     * A blocking pool which never creates more than {@code size} objects, acquiring waits when all of them are in use
+     */
+    public static <T> ObjectPool<T> bounded(Supplier<T> factory, int size) {
+        return new ObjectPool<>(factory, size, size);
+    }
+
+    /**
+     * @return an idle object, or a newly created one if none is idle. Must be handed back with {@link #release(Object)}.
+     * On a bounded pool, waits without a time limit while all the objects are in use and keeps waiting when interrupted
+     */
+    public T acquire() {
+        if (permits != null) {
+            // the interrupt status is kept for the caller to act on
+            permits.acquireUninterruptibly();
+        }
+        return acquirePermitted();
+    }
+
+    /**
+     * Same as {@link #acquire()}, but on a bounded pool stops waiting once the deadline expires
+     * @throws InterruptedException if the deadline expired or the thread was interrupted while waiting
+     */
+    public T acquire(ExecutionDeadline deadline) throws InterruptedException {
+        if (permits != null) {
+            while (!permits.tryAcquire(DEADLINE_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                deadline.check();
+            }
+        }
+        return acquirePermitted();
+    }
+
+    private T acquirePermitted() {
+        int start = startSlot();
+        for (int i = 0; i < idle.length(); i++) {
+            int slot = (start + i) % idle.length();
+            T object = idle.get(slot);
+            if (object != null && idle.compareAndSet(slot, object, null)) {
+                return object;
+            }
+        }
+
+        try {
+            return factory.get();
+        } catch (RuntimeException e) {
+            if (permits != null) {
+                permits.release();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Hands an object back to the pool, the object must not be used by the caller afterwards
+     * @param object an object previously returned by {@link #acquire()}
+     */
+    public void release(T object) {
+        if (object == null) {
+            return;
+        }
+
+        // a full pool drops the object
+        int start = startSlot();
+        for (int i = 0; i < idle.length(); i++) {
+            int slot = (start + i) % idle.length();
+            if (idle.get(slot) == null && idle.compareAndSet(slot, null, object)) {
+                break;
+            }
+        }
+
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    public int getIdleCount() {
+        int count = 0;
+        for (int i = 0; i < idle.length(); i++) {
+            if (idle.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Threads start scanning the slots at different offsets, so concurrent threads rarely contend on the same slot
+     */
+    private int startSlot() {
+        return (int) (Thread.currentThread().getId() % idle.length());
+    }
+}
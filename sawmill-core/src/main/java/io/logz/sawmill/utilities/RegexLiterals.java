@@ -0,0 +1,270 @@
+package io.logz.sawmill.utilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Literal substrings every match of an Oniguruma regex contains, for ruling out texts that cannot match without searching them.
+ * <p>The analysis is conservative: literals under an alternation, an optional quantifier or a lookaround are not required,
+ * and a regex using syntax it does not know, e.g. inline options that may ignore case, has no required literals.
+ */
+final class RegexLiterals {
+    private static final int OPTIONAL = 0;
+    private static final int ONCE = 1;
+    private static final int REPEATED = 2;
+
+    private final String regex;
+    private int position;
+
+    private RegexLiterals(String regex) {
+        this.regex = regex;
+    }
+
+    /**
+     * @return literals every match of the regex contains, empty if none is known
+     */
+    static List<String> required(String regex) {
+        RegexLiterals regexLiterals = new RegexLiterals(regex);
+        try {
+            List<String> literals = regexLiterals.parseSequence();
+            return regexLiterals.position == regex.length() ? literals : Collections.emptyList();
+        } catch (UnsupportedSyntaxException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Parses up to the end of the enclosing group
+     */
+    private List<String> parseSequence() {
+        List<String> literals = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        boolean alternation = false;
+
+        while (position < regex.length()) {
+            char c = regex.charAt(position);
+            if (c == ')') break;
+            if (c == '|') {
+                alternation = true;
+                position++;
+                flush(run, literals);
+                continue;
+            }
+
+            String literal = null;
+            List<String> groupLiterals = null;
+            if (c == '\\') {
+                literal = parseEscape();
+            } else if (c == '[') {
+                skipClass();
+            } else if (c == '(') {
+                groupLiterals = parseGroup();
+            } else if (c == '.' || c == '^' || c == '$') {
+                position++;
+            } else if (c == '*' || c == '+' || c == '?' || (c == '{' && quantifierEnd(position) != -1)) {
+                throw new UnsupportedSyntaxException();
+            } else {
+                int length = Character.charCount(regex.codePointAt(position));
+                literal = regex.substring(position, position + length);
+                position += length;
+            }
+
+            int repetition = parseQuantifiers();
+            if (literal != null && repetition != OPTIONAL) {
+                run.append(literal);
+                if (repetition == REPEATED) flush(run, literals);
+            } else {
+                flush(run, literals);
+                if (groupLiterals != null && repetition != OPTIONAL) literals.addAll(groupLiterals);
+            }
+        }
+
+        flush(run, literals);
+        return alternation ? new ArrayList<>() : literals;
+    }
+
+    private static void flush(StringBuilder run, List<String> literals) {
+        if (run.length() > 0) {
+            literals.add(run.toString());
+            run.setLength(0);
+        }
+    }
+
+    /**
+     * @return literal char of the escape, or null if it matches anything else
+     */
+    private String parseEscape() {
+        position++;
+        if (position >= regex.length()) throw new UnsupportedSyntaxException();
+        char c = regex.charAt(position++);
+        if (!Character.isLetterOrDigit(c)) {
+            return String.valueOf(c);
+        }
+
+        switch (c) {
+            case 'd': case 'D': case 'w': case 'W': case 's': case 'S': case 'h': case 'H':
+            case 'b': case 'B': case 'A': case 'z': case 'Z': case 'G':
+            case 't': case 'n': case 'r': case 'f': case 'v': case 'a': case 'e':
+                return null;
+            case 'k': case 'g':
+                if (peek() == '<') skipPast('>');
+                else if (peek() == '\'') skipPast('\'');
+                else throw new UnsupportedSyntaxException();
+                return null;
+            case 'p': case 'P':
+                if (peek() != '{') throw new UnsupportedSyntaxException();
+                skipPast('}');
+                return null;
+            case 'x':
+                if (peek() == '{') skipPast('}');
+                else skipHexDigits(2);
+                return null;
+            case 'u':
+                skipHexDigits(4);
+                return null;
+            default:
+                if (Character.isDigit(c)) {
+                    while (Character.isDigit(peek())) position++;
+                    return null;
+                }
+                throw new UnsupportedSyntaxException();
+        }
+    }
+
+    /**
+     * @return literals required by the group, empty for lookarounds and comments
+     */
+    private List<String> parseGroup() {
+        position++;
+        boolean required = true;
+        if (peek() == '?') {
+            position++;
+            char type = peek();
+            if (type == ':' || type == '>') {
+                position++;
+            } else if (type == '=' || type == '!') {
+                position++;
+                required = false;
+            } else if (type == '<') {
+                position++;
+                if (peek() == '=' || peek() == '!') {
+                    position++;
+                    required = false;
+                } else {
+                    skipPast('>');
+                }
+            } else if (type == '\'') {
+                position++;
+                skipPast('\'');
+            } else if (type == '#') {
+                skipPast(')');
+                return Collections.emptyList();
+            } else {
+                throw new UnsupportedSyntaxException();
+            }
+        }
+
+        List<String> literals = parseSequence();
+        if (peek() != ')') throw new UnsupportedSyntaxException();
+        position++;
+        return required ? literals : Collections.emptyList();
+    }
+
+    private void skipClass() {
+        position++;
+        if (peek() == '^') position++;
+        if (peek() == ']') position++;
+        while (position < regex.length()) {
+            char c = regex.charAt(position);
+            if (c == '\\') {
+                position += 2;
+            } else if (c == '[') {
+                skipClass();
+            } else if (c == ']') {
+                position++;
+                return;
+            } else {
+                position++;
+            }
+        }
+        throw new UnsupportedSyntaxException();
+    }
+
+    /**
+     * @return {@link #OPTIONAL}, {@link #ONCE} or {@link #REPEATED} for the quantifiers following an atom
+     */
+    private int parseQuantifiers() {
+        int repetition = ONCE;
+        while (position < regex.length()) {
+            char c = regex.charAt(position);
+            int minimum;
+            if (c == '*' || c == '?') {
+                minimum = 0;
+                position++;
+            } else if (c == '+') {
+                minimum = 1;
+                position++;
+            } else if (c == '{' && quantifierEnd(position) != -1) {
+                int end = quantifierEnd(position);
+                minimum = 0;
+                for (int i = position + 1; i < end && regex.charAt(i) != ','; i++) {
+                    if (regex.charAt(i) != '0') minimum = 1;
+                }
+                position = end + 1;
+            } else {
+                break;
+            }
+
+            // lazy or possessive
+            if (peek() == '?' || peek() == '+') position++;
+            repetition = minimum == 0 || repetition == OPTIONAL ? OPTIONAL : REPEATED;
+        }
+        return repetition;
+    }
+
+    /**
+     * @return index of the closing brace of an interval quantifier starting at the index, or -1 if the brace is a literal
+     */
+    private int quantifierEnd(int start) {
+        int index = start + 1;
+        int digits = 0;
+        boolean comma = false;
+        while (index < regex.length()) {
+            char c = regex.charAt(index);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == ',' && !comma) {
+                comma = true;
+            } else if (c == '}') {
+                return digits > 0 ? index : -1;
+            } else {
+                return -1;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    private char peek() {
+        return position < regex.length() ? regex.charAt(position) : 0;
+    }
+
+    private void skipPast(char end) {
+        int index = regex.indexOf(end, position);
+        if (index == -1) throw new UnsupportedSyntaxException();
+        position = index + 1;
+    }
+
+    private void skipHexDigits(int maxDigits) {
+        for (int i = 0; i < maxDigits && Character.digit(peek(), 16) != -1; i++) {
+            position++;
+        }
+    }
+
+    private static class UnsupportedSyntaxException extends RuntimeException {
+        private UnsupportedSyntaxException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.logz.sawmill.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads the bytes allocated by the current thread, through the HotSpot extension of {@link ThreadMXBean}
+ */
+public class ThreadAllocationCounter {
+    private static final Logger logger = LoggerFactory.getLogger(ThreadAllocationCounter.class);
+
+    private static final com.sun.management.ThreadMXBean threadMXBean = supportedThreadMXBean();
+
+    private ThreadAllocationCounter() {}
+
+    private static com.sun.management.ThreadMXBean supportedThreadMXBean() {
+        try {
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+                return null;
+            }
+
+            com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (!allocationMXBean.isThreadAllocatedMemorySupported()) {
+                return null;
+            }
+            if (!allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+                allocationMXBean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return allocationMXBean;
+        } catch (RuntimeException | LinkageError e) {
+            logger.warn("thread allocated memory is not available", e);
+            return null;
+        }
+    }
+
+    public static boolean isSupported() {
+        return threadMXBean != null;
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, or -1 if not available (e.g. on a virtual thread)
+     */
+    public static long currentThreadAllocatedBytes() {
+        if (threadMXBean == null) {
+            return -1;
+        }
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
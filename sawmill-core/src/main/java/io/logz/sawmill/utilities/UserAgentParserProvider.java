@@ -1,25 +1,53 @@
 package io.logz.sawmill.utilities;
 
 
+import com.google.common.base.Suppliers;
 import com.google.common.io.Resources;
+import io.logz.sawmill.ExecutionDeadline;
 import ua_parser.CachingParser;
 import ua_parser.Parser;
 
 import java.io.IOException;
+import java.util.function.Supplier;
 
 public class UserAgentParserProvider {
 
-    private final ThreadLocal<Parser> localParser = ThreadLocal.withInitial(() -> {
+    /**
+     * Each parser loads regexes.yaml and holds its own LRU caches, so the number of parsers is bound
+     * and callers wait for a free one rather than creating more under a burst
+     */
+    private final ObjectPool<Parser> parserPool = ObjectPool.bounded(UserAgentParserProvider::createParser, ObjectPool.DEFAULT_MAX_IDLE);
+    private final Supplier<ThreadLocal<Parser>> localParser = Suppliers.memoize(() -> ThreadLocal.withInitial(UserAgentParserProvider::createParser));
+
+    public UserAgentParserProvider() {}
+
+    /**
+     * @return a parser confined to the calling thread
+     * @deprecated keeps a parser per thread, use {@link #acquire()} and {@link #release(Parser)} instead
+     */
+    @Deprecated
+    public Parser provide() {
+        return localParser.get().get();
+    }
+
+    /**
+     * @return a parser for exclusive use, must be handed back with {@link #release(Parser)}.
+     * Waits while all the parsers are in use, until the deadline of the current execution expires
+     * @throws InterruptedException if the execution expired or the thread was interrupted while waiting
+     */
+    public Parser acquire() throws InterruptedException {
+        return parserPool.acquire(ExecutionDeadline.current());
+    }
+
+    public void release(Parser parser) {
+        parserPool.release(parser);
+    }
+
+    private static Parser createParser() {
         try {
             return new CachingParser(Resources.getResource("regexes.yaml").openStream());
         } catch (IOException e) {
             throw new RuntimeException("Failed to create CachingParser:" + e.getMessage(), e);
         }
-    });
-
-    public UserAgentParserProvider() {}
-
-    public Parser provide() {
-        return localParser.get();
     }
 }
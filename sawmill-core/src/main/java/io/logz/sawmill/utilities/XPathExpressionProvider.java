@@ -1,25 +1,47 @@
 package io.logz.sawmill.utilities;
 
+import com.google.common.base.Suppliers;
 import io.logz.sawmill.exceptions.ProcessorConfigurationException;
 
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
+import java.util.function.Supplier;
 
 public class XPathExpressionProvider {
-    private final ThreadLocal<XPathExpression> localXPathExpression;
+    private final ObjectPool<XPathExpression> xPathExpressionPool;
+    private final Supplier<ThreadLocal<XPathExpression>> localXPathExpression;
 
     public XPathExpressionProvider(String expression) {
-        localXPathExpression = ThreadLocal.withInitial(() -> {
-            try {
-                return XPathFactory.newInstance().newXPath().compile(expression);
-            } catch (XPathExpressionException e) {
-                throw new ProcessorConfigurationException("failed to create xpath expression", e);
-            }
-        });
+        xPathExpressionPool = new ObjectPool<>(() -> createXPathExpression(expression));
+        localXPathExpression = Suppliers.memoize(() -> ThreadLocal.withInitial(() -> createXPathExpression(expression)));
     }
 
+    /**
+     * @return an expression confined to the calling thread
+     * @deprecated keeps an expression per thread, use {@link #acquire()} and {@link #release(XPathExpression)} instead
+     */
+    @Deprecated
     public XPathExpression provide() {
-        return localXPathExpression.get();
+        return localXPathExpression.get().get();
+    }
+
+    /**
+     * @return an expression for exclusive use, must be handed back with {@link #release(XPathExpression)}
+     */
+    public XPathExpression acquire() {
+        return xPathExpressionPool.acquire();
+    }
+
+    public void release(XPathExpression xPathExpression) {
+        xPathExpressionPool.release(xPathExpression);
+    }
+
+    private static XPathExpression createXPathExpression(String expression) {
+        try {
+            return XPathFactory.newInstance().newXPath().compile(expression);
+        } catch (XPathExpressionException e) {
+            throw new ProcessorConfigurationException("failed to create xpath expression", e);
+        }
     }
 }
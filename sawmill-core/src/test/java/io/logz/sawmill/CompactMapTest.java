@@ -0,0 +1,80 @@
+package io.logz.sawmill;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactMapTest {
+
+    @Test
+    public void testBehavesLikeLinkedHashMap() {
+        Random random = new Random(42);
+        CompactMap compactMap = new CompactMap(new KeyDictionary());
+        Map<String, Object> expected = new LinkedHashMap<>();
+
+        for (int i = 0; i < 20000; i++) {
+            String key = "key" + random.nextInt(i < 10000 ? 6 : 60);
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                Object value = random.nextInt(5) == 0 ? null : i;
+                assertThat(compactMap.put(key, value)).isEqualTo(expected.put(key, value));
+            } else if (operation < 9) {
+                assertThat(compactMap.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                Iterator<Map.Entry<String, Object>> iterator = compactMap.entrySet().iterator();
+                if (iterator.hasNext()) {
+                    Map.Entry<String, Object> entry = iterator.next();
+                    iterator.remove();
+                    expected.remove(entry.getKey());
+                }
+            }
+            assertThat(compactMap.containsKey(key)).isEqualTo(expected.containsKey(key));
+            assertThat(compactMap.get(key)).isEqualTo(expected.get(key));
+            assertThat(compactMap.size()).isEqualTo(expected.size());
+        }
+
+        assertThat(new ArrayList<>(compactMap.entrySet())).isEqualTo(new ArrayList<>(expected.entrySet()));
+        assertThat(compactMap).isEqualTo(expected);
+        assertThat(compactMap.hashCode()).isEqualTo(expected.hashCode());
+
+        CompactMap copy = compactMap.copy();
+        copy.put("copied", true);
+        assertThat(compactMap.containsKey("copied")).isFalse();
+
+        compactMap.clear();
+        assertThat(compactMap).isEmpty();
+        compactMap.put("afterClear", 1);
+        assertThat(compactMap.get("afterClear")).isEqualTo(1);
+    }
+
+    @Test
+    public void testKeysAreInterned() {
+        KeyDictionary keyDictionary = new KeyDictionary(2, 5);
+        CompactMap first = new CompactMap(keyDictionary);
+        CompactMap second = new CompactMap(keyDictionary);
+
+        first.put(new String("host"), 1);
+        first.put(new String("toolong"), 1);
+        second.put(new String("host"), 2);
+        second.put(new String("toolong"), 2);
+        second.put(new String("a"), 2);
+        second.put(new String("b"), 2);
+
+        assertThat(keyOf(second, "host")).isSameAs(keyOf(first, "host"));
+        assertThat(keyOf(second, "toolong")).isNotSameAs(keyOf(first, "toolong"));
+        assertThat(keyDictionary.size()).isEqualTo(2);
+        assertThat(keyOf(second, "b")).isNotSameAs(keyDictionary.intern(new String("b")));
+    }
+
+    private static String keyOf(Map<String, Object> map, String key) {
+        List<String> keys = new ArrayList<>(map.keySet());
+        return keys.get(keys.indexOf(key));
+    }
+}
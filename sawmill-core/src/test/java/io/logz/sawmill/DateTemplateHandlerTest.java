@@ -0,0 +1,52 @@
+package io.logz.sawmill;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class DateTemplateHandlerTest {
+
+    @Test
+    public void testPeriodOfFormat() {
+        DateTemplateHandler dateTemplateHandler = new DateTemplateHandler();
+
+        assertThat(dateTemplateHandler.currentDateFormat("yyyy.MM.dd").getPeriodMillis()).isEqualTo(TimeUnit.DAYS.toMillis(1));
+        assertThat(dateTemplateHandler.currentDateFormat("yyyy.MM.dd 'hms'").getPeriodMillis()).isEqualTo(TimeUnit.DAYS.toMillis(1));
+        assertThat(dateTemplateHandler.currentDateFormat("yyyy-MM-dd'T'HH").getPeriodMillis()).isEqualTo(TimeUnit.HOURS.toMillis(1));
+        assertThat(dateTemplateHandler.currentDateFormat("HH:mm:ssXXX").getPeriodMillis()).isEqualTo(TimeUnit.SECONDS.toMillis(1));
+        assertThat(dateTemplateHandler.currentDateFormat("HH:mm:ss.SSS").getPeriodMillis()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testFormatOncePerPeriod() {
+        DateTemplateHandler.CurrentDateFormat currentDateFormat = new DateTemplateHandler().currentDateFormat("yyyy-MM-dd'T'HH");
+        long hourStart = ZonedDateTime.of(2020, 3, 1, 10, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+
+        String formatted = currentDateFormat.format(hourStart + 1000);
+        assertThat(formatted).isEqualTo("2020-03-01T10");
+        assertThat(currentDateFormat.format(hourStart)).isSameAs(formatted);
+        assertThat(currentDateFormat.format(hourStart + TimeUnit.HOURS.toMillis(1) - 1)).isSameAs(formatted);
+        assertThat(currentDateFormat.format(hourStart + TimeUnit.HOURS.toMillis(1))).isEqualTo("2020-03-01T11");
+        assertThat(currentDateFormat.format(hourStart - 1)).isEqualTo("2020-03-01T09");
+    }
+
+    @Test
+    public void testFormatCurrentDate() {
+        String dateFormat = "dd.MM.yyyy";
+        String date = new DateTemplateHandler().dateTemplate().apply(dateFormat);
+
+        assertThat(date).isEqualTo(DateTimeFormatter.ofPattern(dateFormat).format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(System.currentTimeMillis()), ZoneOffset.UTC)));
+    }
+
+    @Test
+    public void testInvalidFormat() {
+        assertThatThrownBy(() -> new DateTemplateHandler().date().apply("hello")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,56 @@
+package io.logz.sawmill;
+
+import io.logz.sawmill.utilities.DataFormat;
+import io.logz.sawmill.utilities.JsonUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import static io.logz.sawmill.utils.DocUtils.createDoc;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DocCodecTest {
+
+    @Test
+    public void testRoundTripHasJsonSemantics() throws Exception {
+        Map<String, Object> source = JsonUtils.createMap("message", "hola ü \"quoted\"", "number", 15, "double", 1.5, "bool", true,
+                "nullValue", null, "object", JsonUtils.createMap("list", JsonUtils.createList(1, "two", null, JsonUtils.createMap("x", 3L))));
+        Map<String, Object> expected = JsonUtils.fromJsonString(Map.class, JsonUtils.toJsonString(source));
+
+        for (DataFormat format : DataFormat.values()) {
+            DocCodec codec = DocCodec.of(format);
+            byte[] bytes = codec.toBytes(new Doc(source));
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            stream.write('x');
+            codec.write(new Doc(source), stream);
+
+            assertThat(codec.getFormat()).isEqualTo(format);
+            assertThat(DataFormat.detect(bytes, 0, bytes.length)).isEqualTo(format);
+            assertThat(codec.read(bytes).getSource()).as(format.name()).isEqualTo(expected);
+            assertThat(codec.read(stream.toByteArray(), 1, bytes.length).getSource()).as(format.name()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void testBinaryFormatsKeepByteArrays() {
+        byte[] payload = {0, 1, 2, (byte) 0xFF};
+        Doc doc = createDoc("payload", payload);
+
+        assertThat((byte[]) DocCodec.SMILE.read(DocCodec.SMILE.toBytes(doc)).getField("payload")).isEqualTo(payload);
+        assertThat((byte[]) DocCodec.CBOR.read(DocCodec.CBOR.toBytes(doc)).getField("payload")).isEqualTo(payload);
+        assertThat((String) DocCodec.JSON.read(DocCodec.JSON.toBytes(doc)).getField("payload")).isEqualTo("AAEC/w==");
+    }
+
+    @Test
+    public void testWriteRawJsonDocAsBinary() {
+        Doc doc = new Doc("{\"message\" : \"hola\", \"object\": {\"nested\": [1, 2]}}".getBytes(StandardCharsets.UTF_8));
+
+        Doc smileDoc = DocCodec.SMILE.read(DocCodec.SMILE.toBytes(doc));
+
+        assertThat((String) smileDoc.getField("message")).isEqualTo("hola");
+        assertThat((Object) smileDoc.getField("object.nested")).isEqualTo(Arrays.asList(1, 2));
+    }
+}
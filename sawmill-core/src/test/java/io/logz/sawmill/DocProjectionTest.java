@@ -0,0 +1,39 @@
+package io.logz.sawmill;
+
+import io.logz.sawmill.utilities.JsonUtils;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DocProjectionTest {
+
+    private final byte[] json = ("{\"message\":\"hola\",\"object\":{\"field\":\"value\"}," +
+            "\"untouched\":{ \"field\" : [1, 2] }}").getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testParseReadFieldsOnly() {
+        DocProjection docProjection = new DocProjection(FieldAccess.builder().read("object.field").write("added").build());
+        assertThat(docProjection.isParseAll()).isFalse();
+        assertThat(docProjection.getParsedFields()).containsExactly("object");
+
+        Doc doc = docProjection.parse(json);
+        assertThat(doc.getSourceView().toString()).isEqualTo("{message=\"hola\", object={field=value}, untouched={ \"field\" : [1, 2] }}");
+
+        doc.addField("added", "value");
+        assertThat((String) doc.getField("message")).isEqualTo("hola");
+        assertThat(new String(doc.toJsonBytes(), StandardCharsets.UTF_8)).isEqualTo(
+                "{\"message\":\"hola\",\"object\":{\"field\":\"value\"},\"untouched\":{ \"field\" : [1, 2] },\"added\":\"value\"}");
+    }
+
+    @Test
+    public void testParseAll() {
+        DocProjection docProjection = new DocProjection(FieldAccess.ALL);
+        assertThat(docProjection.isParseAll()).isTrue();
+
+        Doc doc = docProjection.parse(json);
+        assertThat(doc.getSource()).isEqualTo(JsonUtils.fromJsonString(Map.class, new String(json, StandardCharsets.UTF_8)));
+    }
+}
@@ -7,6 +7,9 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -126,4 +129,243 @@ public class DocTest {
         assertThat(doc.hasField("message." + nonExistentField)).isFalse();
         assertThat(doc.hasField(nonExistentField)).isFalse();
     }
+
+    @Test
+    public void testFieldPathAccessors() {
+        Doc doc = createDoc("message", "hola", "object",
+                JsonUtils.createMap("nestedField", "nestedValue", "field.with.dots", 15));
+
+        FieldPath nested = FieldPath.of("object.nestedField");
+        FieldPath escaped = FieldPath.of("object.field\\.with\\.dots");
+        FieldPath notExists = FieldPath.of("object.notExists");
+
+        assertThat(doc.hasField(nested)).isTrue();
+        assertThat(doc.hasField(escaped, Integer.class)).isTrue();
+        assertThat(doc.hasField(notExists)).isFalse();
+        assertThat((String) doc.getField(nested)).isEqualTo("nestedValue");
+        assertThatThrownBy(() -> doc.getField(notExists)).isInstanceOf(IllegalStateException.class);
+
+        doc.addField(notExists, "value");
+        assertThat((String) doc.getField("object.notExists")).isEqualTo("value");
+
+        assertThat(doc.removeField(escaped)).isTrue();
+        assertThat(doc.removeField(escaped)).isFalse();
+        assertThat(doc.hasField("object.field\\.with\\.dots")).isFalse();
+    }
+
+    @Test
+    public void testGetFieldIfPresent() {
+        Doc doc = createDoc("message", "hola", "int", 15, "object",
+                JsonUtils.createMap("nestedField", "nestedValue"));
+
+        assertThat(doc.getFieldIfPresent(FieldPath.of("message"), String.class)).isEqualTo("hola");
+        assertThat(doc.getFieldIfPresent(FieldPath.of("object.nestedField"), String.class)).isEqualTo("nestedValue");
+        assertThat(doc.getFieldIfPresent(FieldPath.of("int"), String.class)).isNull();
+        assertThat(doc.getFieldIfPresent(FieldPath.of("int"), Integer.class)).isEqualTo(15);
+        assertThat(doc.getFieldIfPresent(FieldPath.of("message.nestedField"), Object.class)).isNull();
+        assertThat(doc.getFieldIfPresent(FieldPath.of("notExists"), Object.class)).isNull();
+    }
+
+    @Test
+    public void testForkCopiesOnWrite() {
+        Map<String, Object> untouched = JsonUtils.createMap("field", "value");
+        Doc doc = createDoc("message", "hola", "object", JsonUtils.createMap("nestedField", "nestedValue"),
+                "untouched", untouched, "list", new ArrayList<>(Arrays.asList("value1")));
+        Doc fork = doc.fork();
+
+        fork.addField("object.newField", "newValue");
+        fork.removeField("message");
+        fork.appendList("list", "value2");
+        doc.addField("object.docField", "docValue");
+        doc.removeFromList("list", "value1");
+
+        assertThat(doc.hasField("object.newField")).isFalse();
+        assertThat((String) doc.getField("message")).isEqualTo("hola");
+        assertThat(((List) doc.getField("list"))).isEqualTo(Arrays.asList());
+        assertThat(fork.hasField("object.docField")).isFalse();
+        assertThat(fork.hasField("message")).isFalse();
+        assertThat((String) fork.getField("object.nestedField")).isEqualTo("nestedValue");
+        assertThat(((List) fork.getField("list"))).isEqualTo(Arrays.asList("value1", "value2"));
+
+        assertThat((Object) fork.getField("untouched")).isSameAs(untouched);
+        assertThat((Object) doc.getField("untouched")).isSameAs(untouched);
+    }
+
+    @Test
+    public void testForkGetSourceCopiesShared() {
+        Map<String, Object> nested = JsonUtils.createMap("field", "value");
+        Doc doc = createDoc("message", "hola", "object", nested);
+        Doc fork = doc.fork();
+
+        Map<String, Object> forkSource = fork.getSource();
+        ((Map<String, Object>) forkSource.get("object")).put("field", "changed");
+        forkSource.put("message", "changed");
+
+        assertThat(fork.getSource()).isSameAs(forkSource);
+        assertThat((String) fork.getField("object.field")).isEqualTo("changed");
+        assertThat((String) doc.getField("object.field")).isEqualTo("value");
+        assertThat((String) doc.getField("message")).isEqualTo("hola");
+        assertThat(nested.get("field")).isEqualTo("value");
+    }
+
+    @Test
+    public void testForkReplace() {
+        Doc doc = createDoc("message", "hola");
+        Doc fork = doc.fork();
+
+        fork.replace(JsonUtils.createMap("other", "value"));
+
+        assertThat(fork.hasField("message")).isFalse();
+        assertThat((String) fork.getField("other")).isEqualTo("value");
+        assertThat((String) doc.getField("message")).isEqualTo("hola");
+        assertThat(doc.hasField("other")).isFalse();
+    }
+
+    @Test
+    public void testTrackJsonSize() {
+        Doc doc = createDoc("message", "hola", "tags", new ArrayList<>(Arrays.asList("a")), "empty", JsonUtils.createMap());
+        doc.trackJsonSize();
+        assertThat(doc.getJsonSize()).isEqualTo(doc.toJsonBytes().length);
+
+        doc.addField("message", "hola ü");
+        doc.addField("new.nested.field", 15);
+        doc.addField("empty.first", true);
+        doc.addField("message.replaced", "map");
+        doc.appendList("tags", JsonUtils.createList("b", "c"));
+        doc.appendList("single", "d");
+        doc.removeFromList("tags", "a");
+        doc.removeField("empty.first");
+        doc.removeField("new.nested");
+        doc.addField("nullValue", null);
+        assertThat(doc.getJsonSize()).isEqualTo(doc.toJsonBytes().length);
+
+        Doc fork = doc.fork();
+        fork.removeField("message");
+        assertThat(fork.getJsonSize()).isEqualTo(fork.toJsonBytes().length);
+        assertThat(doc.getJsonSize()).isEqualTo(doc.toJsonBytes().length);
+
+        doc.getSource().put("direct", "write");
+        assertThat(doc.getJsonSize()).isEqualTo(doc.toJsonBytes().length);
+        doc.addField("after", 1);
+        assertThat(doc.getJsonSize()).isEqualTo(doc.toJsonBytes().length);
+    }
+
+    @Test
+    public void testCompoundOperations() {
+        Doc doc = createDoc("message", "hola", "count", 1, "object", JsonUtils.createMap("list", new ArrayList<>(Arrays.asList("a"))));
+        doc.trackJsonSize();
+        Doc fork = doc.fork();
+
+        assertThat(doc.putIfAbsent("message", "other")).isEqualTo("hola");
+        assertThat(doc.putIfAbsent("new.nested", "value")).isNull();
+        assertThat(doc.compute("count", count -> (int) count + 1)).isEqualTo(2);
+        assertThat(doc.compute("missing.field", value -> null)).isNull();
+        assertThat(doc.hasField("missing")).isFalse();
+        assertThat(doc.compute("message", value -> null)).isNull();
+        assertThat(doc.merge("count", 5, (current, value) -> (int) current + (int) value)).isEqualTo(7);
+        assertThat(doc.merge("merged", 5, (current, value) -> (int) current + (int) value)).isEqualTo(5);
+        doc.getOrCreateList("object.list").add("b");
+        doc.getOrCreateList("tags").add("tag");
+        doc.getOrCreateList("count").add(8);
+
+        assertThat(doc.hasField("message")).isFalse();
+        assertThat((String) doc.getField("new.nested")).isEqualTo("value");
+        assertThat((Object) doc.getField("object.list")).isEqualTo(Arrays.asList("a", "b"));
+        assertThat((Object) doc.getField("tags")).isEqualTo(Arrays.asList("tag"));
+        assertThat((Object) doc.getField("count")).isEqualTo(Arrays.asList(7, 8));
+        assertThat(doc.getJsonSize()).isEqualTo(doc.toJsonBytes().length);
+
+        assertThat((String) fork.getField("message")).isEqualTo("hola");
+        assertThat((int) fork.getField("count")).isEqualTo(1);
+        assertThat((Object) fork.getField("object.list")).isEqualTo(Arrays.asList("a"));
+        assertThat(fork.getJsonSize()).isEqualTo(fork.toJsonBytes().length);
+    }
+
+    @Test
+    public void testCompact() {
+        KeyDictionary keyDictionary = new KeyDictionary();
+        Doc doc = createDoc("message", "hola", "object", JsonUtils.createMap("nested", JsonUtils.createList(JsonUtils.createMap("x", 1))));
+        Map<String, Object> expected = JsonUtils.fromJsonString(Map.class, JsonUtils.toJsonString(doc.getSource()));
+
+        doc.compact(keyDictionary);
+        Doc fork = doc.fork();
+        doc.addField("new.field", JsonUtils.createMap("a", 1));
+        doc.appendList("object.nested", JsonUtils.createMap("y", 2));
+        fork.addField("forked", true);
+
+        assertThat(doc.isCompact()).isTrue();
+        assertThat(doc.getSource()).isInstanceOf(CompactMap.class);
+        assertThat((Object) doc.getField("new")).isInstanceOf(CompactMap.class);
+        assertThat((Object) doc.getField("new.field")).isInstanceOf(CompactMap.class);
+        assertThat(((List) doc.getField("object.nested")).get(1)).isInstanceOf(CompactMap.class);
+        assertThat(fork.hasField("new")).isFalse();
+        assertThat(((List) fork.getField("object.nested")).size()).isEqualTo(1);
+
+        fork.removeField("forked");
+        assertThat(fork.getSource()).isEqualTo(expected);
+        assertThat(keyDictionary.size()).isEqualTo(9);
+    }
+
+    @Test
+    public void testRawJsonDoc() {
+        String json = "{\"message\" : \"hola\", \"object\": {\"nested\": [1, 2]},\n \"untouched\":{ \"field\" : true } , \"number\":15}";
+        Doc doc = new Doc(json.getBytes(StandardCharsets.UTF_8));
+
+        assertThat((String) doc.getField("message")).isEqualTo("hola");
+        assertThat(((List) doc.getField("object.nested"))).isEqualTo(Arrays.asList(1, 2));
+        assertThat(doc.hasField("number", Integer.class)).isTrue();
+        assertThat(doc.hasField("notExists")).isFalse();
+
+        doc.addField("object.newField", "value");
+        doc.removeField("number");
+        doc.addField("added", 3);
+
+        assertThat(new String(doc.toJsonBytes(), StandardCharsets.UTF_8)).isEqualTo(
+                "{\"message\":\"hola\",\"object\":{\"nested\":[1,2],\"newField\":\"value\"},\"untouched\":{ \"field\" : true },\"added\":3}");
+        assertThat(doc.getSource()).isEqualTo(JsonUtils.fromJsonString(Map.class, new String(doc.toJsonBytes(), StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testRawJsonDocWritesNullsAndEscapesLikeMapDoc() {
+        String json = "{\"missing\":null,\"object\":{\"field\":null,\"list\":[1,null]},\"quote\":\"it\\'s\",\"message\":\"a\\\"b\"}";
+        String expected = JsonUtils.toJsonString(JsonUtils.fromJsonString(Map.class, json));
+        Doc doc = new Doc(json.getBytes(StandardCharsets.UTF_8));
+        doc.trackJsonSize();
+
+        assertThat(new String(doc.toJsonBytes(), StandardCharsets.UTF_8)).isEqualTo(expected)
+                .isEqualTo("{\"object\":{\"list\":[1,null]},\"quote\":\"it's\",\"message\":\"a\\\"b\"}");
+        assertThat(doc.getJsonSize()).isEqualTo(expected.length());
+        assertThat(doc.getSource().containsKey("missing")).isTrue();
+        assertThat(doc.removeField("missing")).isFalse();
+        assertThat(doc.replaceFieldValue("quote", "replaced")).isTrue();
+        assertThat((String) doc.getField("quote")).isEqualTo("replaced");
+    }
+
+    @Test
+    public void testRawJsonDocFromByteBuffer() {
+        byte[] bytes = "xx{\"message\":\"hola\",\"name\":\"test\"}yy".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, bytes.length - 4);
+        Doc doc = new Doc(buffer.slice());
+        Doc directDoc = new Doc((ByteBuffer) ByteBuffer.allocateDirect(bytes.length).put(bytes).position(2).limit(bytes.length - 2));
+
+        assertThat((String) doc.getField("name")).isEqualTo("test");
+        assertThat(new String(doc.toJsonBytes(), StandardCharsets.UTF_8)).isEqualTo("{\"message\":\"hola\",\"name\":\"test\"}");
+        assertThat((String) directDoc.getField("message")).isEqualTo("hola");
+        assertThatThrownBy(() -> new Doc("[1]".getBytes(StandardCharsets.UTF_8))).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> new Doc("{}".getBytes(StandardCharsets.UTF_8))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testForkRawJsonDoc() {
+        Doc doc = new Doc("{\"message\":\"hola\",\"object\":{\"field\":\"value\"}}".getBytes(StandardCharsets.UTF_8));
+        Doc fork = doc.fork();
+
+        fork.addField("object.field", "changed");
+        fork.addField("other", "value");
+
+        assertThat((String) doc.getField("object.field")).isEqualTo("value");
+        assertThat(doc.hasField("other")).isFalse();
+        assertThat(new String(doc.toJsonBytes(), StandardCharsets.UTF_8)).isEqualTo("{\"message\":\"hola\",\"object\":{\"field\":\"value\"}}");
+        assertThat(new String(fork.toJsonBytes(), StandardCharsets.UTF_8)).isEqualTo("{\"message\":\"hola\",\"object\":{\"field\":\"changed\"},\"other\":\"value\"}");
+    }
 }
@@ -0,0 +1,66 @@
+package io.logz.sawmill;
+
+import io.logz.sawmill.utilities.JsonUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static io.logz.sawmill.utils.DocUtils.createDoc;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DocWriterTest {
+    private final DocWriter docWriter = new DocWriter();
+
+    @Test
+    public void testWriteDoc() throws Exception {
+        Doc doc = createDoc("message", "hola ü", "object", JsonUtils.createMap("list", JsonUtils.createList(1, 2)));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        docWriter.write(doc, stream);
+
+        assertThat(new String(stream.toByteArray(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"message\":\"hola ü\",\"object\":{\"list\":[1,2]}}\n");
+    }
+
+    @Test
+    public void testWriteBatchOfRawAndMapDocs() throws Exception {
+        Doc rawDoc = new Doc("{\"message\" : \"hola\",\n \"untouched\":{ \"field\" : [true, null] }}".getBytes(StandardCharsets.UTF_8));
+        rawDoc.addField("added", 3);
+        Doc doc = createDoc("name", "test");
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        docWriter.write(Arrays.asList(rawDoc, doc), stream);
+
+        assertThat(new String(stream.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+                "{\"message\":\"hola\",\"untouched\":{ \"field\" : [true, null] },\"added\":3}\n" +
+                "{\"name\":\"test\"}\n");
+    }
+
+    @Test
+    public void testWriteIntoByteBuffer() {
+        Doc doc = createDoc("name", "test");
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.put((byte) 'x');
+
+        int written = docWriter.write(Arrays.asList(doc, doc), buffer);
+
+        assertThat(written).isEqualTo(32);
+        assertThat(new String(buffer.array(), 1, written, StandardCharsets.UTF_8)).isEqualTo("{\"name\":\"test\"}\n{\"name\":\"test\"}\n");
+        assertThat(buffer.position()).isEqualTo(33);
+    }
+
+    @Test
+    public void testWriteIntoFullByteBufferKeepsPosition() {
+        Doc doc = createDoc("name", "test");
+        ByteBuffer buffer = ByteBuffer.allocate(20);
+        docWriter.write(doc, buffer);
+
+        assertThatThrownBy(() -> docWriter.write(doc, buffer)).isInstanceOf(BufferOverflowException.class);
+        assertThat(buffer.position()).isEqualTo(16);
+    }
+}
@@ -0,0 +1,73 @@
+package io.logz.sawmill;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExecutionDeadlineTest {
+
+    @Test
+    public void testCurrentDeadline() {
+        ExecutionDeadline deadline = new ExecutionDeadline();
+        assertThat(ExecutionDeadline.current()).isSameAs(ExecutionDeadline.NONE);
+
+        ExecutionDeadline previous = ExecutionDeadline.enter(deadline);
+        assertThat(ExecutionDeadline.current()).isSameAs(deadline);
+
+        ExecutionDeadline.exit(previous);
+        assertThat(ExecutionDeadline.current()).isSameAs(ExecutionDeadline.NONE);
+    }
+
+    @Test
+    public void testExpiredDeadlineFailsCheck() throws InterruptedException {
+        ExecutionDeadline deadline = new ExecutionDeadline();
+        deadline.check();
+
+        deadline.expire();
+
+        assertThat(deadline.isExpired()).isTrue();
+        assertThatThrownBy(deadline::check).isInstanceOf(InterruptedException.class);
+    }
+
+    @Test
+    public void testCheckKeepsInterruptedStatus() {
+        Thread.currentThread().interrupt();
+        try {
+            assertThatThrownBy(new ExecutionDeadline()::check).isInstanceOf(InterruptedException.class);
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void testExpirationHook() {
+        AtomicInteger expirations = new AtomicInteger();
+        ExecutionDeadline deadline = new ExecutionDeadline();
+
+        deadline.onExpired(expirations::incrementAndGet);
+        deadline.expire();
+        assertThat(expirations.get()).isEqualTo(1);
+
+        deadline.clearOnExpired();
+        deadline.expire();
+        assertThat(expirations.get()).isEqualTo(1);
+
+        deadline.onExpired(expirations::incrementAndGet);
+        assertThat(expirations.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testNoneNeverExpires() throws InterruptedException {
+        AtomicInteger expirations = new AtomicInteger();
+
+        ExecutionDeadline.NONE.onExpired(expirations::incrementAndGet);
+        ExecutionDeadline.NONE.check();
+
+        assertThat(ExecutionDeadline.NONE.isExpired()).isFalse();
+        assertThat(expirations.get()).isEqualTo(0);
+    }
+}
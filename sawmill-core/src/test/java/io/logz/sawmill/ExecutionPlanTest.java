@@ -0,0 +1,74 @@
+package io.logz.sawmill;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExecutionPlanTest {
+
+    @Test
+    public void testFlatSteps() {
+        ExecutionPlan executionPlan = ExecutionPlan.compile(Arrays.asList(createStep("first"), createStep("second")));
+        ExecutionPlan.Instruction[] instructions = executionPlan.getInstructions();
+
+        assertThat(instructions).hasSize(2);
+        assertThat(executionPlan.getEntryPoint()).isEqualTo(0);
+        assertThat(instructions[0].getProcessorName()).isEqualTo("first");
+        assertThat(instructions[0].getOnSuccessTarget()).isEqualTo(1);
+        assertThat(instructions[0].getOnFailureTarget()).isEqualTo(ExecutionPlan.NO_FAILURE_HANDLER);
+        assertThat(instructions[0].getNextTarget()).isEqualTo(1);
+        assertThat(instructions[1].getProcessorName()).isEqualTo("second");
+        assertThat(instructions[1].getOnSuccessTarget()).isEqualTo(ExecutionPlan.END);
+        assertThat(instructions[1].getNextTarget()).isEqualTo(ExecutionPlan.END);
+    }
+
+    @Test
+    public void testBranchesJumpToContinuation() {
+        Condition condition = doc -> true;
+        List<ExecutionStep> executionSteps = Arrays.asList(
+                new ConditionalExecutionStep(condition,
+                        Collections.singletonList(new ProcessorExecutionStep("onTrue", doc -> ProcessResult.success(),
+                                Collections.singletonList(createStep("onFailure")),
+                                Collections.singletonList(createStep("onSuccess")))),
+                        Collections.emptyList()),
+                createStep("last"));
+
+        ExecutionPlan executionPlan = ExecutionPlan.compile(executionSteps);
+        ExecutionPlan.Instruction[] instructions = executionPlan.getInstructions();
+
+        assertThat(instructions).hasSize(5);
+        ExecutionPlan.Instruction conditional = instructions[executionPlan.getEntryPoint()];
+        assertThat(conditional.isConditional()).isTrue();
+
+        ExecutionPlan.Instruction onTrue = instructions[conditional.getOnSuccessTarget()];
+        int last = conditional.getNextTarget();
+        assertThat(onTrue.getProcessorName()).isEqualTo("onTrue");
+        assertThat(conditional.getOnFailureTarget()).isEqualTo(last);
+        assertThat(instructions[last].getProcessorName()).isEqualTo("last");
+
+        ExecutionPlan.Instruction onSuccess = instructions[onTrue.getOnSuccessTarget()];
+        ExecutionPlan.Instruction onFailure = instructions[onTrue.getOnFailureTarget()];
+        assertThat(onSuccess.getProcessorName()).isEqualTo("onSuccess");
+        assertThat(onFailure.getProcessorName()).isEqualTo("onFailure");
+        assertThat(onSuccess.getNextTarget()).isEqualTo(last);
+        assertThat(onFailure.getNextTarget()).isEqualTo(last);
+    }
+
+    @Test
+    public void testEmptyFailureHandlerContinues() {
+        ExecutionPlan executionPlan = ExecutionPlan.compile(Arrays.asList(
+                new ProcessorExecutionStep("first", doc -> ProcessResult.success(), Collections.emptyList()),
+                createStep("second")));
+        ExecutionPlan.Instruction[] instructions = executionPlan.getInstructions();
+
+        assertThat(instructions[0].getOnFailureTarget()).isEqualTo(1);
+    }
+
+    private ProcessorExecutionStep createStep(String name) {
+        return new ProcessorExecutionStep(name, doc -> ProcessResult.success());
+    }
+}
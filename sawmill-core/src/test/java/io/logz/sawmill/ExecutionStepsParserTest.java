@@ -184,6 +184,65 @@ public class ExecutionStepsParserTest {
         assertThat(onFailureExecutionStep.getProcessorName()).isEqualTo("[addTag4]" + processorName4);
     }
 
+    @Test
+    public void testFieldAccess() {
+        List<ExecutionStepDefinition> executionStepDefinitionList = Arrays.asList(
+                new ConditionalExecutionStepDefinition(
+                        createAndExistsConditionDefinition(),
+                        Collections.singletonList(new ProcessorExecutionStepDefinition(
+                                new ProcessorDefinition("rename", createMap("from", "field1", "to", "field3")), null, null, null)),
+                        null),
+                createAddTagStepDefinition(Collections.singletonList(new ProcessorExecutionStepDefinition(
+                        new ProcessorDefinition("removeField", createMap("path", "field4.nested")), null, null, null)))
+        );
+
+        List<ExecutionStep> executionSteps = executionStepsParser.parse(executionStepDefinitionList);
+
+        FieldAccess conditionAccess = executionSteps.get(0).getFieldAccess();
+        assertThat(conditionAccess.getReads()).containsExactly("field1", "field2");
+        assertThat(conditionAccess.getWrites()).isEmpty();
+
+        FieldAccess addTagAccess = executionSteps.get(1).getFieldAccess();
+        assertThat(addTagAccess.getReads()).containsExactly("tags");
+        assertThat(addTagAccess.getWrites()).containsExactly("tags");
+
+        FieldAccess fieldAccess = FieldAccess.of(executionSteps);
+        assertThat(fieldAccess.readsAll()).isFalse();
+        assertThat(fieldAccess.writesAll()).isFalse();
+        assertThat(fieldAccess.getReads()).containsExactlyInAnyOrder("field1", "field2", "tags", "field4.nested");
+        assertThat(fieldAccess.getWrites()).containsExactlyInAnyOrder("field1", "field3", "tags", "field4.nested");
+        assertThat(fieldAccess.getReadTopLevelFields()).containsExactlyInAnyOrder("field1", "field2", "tags", "field4");
+    }
+
+    @Test
+    public void testFieldAccessOfTemplatesAndWholeDocProcessors() {
+        List<ExecutionStepDefinition> templatedPath = Collections.singletonList(new ProcessorExecutionStepDefinition(
+                new ProcessorDefinition("addField", createMap("path", "{{field1}}", "value", "value")), null, null, null));
+        List<ExecutionStepDefinition> templatedValue = Collections.singletonList(new ProcessorExecutionStepDefinition(
+                new ProcessorDefinition("addField", createMap("path", "field2", "value", "{{field1}}")), null, null, null));
+        List<ExecutionStepDefinition> constantValue = Collections.singletonList(new ProcessorExecutionStepDefinition(
+                new ProcessorDefinition("addField", createMap("path", "field2", "value", "value")), null, null, null));
+        List<ExecutionStepDefinition> deDot = Collections.singletonList(new ProcessorExecutionStepDefinition(
+                new ProcessorDefinition("deDot", createMap()), null, null, null));
+
+        FieldAccess templatedPathAccess = FieldAccess.of(executionStepsParser.parse(templatedPath));
+        assertThat(templatedPathAccess.readsAll()).isTrue();
+        assertThat(templatedPathAccess.writesAll()).isTrue();
+
+        FieldAccess templatedValueAccess = FieldAccess.of(executionStepsParser.parse(templatedValue));
+        assertThat(templatedValueAccess.readsAll()).isTrue();
+        assertThat(templatedValueAccess.getWrites()).containsExactly("field2");
+
+        FieldAccess constantValueAccess = FieldAccess.of(executionStepsParser.parse(constantValue));
+        assertThat(constantValueAccess.readsAll()).isFalse();
+        assertThat(constantValueAccess.getReads()).isEmpty();
+        assertThat(constantValueAccess.getWrites()).containsExactly("field2");
+
+        FieldAccess deDotAccess = FieldAccess.of(executionStepsParser.parse(deDot));
+        assertThat(deDotAccess.readsAll()).isTrue();
+        assertThat(deDotAccess.writesAll()).isTrue();
+    }
+
     private ConditionDefinition createAndExistsConditionDefinition() {
         return new ConditionDefinition("and", createMap("conditions", createList(
                 new ConditionDefinition("exists", createMap(
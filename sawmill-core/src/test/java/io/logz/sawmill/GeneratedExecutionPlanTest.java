@@ -0,0 +1,164 @@
+package io.logz.sawmill;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static io.logz.sawmill.utils.DocUtils.createDoc;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GeneratedExecutionPlanTest {
+
+    private PipelineExecutor pipelineExecutor;
+    private PipelineExecutionMetricsMBean pipelineExecutorMetrics;
+
+    @Before
+    public void init() {
+        pipelineExecutorMetrics = new PipelineExecutionMetricsMBean();
+        pipelineExecutor = new PipelineExecutor(pipelineExecutorMetrics);
+    }
+
+    @After
+    public void close() {
+        pipelineExecutor.close();
+    }
+
+    @Test
+    public void testGeneratedPipelineExecution() {
+        Pipeline pipeline = createPipeline(false,
+                new ConditionalExecutionStep(doc -> doc.hasField("branch"),
+                        Collections.singletonList(createAddFieldExecutionStep("onTrue")),
+                        Collections.singletonList(createAddFieldExecutionStep("onFalse"))),
+                new ProcessorExecutionStep("fail1", createFailAlwaysProcessor(),
+                        Collections.singletonList(createAddFieldExecutionStep("onFailure")),
+                        Collections.singletonList(createAddFieldExecutionStep("onSuccess"))),
+                createAddFieldExecutionStep("last"));
+        assertThat(pipeline.getGeneratedExecutionPlan().isPresent()).isTrue();
+
+        Doc doc = createDoc("branch", true);
+        ExecutionResult executionResult = pipelineExecutor.execute(pipeline, doc);
+
+        assertThat(executionResult.isSucceeded()).isTrue();
+        assertThat(doc.hasField("onTrue")).isTrue();
+        assertThat(doc.hasField("onFalse")).isFalse();
+        assertThat(doc.hasField("onFailure")).isTrue();
+        assertThat(doc.hasField("onSuccess")).isFalse();
+        assertThat(doc.hasField("last")).isTrue();
+
+        Doc otherDoc = createDoc("message", "hola");
+        pipelineExecutor.execute(pipeline, otherDoc);
+        assertThat(otherDoc.hasField("onTrue")).isFalse();
+        assertThat(otherDoc.hasField("onFalse")).isTrue();
+        assertThat(pipelineExecutorMetrics.getTotalDocsSucceededProcessing()).isEqualTo(2);
+    }
+
+    @Test
+    public void testGeneratedPipelineStopOnFailure() {
+        Pipeline pipeline = createPipeline(true,
+                new ProcessorExecutionStep("fail1", createFailAlwaysProcessor()),
+                createAddFieldExecutionStep("last"));
+        Doc doc = createDoc("message", "hola");
+
+        ExecutionResult executionResult = pipelineExecutor.execute(pipeline, doc);
+
+        assertThat(executionResult.isSucceeded()).isFalse();
+        assertThat(executionResult.getError().get().getFailedProcessorName()).isEqualTo("fail1");
+        assertThat(doc.hasField("last")).isFalse();
+        assertThat(pipelineExecutorMetrics.getTotalDocsFailedProcessing()).isEqualTo(1);
+    }
+
+    @Test
+    public void testGeneratedPipelineIgnoreFailure() {
+        Pipeline pipeline = createPipeline(false,
+                new ProcessorExecutionStep("fail1", createFailAlwaysProcessor()),
+                createAddFieldExecutionStep("last"));
+        Doc doc = createDoc("message", "hola");
+
+        ExecutionResult executionResult = pipelineExecutor.execute(pipeline, doc);
+
+        assertThat(executionResult.isSucceeded()).isTrue();
+        assertThat(doc.hasField("last")).isTrue();
+    }
+
+    @Test
+    public void testGeneratedPipelineDrop() {
+        Pipeline pipeline = createPipeline(false,
+                new ProcessorExecutionStep("drop1", doc -> ProcessResult.drop()),
+                createAddFieldExecutionStep("last"));
+        Doc doc = createDoc("message", "hola");
+
+        ExecutionResult executionResult = pipelineExecutor.execute(pipeline, doc);
+
+        assertThat(executionResult.isDropped()).isTrue();
+        assertThat(doc.hasField("last")).isFalse();
+        assertThat(pipelineExecutorMetrics.getTotalDocsDropped()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFactoryGenerateBytecode() {
+        Pipeline.Factory factory = new Pipeline.Factory();
+        String config = "{ steps: [{ addField: { config: { path: \"field1\", value: \"value1\" } } }], generateBytecode: true }";
+
+        Pipeline pipeline = factory.create(config);
+        Doc doc = createDoc("message", "hola");
+
+        assertThat(pipeline.getGeneratedExecutionPlan().isPresent()).isTrue();
+        assertThat(pipelineExecutor.execute(pipeline, doc).isSucceeded()).isTrue();
+        assertThat((String) doc.getField("field1")).isEqualTo("value1");
+        assertThat(factory.create(config.replace("true", "false")).getGeneratedExecutionPlan().isPresent()).isFalse();
+    }
+
+    @Test
+    public void testLargeGeneratedPipelineSplitIntoMethods() {
+        List<ExecutionStep> executionSteps = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int index = i;
+            executionSteps.add(new ConditionalExecutionStep(doc -> index % 3 == 0,
+                    Collections.singletonList(createAddFieldExecutionStep("onTrue" + i)),
+                    Collections.singletonList(createAddFieldExecutionStep("onFalse" + i))));
+            executionSteps.add(new ProcessorExecutionStep("fail" + i, createFailAlwaysProcessor(),
+                    Collections.singletonList(createAddFieldExecutionStep("onFailure" + i))));
+        }
+        executionSteps.add(createAddFieldExecutionStep("last"));
+        Pipeline pipeline = new Pipeline("abc", executionSteps, false, true);
+        Pipeline interpretedPipeline = new Pipeline("abc", executionSteps, false, false);
+
+        assertThat(pipeline.getGeneratedExecutionPlan().isPresent()).isTrue();
+        assertThat(Stream.of(pipeline.getGeneratedExecutionPlan().get().getClass().getDeclaredMethods())
+                .filter(method -> method.getName().startsWith("block"))
+                .count()).isGreaterThan(1);
+
+        Doc doc = createDoc("message", "hola");
+        Doc interpretedDoc = createDoc("message", "hola");
+        assertThat(pipelineExecutor.execute(pipeline, doc).isSucceeded()).isTrue();
+        assertThat(pipelineExecutor.execute(interpretedPipeline, interpretedDoc).isSucceeded()).isTrue();
+
+        assertThat(doc.getSource()).isEqualTo(interpretedDoc.getSource());
+        assertThat(doc.hasField("onTrue3")).isTrue();
+        assertThat(doc.hasField("onFalse499")).isTrue();
+        assertThat(doc.hasField("onFailure499")).isTrue();
+        assertThat(doc.hasField("last")).isTrue();
+    }
+
+    private Pipeline createPipeline(boolean stopOnFailure, ExecutionStep... steps) {
+        List<ExecutionStep> executionSteps = Arrays.asList(steps);
+        return new Pipeline("abc", executionSteps, stopOnFailure, true);
+    }
+
+    private ProcessorExecutionStep createAddFieldExecutionStep(String field) {
+        return new ProcessorExecutionStep("add" + field, (Doc doc) -> {
+            doc.addField(field, true);
+            return ProcessResult.success();
+        });
+    }
+
+    private Processor createFailAlwaysProcessor() {
+        return (Doc doc) -> ProcessResult.failure("test failure");
+    }
+}
@@ -1,10 +1,13 @@
 package io.logz.sawmill;
 
 import io.logz.sawmill.utilities.Grok;
+import io.logz.sawmill.utilities.Utf8Buffer;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,6 +18,7 @@ import static java.util.Collections.EMPTY_MAP;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 
 public class GrokTest {
 
@@ -47,6 +51,41 @@ public class GrokTest {
         assertThat(match.getValues()).isEqualTo(Arrays.asList("1","2"));
     }
 
+    @Test
+    public void testMatchEncodedText() throws InterruptedException {
+        Map<String, String> bank = new HashMap<>();
+        bank.put("SINGLEDIGIT", "[0-9]");
+        Grok grok = new Grok(bank, "%{SINGLEDIGIT:num:int}%{SINGLEDIGIT:num:int} (?<word>\\w+)(?<empty>x?) (?<rest>.*)");
+        String text = "12 hello ñandú \uD83D\uDE00";
+        Utf8Buffer input = new Utf8Buffer();
+        input.encode(text);
+
+        Map<String, Object> captures = new LinkedHashMap<>();
+        assertThat(grok.match(input.array(), input.length(), captures::put)).isTrue();
+        assertThat(captures).containsOnly(
+                entry("num", Arrays.asList(1L, 2L)),
+                entry("word", "hello"),
+                entry("rest", "ñandú \uD83D\uDE00"));
+
+        Map<String, Object> matches = new LinkedHashMap<>();
+        grok.matches(text).stream()
+                .filter(match -> !match.getValues().isEmpty())
+                .forEach(match -> matches.put(match.getName(), match.getValues().size() == 1 ? match.getValues().get(0) : match.getValues()));
+        assertThat(captures).isEqualTo(matches);
+
+        input.encode("no digits");
+        assertThat(grok.match(input.array(), input.length(), captures::put)).isFalse();
+    }
+
+    @Test
+    public void testEncodeAsString() {
+        Utf8Buffer buffer = new Utf8Buffer();
+        for (String text : Arrays.asList("", "ascii", "ñandú €", "\uD83D\uDE00 emoji", "unpaired \uD83D high", "unpaired \uDE00 low", RandomStringUtils.random(1000))) {
+            buffer.encode(text);
+            assertThat(Arrays.copyOf(buffer.array(), buffer.length())).isEqualTo(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
     @Test
     public void testMultipleNamedCapturesWithSameName() throws InterruptedException {
         Map<String, String> bank = new HashMap<>();
@@ -186,6 +225,25 @@ public class GrokTest {
         assertThatThrownBy(() -> grok.matches(text)).isInstanceOf(InterruptedException.class);
     }
 
+    @Test
+    public void testMatchStoppedOnExpiredDeadline() {
+        Grok grok = new Grok(EMPTY_MAP, ".{10000,}.{100000}");
+        String text = RandomStringUtils.random(10000);
+        ExecutionDeadline deadline = new ExecutionDeadline();
+        ExecutionDeadline previous = ExecutionDeadline.enter(deadline);
+
+        ScheduledExecutorService expirer = Executors.newScheduledThreadPool(1);
+        try {
+            expirer.schedule(deadline::expire, 100, MILLISECONDS);
+
+            assertThatThrownBy(() -> grok.matches(text)).isInstanceOf(InterruptedException.class);
+            assertThat(Thread.currentThread().isInterrupted()).isFalse();
+        } finally {
+            ExecutionDeadline.exit(previous);
+            expirer.shutdownNow();
+        }
+    }
+
     private void interruptCurrentThreadIn(long millis) {
         Thread currentThread = Thread.currentThread();
         ScheduledExecutorService interrupter = Executors.newScheduledThreadPool(1);
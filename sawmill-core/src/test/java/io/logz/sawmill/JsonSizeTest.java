@@ -0,0 +1,57 @@
+package io.logz.sawmill;
+
+import io.logz.sawmill.utilities.JsonUtils;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonSizeTest {
+
+    @Test
+    public void testScalars() {
+        for (Object value : Arrays.asList("", "hola", "q\"uo\\te", "tab\tnew\nline\u0001\u001f\u007f", "ü€こんにちは", "emoji 😀",
+                0, -1, 15, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, (short) -7, (byte) 3,
+                1.5, -0.0, 1e100, 12345678.9, Double.NaN, Double.POSITIVE_INFINITY, 1.1f, Float.NaN,
+                true, false, new BigInteger("123456789012345678901234567890"), new BigDecimal("-1.50"), new Date(1500000000000L))) {
+            assertSize(value);
+        }
+    }
+
+    @Test
+    public void testMapsAndLists() {
+        Map<String, Object> withNulls = new HashMap<>();
+        withNulls.put("a", null);
+        withNulls.put("b", 1);
+        withNulls.put("c", null);
+
+        assertSize(Collections.emptyMap());
+        assertSize(Collections.emptyList());
+        assertSize(withNulls);
+        assertSize(Collections.singletonMap("only", null));
+        assertSize(Collections.singletonMap(3, "not a string key"));
+        assertSize(JsonUtils.createMap("message", "hola", "k\"ey", JsonUtils.createList(1, null, "x", JsonUtils.createMap("y", false)),
+                "nested", JsonUtils.createMap("z", JsonUtils.createList())));
+    }
+
+    @Test
+    public void testRawJsonMap() {
+        Doc doc = new Doc("{\"message\" : \"hola\",\n \"untouched\":{ \"field\" : [true, null] }, \"n\": null}".getBytes(StandardCharsets.UTF_8));
+        doc.getField("message");
+        doc.addField("added", "ü");
+
+        assertThat(doc.getJsonSize()).isEqualTo(doc.toJsonBytes().length);
+    }
+
+    private void assertSize(Object value) {
+        assertThat(JsonSize.of(value)).as(String.valueOf(value)).isEqualTo(JsonUtils.toJsonBytes(value).length);
+    }
+}
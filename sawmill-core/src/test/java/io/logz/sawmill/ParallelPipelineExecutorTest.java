@@ -0,0 +1,199 @@
+package io.logz.sawmill;
+
+import io.logz.sawmill.exceptions.PipelineExecutionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.logz.sawmill.utils.DocUtils.createDoc;
+import static org.awaitility.Awaitility.await;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ParallelPipelineExecutorTest {
+    private static final int DOCS_COUNT = 200;
+
+    private PipelineExecutor pipelineExecutor;
+    private PipelineExecutionMetricsMBean pipelineExecutorMetrics;
+    private ParallelPipelineExecutor parallelPipelineExecutor;
+
+    @Before
+    public void init() {
+        pipelineExecutorMetrics = new PipelineExecutionMetricsMBean();
+        pipelineExecutor = new PipelineExecutor(pipelineExecutorMetrics);
+        parallelPipelineExecutor = new ParallelPipelineExecutor(pipelineExecutor, 4);
+    }
+
+    @After
+    public void close() {
+        parallelPipelineExecutor.close();
+        pipelineExecutor.close();
+    }
+
+    @Test
+    public void testOrderedResults() {
+        Pipeline pipeline = createPipeline(new ProcessorExecutionStep("failOdd1", (Doc doc) -> {
+            int index = doc.getField("index");
+            return index % 2 == 0 ? ProcessResult.success() : ProcessResult.failure("odd");
+        }));
+        List<Doc> docs = createDocs(DOCS_COUNT);
+
+        List<ExecutionResult> executionResults = parallelPipelineExecutor.executeBatch(pipeline, docs);
+
+        assertThat(executionResults).hasSize(DOCS_COUNT);
+        for (int i = 0; i < DOCS_COUNT; i++) {
+            assertThat(executionResults.get(i).isSucceeded()).isEqualTo(i % 2 == 0);
+        }
+        assertThat(pipelineExecutorMetrics.getTotalDocsSucceededProcessing()).isEqualTo(DOCS_COUNT / 2);
+        assertThat(pipelineExecutorMetrics.getTotalDocsFailedProcessing()).isEqualTo(DOCS_COUNT / 2);
+    }
+
+    @Test
+    public void testAsCompletedDelivery() {
+        Pipeline pipeline = createPipeline(createAddThreadNameExecutionStep());
+        List<Doc> docs = createDocs(DOCS_COUNT);
+        List<Doc> delivered = new ArrayList<>();
+
+        parallelPipelineExecutor.executeBatch(pipeline, docs, ParallelPipelineExecutor.ResultDelivery.AS_COMPLETED,
+                (doc, executionResult) -> {
+                    assertThat(executionResult.isSucceeded()).isTrue();
+                    delivered.add(doc);
+                });
+
+        assertThat(delivered).hasSize(DOCS_COUNT);
+        assertThat(delivered).containsOnlyElementsOf(docs);
+        assertThat(docs).allMatch(doc -> doc.hasField("thread"));
+    }
+
+    @Test
+    public void testOrderingKeyLanes() {
+        Map<Object, List<Integer>> executionOrderByKey = new ConcurrentHashMap<>();
+        Pipeline pipeline = createPipeline(new ProcessorExecutionStep("recordOrder1", (Doc doc) -> {
+            executionOrderByKey.computeIfAbsent(doc.getField("key"), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(doc.getField("index"));
+            return ProcessResult.success();
+        }));
+        List<Doc> docs = createDocs(DOCS_COUNT);
+
+        List<ExecutionResult> executionResults = parallelPipelineExecutor.executeBatch(pipeline, docs, doc -> doc.getField("key"));
+
+        assertThat(executionResults).hasSize(DOCS_COUNT);
+        assertThat(executionResults).allMatch(ExecutionResult::isSucceeded);
+        assertThat(executionOrderByKey).hasSize(5);
+        executionOrderByKey.values().forEach(order -> assertThat(order).isSorted());
+    }
+
+    @Test
+    public void testOrderingKeysBucketedIntoLanes() {
+        AtomicInteger submittedTasks = new AtomicInteger();
+        ThreadPoolExecutor countingPool = new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable command) {
+                submittedTasks.incrementAndGet();
+                super.execute(command);
+            }
+        };
+        Map<Object, List<Integer>> executionOrderByKey = new ConcurrentHashMap<>();
+        Pipeline pipeline = createPipeline(new ProcessorExecutionStep("recordOrder1", (Doc doc) -> {
+            executionOrderByKey.computeIfAbsent(doc.getField("uniqueKey"), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(doc.getField("index"));
+            return ProcessResult.success();
+        }));
+        List<Doc> docs = createDocs(DOCS_COUNT);
+        docs.forEach(doc -> doc.addField("uniqueKey", "key" + (int) doc.getField("index") % 100));
+
+        try (ParallelPipelineExecutor pooledExecutor = new ParallelPipelineExecutor(pipelineExecutor, countingPool, 4)) {
+            List<ExecutionResult> executionResults = pooledExecutor.executeBatch(pipeline, docs, doc -> doc.getField("uniqueKey"));
+
+            assertThat(executionResults).allMatch(ExecutionResult::isSucceeded);
+        } finally {
+            countingPool.shutdownNow();
+        }
+        assertThat(submittedTasks.get()).isLessThanOrEqualTo(4);
+        assertThat(executionOrderByKey).hasSize(100);
+        executionOrderByKey.values().forEach(order -> assertThat(order).isSorted());
+    }
+
+    @Test
+    public void testUnexpectedFailureCancelsOtherParts() {
+        assertUnexpectedFailureCancelsOtherParts(ParallelPipelineExecutor.ResultDelivery.ORDERED);
+    }
+
+    @Test
+    public void testUnexpectedFailureCancelsOtherPartsAsCompleted() {
+        assertUnexpectedFailureCancelsOtherParts(ParallelPipelineExecutor.ResultDelivery.AS_COMPLETED);
+    }
+
+    private void assertUnexpectedFailureCancelsOtherParts(ParallelPipelineExecutor.ResultDelivery resultDelivery) {
+        PipelineExecutor patientExecutor = new PipelineExecutor(new PipelineExecutionTimeWatchdog(60000, 60000, pipelineExecutorMetrics, context -> {}), pipelineExecutorMetrics);
+        ParallelPipelineExecutor patientParallelExecutor = new ParallelPipelineExecutor(patientExecutor, 4);
+        CountDownLatch neverReleased = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger interrupted = new AtomicInteger();
+        Pipeline pipeline = createPipeline(new ProcessorExecutionStep("failFirst1", (Doc doc) -> {
+            if ((int) doc.getField("index") == 0) {
+                // let the other parts start before failing
+                Thread.sleep(200);
+                throw new RuntimeException("test failure");
+            }
+            started.incrementAndGet();
+            try {
+                neverReleased.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+                throw e;
+            }
+            return ProcessResult.success();
+        }));
+
+        try {
+            assertThatThrownBy(() -> patientParallelExecutor.executeBatch(pipeline, createDocs(10), resultDelivery, (doc, executionResult) -> {}))
+                    .isInstanceOf(PipelineExecutionException.class);
+            await().atMost(5, TimeUnit.SECONDS).until(() -> interrupted.get() > 0 && interrupted.get() == started.get());
+        } finally {
+            patientParallelExecutor.close();
+            patientExecutor.close();
+        }
+    }
+
+    @Test
+    public void testUnexpectedFailure() {
+        Pipeline pipeline = createPipeline(new ProcessorExecutionStep("failHard1", (Doc doc) -> {
+            throw new RuntimeException("test failure");
+        }));
+
+        assertThatThrownBy(() -> parallelPipelineExecutor.executeBatch(pipeline, createDocs(10)))
+                .isInstanceOf(PipelineExecutionException.class);
+    }
+
+    private List<Doc> createDocs(int count) {
+        List<Doc> docs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            docs.add(createDoc("index", i, "key", "key" + (i % 5)));
+        }
+        return docs;
+    }
+
+    private ProcessorExecutionStep createAddThreadNameExecutionStep() {
+        return new ProcessorExecutionStep("thread1", (Doc doc) -> {
+            doc.addField("thread", Thread.currentThread().getName());
+            return ProcessResult.success();
+        });
+    }
+
+    private Pipeline createPipeline(ExecutionStep... steps) {
+        return new Pipeline("abc", Arrays.asList(steps), true);
+    }
+}
@@ -0,0 +1,222 @@
+package io.logz.sawmill;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.logz.sawmill.utils.DocUtils.createDoc;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class PipelineExecutionTimeWatchdogTest {
+    private static final long WARNING_THRESHOLD_TIME_MS = 100;
+    private static final long EXPIRED_THRESHOLD_TIME_MS = 300;
+
+    private List<Doc> overtimeDocs;
+    private PipelineExecutionMetricsMBean metrics;
+    private PipelineExecutionTimeWatchdog watchdog;
+    private ExecutorService executionThread;
+
+    @Before
+    public void init() {
+        overtimeDocs = new CopyOnWriteArrayList<>();
+        metrics = new PipelineExecutionMetricsMBean();
+        watchdog = new PipelineExecutionTimeWatchdog(WARNING_THRESHOLD_TIME_MS, EXPIRED_THRESHOLD_TIME_MS, metrics,
+                watchedPipeline -> overtimeDocs.add(watchedPipeline.getDoc()));
+        executionThread = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void close() throws InterruptedException {
+        watchdog.close();
+        executionThread.shutdownNow();
+        executionThread.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testFinishedExecutionIsNotWatched() throws Exception {
+        Doc doc = createDoc("message", "hola");
+        WatchedPipeline watchedPipeline = startedExecution(watchdog, doc);
+        assertThat(watchdog.stopWatchedPipeline(watchedPipeline)).isFalse();
+        watchdog.removeExecution(watchedPipeline);
+
+        Thread.sleep(EXPIRED_THRESHOLD_TIME_MS + 100);
+
+        assertThat(overtimeDocs).isEmpty();
+        assertThat(watchdog.isOvertime(watchedPipeline)).isFalse();
+        assertThat(watchedPipeline.getDeadline().isExpired()).isFalse();
+        assertThat(watchedPipeline.getDoc()).isNull();
+        assertThat(metrics.getTotalDocsProcessingExpired()).isEqualTo(0);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testExecutionIdentifiers() throws Exception {
+        Thread thread = executionThread.submit(Thread::currentThread).get();
+        long finished = watchdog.startedExecution("abc", createDoc("message", "finished"), thread);
+        assertThat(watchdog.stopWatchedPipeline(finished)).isFalse();
+        assertThat(watchdog.isOvertime(finished)).isFalse();
+        watchdog.removeExecution(finished);
+
+        Doc expiredDoc = createDoc("message", "expired");
+        long expired = watchdog.startedExecution("abc", expiredDoc, thread);
+        await().atMost(1, TimeUnit.SECONDS).until(() -> watchdog.isOvertime(expired));
+        await().atMost(1, TimeUnit.SECONDS).until(() -> metrics.getTotalDocsProcessingExpired() == 1);
+        assertThat(watchdog.stopWatchedPipeline(expired)).isTrue();
+        watchdog.removeExecution(expired);
+
+        await().atMost(1, TimeUnit.SECONDS).until(() -> overtimeDocs.size() == 1);
+        assertThat(overtimeDocs).containsExactly(expiredDoc);
+        assertThat(watchdog.stopWatchedPipeline(expired)).isFalse();
+        assertThat(watchdog.isOvertime(expired)).isFalse();
+    }
+
+    @Test
+    public void testOvertimeAndExpiredExecution() throws Exception {
+        Doc doc = createDoc("message", "hola");
+        WatchedPipeline watchedPipeline = startedExecution(watchdog, doc);
+
+        await().atMost(1, TimeUnit.SECONDS).until(() -> watchdog.isOvertime(watchedPipeline));
+        await().atMost(1, TimeUnit.SECONDS).until(() -> overtimeDocs.size() == 1);
+        assertThat(overtimeDocs).containsExactly(doc);
+
+        await().atMost(1, TimeUnit.SECONDS).until(() -> !watchedPipeline.isRunning());
+        assertThat(watchdog.stopWatchedPipeline(watchedPipeline)).isTrue();
+        assertThat(watchedPipeline.getDeadline().isExpired()).isTrue();
+        assertThat(watchedPipeline.hasBeenInterrupted()).isFalse();
+        assertThat(metrics.getTotalDocsProcessingExpired()).isEqualTo(1);
+        assertThat(metrics.getTotalDocsOvertimeProcessing()).isEqualTo(1);
+    }
+
+    @Test
+    public void testInterruptOnExpiry() throws Exception {
+        PipelineExecutionTimeWatchdog interruptingWatchdog = new PipelineExecutionTimeWatchdog(WARNING_THRESHOLD_TIME_MS, EXPIRED_THRESHOLD_TIME_MS,
+                metrics, watchedPipeline -> {}, true);
+        try {
+            CountDownLatch registered = new CountDownLatch(1);
+            AtomicBoolean interrupted = new AtomicBoolean();
+            WatchedPipeline[] watchedPipeline = new WatchedPipeline[1];
+            Future<?> execution = executionThread.submit(() -> {
+                watchedPipeline[0] = interruptingWatchdog.startedExecution("abc", createDoc("message", "hola"));
+                registered.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                interruptingWatchdog.stopWatchedPipeline(watchedPipeline[0]);
+                interruptingWatchdog.removeExecution(watchedPipeline[0]);
+            });
+            registered.await();
+
+            execution.get(2, TimeUnit.SECONDS);
+            assertThat(interrupted.get()).isTrue();
+            assertThat(watchedPipeline[0].hasBeenInterrupted()).isTrue();
+            assertThat(interruptingWatchdog.isInterruptingOnExpiry()).isTrue();
+            assertThat(watchdog.isInterruptingOnExpiry()).isFalse();
+        } finally {
+            interruptingWatchdog.close();
+        }
+    }
+
+    @Test
+    public void testBatchRegistrationWatchesEachDoc() throws Exception {
+        Doc first = createDoc("message", "first");
+        Doc second = createDoc("message", "second");
+        WatchedPipeline watchedPipeline = startedExecution(watchdog, first);
+
+        Thread.sleep(WARNING_THRESHOLD_TIME_MS / 2);
+        assertThat(watchdog.stopWatchedPipeline(watchedPipeline)).isFalse();
+        watchdog.startedNextExecution(watchedPipeline, second);
+        assertThat(watchedPipeline.isRunning()).isTrue();
+        assertThat(watchedPipeline.getDoc()).isSameAs(second);
+
+        await().atMost(1, TimeUnit.SECONDS).until(() -> !watchedPipeline.isRunning());
+        assertThat(watchdog.stopWatchedPipeline(watchedPipeline)).isTrue();
+        watchdog.removeExecution(watchedPipeline);
+
+        await().atMost(1, TimeUnit.SECONDS).until(() -> overtimeDocs.size() == 1);
+        assertThat(overtimeDocs).containsExactly(second);
+        assertThat(metrics.getTotalDocsProcessingExpired()).isEqualTo(1);
+    }
+
+    @Test
+    public void testManyExecutionsOnlyExpiredAreKilled() throws Exception {
+        Doc expiredDoc = createDoc("message", "expired");
+        WatchedPipeline expired = startedExecution(watchdog, expiredDoc);
+        for (int i = 0; i < 1000; i++) {
+            WatchedPipeline finished = startedExecution(watchdog, createDoc("message", i));
+            watchdog.stopWatchedPipeline(finished);
+            watchdog.removeExecution(finished);
+        }
+
+        await().atMost(1, TimeUnit.SECONDS).until(() -> !expired.isRunning());
+        await().atMost(1, TimeUnit.SECONDS).until(() -> overtimeDocs.size() == 1);
+        assertThat(overtimeDocs).containsExactly(expiredDoc);
+        assertThat(metrics.getTotalDocsProcessingExpired()).isEqualTo(1);
+    }
+
+    @Test
+    public void testWatchdogsShareTimerThread() throws Exception {
+        List<Thread> timerThreads = new CopyOnWriteArrayList<>();
+        PipelineExecutionMetricsMBean timerThreadsMetrics = new PipelineExecutionMetricsMBean() {
+            @Override
+            public void overtimeProcessingDoc(String pipelineId, Doc doc) {
+                timerThreads.add(Thread.currentThread());
+            }
+        };
+        PipelineExecutionTimeWatchdog firstWatchdog = new PipelineExecutionTimeWatchdog(WARNING_THRESHOLD_TIME_MS, EXPIRED_THRESHOLD_TIME_MS,
+                timerThreadsMetrics, watchedPipeline -> {});
+        PipelineExecutionTimeWatchdog secondWatchdog = new PipelineExecutionTimeWatchdog(WARNING_THRESHOLD_TIME_MS, EXPIRED_THRESHOLD_TIME_MS,
+                timerThreadsMetrics, watchedPipeline -> {});
+        try {
+            startedExecution(firstWatchdog, createDoc("message", "first"));
+            startedExecution(secondWatchdog, createDoc("message", "second"));
+
+            await().atMost(1, TimeUnit.SECONDS).until(() -> timerThreads.size() == 2);
+            assertThat(timerThreads.get(0)).isSameAs(timerThreads.get(1));
+        } finally {
+            firstWatchdog.close();
+            secondWatchdog.close();
+        }
+    }
+
+    @Test
+    public void testSlowOvertimeCallbackDoesNotHoldTimer() throws Exception {
+        CountDownLatch releaseCallback = new CountDownLatch(1);
+        PipelineExecutionTimeWatchdog slowWatchdog = new PipelineExecutionTimeWatchdog(WARNING_THRESHOLD_TIME_MS, EXPIRED_THRESHOLD_TIME_MS, metrics,
+                watchedPipeline -> {
+                    try {
+                        releaseCallback.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+        try {
+            startedExecution(slowWatchdog, createDoc("message", "slow"));
+            WatchedPipeline watchedPipeline = startedExecution(watchdog, createDoc("message", "hola"));
+
+            await().atMost(1, TimeUnit.SECONDS).until(() -> metrics.getTotalDocsProcessingExpired() == 2);
+            assertThat(watchedPipeline.getDeadline().isExpired()).isTrue();
+        } finally {
+            releaseCallback.countDown();
+            slowWatchdog.close();
+        }
+    }
+
+    /**
+     * Registers an execution running on the thread owned by the test, rather than on the test runner's thread
+     */
+    private WatchedPipeline startedExecution(PipelineExecutionTimeWatchdog watchdog, Doc doc) throws Exception {
+        return executionThread.submit(() -> watchdog.startedExecution("abc", doc)).get();
+    }
+}
@@ -5,6 +5,7 @@ import io.logz.sawmill.conditions.FieldExistsCondition;
 import io.logz.sawmill.exceptions.PipelineExecutionException;
 import io.logz.sawmill.exceptions.ProcessorExecutionException;
 import io.logz.sawmill.processors.GrokProcessor;
+import io.logz.sawmill.utilities.ThreadAllocationCounter;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -12,11 +13,16 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static io.logz.sawmill.utils.DocUtils.createDoc;
 import static io.logz.sawmill.utils.FactoryUtils.createProcessor;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeTrue;
 
 public class PipelineExecutorTest {
     private static final long WARNING_THRESHOLD_TIME_MS = 500;
@@ -73,6 +79,53 @@ public class PipelineExecutorTest {
         assertThat(pipelineExecutorMetrics.getTotalDocsProcessingExpired()).isEqualTo(1);
     }
 
+    @Test
+    public void testInterruptBlockedProcessor() {
+        long blockedMillis = 20000;
+        Pipeline pipeline = createPipeline(createSleepExecutionStep(blockedMillis));
+        Doc doc = createDoc("id", "testInterruptBlockedProcessor", "message", "hola");
+
+        PipelineExecutor interruptingExecutor = new PipelineExecutor(new PipelineExecutionTimeWatchdog(WARNING_THRESHOLD_TIME_MS, EXPIRED_THRESHOLD_TIME_MS,
+                pipelineExecutorMetrics, context -> {}, true), pipelineExecutorMetrics);
+
+        long start = System.currentTimeMillis();
+        ExecutionResult executionResult;
+        try {
+            executionResult = interruptingExecutor.execute(pipeline, doc);
+        } finally {
+            interruptingExecutor.close();
+        }
+
+        assertThat(executionResult.isExpired()).isTrue();
+        assertThat(System.currentTimeMillis() - start).isLessThan(blockedMillis / 2);
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+        assertThat(pipelineExecutorMetrics.getTotalDocsProcessingExpired()).isEqualTo(1);
+    }
+
+    @Test
+    public void testExpiryKeepsCallerInterrupt() {
+        Pipeline pipeline = createPipeline(
+                new ProcessorExecutionStep("interrupted1", (Doc doc) -> {
+                    Thread.sleep(EXPIRED_THRESHOLD_TIME_MS + 300);
+                    Thread.currentThread().interrupt();
+                    return ProcessResult.success();
+                }),
+                createAddFieldExecutionStep("newField1", "value1")
+        );
+        Doc doc = createDoc("id", "testExpiryKeepsCallerInterrupt", "message", "hola");
+
+        ExecutionResult executionResult;
+        try {
+            executionResult = pipelineExecutor.execute(pipeline, doc);
+        } finally {
+            assertThat(Thread.interrupted()).isTrue();
+        }
+
+        assertThat(executionResult.isExpired()).isTrue();
+        assertThat(doc.hasField("newField1")).isFalse();
+        assertThat(pipelineExecutorMetrics.getTotalDocsProcessingExpired()).isEqualTo(1);
+    }
+
     @Test
     public void testKillLongGrokExecution() {
         Pipeline pipeline = createPipeline(
@@ -257,6 +310,40 @@ public class PipelineExecutorTest {
         assertThat(pipelineExecutorMetrics.getTotalDocsSucceededProcessing()).isEqualTo(0);
     }
 
+    @Test
+    public void testFailureCodeAndLazyMessage() {
+        Object[] formatted = {false};
+        Object lazyArg = new Object() {
+            @Override
+            public String toString() {
+                formatted[0] = true;
+                return "field1";
+            }
+        };
+        Pipeline pipeline = createStopOnFailurePipeline(
+                new ProcessorExecutionStep("fail1", (Doc doc) -> ProcessResult.failure(FailureCode.NO_MATCH,
+                        new ProcessorExecutionException("failProcessor", new RuntimeException("fail message")),
+                        "field [%s] did not match", lazyArg))
+        );
+        Doc doc = createDoc("id", "testFailureCodeAndLazyMessage", "message", "hola");
+
+        ExecutionResult result = pipelineExecutor.execute(pipeline, doc);
+        assertThat(result.isFailed()).isTrue();
+        ExecutionResult.Error error = result.getError().get();
+        assertThat(error.getCode()).isEqualTo(FailureCode.NO_MATCH);
+        assertThat(formatted[0]).isEqualTo(false);
+        assertThat(error.getMessage()).isEqualTo("field [field1] did not match");
+        assertThat(formatted[0]).isEqualTo(true);
+        assertThat(error.getFailedProcessorName()).isEqualTo("fail1");
+
+        PipelineExecutionException exception = error.getException().get();
+        assertThat(exception.getMessage()).isEqualTo("failed to execute pipeline " + pipeline.getId());
+        assertThat(exception.getStackTrace()).isEmpty();
+        assertThat(exception.getCause().getMessage()).isEqualTo("failed to execute processor failProcessor");
+        assertThat(exception.getCause().getStackTrace()).isEmpty();
+        assertThat(exception.getCause().getCause().getStackTrace()).isNotEmpty();
+    }
+
     @Test
     public void testStopOnFailure() {
         Pipeline pipeline = createStopOnFailurePipeline(
@@ -348,6 +435,196 @@ public class PipelineExecutorTest {
         assertThat(pipelineExecutorMetrics.getTotalDocsSucceededProcessing()).isEqualTo(2);
     }
 
+    @Test
+    public void testBatchExecution() {
+        Pipeline pipeline = createPipeline(
+                createAddFieldExecutionStep("newField1", "value1"),
+                createAddFieldExecutionStep("newField2", "value2")
+        );
+        List<Doc> docs = Arrays.asList(
+                createDoc("id", "testBatchExecution1", "message", "hola"),
+                createDoc("id", "testBatchExecution2", "message", "hola"),
+                createDoc("id", "testBatchExecution3", "message", "hola"));
+
+        List<ExecutionResult> executionResults = pipelineExecutor.executeBatch(pipeline, docs);
+        assertThat(executionResults).hasSize(3);
+        assertThat(executionResults).allMatch(ExecutionResult::isSucceeded);
+        assertThat(executionResults).allMatch(executionResult -> !executionResult.isOvertime());
+
+        docs.forEach(doc -> {
+            assertThat(doc.getSource().get("newField1")).isEqualTo("value1");
+            assertThat(doc.getSource().get("newField2")).isEqualTo("value2");
+        });
+        assertThat(pipelineExecutorMetrics.getTotalDocsSucceededProcessing()).isEqualTo(3);
+    }
+
+    @Test
+    public void testBatchExecutionKillsOnlyExpiredDoc() {
+        Pipeline pipeline = createPipeline(
+                createAddFieldExecutionStep("newField1", "value1"),
+                createConditionalExecutionStep(new FieldExistsCondition("sleep"),
+                        createExecutionSteps(createSleepExecutionStep(EXPIRED_THRESHOLD_TIME_MS + 300)),
+                        createExecutionSteps())
+        );
+        Doc doc1 = createDoc("id", "testBatchExecution1", "message", "hola");
+        Doc doc2 = createDoc("id", "testBatchExecution2", "message", "hola", "sleep", true);
+        Doc doc3 = createDoc("id", "testBatchExecution3", "message", "hola");
+
+        List<ExecutionResult> executionResults = pipelineExecutor.executeBatch(pipeline, Arrays.asList(doc1, doc2, doc3));
+        assertThat(executionResults.get(0).isSucceeded()).isTrue();
+        assertThat(executionResults.get(1).isExpired()).isTrue();
+        assertThat(executionResults.get(2).isSucceeded()).isTrue();
+        assertThat(executionResults.get(2).isOvertime()).isFalse();
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+
+        assertThat(overtimeProcessingDocs).containsExactly(doc2);
+        assertThat(doc3.getSource().get("newField1")).isEqualTo("value1");
+        assertThat(pipelineExecutorMetrics.getTotalDocsProcessingExpired()).isEqualTo(1);
+        assertThat(pipelineExecutorMetrics.getTotalDocsSucceededProcessing()).isEqualTo(2);
+    }
+
+    @Test
+    public void testAsyncExecution() {
+        Pipeline pipeline = createPipeline(createAddFieldExecutionStep("newField1", "value1"));
+        Doc doc = createDoc("id", "testAsyncExecution", "message", "hola");
+
+        ExecutionResult executionResult = pipelineExecutor.executeAsync(pipeline, doc).join();
+        assertThat(executionResult.isSucceeded()).isTrue();
+        assertThat(doc.getSource().get("newField1")).isEqualTo("value1");
+        assertThat(pipelineExecutorMetrics.getTotalDocsSucceededProcessing()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAsyncUnexpectedFailure() {
+        Pipeline pipeline = createPipeline(createUnexpectedFailAlwaysExecutionStep());
+        Doc doc = createDoc("id", "testAsyncUnexpectedFailure", "message", "hola");
+
+        assertThatThrownBy(() -> pipelineExecutor.executeAsync(pipeline, doc).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(PipelineExecutionException.class);
+        assertThat(pipelineExecutorMetrics.getTotalDocsFailedOnUnexpectedError()).isEqualTo(1);
+    }
+
+    @Test
+    public void testBatchAsyncExecution() {
+        Pipeline pipeline = createPipeline(createAddFieldExecutionStep("newField1", "value1"));
+        List<Doc> docs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            docs.add(createDoc("id", "testBatchAsyncExecution" + i, "message", "hola"));
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<ExecutionResult> executionResults = pipelineExecutor.executeBatchAsync(pipeline, docs, executorService).join();
+            assertThat(executionResults).hasSize(100);
+            assertThat(executionResults).allMatch(ExecutionResult::isSucceeded);
+            assertThat(docs).allMatch(doc -> "value1".equals(doc.getSource().get("newField1")));
+            assertThat(pipelineExecutorMetrics.getTotalDocsSucceededProcessing()).isEqualTo(100);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancelledAsyncExecutionIsSkipped() {
+        Pipeline pipeline = createPipeline(createAddFieldExecutionStep("newField1", "value1"));
+        Doc doc = createDoc("id", "testCancelledAsyncExecutionIsSkipped", "message", "hola");
+        List<Runnable> pending = new ArrayList<>();
+
+        CompletableFuture<ExecutionResult> future = pipelineExecutor.executeAsync(pipeline, doc, pending::add);
+        assertThat(future.cancel(false)).isTrue();
+        pending.forEach(Runnable::run);
+
+        assertThat(doc.hasField("newField1")).isFalse();
+        assertThat(pipelineExecutorMetrics.getTotalDocsSucceededProcessing()).isEqualTo(0);
+    }
+
+    @Test
+    public void testProcessorTimingOff() {
+        PipelineLatencyMetricsMBean metrics = new PipelineLatencyMetricsMBean();
+        PipelineExecutor executor = new PipelineExecutor(new PipelineExecutionTimeWatchdog(WARNING_THRESHOLD_TIME_MS, EXPIRED_THRESHOLD_TIME_MS,
+                metrics, context -> {}), metrics, ProcessorTimingPolicy.OFF);
+        Pipeline pipeline = createPipeline(createAddFieldExecutionStep("newField1", "value1"));
+
+        try {
+            for (int i = 0; i < 100; i++) {
+                assertThat(executor.execute(pipeline, createDoc("message", "hola")).isSucceeded()).isTrue();
+            }
+        } finally {
+            executor.close();
+        }
+
+        assertThat(executor.getProcessorTimingPolicy()).isSameAs(ProcessorTimingPolicy.OFF);
+        assertThat(metrics.getPipelineLatency(pipeline.getId()).get().getCount()).isEqualTo(100);
+        assertThat(metrics.getProcessorLatency(pipeline.getId(), "add1")).isEmpty();
+        assertThat(metrics.getProcessingSucceededCount("add1")).isEqualTo(100);
+    }
+
+    @Test
+    public void testSampledProcessorTiming() {
+        PipelineLatencyMetricsMBean metrics = new PipelineLatencyMetricsMBean();
+        PipelineExecutor executor = new PipelineExecutor(new PipelineExecutionTimeWatchdog(WARNING_THRESHOLD_TIME_MS, EXPIRED_THRESHOLD_TIME_MS,
+                metrics, context -> {}), metrics, ProcessorTimingPolicy.sampled(4));
+        Pipeline pipeline = createPipeline(createAddFieldExecutionStep("newField1", "value1"));
+
+        try {
+            for (int i = 0; i < 2000; i++) {
+                executor.execute(pipeline, createDoc("message", "hola"));
+            }
+        } finally {
+            executor.close();
+        }
+
+        assertThat(executor.getProcessorTimingPolicy().getSampleRate()).isEqualTo(4);
+        assertThat(metrics.getPipelineLatency(pipeline.getId()).get().getCount()).isEqualTo(2000);
+        long processorCount = metrics.getProcessorLatency(pipeline.getId(), "add1").get().getCount();
+        assertThat(processorCount % 4).isEqualTo(0);
+        assertThat(processorCount).isBetween(1400L, 2600L);
+        assertThat(metrics.getProcessingSucceededCount("add1")).isEqualTo(2000);
+    }
+
+    @Test
+    public void testAllocationTracking() {
+        assumeTrue(ThreadAllocationCounter.isSupported());
+        PipelineLatencyMetricsMBean metrics = new PipelineLatencyMetricsMBean();
+        PipelineExecutor executor = new PipelineExecutor(new PipelineExecutionTimeWatchdog(WARNING_THRESHOLD_TIME_MS, EXPIRED_THRESHOLD_TIME_MS,
+                metrics, context -> {}), metrics, ProcessorTimingPolicy.ALWAYS, true);
+        Pipeline pipeline = createPipeline(new ProcessorExecutionStep("allocate1", (Doc doc) -> {
+            doc.addField("bytes", new byte[1024 * 1024]);
+            return ProcessResult.success();
+        }));
+
+        try {
+            executor.execute(pipeline, createDoc("message", "hola"));
+        } finally {
+            executor.close();
+        }
+
+        assertThat(executor.isTrackingAllocations()).isTrue();
+        assertThat(metrics.getProcessorAllocatedBytesPerRun(pipeline.getId(), "allocate1")).isGreaterThanOrEqualTo(1024 * 1024);
+        assertThat(metrics.getAvgProcessorAllocatedBytes("allocate1")).isGreaterThanOrEqualTo(1024 * 1024);
+        assertThat(metrics.getProcessorAllocationRate("allocate1")).isPositive();
+    }
+
+    @Test
+    public void testCompactDocStorage() {
+        PipelineExecutor executor = new PipelineExecutor(new PipelineExecutionTimeWatchdog(WARNING_THRESHOLD_TIME_MS, EXPIRED_THRESHOLD_TIME_MS,
+                pipelineExecutorMetrics, context -> {}), pipelineExecutorMetrics, ProcessorTimingPolicy.ALWAYS, false, DocStorage.compact(new KeyDictionary()));
+        Pipeline pipeline = createPipeline(createAddFieldExecutionStep("nested.newField", "value1"));
+        Doc doc = createDoc("message", "hola");
+
+        try {
+            assertThat(executor.execute(pipeline, doc).isSucceeded()).isTrue();
+        } finally {
+            executor.close();
+        }
+
+        assertThat(executor.getDocStorage().isCompact()).isTrue();
+        assertThat(doc.isCompact()).isTrue();
+        assertThat(doc.getSource()).isInstanceOf(CompactMap.class);
+        assertThat((String) doc.getField("nested.newField")).isEqualTo("value1");
+    }
+
     private List<ExecutionStep> createExecutionSteps(ExecutionStep... steps) {
         return Arrays.asList(steps);
     }
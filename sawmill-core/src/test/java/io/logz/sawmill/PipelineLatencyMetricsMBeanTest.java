@@ -0,0 +1,88 @@
+package io.logz.sawmill;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static io.logz.sawmill.utils.DocUtils.createDoc;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PipelineLatencyMetricsMBeanTest {
+
+    @Test
+    public void testLatencyPerPipelineAndProcessor() {
+        PipelineLatencyMetricsMBean metrics = new PipelineLatencyMetricsMBean();
+        Doc doc = createDoc("message", "hola");
+
+        metrics.pipelineFinishedSuccessfully("pipeline1", doc, 5000);
+        metrics.processorFinishedSuccessfully("pipeline1", "grok1", 4000);
+        metrics.processorFinishedSuccessfully("pipeline2", "grok1", 40);
+
+        assertThat(metrics.getTotalDocsSucceededProcessing()).isEqualTo(1);
+        assertThat(metrics.getPipelineLatency("pipeline1").get().getCount()).isEqualTo(1);
+        assertThat(metrics.getProcessorLatencyPercentile("pipeline1", "grok1", 99)).isBetween(4000L, 4000L + 4000 / 32);
+        assertThat(metrics.getProcessorLatencyPercentile("pipeline2", "grok1", 99)).isEqualTo(40);
+        assertThat(metrics.getProcessorLatency("pipeline1", "missing")).isEmpty();
+        assertThat(metrics.getPipelineLatencyPercentile("missing", 50)).isEqualTo(0);
+    }
+
+    @Test
+    public void testIntervalSnapshot() {
+        PipelineLatencyMetricsMBean metrics = new PipelineLatencyMetricsMBean();
+        metrics.processorFinishedSuccessfully("pipeline1", "grok1", 100);
+        metrics.processorFinishedSuccessfully("pipeline1", "grok1", 100);
+        metrics.intervalSnapshot();
+
+        metrics.processorFinishedSuccessfully("pipeline1", "grok1", 100);
+        List<PipelineLatencyMetricsMBean.PipelineLatencySnapshot> snapshots = metrics.intervalSnapshot();
+
+        assertThat(snapshots).hasSize(1);
+        assertThat(snapshots.get(0).getPipelineId()).isEqualTo("pipeline1");
+        assertThat(snapshots.get(0).getProcessorsLatency().get("grok1").getCount()).isEqualTo(1);
+        assertThat(metrics.getProcessorLatency("pipeline1", "grok1").get().getCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testAllocations() {
+        PipelineLatencyMetricsMBean metrics = new PipelineLatencyMetricsMBean();
+        metrics.processorAllocated("pipeline1", "grok1", 1000);
+        metrics.processorAllocated("pipeline1", "grok1", 3000);
+        assertThat(metrics.getProcessorAllocatedBytesPerRun("pipeline1", "grok1")).isEqualTo(2000);
+        assertThat(metrics.intervalSnapshot().get(0).getProcessorsAllocatedBytes().get("grok1")).isEqualTo(4000);
+
+        metrics.processorAllocated("pipeline1", "grok1", 500);
+        PipelineLatencyMetricsMBean.PipelineLatencySnapshot snapshot = metrics.intervalSnapshot().get(0);
+        assertThat(snapshot.getProcessorsAllocatedBytes().get("grok1")).isEqualTo(500);
+        assertThat(snapshot.getProcessorsAllocationRate().get("grok1")).isPositive();
+        assertThat(metrics.getProcessorAllocationRate("grok1")).isPositive();
+        assertThat(metrics.getProcessorAllocatedBytesPerRun("pipeline1", "missing")).isEqualTo(0);
+    }
+
+    @Test
+    public void testTrackedHistogramsAreBounded() {
+        PipelineLatencyMetricsMBean metrics = new PipelineLatencyMetricsMBean(10);
+        for (int i = 0; i < 100; i++) {
+            metrics.processorFinishedSuccessfully("pipeline" + i, "grok1", 100);
+            metrics.processorFinishedSuccessfully("pipeline" + i, "json1", 100);
+        }
+        assertThat(metrics.getTrackedHistogramsCount()).isEqualTo(9);
+        assertThat(metrics.getTrackedPipelinesCount()).isEqualTo(3);
+        assertThat(metrics.getProcessorLatency("pipeline99", "grok1")).isPresent();
+        assertThat(metrics.getProcessorLatency("pipeline99", "json1")).isPresent();
+
+        metrics.removePipeline("pipeline99");
+        assertThat(metrics.getProcessorLatency("pipeline99", "grok1")).isEmpty();
+        assertThat(metrics.getTrackedHistogramsCount()).isEqualTo(6);
+    }
+
+    @Test
+    public void testPipelineExceedingTheLimitIsNotRecorded() {
+        PipelineLatencyMetricsMBean metrics = new PipelineLatencyMetricsMBean(3);
+        for (int i = 0; i < 5; i++) {
+            metrics.processorFinishedSuccessfully("pipeline1", "processor" + i, 100);
+        }
+        assertThat(metrics.getTrackedHistogramsCount()).isEqualTo(3);
+        assertThat(metrics.getProcessorLatency("pipeline1", "processor1")).isPresent();
+        assertThat(metrics.getProcessorLatency("pipeline1", "processor2")).isEmpty();
+    }
+}
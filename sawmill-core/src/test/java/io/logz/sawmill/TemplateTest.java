@@ -1,15 +1,21 @@
 package io.logz.sawmill;
 
+import com.github.mustachejava.Mustache;
 import com.github.mustachejava.MustacheException;
 import com.google.common.collect.ImmutableMap;
+import io.logz.sawmill.mustache.factories.UnescapedMustacheFactory;
+import io.logz.sawmill.mustache.factories.UnescapedWithJsonStringMustacheFactory;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 
 import static io.logz.sawmill.TemplateService.JSON_STRING_SUFFIX;
 import static io.logz.sawmill.utils.DocUtils.createDoc;
@@ -78,6 +84,45 @@ public class TemplateTest {
         assertThat(value).isEqualTo("this is {0=index0, 1=index1, 2=index3, last=index3, first=index0} and this is first index0, specific index index1 and last index3");
     }
 
+    @Test
+    public void testCompiledTemplateRendersAsMustache() {
+        Doc doc = createDoc("message", "hello", "count", 5, "flag", true, "dotted.key", "literal",
+                "map", ImmutableMap.of("field1", "value1", "nested", ImmutableMap.of("list", Arrays.asList("a", "b"))),
+                "list", Arrays.asList(ImmutableMap.of("field", "first"), "index1", ImmutableMap.of("field", "last")));
+        String[] templates = {
+                "{{message}}", "{{count}}", "{{flag}}", "{{missing}}", "{{dotted.key}}", "{{map}}", "{{list}}",
+                "{{map.nested.list.first}} and {{map.nested.list.1}}", "{{list.first.field}}-{{list.last.field}}",
+                "{{map.missing.field}}!", "{{ message }} {{count}} times", "{{message.length}}",
+                "{{map" + JSON_STRING_SUFFIX + "}} {{list}}", "{{map.nested" + JSON_STRING_SUFFIX + "}}",
+                "{{#date}}yyyy{{/date}} {{message}}", "{{^missing}}no{{/missing}} {{message}}"
+        };
+
+        for (String templateText : templates) {
+            Template compiled = templateService.createTemplate(templateText);
+            assertThat(compiled.render(doc)).as(templateText).isEqualTo(renderWithMustache(templateText, doc));
+            assertThat(compiled.render(null)).as(templateText).isEqualTo(renderWithMustache(templateText, null));
+        }
+    }
+
+    @Test
+    public void testTemplatesCompiledWithoutMustache() {
+        assertThat(templateService.createTemplate("{{message}}")).isInstanceOf(CompiledTemplate.class);
+        assertThat(templateService.createTemplate("{{map" + JSON_STRING_SUFFIX + "}} {{map.field}}")).isInstanceOf(CompiledTemplate.class);
+        assertThat(templateService.createTemplate("Today is {{#dateTemplate}}dd.MM.yyyy{{/dateTemplate}}")).isInstanceOf(CompiledTemplate.class);
+        assertThat(templateService.createTemplate("{{^missing}}no{{/missing}}")).isInstanceOf(TemplateService.MustacheTemplate.class);
+        assertThat(templateService.createTemplate("{{#list}}{{field}}{{/list}}")).isInstanceOf(TemplateService.MustacheTemplate.class);
+    }
+
+    private static String renderWithMustache(String templateText, Doc doc) {
+        boolean jsonString = templateText.contains(JSON_STRING_SUFFIX);
+        Mustache mustache = jsonString ?
+                new UnescapedWithJsonStringMustacheFactory().compile(new StringReader(templateText.replaceAll(JSON_STRING_SUFFIX, "")), "") :
+                new UnescapedMustacheFactory().compile(new StringReader(templateText), "");
+        StringWriter writer = new StringWriter();
+        mustache.execute(writer, Arrays.asList(doc == null ? new LinkedHashMap<>() : doc.getSourceView(), new DateTemplateHandler()));
+        return writer.toString();
+    }
+
     @Test
     public void testNullContext() {
         Doc doc = null;
@@ -82,4 +82,23 @@ public class DeDotProcessorTest {
                 doc.getSource().get("inner" + seperator + "object")).get("friends")).stream().forEach(
                 friend -> assertThat(friend.get("first"+ seperator +"name")).isNotNull());
     }
+
+    @Test
+    public void testForkKeepsUndottedFieldsShared() throws InterruptedException {
+        Doc doc = new Doc(JsonUtils.fromJsonString(Map.class, messageExample));
+        Object undotted = doc.getSource().get("first.name");
+        doc.addField("plain", JsonUtils.createMap("field", "value"));
+        Object plain = doc.getField("plain");
+        Doc fork = doc.fork();
+
+        DeDotProcessor deDotProcessor = createProcessor(DeDotProcessor.class, new HashMap<>());
+        assertThat(deDotProcessor.process(fork).isSucceeded()).isTrue();
+
+        assertThat(fork.hasField("first_name")).isTrue();
+        assertThat((Object) fork.getField("first_name")).isSameAs(undotted);
+        assertThat((Object) fork.getField("plain")).isSameAs(plain);
+        assertThat(doc.getSourceView().get("first.name")).isSameAs(undotted);
+        assertThat(doc.getSourceView().get("first_name")).isNull();
+        assertThat(doc.getSourceView().get("inner.object")).isNotNull();
+    }
 }
@@ -2,6 +2,7 @@ package io.logz.sawmill.processors;
 
 import com.google.common.collect.ImmutableMap;
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.PipelineExecutionMetricsMBean;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.exceptions.ProcessorConfigurationException;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -297,6 +298,84 @@ public class GrokProcessorTest {
         assertThat(doc2.getField("httpversion").toString()).isEqualTo("1.0");
     }
 
+    @Test
+    public void testOrderIndependentExpressionsReordered() throws InterruptedException {
+        String field = "message";
+        List<String> patterns = Arrays.asList("%{SYSLOGBASE}", "%{COMBINEDAPACHELOG}");
+
+        Map<String,Object> config = new HashMap<>();
+        config.put("field", field);
+        config.put("patterns", patterns);
+        config.put("orderIndependent", true);
+        GrokProcessor grokProcessor = factory.create(config);
+
+        Doc sysLogDoc = createDoc(field, SYS_LOG_SAMPLE);
+        assertSysLog(sysLogDoc, grokProcessor.process(sysLogDoc));
+        for (int i = 0; i < 3; i++) {
+            Doc doc = createDoc(field, APACHE_LOG_SAMPLE);
+            assertApacheLog(doc, grokProcessor.process(doc));
+        }
+        assertThat(grokProcessor.getTryOrder()).isEqualTo(patterns);
+
+        grokProcessor.reorder();
+        assertThat(grokProcessor.getTryOrder()).containsExactly("%{COMBINEDAPACHELOG}", "%{SYSLOGBASE}");
+
+        Doc doc = createDoc(field, SYS_LOG_SAMPLE);
+        assertSysLog(doc, grokProcessor.process(doc));
+    }
+
+    @Test
+    public void testOrderIndependentExpressionsReorderedWhileProcessing() throws InterruptedException {
+        String field = "message";
+        List<String> patterns = Arrays.asList("%{SYSLOGBASE}", "%{COMBINEDAPACHELOG}");
+
+        Map<String,Object> config = new HashMap<>();
+        config.put("field", field);
+        config.put("patterns", patterns);
+        config.put("orderIndependent", true);
+        GrokProcessor grokProcessor = factory.create(config);
+
+        for (int i = 0; i < 3; i++) {
+            Doc doc = createDoc(field, APACHE_LOG_SAMPLE);
+            assertApacheLog(doc, grokProcessor.process(doc));
+        }
+        assertThat(grokProcessor.getTryOrder()).isEqualTo(patterns);
+
+        // the reorder is due a second after the processor is created
+        Thread.sleep(1100);
+        Doc doc = createDoc(field, APACHE_LOG_SAMPLE);
+        assertApacheLog(doc, grokProcessor.process(doc));
+        assertThat(grokProcessor.getTryOrder()).containsExactly("%{COMBINEDAPACHELOG}", "%{SYSLOGBASE}");
+    }
+
+    @Test
+    public void testOrderIndependentExpressionsMetrics() throws InterruptedException {
+        String field = "message";
+        Map<String,Object> config = new HashMap<>();
+        config.put("field", field);
+        config.put("patterns", Arrays.asList("%{COMBINEDAPACHELOG}", "%{GREEDYDATA:data}"));
+        config.put("orderIndependent", true);
+        GrokProcessor grokProcessor = factory.create(config);
+
+        grokProcessor.process(createDoc(field, APACHE_LOG_SAMPLE));
+        // contains the literals of the apache expression, so that it is searched and misses
+        grokProcessor.process(createDoc(field, "not an apache log [06/Mar/2013:01:36:30] \" "));
+
+        PipelineExecutionMetricsMBean metricsTracker = new PipelineExecutionMetricsMBean();
+        grokProcessor.reportMetrics("pipeline", "grok", metricsTracker);
+
+        assertThat(metricsTracker.getProcessorExpressionHits("grok", "%{COMBINEDAPACHELOG}")).isEqualTo(1);
+        assertThat(metricsTracker.getProcessorExpressionMisses("grok", "%{COMBINEDAPACHELOG}")).isEqualTo(1);
+        assertThat(metricsTracker.getProcessorExpressionHits("grok", "%{GREEDYDATA:data}")).isEqualTo(1);
+        assertThat(metricsTracker.getProcessorExpressionMisses("grok", "%{GREEDYDATA:data}")).isEqualTo(0);
+        assertThat(metricsTracker.getAvgProcessorExpressionTime("grok", "%{COMBINEDAPACHELOG}")).isPositive();
+
+        // the next report is not due yet
+        grokProcessor.process(createDoc(field, APACHE_LOG_SAMPLE));
+        grokProcessor.reportMetrics("pipeline", "grok", metricsTracker);
+        assertThat(metricsTracker.getProcessorExpressionHits("grok", "%{COMBINEDAPACHELOG}")).isEqualTo(1);
+    }
+
     @Test
     public void testInvalidExpression() throws InterruptedException {
         String field = "message";
@@ -320,7 +399,8 @@ public class GrokProcessorTest {
     public void testInterruptStopsProcessor() {
         String field = "message";
         List<String> patterns = IntStream.range(1, 10000).mapToObj(i -> "%{COMBINEDAPACHELOG}").collect(Collectors.toList());
-        Doc doc = createDoc(field, RandomStringUtils.randomAlphanumeric(100000));
+        // contains the literals the expressions require, so that they are all searched
+        Doc doc = createDoc(field, RandomStringUtils.randomAlphanumeric(100000) + " [06/Mar/2013:01:36:30] \" ");
 
         Map<String,Object> config = ImmutableMap.of(
                 "field", field,
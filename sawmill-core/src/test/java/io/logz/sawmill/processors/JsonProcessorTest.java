@@ -1,7 +1,9 @@
 package io.logz.sawmill.processors;
 
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FailureCode;
 import io.logz.sawmill.ProcessResult;
+import io.logz.sawmill.utilities.DataFormat;
 import io.logz.sawmill.utilities.JsonUtils;
 import org.junit.Test;
 
@@ -37,7 +39,7 @@ public class JsonProcessorTest {
             "}";;
 
     @Test
-    public void testValidJsonWithTarget() {
+    public void testValidJsonWithTarget() throws InterruptedException {
         String field = "message";
         String targetField = "json";
 
@@ -55,7 +57,7 @@ public class JsonProcessorTest {
     }
 
     @Test
-    public void testValidJsonWithTemplateTarget() {
+    public void testValidJsonWithTemplateTarget() throws InterruptedException {
         String field = "message";
         String targetField = "{{jsonField}}";
 
@@ -74,7 +76,7 @@ public class JsonProcessorTest {
     }
 
     @Test
-    public void testValidJsonWithoutTarget() {
+    public void testValidJsonWithoutTarget() throws InterruptedException {
         String field = "message";
 
         Map<String,Object> jsonMap = JsonUtils.fromJsonString(Map.class, VALID_JSON);
@@ -93,7 +95,7 @@ public class JsonProcessorTest {
     }
 
     @Test
-    public void testValidJsonOverrideSourceField() {
+    public void testValidJsonOverrideSourceField() throws InterruptedException {
         String field = "message";
 
         Map<String,Object> jsonMap = JsonUtils.fromJsonString(Map.class, VALID_JSON_WITH_MESSAGE_FIELD);
@@ -112,7 +114,7 @@ public class JsonProcessorTest {
     }
 
     @Test
-    public void testJsonParseFailure() {
+    public void testJsonParseFailure() throws InterruptedException {
         String field = "message";
 
         Doc doc = createDoc(field, INVALID_JSON);
@@ -127,7 +129,7 @@ public class JsonProcessorTest {
     }
 
     @Test
-    public void testFieldNotExists() {
+    public void testFieldNotExists() throws InterruptedException {
         String fieldNotExists = "fieldNotExists";
 
         Doc doc = createDoc("message", VALID_JSON);
@@ -143,4 +145,35 @@ public class JsonProcessorTest {
     public void testBadConfigs() {
         assertThatThrownBy(() -> createProcessor(JsonProcessor.class)).isInstanceOf(NullPointerException.class);
     }
+
+    @Test
+    public void testBinaryPayloads() throws InterruptedException {
+        Map jsonMap = JsonUtils.fromJsonString(Map.class, VALID_JSON);
+        JsonProcessor jsonProcessor = createProcessor(JsonProcessor.class, createConfig("field", "payload", "targetField", "json"));
+
+        for (DataFormat format : DataFormat.values()) {
+            Doc doc = createDoc("payload", JsonUtils.toBytes(format, jsonMap));
+
+            ProcessResult processResult = jsonProcessor.process(doc);
+
+            assertThat(processResult.isSucceeded()).as(format.name()).isTrue();
+            assertThat((Map) doc.getField("json")).as(format.name()).isEqualTo(jsonMap);
+        }
+    }
+
+    @Test
+    public void testBinaryPayloadOfConfiguredFormat() throws InterruptedException {
+        Map jsonMap = JsonUtils.fromJsonString(Map.class, VALID_JSON);
+        JsonProcessor cborProcessor = createProcessor(JsonProcessor.class, createConfig("field", "payload", "binaryFormat", "CBOR"));
+        Doc doc = createDoc("payload", JsonUtils.toBytes(DataFormat.CBOR, jsonMap));
+        Doc smileDoc = createDoc("payload", JsonUtils.toBytes(DataFormat.SMILE, jsonMap));
+
+        assertThat(cborProcessor.process(doc).isSucceeded()).isTrue();
+        assertThat((String) doc.getField("field1")).isEqualTo("value");
+
+        ProcessResult processResult = cborProcessor.process(smileDoc);
+        assertThat(processResult.isSucceeded()).isFalse();
+        assertThat(processResult.getError().get().getCode()).isEqualTo(FailureCode.PARSE_FAILURE);
+        assertThat((List) smileDoc.getField("tags")).contains("_jsonparsefailure");
+    }
 }
@@ -148,4 +148,20 @@ public class UrlDecodeProcessorTest {
         Map<String, Object> config = createConfig("charset","noneExistingCharset");
         assertThatThrownBy(() -> createProcessor(UrlDecodeProcessor.class, config)).isInstanceOf(ProcessorConfigurationException.class);
     }
+
+    @Test
+    public void testForkDecodesWithoutChangingOrigin() throws InterruptedException {
+        Map<String, Object> config = createConfig("allFields","true");
+        UrlDecodeProcessor urlDecodeProcessor = createProcessor(UrlDecodeProcessor.class, config);
+        Doc doc = new Doc(JsonUtils.fromJsonString(Map.class,messageExample));
+        String url = doc.getField("url");
+        Object grades = doc.getField("innerObject.grades");
+        Doc fork = doc.fork();
+
+        assertThat(urlDecodeProcessor.process(fork).isSucceeded()).isTrue();
+
+        assertThat((String) fork.getField("url")).isEqualTo(UrlDecodeProcessor.decodeURIComponent(url, "UTF-8"));
+        assertThat((Object) fork.getField("innerObject.grades")).isSameAs(grades);
+        assertThat((String) doc.getField("url")).isEqualTo(url);
+    }
 }
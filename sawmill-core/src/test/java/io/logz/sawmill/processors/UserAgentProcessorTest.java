@@ -15,7 +15,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class UserAgentProcessorTest {
     @Test
-    public void testValidUserAgent() {
+    public void testValidUserAgent() throws InterruptedException {
         String field = "agent";
         String targetField = "{{uaField}}";
         String uaString = "\"Mozilla/5.0 (Macintosh; Intel Mac OS X 10_10_5) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/54.0.2840.98 Safari/537.36\"";
@@ -47,7 +47,7 @@ public class UserAgentProcessorTest {
     }
 
     @Test
-    public void testUserAgentWithPrefix() {
+    public void testUserAgentWithPrefix() throws InterruptedException {
         String field = "agent";
         String prefix = "UA-";
         String uaString = "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_10_5) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/54.0.2840.98 Safari/537.36";
@@ -75,7 +75,7 @@ public class UserAgentProcessorTest {
     }
 
     @Test
-    public void testInvalidUserAgent() {
+    public void testInvalidUserAgent() throws InterruptedException {
         String field = "agent";
         String targetField = "user_agent";
         String uaString = "invalid user-agent: dsafkjl";
@@ -99,7 +99,7 @@ public class UserAgentProcessorTest {
     }
 
     @Test
-    public void testLongInvalidUserAgent() {
+    public void testLongInvalidUserAgent() throws InterruptedException {
         String field = "agent";
         String targetField = "user_agent";
         String uaString = "CuYDtymfoAScnOxlaYbvTZiOZEWVJsbLZIZBGPvDVjuqcxytUchOaksgiArcMcBhbmfynRsdFMpgSpUrbLqPncRqpMLuvlNvAkEhllRxWcTQSTRqVZVBfIYDVaCdZSd" +
@@ -140,7 +140,7 @@ public class UserAgentProcessorTest {
 
 
     @Test
-    public void testLongValidUserAgent() {
+    public void testLongValidUserAgent() throws InterruptedException {
         String field = "agent";
         String targetField = "{{uaField}}";
         String uaString = " Mozilla/4.0 (compatible; MSIE 8.0; Windows NT 6.0; Trident/4.0; (R1 1.6); SLCC1; .NET CLR 2.0.50727; InfoPath.2; OfficeLiveConnector.1.3; OfficeLivePatch.0.0; " +
@@ -3,6 +3,7 @@ package io.logz.sawmill.processors;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMap;
 import io.logz.sawmill.Doc;
+import io.logz.sawmill.FieldAccess;
 import io.logz.sawmill.ProcessResult;
 import io.logz.sawmill.exceptions.ProcessorConfigurationException;
 import org.apache.commons.io.IOUtils;
@@ -35,7 +36,7 @@ public class XmlProcessorTest {
     public static final String INVALID_XML = "<invalid>/invalid";
 
     @Test
-    public void testValidXml() {
+    public void testValidXml() throws InterruptedException {
         String field = "xml";
 
         Doc doc = createDoc(field, VALID_XML);
@@ -60,7 +61,7 @@ public class XmlProcessorTest {
     }
 
     @Test
-    public void testXPath() {
+    public void testXPath() throws InterruptedException {
         String field = "xml";
 
         Doc doc = createDoc(field, VALID_XML);
@@ -82,7 +83,28 @@ public class XmlProcessorTest {
     }
 
     @Test
-    public void testInvalidXml() {
+    public void testFieldAccess() {
+        XmlProcessor storeToTopLevel = createProcessor(XmlProcessor.class, "field", "xml");
+        XmlProcessor storeToTarget = createProcessor(XmlProcessor.class, "field", "xml", "targetField", "parsed");
+        XmlProcessor xpathOnly = createProcessor(XmlProcessor.class, createConfig("field", "xml",
+                "storeXml", false,
+                "xpath", ImmutableMap.of("/country/name/text()", "name")));
+
+        FieldAccess topLevelAccess = storeToTopLevel.getFieldAccess();
+        assertThat(topLevelAccess.writesAll()).isTrue();
+
+        FieldAccess targetAccess = storeToTarget.getFieldAccess();
+        assertThat(targetAccess.writesAll()).isFalse();
+        assertThat(targetAccess.getWrites()).containsExactly("parsed");
+
+        FieldAccess xpathAccess = xpathOnly.getFieldAccess();
+        assertThat(xpathAccess.writesAll()).isFalse();
+        assertThat(xpathAccess.getWrites()).containsExactly("name");
+        assertThat(xpathAccess.getReads()).contains("xml");
+    }
+
+    @Test
+    public void testInvalidXml() throws InterruptedException {
         String field = "xml";
 
         Doc doc = createDoc(field, INVALID_XML);
@@ -95,7 +117,7 @@ public class XmlProcessorTest {
     }
 
     @Test
-    public void testInvalidXpath() {
+    public void testInvalidXpath() throws InterruptedException {
         Map<String, Object> config = createConfig("field", "someField",
                 "xpath", ImmutableMap.of("/co'untry/la()ngu", "noooo"));
 
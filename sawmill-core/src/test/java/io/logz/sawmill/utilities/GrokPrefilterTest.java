@@ -0,0 +1,46 @@
+package io.logz.sawmill.utilities;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GrokPrefilterTest {
+
+    @Test
+    public void testRequiredLiterals() {
+        assertThat(RegexLiterals.required("(?<ip>\\d+) took (?<ms>\\d+)ms")).containsExactly(" took ", "ms");
+        assertThat(RegexLiterals.required("a(b|c)d+e?f{2}g{0,3}\\.h[x\\]]i")).containsExactly("a", "d", "f", ".h", "i");
+        assertThat(RegexLiterals.required("x(?=abc)y(?!z)w(?<name>vu)+(?:t)*")).containsExactly("x", "y", "w", "vu");
+        assertThat(RegexLiterals.required("\\k<name>a\\p{Alpha}b\\x{41}c{d")).containsExactly("a", "b", "c{d");
+        assertThat(RegexLiterals.required("error|warning")).isEmpty();
+        assertThat(RegexLiterals.required("(?i)error")).isEmpty();
+        assertThat(RegexLiterals.required("unbalanced)")).isEmpty();
+    }
+
+    @Test
+    public void testCandidatesInOriginalOrder() {
+        Map<String, String> patternBank = new HashMap<>();
+        patternBank.put("WORD", "\\b\\w+\\b");
+        List<Grok> groks = Arrays.asList(
+                new Grok(patternBank, "user %{WORD:user} logged in"),
+                new Grok(patternBank, "%{WORD:first} %{WORD:second}"),
+                new Grok(patternBank, "user %{WORD:user} logged out"));
+        GrokPrefilter prefilter = new GrokPrefilter(groks);
+
+        assertThat(prefilter.candidates("user bob logged in")).containsExactly(groks.get(0), groks.get(1));
+        assertThat(prefilter.candidates("user bob logged out")).containsExactly(groks.get(1), groks.get(2));
+        assertThat(prefilter.candidates("nospace")).isEmpty();
+    }
+
+    @Test
+    public void testSingleGrokIsAlwaysCandidate() {
+        List<Grok> groks = Arrays.asList(new Grok(new HashMap<>(), "user (?<user>\\w+)"));
+
+        assertThat(new GrokPrefilter(groks).candidates("nospace")).containsExactly(groks.get(0));
+    }
+}
@@ -0,0 +1,99 @@
+package io.logz.sawmill.utilities;
+
+import io.logz.sawmill.ExecutionDeadline;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class ObjectPoolTest {
+
+    @Test
+    public void testReuseReleasedObject() {
+        AtomicInteger created = new AtomicInteger();
+        ObjectPool<Object> pool = new ObjectPool<>(() -> {
+            created.incrementAndGet();
+            return new Object();
+        });
+
+        Object first = pool.acquire();
+        pool.release(first);
+        Object second = pool.acquire();
+
+        assertThat(second).isSameAs(first);
+        assertThat(created.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCreateWhenAllInUse() {
+        ObjectPool<Object> pool = new ObjectPool<>(Object::new);
+
+        Object first = pool.acquire();
+        Object second = pool.acquire();
+
+        assertThat(second).isNotSameAs(first);
+    }
+
+    @Test
+    public void testIdleObjectsAreBounded() {
+        ObjectPool<Object> pool = new ObjectPool<>(Object::new, 2);
+
+        Object first = pool.acquire();
+        Object second = pool.acquire();
+        Object third = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+
+        assertThat(pool.getIdleCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testBoundedPoolWaitsInsteadOfCreating() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        ObjectPool<Object> pool = ObjectPool.bounded(() -> {
+            created.incrementAndGet();
+            return new Object();
+        }, 1);
+
+        Object first = pool.acquire();
+        CompletableFuture<Object> second = CompletableFuture.supplyAsync(pool::acquire);
+
+        Thread.sleep(100);
+        assertThat(second.isDone()).isFalse();
+
+        pool.release(first);
+
+        await().atMost(1, TimeUnit.SECONDS).until(second::isDone);
+        assertThat(second.get()).isSameAs(first);
+        assertThat(created.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testBoundedPoolWaitIsInterruptible() throws Exception {
+        ObjectPool<Object> pool = ObjectPool.bounded(Object::new, 1);
+        pool.acquire();
+
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread waiter = new Thread(() -> {
+            try {
+                pool.acquire(ExecutionDeadline.NONE);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        waiter.start();
+        Thread.sleep(100);
+        assertThat(waiter.isAlive()).isTrue();
+
+        waiter.interrupt();
+        waiter.join(1000);
+
+        assertThat(interrupted.get()).isTrue();
+    }
+}